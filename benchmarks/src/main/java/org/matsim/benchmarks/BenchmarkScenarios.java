@@ -0,0 +1,131 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BenchmarkScenarios.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmarks;
+
+import java.io.File;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.MatsimNetworkReader;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * The scenarios the benchmarks run on. Besides a synthetic grid network, the
+ * scenarios in the examples directory of matsim are used. The directory is
+ * expected at <code>../matsim/examples</code>, which is where it is when the
+ * benchmarks are started from this module's directory, and can be set with the
+ * system property <code>matsim.examples</code>.
+ */
+final class BenchmarkScenarios {
+
+	/** a grid network of 100 x 100 nodes */
+	static final String GRID = "grid";
+	/** the network of the equil example */
+	static final String EQUIL = "equil";
+	/** the road network of the Sioux Falls example */
+	static final String SIOUXFALLS = "siouxfalls";
+
+	private BenchmarkScenarios() {
+	}
+
+	static String getExamplesDirectory() {
+		return System.getProperty("matsim.examples", "../matsim/examples");
+	}
+
+	static Network loadNetwork(final String name) {
+		switch (name) {
+		case GRID:
+			return createGridNetwork(100);
+		case EQUIL:
+			return readNetwork(getExamplesFile("/equil/network.xml"));
+		case SIOUXFALLS:
+			return readNetwork(getExamplesFile("/siouxfalls-2014/Siouxfalls_network_PT.xml"));
+		default:
+			throw new IllegalArgumentException("Unknown network: " + name);
+		}
+	}
+
+	/**
+	 * @return the equil scenario with the network and 2000 agents with routes
+	 */
+	static Scenario loadEquilScenario() {
+		Config config = ConfigUtils.createConfig();
+		config.network().setInputFile(getExamplesFile("/equil/network.xml"));
+		config.plans().setInputFile(getExamplesFile("/equil/plans2000.xml.gz"));
+		return ScenarioUtils.loadScenario(config);
+	}
+
+	private static String getExamplesFile(final String file) {
+		String filename = getExamplesDirectory() + file;
+		if (!new File(filename).exists()) {
+			throw new IllegalArgumentException("File " + filename + " does not exist. Set the system property matsim.examples to the examples directory of matsim.");
+		}
+		return filename;
+	}
+
+	private static Network readNetwork(final String filename) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario).readFile(filename);
+		return scenario.getNetwork();
+	}
+
+	/**
+	 * Creates a grid with links of 100 to 200 meters in both directions.
+	 */
+	static Network createGridNetwork(final int size) {
+		Random random = new Random(42);
+		NetworkImpl network = (NetworkImpl) ScenarioUtils.createScenario(ConfigUtils.createConfig()).getNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = network.createAndAddNode(Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					linkId = addLinks(network, nodes[x][y], nodes[x + 1][y], random, linkId);
+				}
+				if (y + 1 < size) {
+					linkId = addLinks(network, nodes[x][y], nodes[x][y + 1], random, linkId);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static int addLinks(final NetworkImpl network, final Node a, final Node b, final Random random, int linkId) {
+		network.createAndAddLink(Id.create(linkId++, Link.class), a, b, 100 + random.nextInt(100), 10 + random.nextInt(10), 1000, 1);
+		network.createAndAddLink(Id.create(linkId++, Link.class), b, a, 100 + random.nextInt(100), 10 + random.nextInt(10), 1000, 1);
+		return linkId;
+	}
+
+}
@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the number of events per second dispatched by the {@link EventsManagerImpl},
+ * once to simple counting handlers and once to the {@link TravelTimeCalculator}.
+ * <p/>
+ * The events are link enter and leave events of vehicles driving randomly through
+ * the grid network, generated once before the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EventsBenchmark {
+
+	private static final int VEHICLES = 1000;
+	private static final int LINKS_PER_VEHICLE = 100;
+	private static final int EVENTS = 2 * VEHICLES * LINKS_PER_VEHICLE;
+
+	@Param({"1", "4"})
+	public int handlers;
+
+	private final List<Event> events = new ArrayList<>(EVENTS);
+	private EventsManagerImpl countingEvents;
+	private EventsManagerImpl travelTimeEvents;
+	private TravelTimeCalculator travelTimeCalculator;
+
+	@Setup
+	public void setup() {
+		Network network = BenchmarkScenarios.createGridNetwork(100);
+		Link[] links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		Random random = new Random(42);
+
+		Link[] currentLinks = new Link[VEHICLES];
+		List<Id<Person>> persons = new ArrayList<>(VEHICLES);
+		List<Id<Vehicle>> vehicles = new ArrayList<>(VEHICLES);
+		for (int v = 0; v < VEHICLES; v++) {
+			currentLinks[v] = links[random.nextInt(links.length)];
+			persons.add(Id.create(v, Person.class));
+			vehicles.add(Id.create(v, Vehicle.class));
+		}
+		for (int i = 0; i < LINKS_PER_VEHICLE; i++) {
+			for (int v = 0; v < VEHICLES; v++) {
+				double time = i * 30 + v * 0.01;
+				Link link = currentLinks[v];
+				this.events.add(new LinkLeaveEvent(time, persons.get(v), link.getId(), vehicles.get(v)));
+				List<Link> outLinks = new ArrayList<>(link.getToNode().getOutLinks().values());
+				Link next = outLinks.get(random.nextInt(outLinks.size()));
+				this.events.add(new LinkEnterEvent(time, persons.get(v), next.getId(), vehicles.get(v)));
+				currentLinks[v] = next;
+			}
+		}
+
+		this.countingEvents = new EventsManagerImpl();
+		for (int h = 0; h < this.handlers; h++) {
+			this.countingEvents.addHandler(new CountingHandler());
+		}
+
+		this.travelTimeCalculator = new TravelTimeCalculator(network, new TravelTimeCalculatorConfigGroup());
+		this.travelTimeEvents = new EventsManagerImpl();
+		this.travelTimeEvents.addHandler(this.travelTimeCalculator);
+	}
+
+	@Setup(Level.Invocation)
+	public void resetTravelTimes() {
+		this.travelTimeCalculator.reset(0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void dispatchToCountingHandlers() {
+		for (Event event : this.events) {
+			this.countingEvents.processEvent(event);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void dispatchToTravelTimeCalculator() {
+		for (Event event : this.events) {
+			this.travelTimeEvents.processEvent(event);
+		}
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		int count = 0;
+
+		@Override
+		public void handleEvent(final LinkEnterEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void handleEvent(final LinkLeaveEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void reset(final int iteration) {
+			this.count = 0;
+		}
+	}
+
+}
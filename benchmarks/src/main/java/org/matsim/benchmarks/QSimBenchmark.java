@@ -0,0 +1,104 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time steps per second the QSim simulates in the equil scenario with
+ * 2000 agents, including the network and its QueueWithBuffer lanes, the activity
+ * and the departure handling. Every invocation simulates one day, from 00:00 to 30:00
+ * at the latest; the QSim stops earlier once all agents have arrived, and it skips
+ * idle time steps. The simulated time steps are therefore counted, see {@link SimSteps},
+ * and reported next to the days per second.
+ * The events are dispatched to an events manager without handlers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QSimBenchmark {
+
+	private static final int END_TIME = 30 * 3600;
+
+	@Param({"1", "4"})
+	public int threads;
+
+	private Scenario scenario;
+
+	@Setup
+	public void setup() {
+		this.scenario = BenchmarkScenarios.loadEquilScenario();
+		this.scenario.getConfig().qsim().setStartTime(0);
+		this.scenario.getConfig().qsim().setEndTime(END_TIME);
+		this.scenario.getConfig().qsim().setNumberOfThreads(this.threads);
+	}
+
+	/**
+	 * Counts the time steps the QSim simulated; JMH reports the count per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters
+	public static class SimSteps implements MobsimAfterSimStepListener {
+		public long steps;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.steps = 0;
+		}
+
+		@Override
+		public void notifyMobsimAfterSimStep(final MobsimAfterSimStepEvent e) {
+			this.steps++;
+		}
+	}
+
+	@Benchmark
+	public void simulateDay(final SimSteps simSteps) {
+		QSim qsim = QSimUtils.createDefaultQSim(this.scenario, EventsUtils.createEventsManager());
+		qsim.addQueueSimulationListeners(simSteps);
+		qsim.run();
+	}
+
+}
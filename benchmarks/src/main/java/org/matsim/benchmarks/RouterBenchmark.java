@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouterBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.AStarLandmarksFactory;
+import org.matsim.core.router.util.DijkstraFactory;
+import org.matsim.core.router.util.FastAStarLandmarksFactory;
+import org.matsim.core.router.util.FastDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the number of routes per second the least cost path calculators
+ * find between random pairs of nodes, with free speed travel times.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RouterBenchmark {
+
+	private static final int ROUTES = 1000;
+
+	@Param({BenchmarkScenarios.GRID, BenchmarkScenarios.SIOUXFALLS, BenchmarkScenarios.EQUIL})
+	public String network;
+
+	@Param({"Dijkstra", "FastDijkstra", "AStarLandmarks", "FastAStarLandmarks"})
+	public String router;
+
+	private LeastCostPathCalculator calculator;
+	private final Node[] fromNodes = new Node[ROUTES];
+	private final Node[] toNodes = new Node[ROUTES];
+	private final double[] departureTimes = new double[ROUTES];
+
+	@Setup
+	public void setup() {
+		Network net = BenchmarkScenarios.loadNetwork(this.network);
+		FreespeedTravelTimeAndDisutility travelCosts = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		this.calculator = createFactory(net, travelCosts).createPathCalculator(net, travelCosts, travelCosts);
+
+		Node[] nodes = net.getNodes().values().toArray(new Node[net.getNodes().size()]);
+		Random random = new Random(4711);
+		for (int i = 0; i < ROUTES; i++) {
+			this.fromNodes[i] = nodes[random.nextInt(nodes.length)];
+			this.toNodes[i] = nodes[random.nextInt(nodes.length)];
+			this.departureTimes[i] = random.nextInt(24 * 3600);
+		}
+	}
+
+	private LeastCostPathCalculatorFactory createFactory(final Network net, final FreespeedTravelTimeAndDisutility travelCosts) {
+		switch (this.router) {
+		case "Dijkstra":
+			return new DijkstraFactory();
+		case "FastDijkstra":
+			return new FastDijkstraFactory();
+		case "AStarLandmarks":
+			return new AStarLandmarksFactory(net, travelCosts);
+		case "FastAStarLandmarks":
+			return new FastAStarLandmarksFactory(net, travelCosts);
+		default:
+			throw new IllegalArgumentException("Unknown router: " + this.router);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROUTES)
+	public void calcLeastCostPaths(final Blackhole blackhole) {
+		for (int i = 0; i < ROUTES; i++) {
+			blackhole.consume(this.calculator.calcLeastCostPath(this.fromNodes[i], this.toNodes[i], this.departureTimes[i], null, null));
+		}
+	}
+
+}
@@ -17,6 +17,8 @@ import org.matsim.core.controler.Controler;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.network.NetworkImpl;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.ActivityFacilitiesImpl;
@@ -24,8 +26,14 @@ import org.matsim.facilities.ActivityFacility;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * improvements aug'12<ul>
@@ -66,7 +74,9 @@ import java.util.concurrent.ConcurrentHashMap;
 	private AggregationObject[] aggregatedOpportunities;
 
 	private Map<Modes4Accessibility,Boolean> isComputingMode = new HashMap<>() ;
-	private Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators = new HashMap<>();
+	// one set of calculators per thread, since the calculators keep their least cost path trees as state:
+	private List<Map<Modes4Accessibility, AccessibilityContributionCalculator>> calculatorsPerThread = new ArrayList<>();
+	private int numberOfThreads = 1;
 
 	private PtMatrix ptMatrix;
 
@@ -97,33 +107,48 @@ import java.util.concurrent.ConcurrentHashMap;
 
 	// XXX Ugly but temporary
 	final void initDefaultContributionCalculators( final Controler controler ) {
+		initDefaultContributionCalculators( controler.getLinkTravelTimes(), controler.getTravelDisutilityFactory(), controler.getScenario() );
+	}
+
+	final void initDefaultContributionCalculators( final TravelTime carTravelTime, final TravelDisutilityFactory travelDisutilityFactory,
+			final Scenario scenario ) {
+		calculatorsPerThread.clear();
+		for ( int ii=0 ; ii<Math.max( 1, this.numberOfThreads ) ; ii++ ) {
+			calculatorsPerThread.add( createDefaultContributionCalculators( carTravelTime, travelDisutilityFactory, scenario ) );
+		}
+	}
+
+	private Map<Modes4Accessibility, AccessibilityContributionCalculator> createDefaultContributionCalculators( final TravelTime carTravelTime,
+			final TravelDisutilityFactory travelDisutilityFactory, final Scenario scenario ) {
+		Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators = new HashMap<>();
 		calculators.put(
 				Modes4Accessibility.car,
 				new NetworkModeAccessibilityContributionCalculator(
-						controler.getLinkTravelTimes(),
-						controler.getTravelDisutilityFactory(),
-						controler.getScenario()));
+						carTravelTime,
+						travelDisutilityFactory,
+						scenario));
 		calculators.put(
 				Modes4Accessibility.freeSpeed,
 				new NetworkModeAccessibilityContributionCalculator(
 						new FreeSpeedTravelTime(),
-						controler.getTravelDisutilityFactory(),
-						controler.getScenario() ) );
+						travelDisutilityFactory,
+						scenario ) );
 		calculators.put(
 				Modes4Accessibility.walk,
 				new ConstantSpeedAccessibilityContributionCalculator(
 						TransportMode.walk,
-						controler.getScenario() ) );
+						scenario ) );
 		calculators.put(
 				Modes4Accessibility.bike,
 				new ConstantSpeedAccessibilityContributionCalculator(
 						TransportMode.bike,
-						controler.getScenario()));
+						scenario));
 		calculators.put(
 				Modes4Accessibility.pt,
 				new MatrixBasedPtAccessibilityContributionCalculator(
 						ptMatrix,
-						controler.getConfig() ) );
+						scenario.getConfig() ) );
+		return calculators;
 	}
 	
 	/**
@@ -150,6 +175,7 @@ import java.util.concurrent.ConcurrentHashMap;
 		}
 
 		useRawSum = moduleAPCM.isUsingRawSumsWithoutLn();
+		numberOfThreads = moduleAPCM.getNumberOfThreads();
 		logitScaleParameter = planCalcScoreConfigGroup.getBrainExpBeta();
 		inverseOfLogitScaleParameter = 1 / (logitScaleParameter); // logitScaleParameter = same as brainExpBeta on 2-aug-12. kai
 		walkSpeedMeterPerHour = config.plansCalcRoute().getTeleportedModeSpeeds().get(TransportMode.walk) * 3600.;
@@ -244,14 +270,6 @@ import java.util.concurrent.ConcurrentHashMap;
 
 	
 	final void computeAccessibilities( Scenario scenario, Double departureTime ) {
-		SumOfExpUtils[] gcs = new SumOfExpUtils[Modes4Accessibility.values().length] ;
-		// this could just be a double array, or a Map.  Not using a Map for computational speed reasons (untested);
-		// not using a simple double array for type safety in long argument lists. kai, feb'14
-		for ( int ii=0 ; ii<gcs.length ; ii++ ) {
-			gcs[ii] = new SumOfExpUtils() ;
-		}
-
-
 		// this data structure condense measuring points (origins) that have the same nearest node on the network ...
 		Map<Id<Node>,ArrayList<ActivityFacility>> aggregatedOrigins = new ConcurrentHashMap<>();
 		// ========================================================================
@@ -277,65 +295,156 @@ import java.util.concurrent.ConcurrentHashMap;
 		log.info("Number of aggregated measurement points (origins): " + aggregatedOrigins.size());
 		log.info("Now going through all origins:");
 
-		ProgressBar bar = new ProgressBar( aggregatedOrigins.size() );
+		// the origin nodes are processed in a fixed order, so that the results are written in the same order
+		// independent of the number of threads:
+		final List<Id<Node>> originNodeIds = new ArrayList<>( aggregatedOrigins.keySet() );
+		final double[][][] results = new double[originNodeIds.size()][][];
+
+		ProgressBar bar = new ProgressBar( originNodeIds.size() );
+		final AtomicInteger nextOriginNode = new AtomicInteger( 0 );
 		// ========================================================================
 		// go through all nodes (keys) that have a measuring point (origin) assigned
-		for ( Id<Node> nodeId : aggregatedOrigins.keySet() ) {
-
-			bar.update();
-
-			Node fromNode = scenario.getNetwork().getNodes().get( nodeId );
-
-			for ( AccessibilityContributionCalculator calculator : calculators.values() ) {
-				calculator.notifyNewOriginNode( fromNode, departureTime );
+		if ( this.numberOfThreads <= 1 ) {
+			new OriginSweep( scenario, departureTime, calculatorsPerThread.get( 0 ), originNodeIds, aggregatedOrigins,
+					nextOriginNode, results, bar ).run();
+		} else {
+			log.info("Using " + this.numberOfThreads + " threads for the origin sweeps.");
+			ExecutorService pool = Executors.newFixedThreadPool( this.numberOfThreads );
+			List<Future<?>> futures = new ArrayList<>();
+			for ( int ii=0 ; ii<this.numberOfThreads ; ii++ ) {
+				futures.add( pool.submit( new OriginSweep( scenario, departureTime, calculatorsPerThread.get( ii ),
+						originNodeIds, aggregatedOrigins, nextOriginNode, results, bar ) ) );
 			}
-
-			// get list with origins that are assigned to "fromNode"
-			for ( ActivityFacility origin : aggregatedOrigins.get( nodeId ) ) {
-				assert( origin.getCoord() != null );
-
-				for (SumOfExpUtils gc : gcs) {
-					gc.reset();
+			try {
+				for ( Future<?> future : futures ) {
+					future.get();
 				}
+			} catch ( InterruptedException e ) {
+				throw new RuntimeException( e );
+			} catch ( ExecutionException e ) {
+				throw new RuntimeException( e.getCause() );
+			} finally {
+				pool.shutdown();
+			}
+		}
+		// ========================================================================
 
-				// --------------------------------------------------------------------------------------------------------------
-				// goes through all opportunities, e.g. jobs, (nearest network node) and calculate/add their exp(U) contributions:
-				for (final AggregationObject aggregatedFacility : this.aggregatedOpportunities) {
-					computeAndAddExpUtilContributions( gcs, origin, aggregatedFacility, departureTime );
-				}
-				// --------------------------------------------------------------------------------------------------------------
-				// What does the aggregation of the starting locations save if we do the just ended loop for all starting
-				// points separately anyways?  Answer: The trees need to be computed only once.  (But one could save more.) kai, feb'14
+		// the listeners (e.g. the spatial grids) are not thread-safe, so the results are handed over sequentially:
+		for ( int nn=0 ; nn<originNodeIds.size() ; nn++ ) {
+			ArrayList<ActivityFacility> origins = aggregatedOrigins.get( originNodeIds.get( nn ) );
+			for ( int oo=0 ; oo<origins.size() ; oo++ ) {
+				double[] values = results[nn][oo];
 
 				// aggregated value
 				Map< Modes4Accessibility, Double> accessibilities  = new HashMap<>() ;
-
 				for ( Modes4Accessibility mode : Modes4Accessibility.values() ) {
 					if ( this.isComputingMode.get(mode) ) {
-						if(!useRawSum){ 	// get log sum
-							accessibilities.put( mode, inverseOfLogitScaleParameter * Math.log( gcs[mode.ordinal()].getSum() ) ) ;
-						} else {
-							// this was used by IVT within SustainCity.  Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
-							accessibilities.put( mode, gcs[mode.ordinal()].getSum() ) ;
-//							accessibilities.put( mode, inverseOfLogitScaleParameter * gcs[mode.ordinal()].getSum() ) ;
-							// yyyy why _multiply_ with "inverseOfLogitScaleParameter"??  If anything, would need to take the power:
-							// a * ln(b) = ln( b^a ).  kai, jan'14
-						}
+						accessibilities.put( mode, values[mode.ordinal()] ) ;
 					}
 				}
 
 				for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
 					//log.info("here");
-					zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, accessibilities);
+					zoneDataExchangeInterface.setFacilityAccessibilities(origins.get( oo ), departureTime, accessibilities);
 				}
 			}
+			results[nn] = null;
+		}
+	}
 
+	/**
+	 * Computes the accessibilities for origin nodes taken from a shared counter, using its own set of
+	 * contribution calculators (and thus its own least cost path trees).
+	 */
+	private final class OriginSweep implements Runnable {
+		private final Scenario scenario;
+		private final Double departureTime;
+		private final Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators;
+		private final List<Id<Node>> originNodeIds;
+		private final Map<Id<Node>, ArrayList<ActivityFacility>> aggregatedOrigins;
+		private final AtomicInteger nextOriginNode;
+		private final double[][][] results;
+		private final ProgressBar bar;
+
+		OriginSweep( Scenario scenario, Double departureTime,
+				Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators,
+				List<Id<Node>> originNodeIds, Map<Id<Node>, ArrayList<ActivityFacility>> aggregatedOrigins,
+				AtomicInteger nextOriginNode, double[][][] results, ProgressBar bar ) {
+			this.scenario = scenario;
+			this.departureTime = departureTime;
+			this.calculators = calculators;
+			this.originNodeIds = originNodeIds;
+			this.aggregatedOrigins = aggregatedOrigins;
+			this.nextOriginNode = nextOriginNode;
+			this.results = results;
+			this.bar = bar;
+		}
+
+		@Override
+		public void run() {
+			SumOfExpUtils[] gcs = new SumOfExpUtils[Modes4Accessibility.values().length] ;
+			// this could just be a double array, or a Map.  Not using a Map for computational speed reasons (untested);
+			// not using a simple double array for type safety in long argument lists. kai, feb'14
+			for ( int ii=0 ; ii<gcs.length ; ii++ ) {
+				gcs[ii] = new SumOfExpUtils() ;
+			}
+
+			int nn;
+			while ( ( nn = nextOriginNode.getAndIncrement() ) < originNodeIds.size() ) {
+				synchronized ( bar ) {
+					bar.update();
+				}
+
+				Node fromNode = scenario.getNetwork().getNodes().get( originNodeIds.get( nn ) );
+
+				for ( AccessibilityContributionCalculator calculator : calculators.values() ) {
+					calculator.notifyNewOriginNode( fromNode, departureTime );
+				}
+
+				// get list with origins that are assigned to "fromNode"
+				ArrayList<ActivityFacility> origins = aggregatedOrigins.get( fromNode.getId() );
+				double[][] nodeResults = new double[origins.size()][];
+				for ( int oo=0 ; oo<origins.size() ; oo++ ) {
+					ActivityFacility origin = origins.get( oo );
+					assert( origin.getCoord() != null );
+
+					for (SumOfExpUtils gc : gcs) {
+						gc.reset();
+					}
+
+					// --------------------------------------------------------------------------------------------------------------
+					// goes through all opportunities, e.g. jobs, (nearest network node) and calculate/add their exp(U) contributions:
+					for (final AggregationObject aggregatedFacility : aggregatedOpportunities) {
+						computeAndAddExpUtilContributions( calculators, gcs, origin, aggregatedFacility, departureTime );
+					}
+					// --------------------------------------------------------------------------------------------------------------
+					// What does the aggregation of the starting locations save if we do the just ended loop for all starting
+					// points separately anyways?  Answer: The trees need to be computed only once.  (But one could save more.) kai, feb'14
+
+					double[] values = new double[gcs.length];
+					for ( Modes4Accessibility mode : Modes4Accessibility.values() ) {
+						if ( isComputingMode.get(mode) ) {
+							if(!useRawSum){ 	// get log sum
+								values[mode.ordinal()] = inverseOfLogitScaleParameter * Math.log( gcs[mode.ordinal()].getSum() ) ;
+							} else {
+								// this was used by IVT within SustainCity.  Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
+								values[mode.ordinal()] = gcs[mode.ordinal()].getSum() ;
+//								values[mode.ordinal()] = inverseOfLogitScaleParameter * gcs[mode.ordinal()].getSum() ;
+								// yyyy why _multiply_ with "inverseOfLogitScaleParameter"??  If anything, would need to take the power:
+								// a * ln(b) = ln( b^a ).  kai, jan'14
+							}
+						}
+					}
+					nodeResults[oo] = values;
+				}
+				results[nn] = nodeResults;
+			}
 		}
-		// ========================================================================
 	}
 
 	
-	private void computeAndAddExpUtilContributions( SumOfExpUtils[] gcs, ActivityFacility origin, 
+	private void computeAndAddExpUtilContributions( Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators,
+			SumOfExpUtils[] gcs, ActivityFacility origin, 
 			final AggregationObject aggregatedFacility, Double departureTime) {
 		for ( Map.Entry<Modes4Accessibility, AccessibilityContributionCalculator> calculatorEntry : calculators.entrySet() ) {
 			if ( !isComputingMode.get( calculatorEntry.getKey() ) ) continue; // XXX should be configured by adding only the relevant calculators
@@ -60,6 +60,9 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 	public static final String TIME_OF_DAY = "timeOfDay";
 	private Double timeOfDay = 8.*3600 ;
 
+	private static final String NUMBER_OF_THREADS = "numberOfThreads";
+	private int numberOfThreads = 1 ;
+
 	public AccessibilityConfigGroup() {
 		super(GROUP_NAME);
 		// this class feels quite dangerous to me; one can have inconsistent entries between the Map and the typed values. kai, apr'13
@@ -78,6 +81,9 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 		map.put(USING_RAW_SUMS_WITHOUT_LN, "econometric accessibility usually returns the logsum. " +
 				"Set to true if you just want the sum (without the ln)") ;
 		
+		map.put(NUMBER_OF_THREADS, "number of threads used to compute the accessibilities of the measuring points. " +
+				"Every thread builds its own least cost path trees, so memory consumption grows with the number of threads.") ;
+		
 		map.put(USING_CUSTOM_BOUNDING_BOX, "true if custom bounding box should be used for accessibility computation (otherwise e.g. extent of network will be used)") ;
 		map.put(BOUNDING_BOX_BOTTOM,"custom bounding box parameters for accessibility computation (if enabled)") ;
 		
@@ -128,6 +134,18 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 		this.timeOfDay = val ;
 	}
 	
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return this.numberOfThreads ;
+	}
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads( int val ) {
+		if ( val < 1 ) {
+			throw new IllegalArgumentException("Number of threads must be at least one.");
+		}
+		this.numberOfThreads = val ;
+	}
+	
 	@StringGetter(ACCESSIBILITY_DESTINATION_SAMPLING_RATE)
 	public Double getAccessibilityDestinationSamplingRate(){
 		return this.accessibilityDestinationSamplingRate;
@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AccessibilityCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.accessibility;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.accessibility.interfaces.FacilityDataExchangeInterface;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutility;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacilitiesImpl;
+import org.matsim.facilities.ActivityFacility;
+
+public class AccessibilityCalculatorTest {
+
+	@Test
+	public void testComputeAccessibilities_parallelSameAsSequential() {
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> sequential = computeAccessibilities(1);
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> parallel = computeAccessibilities(4);
+
+		Assert.assertEquals(81, sequential.size());
+		Assert.assertEquals(sequential.keySet(), parallel.keySet());
+		for (Map.Entry<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> e : sequential.entrySet()) {
+			Assert.assertEquals(4, e.getValue().size());
+			for (Double accessibility : e.getValue().values()) {
+				Assert.assertFalse(accessibility.isNaN() || accessibility.isInfinite());
+			}
+			Assert.assertEquals("accessibilities of measuring point " + e.getKey() + " differ.", e.getValue(), parallel.get(e.getKey()));
+		}
+	}
+
+	private static Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> computeAccessibilities(final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		AccessibilityConfigGroup acg = ConfigUtils.addOrGetModule(config, AccessibilityConfigGroup.GROUP_NAME, AccessibilityConfigGroup.class);
+		acg.setNumberOfThreads(numberOfThreads);
+		ScenarioUtils.ScenarioBuilder builder = new ScenarioUtils.ScenarioBuilder(config);
+		builder.setNetwork(createGridNetwork());
+		Scenario scenario = builder.build();
+
+		ActivityFacilities opportunities = scenario.getActivityFacilities();
+		for (Link link : scenario.getNetwork().getLinks().values()) {
+			opportunities.addActivityFacility(opportunities.getFactory().createActivityFacility(
+					Id.create(link.getId(), ActivityFacility.class), link.getCoord()));
+		}
+
+		// a grid of 9 x 9 measuring points covering the whole network
+		ActivityFacilitiesImpl measuringPoints = new ActivityFacilitiesImpl();
+		for (int x = 0; x <= 200; x += 25) {
+			for (int y = 0; y <= 200; y += 25) {
+				measuringPoints.createAndAddFacility(Id.create(x + "_" + y, ActivityFacility.class), new Coord(x, y));
+			}
+		}
+
+		AccessibilityCalculator calculator = new AccessibilityCalculator();
+		calculator.initAccessibilityParameters(config);
+		calculator.initDefaultContributionCalculators(new FreeSpeedTravelTime(),
+				new RandomizingTimeDistanceTravelDisutility.Builder(TransportMode.car), scenario);
+		calculator.aggregateOpportunities(opportunities, scenario.getNetwork());
+		calculator.setMeasuringPoints(measuringPoints);
+		for (Modes4Accessibility mode : new Modes4Accessibility[] {Modes4Accessibility.freeSpeed, Modes4Accessibility.car,
+				Modes4Accessibility.walk, Modes4Accessibility.bike}) {
+			calculator.setComputingAccessibilityForMode(mode, true);
+		}
+
+		final Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> results = new HashMap<>();
+		calculator.addFacilityDataExchangeListener(new FacilityDataExchangeInterface() {
+			@Override
+			public void setFacilityAccessibilities(ActivityFacility measurePoint, Double timeOfDay, Map<Modes4Accessibility, Double> accessibilities) {
+				Assert.assertNull("every measuring point must be reported once.", results.put(measurePoint.getId(), accessibilities));
+			}
+		});
+		calculator.computeAccessibilities(scenario, 8. * 3600);
+		return results;
+	}
+
+	/*
+	 * A grid of 3 x 3 nodes, 100 meters apart, with links in both directions.
+	 */
+	private static Network createGridNetwork() {
+		NetworkImpl network = (NetworkImpl) NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[3][3];
+		for (int x = 0; x < 3; x++) {
+			for (int y = 0; y < 3; y++) {
+				nodes[x][y] = network.createAndAddNode(Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < 3; x++) {
+			for (int y = 0; y < 3; y++) {
+				if (x < 2) {
+					network.createAndAddLink(Id.create(linkId++, Link.class), nodes[x][y], nodes[x + 1][y], 100, 13.9, 2000, 1);
+					network.createAndAddLink(Id.create(linkId++, Link.class), nodes[x + 1][y], nodes[x][y], 100, 13.9, 2000, 1);
+				}
+				if (y < 2) {
+					network.createAndAddLink(Id.create(linkId++, Link.class), nodes[x][y], nodes[x][y + 1], 100, 13.9, 2000, 1);
+					network.createAndAddLink(Id.create(linkId++, Link.class), nodes[x][y + 1], nodes[x][y], 100, 13.9, 2000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
+}
@@ -23,8 +23,8 @@ package org.matsim.analysis;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -43,23 +43,21 @@ public class CalcLinkStats {
 
 	private final static Logger log = Logger.getLogger(CalcLinkStats.class);
 
-	private static class LinkData {
-		public final double[][] volumes;
-		public final double[][] ttimes;
-
-		public LinkData(final double[][] linksVolumes, final double[][] linksTTimes) {
-			this.volumes = linksVolumes.clone();
-			this.ttimes = linksTTimes.clone();
-		}
-	}
-
 	private double volScaleFactor = 1.0;
 
 	private int count = 0;
-	private final Map<Id<Link>, LinkData> linkData;
 	private final int nofHours;
 	private final Network network;
 
+	/*
+	 * The statistics are stored in flat arrays, with one block of nofHours (+1 for the
+	 * daily values of the volumes) elements per link. The links are ordered by id.
+	 */
+	private Link[] links;
+	private int[] linkIndices; // by link id index, -1 for links not in the network
+	private double[][] volumes;
+	private double[][] ttimes;
+
 	private static final int MIN = 0;
 	private static final int MAX = 1;
 	private static final int SUM = 2;
@@ -67,7 +65,6 @@ public class CalcLinkStats {
 
 	public CalcLinkStats(final Network network) {
 		this.network = network;
-		this.linkData = new TreeMap<Id<Link>, LinkData>();
 		this.nofHours = 24;
 		reset();
 	}
@@ -88,22 +85,20 @@ public class CalcLinkStats {
 		// TODO verify ttimes has hourly timeBin-Settings
 
 		// go through all links
-		for (Id<Link> linkId : this.linkData.keySet()) {
-			
-			// retrieve link from link ID
-			Link link = this.network.getLinks().get(linkId);
+		for (int l = 0; l < this.links.length; l++) {
+			Link link = this.links[l];
 			
-			// get the volumes for the link ID from the analyzier
-			double[] volumes = analyzer.getVolumesPerHourForLink(linkId);
+			// get the volumes for the link ID from the analyzer
+			double[] volumes = analyzer.getVolumesPerHourForLink(link.getId());
 			
-			// get the destination container for the data from link data (could have gotten this through iterator right away)
-			LinkData data = this.linkData.get(linkId);
+			int v = l * (this.nofHours + 1);
+			int t = l * this.nofHours;
 			
 			// prepare the sum variables (for volumes);
 			long sumVolumes = 0; // daily (0-24) sum
 			
 			// go through all hours:
-			for (int hour = 0; hour < this.nofHours; hour++) {
+			for (int hour = 0; hour < this.nofHours; hour++, v++, t++) {
 				
 				// get travel time for hour
 				double ttime = ttimes.getLinkTravelTime(link, hour*3600, null, null);
@@ -114,46 +109,59 @@ public class CalcLinkStats {
 				// the following has something to do with the fact that we are doing this for multiple iterations.  So there are variations.
 				// this collects min and max.  There is, however, no good control over how many iterations this is collected.
 				if (this.count == 1) {
-					data.volumes[MIN][hour] = volumes[hour];
-					data.volumes[MAX][hour] = volumes[hour];
-					data.ttimes[MIN][hour] = ttime;
-					data.ttimes[MAX][hour] = ttime;
+					this.volumes[MIN][v] = volumes[hour];
+					this.volumes[MAX][v] = volumes[hour];
+					this.ttimes[MIN][t] = ttime;
+					this.ttimes[MAX][t] = ttime;
 				} else {
-					if (volumes[hour] < data.volumes[MIN][hour]) data.volumes[MIN][hour] = volumes[hour];
-					if (volumes[hour] > data.volumes[MAX][hour]) data.volumes[MAX][hour] = volumes[hour];
-					if (ttime < data.ttimes[MIN][hour]) data.ttimes[MIN][hour] = ttime;
-					if (ttime > data.ttimes[MAX][hour]) data.ttimes[MAX][hour] = ttime;
+					if (volumes[hour] < this.volumes[MIN][v]) this.volumes[MIN][v] = volumes[hour];
+					if (volumes[hour] > this.volumes[MAX][v]) this.volumes[MAX][v] = volumes[hour];
+					if (ttime < this.ttimes[MIN][t]) this.ttimes[MIN][t] = ttime;
+					if (ttime > this.ttimes[MAX][t]) this.ttimes[MAX][t] = ttime;
 				}
 				
 				// this is the regular summing up for each hour
-				data.volumes[SUM][hour] += volumes[hour];
-				data.ttimes[SUM][hour] += volumes[hour] * ttime;
+				this.volumes[SUM][v] += volumes[hour];
+				this.ttimes[SUM][t] += volumes[hour] * ttime;
 			}
-			// dataVolumes[.][nofHours] are daily (0-24) values
+			// volumes[.][nofHours] are daily (0-24) values
 			if (this.count == 1) {
-				data.volumes[MIN][this.nofHours] = sumVolumes;
-				data.volumes[SUM][this.nofHours] = sumVolumes;
-				data.volumes[MAX][this.nofHours] = sumVolumes;
+				this.volumes[MIN][v] = sumVolumes;
+				this.volumes[SUM][v] = sumVolumes;
+				this.volumes[MAX][v] = sumVolumes;
 			} else {
-				if (sumVolumes < data.volumes[MIN][this.nofHours]) data.volumes[MIN][this.nofHours] = sumVolumes;
-				data.volumes[SUM][this.nofHours] += sumVolumes;
-				if (sumVolumes > data.volumes[MAX][this.nofHours]) data.volumes[MAX][this.nofHours] = sumVolumes;
+				if (sumVolumes < this.volumes[MIN][v]) this.volumes[MIN][v] = sumVolumes;
+				this.volumes[SUM][v] += sumVolumes;
+				if (sumVolumes > this.volumes[MAX][v]) this.volumes[MAX][v] = sumVolumes;
 			}
 		}
 	}
 
 	public void reset() {
-		this.linkData.clear();
 		this.count = 0;
 		log.info( " resetting `count' to zero.  This info is here since we want to check when this" +
 				" is happening during normal simulation runs.  kai, jan'11") ;
 
 		// initialize our data-table
-		for (Link link : this.network.getLinks().values()) {
-			LinkData data = new LinkData(new double[NOF_STATS][this.nofHours + 1], new double[NOF_STATS][this.nofHours]);
-			this.linkData.put(link.getId(), data);
+		this.links = this.network.getLinks().values().toArray(new Link[this.network.getLinks().size()]);
+		Arrays.sort(this.links, new Comparator<Link>() {
+			@Override
+			public int compare(final Link o1, final Link o2) {
+				return o1.getId().compareTo(o2.getId());
+			}
+		});
+		this.linkIndices = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(this.linkIndices, -1);
+		for (int l = 0; l < this.links.length; l++) {
+			this.linkIndices[this.links[l].getId().index()] = l;
 		}
+		this.volumes = new double[NOF_STATS][this.links.length * (this.nofHours + 1)];
+		this.ttimes = new double[NOF_STATS][this.links.length * this.nofHours];
+	}
 
+	private int getIndex(final Id<Link> linkId) {
+		int index = linkId.index();
+		return index < this.linkIndices.length ? this.linkIndices[index] : -1;
 	}
 
 	public void writeFile(final String filename) {
@@ -179,10 +187,11 @@ public class CalcLinkStats {
 			out.write("\n");
 
 			// write data
-			for (Map.Entry<Id<Link>, LinkData> entry : this.linkData.entrySet()) {
-				Id<Link> linkId = entry.getKey();
-				LinkData data = entry.getValue();
-				Link link = this.network.getLinks().get(linkId);
+			for (int l = 0; l < this.links.length; l++) {
+				Link link = this.links[l];
+				Id<Link> linkId = link.getId();
+				int v = l * (this.nofHours + 1);
+				int t = l * this.nofHours;
 
 				out.write(linkId.toString());
 				out.write("\t"); // origId, no longer supported
@@ -195,41 +204,41 @@ public class CalcLinkStats {
 				// HRS0-1, HRS1-2, ... HRS23-24
 //				int[] sum = {0, 0, 0};
 				for (int i = 0; i < this.nofHours; i++) {
-					out.write("\t" + Double.toString(data.volumes[MIN][i]));
-//					sum[MIN] = sum[MIN] + data.volumes[MIN][i];
-					out.write("\t" + Double.toString((data.volumes[SUM][i]) / this.count));
-//					sum[SUM] = sum[SUM] + data.volumes[SUM][i];
-					out.write("\t" + Double.toString(data.volumes[MAX][i]));
-//					sum[MAX] = sum[MAX] + data.volumes[MAX][i];
+					out.write("\t" + Double.toString(this.volumes[MIN][v + i]));
+//					sum[MIN] = sum[MIN] + this.volumes[MIN][v + i];
+					out.write("\t" + Double.toString((this.volumes[SUM][v + i]) / this.count));
+//					sum[SUM] = sum[SUM] + this.volumes[SUM][v + i];
+					out.write("\t" + Double.toString(this.volumes[MAX][v + i]));
+//					sum[MAX] = sum[MAX] + this.volumes[MAX][v + i];
 				}
 
 				// HRS0-nofHours
-				out.write("\t" + Double.toString(data.volumes[MIN][this.nofHours]));
-				out.write("\t" + Double.toString((data.volumes[SUM][this.nofHours]) / this.count));
-				out.write("\t" + Double.toString(data.volumes[MAX][this.nofHours]));
+				out.write("\t" + Double.toString(this.volumes[MIN][v + this.nofHours]));
+				out.write("\t" + Double.toString((this.volumes[SUM][v + this.nofHours]) / this.count));
+				out.write("\t" + Double.toString(this.volumes[MAX][v + this.nofHours]));
 
 				// TRAVELTIME0-1, TRAVELTIME1-2, ... TRAVELTIME23-24
 				for (int i = 0; i < this.nofHours; i++) {
-					String ttimesMin = Double.toString(data.ttimes[MIN][i]);
+					String ttimesMin = Double.toString(this.ttimes[MIN][t + i]);
 					out.write("\t" + ttimesMin);
-					if (data.volumes[SUM][i] == 0) {
+					if (this.volumes[SUM][v + i] == 0) {
 						// nobody traveled along the link in this hour, so we cannot calculate an average
 						// use the value available or the minimum instead (min and max should be the same, =freespeed)
-						double ttsum = data.ttimes[SUM][i];
+						double ttsum = this.ttimes[SUM][t + i];
 						if (ttsum != 0.0) {
 							out.write("\t" + Double.toString(ttsum));
 						} else {
 							out.write("\t" + ttimesMin);
 						}
 					} else {
-						double ttsum = data.ttimes[SUM][i];
+						double ttsum = this.ttimes[SUM][t + i];
 						if (ttsum == 0) {
 							out.write("\t" + ttimesMin);
 						} else {
-							out.write("\t" + Double.toString(ttsum / data.volumes[SUM][i]));
+							out.write("\t" + Double.toString(ttsum / this.volumes[SUM][v + i]));
 						}
 					}
-					out.write("\t" + Double.toString(data.ttimes[MAX][i]));
+					out.write("\t" + Double.toString(this.ttimes[MAX][t + i]));
 				}
 				out.write("\n");
 			}
@@ -271,64 +280,68 @@ public class CalcLinkStats {
 				String[] parts = StringUtils.explode(line, '\t');
 				if (parts.length == 154) {
 					Id<Link> linkId = Id.create(parts[0], Link.class);
-					LinkData data = this.linkData.get(linkId);
-					if (data == null) {
+					int l = getIndex(linkId);
+					if (l < 0) {
 						System.err.println("CalcLinkStats.readFile(); unknown link: " + linkId.toString());
 					} else {
+						int v = l * (this.nofHours + 1);
+						int t = l * this.nofHours;
 						int baseTTimes;
 						for (int i = 0; i < this.nofHours; i++) {
-							data.volumes[MIN][i] = Double.parseDouble(parts[7 + i*3]);
-							data.volumes[MIN][i] *= this.volScaleFactor;
-							data.volumes[SUM][i] = Double.parseDouble(parts[8 + i*3]);
-							data.volumes[SUM][i] *= this.volScaleFactor;
-							data.volumes[MAX][i] = Double.parseDouble(parts[9 + i*3]);
-							data.volumes[MAX][i] *= this.volScaleFactor;
+							this.volumes[MIN][v + i] = Double.parseDouble(parts[7 + i*3]);
+							this.volumes[MIN][v + i] *= this.volScaleFactor;
+							this.volumes[SUM][v + i] = Double.parseDouble(parts[8 + i*3]);
+							this.volumes[SUM][v + i] *= this.volScaleFactor;
+							this.volumes[MAX][v + i] = Double.parseDouble(parts[9 + i*3]);
+							this.volumes[MAX][v + i] *= this.volScaleFactor;
 							baseTTimes = 7 + (this.nofHours+1)*3;
-							data.ttimes[MIN][i] = Double.parseDouble(parts[baseTTimes + i*3]);
-							if (data.volumes[SUM][i] == 0) {
-								data.ttimes[SUM][i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]);
+							this.ttimes[MIN][t + i] = Double.parseDouble(parts[baseTTimes + i*3]);
+							if (this.volumes[SUM][v + i] == 0) {
+								this.ttimes[SUM][t + i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]);
 							} else {
-								data.ttimes[SUM][i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]) * data.volumes[SUM][i];
+								this.ttimes[SUM][t + i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]) * this.volumes[SUM][v + i];
 							}
-							data.ttimes[MAX][i] = Double.parseDouble(parts[baseTTimes + i*3 + 2]);
+							this.ttimes[MAX][t + i] = Double.parseDouble(parts[baseTTimes + i*3 + 2]);
 						}
-						data.volumes[MIN][this.nofHours] = Double.parseDouble(parts[7 + this.nofHours*3]);
-						data.volumes[MIN][this.nofHours] *= this.volScaleFactor;
-						data.volumes[SUM][this.nofHours] = Double.parseDouble(parts[8 + this.nofHours*3]);
-						data.volumes[SUM][this.nofHours] *= this.volScaleFactor;
-						data.volumes[MAX][this.nofHours] = Double.parseDouble(parts[9 + this.nofHours*3]);
-						data.volumes[MAX][this.nofHours] *= this.volScaleFactor;
+						this.volumes[MIN][v + this.nofHours] = Double.parseDouble(parts[7 + this.nofHours*3]);
+						this.volumes[MIN][v + this.nofHours] *= this.volScaleFactor;
+						this.volumes[SUM][v + this.nofHours] = Double.parseDouble(parts[8 + this.nofHours*3]);
+						this.volumes[SUM][v + this.nofHours] *= this.volScaleFactor;
+						this.volumes[MAX][v + this.nofHours] = Double.parseDouble(parts[9 + this.nofHours*3]);
+						this.volumes[MAX][v + this.nofHours] *= this.volScaleFactor;
 					}
 				}
 				else if (parts.length == 153) {
 					String linkId = parts[0];
-					LinkData data = this.linkData.get(Id.create(linkId, Link.class));
-					if (data == null) {
+					int l = getIndex(Id.create(linkId, Link.class));
+					if (l < 0) {
 						System.err.println("CalcLinkStats.readFile(); unknown link: " + linkId);
 					} else {
+						int v = l * (this.nofHours + 1);
+						int t = l * this.nofHours;
 						int baseTTimes;
 						for (int i = 0; i < this.nofHours; i++) {
-							data.volumes[MIN][i] = Double.parseDouble(parts[6 + i*3]);
-							data.volumes[MIN][i] *= this.volScaleFactor;
-							data.volumes[SUM][i] = Integer.parseInt(parts[7 + i*3]);
-							data.volumes[SUM][i] *= this.volScaleFactor;
-							data.volumes[MAX][i] = Double.parseDouble(parts[8 + i*3]);
-							data.volumes[MAX][i] *= this.volScaleFactor;
+							this.volumes[MIN][v + i] = Double.parseDouble(parts[6 + i*3]);
+							this.volumes[MIN][v + i] *= this.volScaleFactor;
+							this.volumes[SUM][v + i] = Integer.parseInt(parts[7 + i*3]);
+							this.volumes[SUM][v + i] *= this.volScaleFactor;
+							this.volumes[MAX][v + i] = Double.parseDouble(parts[8 + i*3]);
+							this.volumes[MAX][v + i] *= this.volScaleFactor;
 							baseTTimes = 6 + (this.nofHours+1)*3;
-							data.ttimes[MIN][i] = Double.parseDouble(parts[baseTTimes + i*3]);
-							if (data.volumes[SUM][i] == 0) {
-								data.ttimes[SUM][i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]);
+							this.ttimes[MIN][t + i] = Double.parseDouble(parts[baseTTimes + i*3]);
+							if (this.volumes[SUM][v + i] == 0) {
+								this.ttimes[SUM][t + i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]);
 							} else {
-								data.ttimes[SUM][i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]) * data.volumes[SUM][i];
+								this.ttimes[SUM][t + i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]) * this.volumes[SUM][v + i];
 							}
-							data.ttimes[MAX][i] = Double.parseDouble(parts[baseTTimes + i*3 + 2]);
+							this.ttimes[MAX][t + i] = Double.parseDouble(parts[baseTTimes + i*3 + 2]);
 						}
-						data.volumes[MIN][this.nofHours] = Double.parseDouble(parts[6 + this.nofHours*3]);
-						data.volumes[MIN][this.nofHours] *= this.volScaleFactor;
-						data.volumes[SUM][this.nofHours] = Double.parseDouble(parts[7 + this.nofHours*3]);
-						data.volumes[SUM][this.nofHours] *= this.volScaleFactor;
-						data.volumes[MAX][this.nofHours] = Double.parseDouble(parts[8 + this.nofHours*3]);
-						data.volumes[MAX][this.nofHours] *= this.volScaleFactor;
+						this.volumes[MIN][v + this.nofHours] = Double.parseDouble(parts[6 + this.nofHours*3]);
+						this.volumes[MIN][v + this.nofHours] *= this.volScaleFactor;
+						this.volumes[SUM][v + this.nofHours] = Double.parseDouble(parts[7 + this.nofHours*3]);
+						this.volumes[SUM][v + this.nofHours] *= this.volScaleFactor;
+						this.volumes[MAX][v + this.nofHours] = Double.parseDouble(parts[8 + this.nofHours*3]);
+						this.volumes[MAX][v + this.nofHours] *= this.volScaleFactor;
 					}
 				}
 				else {
@@ -355,8 +368,8 @@ public class CalcLinkStats {
 	 * @return if no data is available, an array with length 0 is returned.
 	 */
 	public double[] getAvgLinkVolumes(final Id<Link> linkId) {
-		LinkData data = this.linkData.get(linkId);
-		if (data == null) {
+		int l = getIndex(linkId);
+		if (l < 0) {
 			return new double[0];
 		}
 		if (this.count == 0) {
@@ -364,7 +377,7 @@ public class CalcLinkStats {
 		}
 		double[] volumes = new double[this.nofHours];
 		for (int i = 0; i < this.nofHours; i++) {
-			volumes[i] = (data.volumes[SUM][i]) / (this.count);
+			volumes[i] = (this.volumes[SUM][l * (this.nofHours + 1) + i]) / (this.count);
 		}
 		return volumes;
 	}
@@ -0,0 +1,219 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkVolumes.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Stores the number of vehicles per link and time slot, in total and per mode.
+ * <p/>
+ * The counts are kept in one row of <code>int</code>s per link and mode, indexed by the
+ * index of the link id. Rows are only created for links with traffic, and modes are
+ * referenced by a small integer instead of their name. Incrementing a count is
+ * thread-safe.
+ *
+ * @see VolumesAnalyzer
+ */
+public final class LinkVolumes {
+
+	private final int numberOfSlots;
+	private final Rows total;
+	private final Map<String, Integer> modeIndices = new HashMap<>();
+	private volatile List<String> modes = new ArrayList<>();
+	private volatile Rows[] rowsPerMode = new Rows[0];
+
+	/**
+	 * @param numberOfSlots the number of time slots per link
+	 * @param expectedNumberOfLinks an estimate of the largest link index, to avoid resizing
+	 */
+	public LinkVolumes(final int numberOfSlots, final int expectedNumberOfLinks) {
+		this.numberOfSlots = numberOfSlots;
+		this.total = new Rows(expectedNumberOfLinks);
+	}
+
+	/**
+	 * @return the index of the mode, which is added if it is not known yet
+	 */
+	public synchronized int getModeIndex(final String mode) {
+		Integer index = this.modeIndices.get(mode);
+		if (index == null) {
+			index = this.modes.size();
+			this.modeIndices.put(mode, index);
+			List<String> newModes = new ArrayList<>(this.modes);
+			newModes.add(mode);
+			Rows[] newRows = Arrays.copyOf(this.rowsPerMode, index + 1);
+			newRows[index] = new Rows(16);
+			this.rowsPerMode = newRows;
+			this.modes = newModes;
+		}
+		return index;
+	}
+
+	/**
+	 * Counts a vehicle on the link without a mode.
+	 */
+	public void increment(final Id<Link> linkId, final int slot) {
+		this.total.getOrCreate(linkId.index(), this.numberOfSlots).incrementAndGet(slot);
+	}
+
+	/**
+	 * Counts a vehicle of the given mode on the link, both in total and for the mode.
+	 *
+	 * @param modeIndex as returned by {@link #getModeIndex(String)}
+	 */
+	public void increment(final Id<Link> linkId, final int modeIndex, final int slot) {
+		int linkIndex = linkId.index();
+		this.total.getOrCreate(linkIndex, this.numberOfSlots).incrementAndGet(slot);
+		this.rowsPerMode[modeIndex].getOrCreate(linkIndex, this.numberOfSlots).incrementAndGet(slot);
+	}
+
+	/**
+	 * @return a copy of the counts per time slot of all vehicles on the link, or
+	 * <code>null</code> if no vehicle was counted on the link.
+	 */
+	public int[] getVolumes(final Id<Link> linkId) {
+		return copy(this.total.get(linkId.index()));
+	}
+
+	/**
+	 * @return a copy of the counts per time slot of the vehicles of the given mode, or
+	 * <code>null</code> if no vehicle of this mode was counted on the link.
+	 */
+	public int[] getVolumes(final Id<Link> linkId, final String mode) {
+		Integer modeIndex;
+		synchronized (this) {
+			modeIndex = this.modeIndices.get(mode);
+		}
+		if (modeIndex == null) {
+			return null;
+		}
+		return copy(this.rowsPerMode[modeIndex].get(linkId.index()));
+	}
+
+	private int[] copy(final AtomicIntegerArray row) {
+		if (row == null) {
+			return null;
+		}
+		int[] volumes = new int[this.numberOfSlots];
+		for (int i = 0; i < this.numberOfSlots; i++) {
+			volumes[i] = row.get(i);
+		}
+		return volumes;
+	}
+
+	public int getNumberOfSlots() {
+		return this.numberOfSlots;
+	}
+
+	/**
+	 * @return the modes for which vehicles were counted
+	 */
+	public List<String> getModes() {
+		List<String> modes = this.modes;
+		Rows[] rowsPerMode = this.rowsPerMode;
+		List<String> countedModes = new ArrayList<>();
+		for (int i = 0; i < modes.size(); i++) {
+			if (rowsPerMode[i].used) {
+				countedModes.add(modes.get(i));
+			}
+		}
+		return countedModes;
+	}
+
+	/**
+	 * @return the ids of all links on which vehicles were counted, ordered by their index
+	 */
+	public Set<Id<Link>> getLinkIds() {
+		Set<Id<Link>> linkIds = new LinkedHashSet<>();
+		AtomicIntegerArray[] rows = this.total.rows;
+		for (int i = 0; i < rows.length; i++) {
+			if (rows[i] != null) {
+				linkIds.add(Id.get(i, Link.class));
+			}
+		}
+		return linkIds;
+	}
+
+	/**
+	 * Removes all counts. The indices of the modes remain valid.
+	 */
+	public synchronized void clear() {
+		this.total.clear();
+		for (Rows rows : this.rowsPerMode) {
+			rows.clear();
+		}
+	}
+
+	/**
+	 * The rows of one mode, indexed by link index. Rows are created under the lock and
+	 * read without it.
+	 */
+	private static final class Rows {
+		volatile AtomicIntegerArray[] rows;
+		volatile boolean used = false;
+
+		Rows(final int capacity) {
+			this.rows = new AtomicIntegerArray[Math.max(capacity, 1)];
+		}
+
+		AtomicIntegerArray get(final int index) {
+			AtomicIntegerArray[] r = this.rows;
+			return index < r.length ? r[index] : null;
+		}
+
+		AtomicIntegerArray getOrCreate(final int index, final int numberOfSlots) {
+			AtomicIntegerArray row = get(index);
+			if (row == null) {
+				synchronized (this) {
+					AtomicIntegerArray[] r = this.rows;
+					if (index >= r.length) {
+						r = Arrays.copyOf(r, Math.max(index + 1, 2 * r.length));
+						this.rows = r;
+					}
+					row = r[index];
+					if (row == null) {
+						row = new AtomicIntegerArray(numberOfSlots);
+						r[index] = row;
+						this.used = true;
+					}
+				}
+			}
+			return row;
+		}
+
+		synchronized void clear() {
+			Arrays.fill(this.rows, null);
+			this.used = false;
+		}
+	}
+
+}
@@ -20,8 +20,7 @@
 
 package org.matsim.analysis;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -37,6 +36,7 @@ import org.matsim.api.core.v01.population.Person;
 
 /**
  * Counts the number of vehicles leaving a link, aggregated into time bins of a specified size.
+ * The counts are kept in a {@link LinkVolumes} store.
  *
  * @author mrieser
  */
@@ -46,12 +46,12 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, PersonDepartureEv
 	private final int timeBinSize;
 	private final int maxTime;
 	private final int maxSlotIndex;
-	private final Map<Id<Link>, int[]> links;
+	private final LinkVolumes links;
 	
 	// for multi-modal support
 	private final boolean observeModes;
-	private final Map<Id<Person>, String> enRouteModes;
-	private final Map<Id<Link>, Map<String, int[]>> linksPerMode;
+	// the index of the mode of the current leg + 1 per person index, 0 if unknown
+	private int[] enRouteModes;
 
 	public VolumesAnalyzer(final int timeBinSize, final int maxTime, final Network network) {
 		this(timeBinSize, maxTime, network, true);
@@ -61,48 +61,35 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, PersonDepartureEv
 		this.timeBinSize = timeBinSize;
 		this.maxTime = maxTime;
 		this.maxSlotIndex = (this.maxTime/this.timeBinSize) + 1;
-		this.links = new HashMap<>((int) (network.getLinks().size() * 1.1), 0.95f);
+		this.links = new LinkVolumes(this.maxSlotIndex + 1, Id.getNumberOfIds(Link.class));
 		
 		this.observeModes = observeModes;
 		if (this.observeModes) {
-			this.enRouteModes = new HashMap<>();
-			this.linksPerMode = new HashMap<>((int) (network.getLinks().size() * 1.1), 0.95f);
+			this.enRouteModes = new int[Id.getNumberOfIds(Person.class)];
 		} else {
 			this.enRouteModes = null;
-			this.linksPerMode = null;
 		}
 	}
 	
 	@Override
 	public void handleEvent(PersonDepartureEvent event) {
 		if (observeModes) {
-			enRouteModes.put(event.getPersonId(), event.getLegMode());
+			int personIndex = event.getPersonId().index();
+			if (personIndex >= this.enRouteModes.length) {
+				this.enRouteModes = Arrays.copyOf(this.enRouteModes, Math.max(personIndex + 1, 2 * this.enRouteModes.length));
+			}
+			this.enRouteModes[personIndex] = this.links.getModeIndex(event.getLegMode()) + 1;
 		}
 	}
 	
 	@Override
 	public void handleEvent(final LinkLeaveEvent event) {
-		int[] volumes = this.links.get(event.getLinkId());
-		if (volumes == null) {
-			volumes = new int[this.maxSlotIndex + 1]; // initialized to 0 by default, according to JVM specs
-			this.links.put(event.getLinkId(), volumes);
-		}
 		int timeslot = getTimeSlotIndex(event.getTime());
-		volumes[timeslot]++;
-		
-		if (observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(event.getLinkId());
-			if (modeVolumes == null) {
-				modeVolumes = new HashMap<>();
-				this.linksPerMode.put(event.getLinkId(), modeVolumes);
-			}
-			String mode = enRouteModes.get(event.getDriverId());
-			volumes = modeVolumes.get(mode);
-			if (volumes == null) {
-				volumes = new int[this.maxSlotIndex + 1]; // initialized to 0 by default, according to JVM specs
-				modeVolumes.put(mode, volumes);
-			}
-			volumes[timeslot]++;
+		int personIndex = event.getDriverId().index();
+		if (observeModes && personIndex < this.enRouteModes.length && this.enRouteModes[personIndex] > 0) {
+			this.links.increment(event.getLinkId(), this.enRouteModes[personIndex] - 1, timeslot);
+		} else {
+			this.links.increment(event.getLinkId(), timeslot);
 		}
 	}
 
@@ -119,7 +106,7 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, PersonDepartureEv
 	 * 		starting with time bin 0 from 0 seconds to (timeBinSize-1)seconds.
 	 */
 	public int[] getVolumesForLink(final Id<Link> linkId) {
-		return this.links.get(linkId);
+		return this.links.getVolumes(linkId);
 	}
 	
 	/**
@@ -130,8 +117,7 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, PersonDepartureEv
 	 */
 	public int[] getVolumesForLink(final Id<Link> linkId, String mode) {
 		if (observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(linkId);
-			if (modeVolumes != null) return modeVolumes.get(mode);
+			return this.links.getVolumes(linkId, mode);
 		} 
 		return null;
 	}
@@ -144,6 +130,13 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, PersonDepartureEv
 	public int getVolumesArraySize() {
 		return this.maxSlotIndex + 1;
 	}
+
+	/**
+	 * @return the store with the counts of this analyzer
+	 */
+	public LinkVolumes getLinkVolumes() {
+		return this.links;
+	}
 	
 	/*
 	 * This procedure is only working if (hour % timeBinSize == 0)
@@ -216,28 +209,21 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, PersonDepartureEv
 	 * @return Set of Strings containing all modes for which counting-values are available.
 	 */
 	public Set<String> getModes() {
-		Set<String> modes = new TreeSet<>();
-		
-		for (Map<String, int[]> map : this.linksPerMode.values()) {
-			modes.addAll(map.keySet());
-		}
-		
-		return modes;
+		return new TreeSet<>(this.links.getModes());
 	}
 	
 	/**
 	 * @return Set of Strings containing all link ids for which counting-values are available.
 	 */
 	public Set<Id<Link>> getLinkIds() {
-		return this.links.keySet();
+		return this.links.getLinkIds();
 	}
 
 	@Override
 	public void reset(final int iteration) {
 		this.links.clear();
 		if (observeModes) {
-			this.linksPerMode.clear();
-			this.enRouteModes.clear();
+			Arrays.fill(this.enRouteModes, 0);
 		}
 	}
 }
@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -34,11 +35,16 @@ import org.matsim.api.core.v01.population.Person;
  * Note that Ids should not contain any whitespace characters (spaces, tabs, newlines, ...), 
  * as this may lead to problems when Ids are written to file and read back in.
  * 
+ * Every Id additionally carries a dense, non-negative index which is unique per type
+ * (i.e. per class given to {@link #create(String, Class)}). The index is assigned in the
+ * order in which the Ids of that type are created and can be used to store data per Id in
+ * plain arrays instead of hash maps, see {@link IdMap} and {@link IdSet}.
+ * 
  *  @author mrieser / Senozon AG
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, TypeCache> cache = new ConcurrentHashMap<Class<?>, TypeCache>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -56,20 +62,78 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 * This method supports a cache where ids are stored and re-used per type.   
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
-		Id<?> id = map.get(key);
+		TypeCache typeCache = getTypeCache(type);
+		Id<?> id = typeCache.ids.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			synchronized (typeCache) {
+				id = typeCache.ids.get(key);
+				if (id == null) {
+					id = new IdImpl<T>(key, typeCache.size);
+					typeCache.add(id);
+					typeCache.ids.put(key, id);
+				}
+			}
 		}
 		
 		return (Id<T>) id;
 	}
 	
+	/**
+	 * @return the Id of the given type with the given index, or <code>null</code> if no such Id was created (yet).
+	 * 
+	 * @see #index()
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		TypeCache typeCache = cache.get(type);
+		if (typeCache == null || index < 0) {
+			return null;
+		}
+		// Ids are immutable, so an Id found in the array without locking is complete
+		Id<?>[] byIndex = typeCache.byIndex;
+		if (index < byIndex.length && byIndex[index] != null) {
+			return (Id<T>) byIndex[index];
+		}
+		synchronized (typeCache) {
+			if (index >= typeCache.size) {
+				return null;
+			}
+			return (Id<T>) typeCache.byIndex[index];
+		}
+	}
+	
+	/**
+	 * @return the number of Ids created so far for the given type. All indices of the Ids of
+	 * this type are smaller than this number.
+	 */
+	public static int getNumberOfIds(final Class<?> type) {
+		TypeCache typeCache = cache.get(type);
+		if (typeCache == null) {
+			return 0;
+		}
+		synchronized (typeCache) {
+			return typeCache.size;
+		}
+	}
+	
+	private static TypeCache getTypeCache(final Class<?> type) {
+		TypeCache typeCache = cache.get(type);
+		if (typeCache == null) {
+			synchronized (cache) {
+				typeCache = cache.get(type);
+				if (typeCache == null) {
+					typeCache = new TypeCache();
+					cache.put(type, typeCache);
+				}
+			}
+		}
+		return typeCache;
+	}
+	
+	/**
+	 * @return the index of this Id, dense and unique among all Ids of the same type.
+	 */
+	public abstract int index();
+	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -110,9 +174,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
@@ -126,6 +197,23 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 
+	private static class TypeCache {
+		/*package*/ final Map<String, Id<?>> ids = new ConcurrentHashMap<String, Id<?>>();
+		/** only replaced, never shrunk, so {@link Id#get(int, Class)} can read it without locking */
+		/*package*/ volatile Id<?>[] byIndex = new Id<?>[16];
+		/*package*/ int size = 0;
+
+		/** must be called while holding the lock on this cache */
+		/*package*/ void add(final Id<?> id) {
+			Id<?>[] ids = this.byIndex;
+			if (this.size == ids.length) {
+				ids = Arrays.copyOf(ids, 2 * ids.length);
+			}
+			ids[this.size++] = id;
+			this.byIndex = ids;
+		}
+	}
+
 	// helper classes for some common cases:
 	public static Id<Person> createPersonId( final long key ) {
 		return create( key, Person.class ) ;
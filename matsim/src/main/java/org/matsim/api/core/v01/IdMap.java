@@ -0,0 +1,286 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map with {@link Id}s as keys, storing the values in an array indexed by {@link Id#index()}.
+ * Lookups are plain array accesses, no hashing of the underlying strings is required.
+ *
+ * All keys must be of the type given in the constructor. Ids of other types have their own
+ * index range and would thus be mapped to wrong entries.
+ *
+ * The map is not thread-safe. Iteration is in the order of the Id indices, i.e. in the order
+ * the Ids were created.
+ *
+ * @param <T> the type of the Ids used as keys
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private static final int MIN_SIZE = 16;
+
+	private final Class<T> idClass;
+	private Object[] data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(MIN_SIZE, Id.getNumberOfIds(idClass)));
+	}
+
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.data = new Object[Math.max(1, initialCapacity)];
+	}
+
+	public Class<T> getIdClass() {
+		return this.idClass;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return get(key) != null;
+	}
+
+	public boolean containsKey(final int index) {
+		return get(index) != null;
+	}
+
+	@Override
+	public boolean containsValue(final Object value) {
+		if (value == null) {
+			return false;
+		}
+		for (Object v : this.data) {
+			if (value.equals(v)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(final Object key) {
+		if (!(key instanceof Id)) {
+			return null;
+		}
+		return get(((Id<?>) key).index());
+	}
+
+	public V get(final int index) {
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		return (V) this.data[index];
+	}
+
+	/**
+	 * Stores the given value for the given key. <code>null</code> values are not supported,
+	 * as they cannot be distinguished from missing entries; use {@link #remove(Object)} instead.
+	 */
+	@Override
+	public V put(final Id<T> key, final V value) {
+		return put(key.index(), value);
+	}
+
+	public V put(final int index, final V value) {
+		if (value == null) {
+			throw new NullPointerException("IdMap does not support null values.");
+		}
+		ensureCapacity(index + 1);
+		V old = (V) this.data[index];
+		this.data[index] = value;
+		if (old == null) {
+			this.size++;
+			this.modCount++;
+		}
+		return old;
+	}
+
+	@Override
+	public V remove(final Object key) {
+		if (!(key instanceof Id)) {
+			return null;
+		}
+		return remove(((Id<?>) key).index());
+	}
+
+	public V remove(final int index) {
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		V old = (V) this.data[index];
+		if (old != null) {
+			this.data[index] = null;
+			this.size--;
+			this.modCount++;
+		}
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.data, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		return new EntrySet();
+	}
+
+	private void ensureCapacity(final int minCapacity) {
+		if (minCapacity > this.data.length) {
+			int newCapacity = Math.max(minCapacity, this.data.length + (this.data.length >> 1) + 1);
+			this.data = Arrays.copyOf(this.data, newCapacity);
+		}
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<Id<T>, V>> {
+		@Override
+		public Iterator<Map.Entry<Id<T>, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<Id<T>, V>> {
+		private int expectedModCount = IdMap.this.modCount;
+		private int nextIndex = -1;
+		private int lastIndex = -1;
+
+		/*package*/ EntryIterator() {
+			advance();
+		}
+
+		private void advance() {
+			Object[] d = IdMap.this.data;
+			do {
+				this.nextIndex++;
+			} while (this.nextIndex < d.length && d[this.nextIndex] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.nextIndex < IdMap.this.data.length;
+		}
+
+		@Override
+		public Map.Entry<Id<T>, V> next() {
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.lastIndex = this.nextIndex;
+			advance();
+			return new Entry(this.lastIndex);
+		}
+
+		@Override
+		public void remove() {
+			if (this.lastIndex < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdMap.this.remove(this.lastIndex);
+			this.lastIndex = -1;
+			this.expectedModCount = IdMap.this.modCount;
+		}
+	}
+
+	private class Entry implements Map.Entry<Id<T>, V> {
+		private final int index;
+
+		/*package*/ Entry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return Id.get(this.index, IdMap.this.idClass);
+		}
+
+		@Override
+		public V getValue() {
+			return IdMap.this.get(this.index);
+		}
+
+		@Override
+		public V setValue(final V value) {
+			return IdMap.this.put(this.index, value);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			Object v = getValue();
+			return getKey().equals(e.getKey()) && (v == null ? e.getValue() == null : v.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Object v = getValue();
+			return getKey().hashCode() ^ (v == null ? 0 : v.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSet.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of {@link Id}s, backed by a {@link BitSet} indexed by {@link Id#index()}.
+ *
+ * All elements must be of the type given in the constructor. The set is not thread-safe.
+ * Iteration is in the order of the Id indices, i.e. in the order the Ids were created.
+ *
+ * @param <T> the type of the Ids contained in the set
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> idClass;
+	private final BitSet data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this.idClass = idClass;
+		this.data = new BitSet(Math.max(1, Id.getNumberOfIds(idClass)));
+	}
+
+	public Class<T> getIdClass() {
+		return this.idClass;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		if (!(o instanceof Id)) {
+			return false;
+		}
+		return contains(((Id<?>) o).index());
+	}
+
+	public boolean contains(final int index) {
+		return index >= 0 && this.data.get(index);
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		return add(id.index());
+	}
+
+	public boolean add(final int index) {
+		if (this.data.get(index)) {
+			return false;
+		}
+		this.data.set(index);
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		if (!(o instanceof Id)) {
+			return false;
+		}
+		return remove(((Id<?>) o).index());
+	}
+
+	public boolean remove(final int index) {
+		if (index < 0 || !this.data.get(index)) {
+			return false;
+		}
+		this.data.clear(index);
+		this.size--;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		this.data.clear();
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new IdIterator();
+	}
+
+	private class IdIterator implements Iterator<Id<T>> {
+		private int expectedModCount = IdSet.this.modCount;
+		private int nextIndex = IdSet.this.data.nextSetBit(0);
+		private int lastIndex = -1;
+
+		@Override
+		public boolean hasNext() {
+			return this.nextIndex >= 0;
+		}
+
+		@Override
+		public Id<T> next() {
+			if (IdSet.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (this.nextIndex < 0) {
+				throw new NoSuchElementException();
+			}
+			this.lastIndex = this.nextIndex;
+			this.nextIndex = IdSet.this.data.nextSetBit(this.nextIndex + 1);
+			return Id.get(this.lastIndex, IdSet.this.idClass);
+		}
+
+		@Override
+		public void remove() {
+			if (this.lastIndex < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdSet.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdSet.this.remove(this.lastIndex);
+			this.lastIndex = -1;
+			this.expectedModCount = IdSet.this.modCount;
+		}
+	}
+
+}
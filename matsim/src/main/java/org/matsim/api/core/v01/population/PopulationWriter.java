@@ -30,12 +30,21 @@ public class PopulationWriter implements MatsimWriter {
 
 	private final Population population;
 	private final Network network;
+	private int numberOfThreads = 1;
 
 	public PopulationWriter(Population population, Network network) {
 		this.population = population;
 		this.network = network;
 	}
 
+	/**
+	 * Sets the number of threads used to serialize the persons (default: 1). The written file does not
+	 * depend on this setting.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Writes the population in the most current format (currently population_v5.dtd).
 	 */
@@ -50,7 +59,9 @@ public class PopulationWriter implements MatsimWriter {
 	 * @param filename
 	 */
 	public void writeV4(final String filename) {
-		new org.matsim.core.population.PopulationWriter(this.population, this.network).writeFileV4(filename);
+		org.matsim.core.population.PopulationWriter writer = new org.matsim.core.population.PopulationWriter(this.population, this.network);
+		writer.setNumberOfThreads(this.numberOfThreads);
+		writer.writeFileV4(filename);
 	}
 
 	/**
@@ -59,7 +70,9 @@ public class PopulationWriter implements MatsimWriter {
 	 * @param filename
 	 */
 	public void writeV5(final String filename) {
-		new org.matsim.core.population.PopulationWriter(this.population, this.network).writeFileV5(filename);
+		org.matsim.core.population.PopulationWriter writer = new org.matsim.core.population.PopulationWriter(this.population, this.network);
+		writer.setNumberOfThreads(this.numberOfThreads);
+		writer.writeFileV5(filename);
 	}
 
 }
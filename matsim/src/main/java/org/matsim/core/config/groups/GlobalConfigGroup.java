@@ -37,10 +37,14 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String REPLANNING_WORK_DISTRIBUTION = "replanningWorkDistribution";
+
+	public static enum ReplanningWorkDistribution { roundRobin, sharedQueue } ;
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private ReplanningWorkDistribution replanningWorkDistribution = ReplanningWorkDistribution.roundRobin;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -48,6 +52,11 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(REPLANNING_WORK_DISTRIBUTION, "How multi-threaded replanning modules distribute the plans among their threads.  "
+				+ ReplanningWorkDistribution.roundRobin + ": every thread gets every n-th plan (reproducible, but the slowest thread determines the "
+				+ "run time).  " + ReplanningWorkDistribution.sharedQueue + ": threads take small batches of plans from a shared queue "
+				+ "as soon as they are idle (better load balancing, but results depend on thread timing as soon as the plan "
+				+ "algorithms use random numbers).") ;
 		return map ;
 	}
 
@@ -72,6 +81,15 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter( REPLANNING_WORK_DISTRIBUTION )
+	public ReplanningWorkDistribution getReplanningWorkDistribution() {
+		return this.replanningWorkDistribution;
+	}
+	@StringSetter( REPLANNING_WORK_DISTRIBUTION )
+	public void setReplanningWorkDistribution(final ReplanningWorkDistribution replanningWorkDistribution) {
+		this.replanningWorkDistribution = replanningWorkDistribution;
+	}
+
 	@StringGetter( COORDINATE_SYSTEM )
 	public String getCoordinateSystem() {
 		return this.coordinateSystem;
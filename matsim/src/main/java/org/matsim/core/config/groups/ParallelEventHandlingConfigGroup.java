@@ -41,6 +41,12 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 
 	private final static String SYNCHRONIZE_ON_SIMSTEPS = "synchronizeOnSimSteps"; 
 	private Boolean synchronizeOnSimSteps = true;
+
+	private final static String BATCH_EVENTS_PER_SIMSTEP = "batchEventsPerSimStep";
+	private boolean batchEventsPerSimStep = false;
+	private final static String BATCH_EVENTS_PER_SIMSTEP_COMMENT = "If true and " + SYNCHRONIZE_ON_SIMSTEPS + " is true, the events of a time step are collected "
+			+ "in a buffer without locking and are processed at the end of the time step by all event handling threads in parallel. "
+			+ "Reduces the overhead per event in simulations with very many events, but events are only handled at the end of each time step.";
 	
 	private boolean locked = false;
 
@@ -53,6 +59,7 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		Map<String, String> comments = super.getComments();
 		comments.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_COMMENT);
 		comments.put(ESTIMATED_NUMBER_OF_EVENTS, "Estimated number of events during mobsim run. An optional optimization hint for the framework.");
+		comments.put(BATCH_EVENTS_PER_SIMSTEP, BATCH_EVENTS_PER_SIMSTEP_COMMENT);
 		return comments;
 	}
 
@@ -106,6 +113,26 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 
+	/**
+	 * {@value #BATCH_EVENTS_PER_SIMSTEP_COMMENT}
+	 */
+	@StringGetter( BATCH_EVENTS_PER_SIMSTEP )
+	public boolean getBatchEventsPerSimStep() {
+		return this.batchEventsPerSimStep;
+	}
+
+	/**
+	 * {@value #BATCH_EVENTS_PER_SIMSTEP_COMMENT}
+	 */
+	@StringSetter( BATCH_EVENTS_PER_SIMSTEP )
+	public void setBatchEventsPerSimStep(boolean batchEventsPerSimStep) {
+		if ( !this.locked ) {
+			this.batchEventsPerSimStep = batchEventsPerSimStep;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
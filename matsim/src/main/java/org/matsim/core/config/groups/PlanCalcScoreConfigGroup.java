@@ -59,6 +59,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String NUMBER_OF_THREADS = "numberOfThreads";
+
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney" ;
 
 	private static final String UTL_OF_LINE_SWITCH = "utilityOfLineSwitch" ;
@@ -290,6 +292,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		map.put(UTL_OF_LINE_SWITCH, "[utils] utility of switching a line (= transfer penalty).  Normally negative") ;
 		map.put(MARGINAL_UTL_OF_MONEY, "[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money)." ) ;
 		map.put(WRITE_EXPERIENCED_PLANS, "write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(NUMBER_OF_THREADS, "number of threads which process the events for the scoring, each one for a subset of the persons. default: 1.  " +
+				"Only use more than one thread if the scoring functions of different persons do not share any state which is not thread-safe.");
 
 		return map;
 	}
@@ -518,6 +522,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public int getNumberOfThreads() {
+		return delegate.getNumberOfThreads();
+	}
+
+	public void setNumberOfThreads(int numberOfThreads) {
+		delegate.setNumberOfThreads(numberOfThreads);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		return getScoringParameters( null ).getMarginalUtlOfWaiting_utils_hr();
 	}
@@ -1152,6 +1164,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
 
+		private int numberOfThreads = 1;
+
 		@StringGetter(FRACTION_OF_ITERATIONS_TO_START_SCORE_MSA)
 		public Double getFractionOfIterationsToStartScoreMSA() {
 			return fractionOfIterationsToStartScoreMSA;
@@ -1221,6 +1235,20 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter( NUMBER_OF_THREADS )
+		public int getNumberOfThreads() {
+			return numberOfThreads;
+		}
+
+		@StringSetter( NUMBER_OF_THREADS )
+		public void setNumberOfThreads(int numberOfThreads) {
+			testForLocked() ;
+			if ( numberOfThreads < 1 ) {
+				throw new IllegalArgumentException( "number of threads must be at least 1, but is " + numberOfThreads );
+			}
+			this.numberOfThreads = numberOfThreads;
+		}
+
 	}
 
 }
@@ -32,6 +32,7 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	public abstract static class NetworkRouteType {
 		public static final String LinkNetworkRoute = "LinkNetworkRoute";
 		public static final String CompressedNetworkRoute = "CompressedNetworkRoute";
+		public static final String ArrayNetworkRoute = "ArrayNetworkRoute";
 	}
 
 	public static enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
@@ -63,7 +64,8 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				NETWORK_ROUTE_TYPE,
 				"Defines how routes are stored in memory. Currently supported: " +
 				NetworkRouteType.LinkNetworkRoute + ", " +
-				NetworkRouteType.CompressedNetworkRoute + ".");
+				NetworkRouteType.CompressedNetworkRoute + ", " +
+				NetworkRouteType.ArrayNetworkRoute + " (link indices in arrays shared by identical routes, uses the least memory).");
 		comments.put(
 				INPUT_PERSON_ATTRIBUTES_FILE,
 				"Path to a file containing person attributes (required file format: ObjectAttributes).");
@@ -229,10 +229,20 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup implements Mobs
 		map.put(USE_DEFAULT_VEHICLES, "[DEPRECATED, use" + VEHICLES_SOURCE + " instead]  If this is true, we do not expect (or use) vehicles from the vehicles database, but create vehicles on the fly with default properties.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(NUMBER_OF_RUNNERS_PER_THREAD, "only with " + USING_THREADPOOL + "=true: number of runners (chunks of the network) per thread. "
+				+ "With more runners than threads, a thread that is done with its chunk takes the next waiting one from the pool's queue, "
+				+ "so that busy parts of the network are spread over all threads.  Default: 1.") ;
+		map.put(LOAD_BALANCING_PERIOD, "time period after which the nodes and links are re-distributed among the runners, "
+				+ "based on the number of node and link simulation steps counted in the previous period.  00:00:00 (the default) "
+				+ "means that the round-robin assignment at the start of the simulation is kept.  Results are reproducible, but "
+				+ "differ from runs without load balancing.") ;
 		map.put(FAST_CAPACITY_UPDATE, "normally, the qsim accumulates fractional flows up to one flow unit.  This is impractical with "
 				+ " with smaller PCEs.  If this switch is set to true, cars can enter a link if the accumulated flow is >=0, and the accumulated flow can go "
 				+ "into negative.  Will probably become the default eventually.") ;
 		map.put(USE_LANES, "Set this parameter to true if lanes should be used, false if not.");
+		map.put(SKIPPING_IDLE_TIME_STEPS, "if the qsim should jump over time steps in which none of its engines has something to do, "
+				+ "e.g. during the night.  Only takes effect if all engines report their next event time and if no listener "
+				+ "is notified before or after every sim step.  The results are the same as without skipping.");
 		{	
 			StringBuilder stb = new StringBuilder() ;
 			for ( VehiclesSource src : VehiclesSource.values() ) {
@@ -496,6 +506,37 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup implements Mobs
 		this.usingThreadpool = val ;
 	}
 
+	private static final String NUMBER_OF_RUNNERS_PER_THREAD = "numberOfRunnersPerThread" ;
+	private int numberOfRunnersPerThread = 1 ;
+	@StringGetter(NUMBER_OF_RUNNERS_PER_THREAD)
+	public int getNumberOfRunnersPerThread() {
+		return this.numberOfRunnersPerThread ;
+	}
+	@StringSetter(NUMBER_OF_RUNNERS_PER_THREAD)
+	public void setNumberOfRunnersPerThread( final int val ) {
+		if ( val < 1 ) {
+			throw new IllegalArgumentException( "Number of runners per thread must be strictly positive, got "+val );
+		}
+		this.numberOfRunnersPerThread = val ;
+	}
+
+	private static final String LOAD_BALANCING_PERIOD = "loadBalancingPeriod" ;
+	private double loadBalancingPeriod = 0. ; // off
+	@StringGetter(LOAD_BALANCING_PERIOD)
+	private String getLoadBalancingPeriodAsString() {
+		return Time.writeTime(getLoadBalancingPeriod());
+	}
+	@StringSetter(LOAD_BALANCING_PERIOD)
+	private void setLoadBalancingPeriod(String value) {
+		setLoadBalancingPeriod(Time.parseTime(value));
+	}
+	public double getLoadBalancingPeriod() {
+		return this.loadBalancingPeriod ;
+	}
+	public void setLoadBalancingPeriod( final double seconds ) {
+		this.loadBalancingPeriod = seconds ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 	@StringGetter(USE_LANES)
@@ -507,4 +548,15 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup implements Mobs
 		this.useLanes = useLanes;
 	}
 
+	private static final String SKIPPING_IDLE_TIME_STEPS = "skippingIdleTimeSteps" ;
+	private boolean skippingIdleTimeSteps = false ;
+	@StringGetter(SKIPPING_IDLE_TIME_STEPS)
+	public boolean isSkippingIdleTimeSteps() {
+		return this.skippingIdleTimeSteps;
+	}
+	@StringSetter(SKIPPING_IDLE_TIME_STEPS)
+	public void setSkippingIdleTimeSteps(final boolean skippingIdleTimeSteps) {
+		this.skippingIdleTimeSteps = skippingIdleTimeSteps;
+	}
+
 }
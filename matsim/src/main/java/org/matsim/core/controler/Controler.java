@@ -95,6 +95,7 @@ public class Controler extends AbstractController {
 
 	public static final String DIRECTORY_ITERS = "ITERS";
 	public static final String FILENAME_EVENTS_XML = "events.xml.gz";
+	public static final String FILENAME_EVENTS_BIN = "events.bin";
 	public static final String FILENAME_LINKSTATS = "linkstats.txt.gz";
 	public static final String FILENAME_TRAVELDISTANCESTATS = "traveldistancestats";
 	public static final String FILENAME_POPULATION = "output_plans.xml.gz";
@@ -69,7 +69,9 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 	@Override
 	public void notifyShutdown(ShutdownEvent event) {
 		// dump plans
-		new PopulationWriter(scenarioData.getPopulation(), scenarioData.getNetwork()).write(controlerIO.getOutputFilename(Controler.FILENAME_POPULATION));
+		PopulationWriter populationWriter = new PopulationWriter(scenarioData.getPopulation(), scenarioData.getNetwork());
+		populationWriter.setNumberOfThreads(scenarioData.getConfig().global().getNumberOfThreads());
+		populationWriter.write(controlerIO.getOutputFilename(Controler.FILENAME_POPULATION));
 		final ObjectAttributes personAttributes = scenarioData.getPopulation().getPersonAttributes();
 		if ( personAttributes!=null ) {
 			ObjectAttributesXmlWriter writer = new ObjectAttributesXmlWriter(personAttributes) ;
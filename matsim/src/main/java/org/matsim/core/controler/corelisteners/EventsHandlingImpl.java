@@ -39,6 +39,7 @@ import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
 import org.matsim.core.events.algorithms.EventWriterXML;
 
 import com.google.inject.Inject;
@@ -80,6 +81,10 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 					this.eventWriters.add(new EventWriterXML(controlerIO.getIterationFilename(event.getIteration(), 
 							Controler.FILENAME_EVENTS_XML)));
 					break;
+				case bin:
+					this.eventWriters.add(new EventWriterBinary(controlerIO.getIterationFilename(event.getIteration(), 
+							Controler.FILENAME_EVENTS_BIN)));
+					break;
 				default:
 					log.warn("Unknown events file format specified: " + format.toString() + ".");
 				}
@@ -77,7 +77,9 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 				|| (event.getIteration() == (firstIteration + 1)))) {
 			stopwatch.beginOperation("dump all plans");
 			log.info("dumping plans...");
-			new PopulationWriter(sc.getPopulation(), sc.getNetwork()).write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
+			PopulationWriter populationWriter = new PopulationWriter(sc.getPopulation(), sc.getNetwork());
+			populationWriter.setNumberOfThreads(sc.getConfig().global().getNumberOfThreads());
+			populationWriter.write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
 		}
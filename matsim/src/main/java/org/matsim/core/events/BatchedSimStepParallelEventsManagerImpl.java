@@ -0,0 +1,273 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchedSimStepParallelEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * Like {@link SimStepParallelEventsManagerImpl}, this EventsManager handles the events
+ * in separate threads and makes sure that all events of a time step are processed
+ * before the simulation goes on. Instead of handing over every single event through
+ * blocking queues, the events of a time step are collected in an {@link EventsBuffer},
+ * to which events can be added from any thread without locking. At the end of the time
+ * step, every events processing thread reads all events of the step from the buffer and
+ * passes them to its group of event handlers. As the threads only read from the buffer,
+ * no synchronization is needed except for one barrier at the begin and one at the end
+ * of the step.
+ * <p/>
+ * Events created by event handlers while the events of a time step are processed are
+ * added to the buffer as well and are processed in a further round before the time step
+ * ends. Steps without events do not involve the events processing threads at all.
+ * <p/>
+ * Note that events are only passed to the event handlers at the end of a time step, not
+ * while the time step is simulated.
+ *
+ * @see EventsBuffer
+ */
+class BatchedSimStepParallelEventsManagerImpl implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(BatchedSimStepParallelEventsManagerImpl.class);
+
+	private final int numOfThreads;
+	private final EventsManagerImpl delegate;
+	private final EventsManagerImpl[] eventsManagers;
+	private final EventsBuffer buffer = new EventsBuffer();
+
+	private CyclicBarrier startBarrier;
+	private CyclicBarrier endBarrier;
+	private ProcessEventsRunnable[] runnables;
+	private Thread[] threads;
+
+	private volatile boolean parallelMode = false;
+	private boolean hadException = false;
+	private int handlerCount = 0;
+
+	public BatchedSimStepParallelEventsManagerImpl() {
+		this(1);
+	}
+
+	public BatchedSimStepParallelEventsManagerImpl(final int numOfThreads) {
+		this.numOfThreads = Math.max(1, numOfThreads);
+		this.delegate = new EventsManagerImpl();
+		this.eventsManagers = new EventsManagerImpl[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(true);
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (this.parallelMode) {
+			this.buffer.add(event);
+		} else this.delegate.processEvent(event);
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+
+		this.eventsManagers[this.handlerCount % this.numOfThreads].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		this.delegate.removeHandler(handler);
+
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(final int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
+
+		this.hadException = false;
+		this.buffer.clear();
+		this.startBarrier = new CyclicBarrier(this.numOfThreads + 1);
+		this.endBarrier = new CyclicBarrier(this.numOfThreads + 1);
+		this.runnables = new ProcessEventsRunnable[this.numOfThreads];
+		this.threads = new Thread[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			this.runnables[i] = new ProcessEventsRunnable(this.eventsManagers[i], this.buffer, this.startBarrier, this.endBarrier);
+			Thread thread = new Thread(this.runnables[i]);
+			thread.setDaemon(true);
+			thread.setName(ProcessEventsRunnable.class.getSimpleName() + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+
+		/*
+		 * During the simulation Events are collected in the buffer.
+		 */
+		this.parallelMode = true;
+	}
+
+	@Override
+	public void afterSimStep(final double time) {
+		/*
+		 * If an exception occurred, the exception has already been thrown and
+		 * the events of this time step cannot be handled correctly anyway.
+		 */
+		if (this.hadException) {
+			return;
+		}
+		processBufferedEvents();
+	}
+
+	/*
+	 * Events which are created after the last time step, e.g. when the agents which
+	 * are still en-route are removed from the simulation, are processed here. Events
+	 * created after this method has been called are processed in the main thread.
+	 */
+	@Override
+	public synchronized void finishProcessing() {
+		if (this.parallelMode) {
+			try {
+				if (!this.hadException) {
+					processBufferedEvents();
+				}
+			} finally {
+				stopThreads();
+				this.parallelMode = false;
+				this.buffer.clear();
+			}
+		}
+
+		this.delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+
+		if (this.hadException) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.");
+		}
+	}
+
+	private void processBufferedEvents() {
+		int from = 0;
+		int to;
+		/*
+		 * Event handlers might create additional events while the events are processed.
+		 * They are added to the buffer behind the events which are currently processed
+		 * and are processed in a further round.
+		 */
+		while ((to = this.buffer.size()) > from) {
+			for (ProcessEventsRunnable runnable : this.runnables) {
+				runnable.from = from;
+				runnable.to = to;
+			}
+			await(this.startBarrier);
+			await(this.endBarrier);
+			for (ProcessEventsRunnable runnable : this.runnables) {
+				if (runnable.exception != null) {
+					this.hadException = true;
+					throw new RuntimeException("Exception while processing events.", runnable.exception);
+				}
+			}
+			from = to;
+		}
+		this.buffer.clear();
+	}
+
+	private void stopThreads() {
+		for (ProcessEventsRunnable runnable : this.runnables) {
+			runnable.stop = true;
+		}
+		await(this.startBarrier);
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void await(final CyclicBarrier barrier) {
+		try {
+			barrier.await();
+		} catch (InterruptedException | BrokenBarrierException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static class ProcessEventsRunnable implements Runnable {
+
+		private final EventsManager eventsManager;
+		private final EventsBuffer buffer;
+		private final CyclicBarrier startBarrier;
+		private final CyclicBarrier endBarrier;
+
+		/*
+		 * Set by the main thread before the start barrier is reached,
+		 * so the barrier makes them visible to this thread.
+		 */
+		/*package*/ int from;
+		/*package*/ int to;
+		/*package*/ boolean stop = false;
+		/*package*/ Throwable exception = null;
+
+		public ProcessEventsRunnable(final EventsManager eventsManager, final EventsBuffer buffer,
+				final CyclicBarrier startBarrier, final CyclicBarrier endBarrier) {
+			this.eventsManager = eventsManager;
+			this.buffer = buffer;
+			this.startBarrier = startBarrier;
+			this.endBarrier = endBarrier;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				await(this.startBarrier);
+				if (this.stop) {
+					break;
+				}
+				/*
+				 * After an exception, the thread still takes part in the synchronization
+				 * of the time steps, but does not process any further events.
+				 */
+				if (this.exception == null) {
+					try {
+						for (int i = this.from; i < this.to; i++) {
+							this.eventsManager.processEvent(this.buffer.get(i));
+						}
+					} catch (Throwable e) {
+						log.error("Thread " + Thread.currentThread().getName() + " got an exception while handling events.", e);
+						this.exception = e;
+					}
+				}
+				await(this.endBarrier);
+			}
+			Gbl.printCurrentThreadCpuTime();
+		}
+
+	}	// ProcessEventsRunnable
+
+}
@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsBuffer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.matsim.api.core.v01.events.Event;
+
+/**
+ * Collects events from any number of threads without locking. A producer claims
+ * the next index with a single atomic increment and then stores the event in the
+ * segment containing that index. Segments are allocated on first use and re-used
+ * after {@link #clear()}, so the buffer does not allocate anything once it has
+ * reached the number of events of the busiest time step.
+ * <p/>
+ * The events can be read by any number of threads concurrently. Reading an index
+ * that has been claimed but not yet written waits until the event is available.
+ *
+ * @see BatchedSimStepParallelEventsManagerImpl
+ */
+/*package*/ final class EventsBuffer {
+
+	private static final int SEGMENT_BITS = 16;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+	// enough segments for Integer.MAX_VALUE events
+	private static final int MAX_SEGMENTS = 1 << (31 - SEGMENT_BITS);
+
+	private final AtomicInteger size = new AtomicInteger(0);
+	private final AtomicReferenceArray<AtomicReferenceArray<Event>> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+
+	/*package*/ void add(final Event event) {
+		int index = this.size.getAndIncrement();
+		if (index < 0) {
+			throw new IllegalStateException("Too many events in a single time step.");
+		}
+		getSegment(index >>> SEGMENT_BITS).lazySet(index & SEGMENT_MASK, event);
+	}
+
+	/**
+	 * @return the number of claimed indices, some of which might not be written yet.
+	 */
+	/*package*/ int size() {
+		return this.size.get();
+	}
+
+	/*package*/ Event get(final int index) {
+		AtomicReferenceArray<Event> segment = getSegment(index >>> SEGMENT_BITS);
+		Event event = segment.get(index & SEGMENT_MASK);
+		while (event == null) {
+			// the index was claimed, but the producer has not yet stored the event
+			Thread.yield();
+			event = segment.get(index & SEGMENT_MASK);
+		}
+		return event;
+	}
+
+	/**
+	 * Removes all events. Must not be called while events are added or read.
+	 */
+	/*package*/ void clear() {
+		int n = this.size.get();
+		for (long start = 0; start < n; start += SEGMENT_SIZE) {
+			AtomicReferenceArray<Event> segment = this.segments.get((int) (start >>> SEGMENT_BITS));
+			int end = (int) Math.min(SEGMENT_SIZE, n - start);
+			for (int i = 0; i < end; i++) {
+				segment.lazySet(i, null);
+			}
+		}
+		this.size.set(0);
+	}
+
+	private AtomicReferenceArray<Event> getSegment(final int segmentIndex) {
+		AtomicReferenceArray<Event> segment = this.segments.get(segmentIndex);
+		if (segment == null) {
+			AtomicReferenceArray<Event> newSegment = new AtomicReferenceArray<>(SEGMENT_SIZE);
+			if (this.segments.compareAndSet(segmentIndex, null, newSegment)) {
+				segment = newSegment;
+			} else {
+				segment = this.segments.get(segmentIndex);
+			}
+		}
+		return segment;
+	}
+
+}
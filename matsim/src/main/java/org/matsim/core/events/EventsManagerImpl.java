@@ -20,6 +20,9 @@
 
 package org.matsim.core.events;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -73,9 +76,16 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>add method public void handleEvent(MyEvent event) to it</li>
  * <li>ready to go, just implement the interface somewhere and add a
  * HandlerObject with a call to <code>Events.addHandler(HandlerObject)</code></li>
- * <li>(optional) add an appropriate line in callHandlerFast() for speeding
+ * <li>(optional) add an appropriate line in createHandlerInfo() for speeding
  * up execution!</li>
  * </ol>
+ * For each handler and event class, a dispatcher is created once when the handlers
+ * for an event class are looked up. Handler interfaces not known to createHandlerInfo()
+ * are called through a {@link MethodHandle} bound to the handler, so custom events
+ * are dispatched without reflection as well.
+ * <p/>
+ * Handlers are only called within a lock on the handler if the instance is used by one
+ * of the parallel events managers, where the same handler may be called from several threads.
  *
  * @author dstrippgen
  * @author mrieser
@@ -98,15 +108,44 @@ public class EventsManagerImpl implements EventsManager {
 		}
 	}
 
-	static private class HandlerInfo {
+	static private abstract class HandlerInfo {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
-		protected final Method method;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
-			this.method = method;
+		}
+
+		protected abstract void callHandler(final Event event);
+	}
+
+	/**
+	 * Calls handler methods for which no specialized HandlerInfo exists.
+	 */
+	static private class MethodHandleHandlerInfo extends HandlerInfo {
+		private static final MethodType HANDLE_EVENT_TYPE = MethodType.methodType(void.class, Event.class);
+		private final MethodHandle handle;
+
+		protected MethodHandleHandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+			super(eventClass, eventHandler);
+			try {
+				// handler interfaces need not be public, e.g. if declared within a test class
+				method.setAccessible(true);
+				this.handle = MethodHandles.lookup().unreflect(method).bindTo(eventHandler).asType(HANDLE_EVENT_TYPE);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException("problem accessing EventHandler " + eventHandler.getClass().getCanonicalName() + " for event-class " + eventClass.getCanonicalName(), e);
+			}
+		}
+
+		@Override
+		protected void callHandler(final Event event) {
+			try {
+				this.handle.invokeExact(event);
+			} catch (Throwable e) {
+				// wrapped the same way as exceptions thrown by handlers called through reflection
+				throw new RuntimeException("problem invoking EventHandler " + this.eventHandler.getClass().getCanonicalName() + " for event-class " + this.eventClass.getCanonicalName(), new InvocationTargetException(e));
+			}
 		}
 	}
 
@@ -114,9 +153,23 @@ public class EventsManagerImpl implements EventsManager {
 
 	private final Map<Class<?>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<Class<?>, HandlerInfo[]>(15);
 
+	private final boolean synchronizeHandlers;
+
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	public EventsManagerImpl() {
+		this(false);
+	}
+
+	/**
+	 * @param synchronizeHandlers whether the handlers should only be called within a lock
+	 *        on the handler, as required if the same handler may be called by several threads.
+	 */
+	/*package*/ EventsManagerImpl(final boolean synchronizeHandlers) {
+		this.synchronizeHandlers = synchronizeHandlers;
+	}
+
 	private HandlerData findHandler(final Class<?> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventklass == evklass) {
@@ -217,21 +270,17 @@ public class EventsManagerImpl implements EventsManager {
 	}
 
 	private void computeEvent(final Event event) {
-		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
-			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
-					continue;
-				}
-				try {
-					info.method.invoke(info.eventHandler, event);
-				} catch (IllegalArgumentException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (IllegalAccessException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+		HandlerInfo[] infos = getHandlersForClass(event.getClass());
+		if (this.synchronizeHandlers) {
+			for (HandlerInfo info : infos) {
+				synchronized(info.eventHandler) {
+					info.callHandler(event);
 				}
 			}
+		} else {
+			for (HandlerInfo info : infos) {
+				info.callHandler(event);
+			}
 		}
 	}
 
@@ -248,7 +297,7 @@ public class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+					info.add(createHandlerInfo(klass, handler, dat.method));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -258,7 +307,7 @@ public class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+					info.add(createHandlerInfo(intfc, handler, dat.method));
 				}
 			}
 		}
@@ -284,58 +333,138 @@ public class EventsManagerImpl implements EventsManager {
 		return intfs;
 	}
 
-	// this method is purely for performance reasons and need not be implemented
-	private boolean callHandlerFast(final Class<?> klass, final Event ev, final EventHandler handler) {
+	// the specialized dispatchers are purely for performance reasons and need not be implemented
+	private static HandlerInfo createHandlerInfo(final Class<?> klass, final EventHandler handler, final Method method) {
 		if (klass == LinkLeaveEvent.class) {
-			((LinkLeaveEventHandler)handler).handleEvent((LinkLeaveEvent)ev);
-			return true;
+			final LinkLeaveEventHandler h = (LinkLeaveEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((LinkLeaveEvent) ev);
+				}
+			};
 		} else if (klass == LinkEnterEvent.class) {
-			((LinkEnterEventHandler)handler).handleEvent((LinkEnterEvent)ev);
-			return true;
+			final LinkEnterEventHandler h = (LinkEnterEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((LinkEnterEvent) ev);
+				}
+			};
 		} else if (klass == Wait2LinkEvent.class) {
-			((Wait2LinkEventHandler)handler).handleEvent((Wait2LinkEvent)ev);
-			return true;
+			final Wait2LinkEventHandler h = (Wait2LinkEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((Wait2LinkEvent) ev);
+				}
+			};
 		} else if (klass == PersonArrivalEvent.class) {
-			((PersonArrivalEventHandler)handler).handleEvent((PersonArrivalEvent)ev);
-			return true;
+			final PersonArrivalEventHandler h = (PersonArrivalEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((PersonArrivalEvent) ev);
+				}
+			};
 		} else if (klass == PersonDepartureEvent.class) {
-			((PersonDepartureEventHandler)handler).handleEvent((PersonDepartureEvent)ev);
-			return true;
+			final PersonDepartureEventHandler h = (PersonDepartureEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((PersonDepartureEvent) ev);
+				}
+			};
 		} else if (klass == ActivityEndEvent.class) {
-			((ActivityEndEventHandler)handler).handleEvent((ActivityEndEvent)ev);
-			return true;
+			final ActivityEndEventHandler h = (ActivityEndEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((ActivityEndEvent) ev);
+				}
+			};
 		} else if (klass == ActivityStartEvent.class) {
-			((ActivityStartEventHandler)handler).handleEvent((ActivityStartEvent)ev);
-			return true;
+			final ActivityStartEventHandler h = (ActivityStartEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((ActivityStartEvent) ev);
+				}
+			};
 		} else if (klass == TransitDriverStartsEvent.class) {
-			((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) ev);
-			return true;
+			final TransitDriverStartsEventHandler h = (TransitDriverStartsEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((TransitDriverStartsEvent) ev);
+				}
+			};
 		} else if (klass == PersonStuckEvent.class) {
-			((PersonStuckEventHandler)handler).handleEvent((PersonStuckEvent)ev);
-			return true;
+			final PersonStuckEventHandler h = (PersonStuckEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((PersonStuckEvent) ev);
+				}
+			};
 		} else if (klass == PersonMoneyEvent.class) {
-			((PersonMoneyEventHandler)handler).handleEvent((PersonMoneyEvent)ev);
-			return true;
+			final PersonMoneyEventHandler h = (PersonMoneyEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((PersonMoneyEvent) ev);
+				}
+			};
 		} else if (klass == AgentWaitingForPtEvent.class) {
-			((AgentWaitingForPtEventHandler)handler).handleEvent((AgentWaitingForPtEvent)ev);
-			return true;
+			final AgentWaitingForPtEventHandler h = (AgentWaitingForPtEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((AgentWaitingForPtEvent) ev);
+				}
+			};
 		} else if (klass == PersonEntersVehicleEvent.class) {
-			((PersonEntersVehicleEventHandler)handler).handleEvent((PersonEntersVehicleEvent)ev);
-			return true;
+			final PersonEntersVehicleEventHandler h = (PersonEntersVehicleEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((PersonEntersVehicleEvent) ev);
+				}
+			};
 		} else if (klass == PersonLeavesVehicleEvent.class) {
-			((PersonLeavesVehicleEventHandler)handler).handleEvent((PersonLeavesVehicleEvent)ev);
-			return true;
+			final PersonLeavesVehicleEventHandler h = (PersonLeavesVehicleEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((PersonLeavesVehicleEvent) ev);
+				}
+			};
 		} else if (klass == VehicleDepartsAtFacilityEvent.class) {
-			((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) ev);
-			return true;
+			final VehicleDepartsAtFacilityEventHandler h = (VehicleDepartsAtFacilityEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((VehicleDepartsAtFacilityEvent) ev);
+				}
+			};
 		} else if (klass == VehicleArrivesAtFacilityEvent.class) {
-			((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) ev);
-			return true;
+			final VehicleArrivesAtFacilityEventHandler h = (VehicleArrivesAtFacilityEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent((VehicleArrivesAtFacilityEvent) ev);
+				}
+			};
 		} else if (klass == Event.class) {
-			((BasicEventHandler)handler).handleEvent(ev);
-			return true;
+			final BasicEventHandler h = (BasicEventHandler) handler;
+			return new HandlerInfo(klass, handler) {
+				@Override
+				protected void callHandler(final Event ev) {
+					h.handleEvent(ev);
+				}
+			};
 		}
-		return false;
+		return new MethodHandleHandlerInfo(klass, handler, method);
 	}
 
 	public void printEventHandlers() {
@@ -0,0 +1,240 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimSomeReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events written by {@link EventWriterBinary} and passes them to an {@link EventsManager}.
+ * The events are created the same way as by {@link EventsReaderXMLv1}, so both readers produce
+ * the same events for the same content. As all ids and types are stored in a dictionary, every
+ * distinct string is only decoded once, which makes this reader considerably faster than parsing xml.
+ *
+ * @see EventWriterBinary
+ */
+public class EventsReaderBinary implements MatsimSomeReader {
+
+	private static final Charset UTF8 = IOUtils.CHARSET_UTF8;
+
+	private final EventsReaderXMLv1 delegate;
+
+	private final List<String[]> layouts = new ArrayList<>();
+	private final List<String> dictionary = new ArrayList<>();
+	private final AttributesImpl atts = new AttributesImpl();
+	private final Inflater inflater = new Inflater();
+	private byte[] compressed = new byte[1024];
+	private byte[] data = new byte[1024];
+	private int pos;
+	private long lastTime;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(final String eventType, final CustomEventMapper cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	public void readFile(final String filename) {
+		InputStream stream = IOUtils.getInputStream(filename);
+		try {
+			readStream(stream);
+		} finally {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	public void readStream(final InputStream stream) {
+		this.layouts.clear();
+		this.dictionary.clear();
+		this.lastTime = 0;
+		DataInputStream in = new DataInputStream(stream);
+		try {
+			byte[] magic = new byte[EventWriterBinary.MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, EventWriterBinary.MAGIC)) {
+				throw new IllegalArgumentException("Not a binary MATSim events file.");
+			}
+			int version = in.readInt();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("Unsupported version of binary events file: " + version);
+			}
+			int nOfEvents;
+			while ((nOfEvents = in.readInt()) > 0) {
+				int rawSize = in.readInt();
+				int compressedSize = in.readInt();
+				readBlock(in, rawSize, compressedSize);
+				processBlock(nOfEvents);
+			}
+		} catch (EOFException e) {
+			throw new UncheckedIOException(new IOException("Unexpected end of binary events file; the file was probably not closed correctly.", e));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readBlock(final DataInputStream in, final int rawSize, final int compressedSize) throws IOException {
+		if (this.compressed.length < compressedSize) {
+			this.compressed = new byte[compressedSize];
+		}
+		if (this.data.length < rawSize) {
+			this.data = new byte[rawSize];
+		}
+		in.readFully(this.compressed, 0, compressedSize);
+		this.inflater.reset();
+		this.inflater.setInput(this.compressed, 0, compressedSize);
+		try {
+			int n = 0;
+			while (n < rawSize && !this.inflater.finished()) {
+				n += this.inflater.inflate(this.data, n, rawSize - n);
+			}
+			if (n != rawSize) {
+				throw new IOException("Corrupt block in binary events file.");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt block in binary events file.", e);
+		}
+	}
+
+	private void processBlock(final int nOfEvents) {
+		this.pos = 0;
+		int layoutSize = readInt();
+		int timeSize = readInt();
+		int layoutPos = this.pos;
+		int timePos = layoutPos + layoutSize;
+		int valuePos = timePos + timeSize;
+
+		for (int i = 0; i < nOfEvents; i++) {
+			this.pos = layoutPos;
+			String[] layout = readLayout();
+			layoutPos = this.pos;
+
+			this.pos = timePos;
+			double time = readTime();
+			timePos = this.pos;
+
+			this.pos = valuePos;
+			this.atts.clear();
+			for (int k = 1; k < layout.length; k++) {
+				String value = readValue();
+				if (value != null) {
+					this.atts.addAttribute("", layout[k], layout[k], "CDATA", value);
+				}
+			}
+			valuePos = this.pos;
+
+			this.delegate.startEvent(time, layout[0], this.atts);
+		}
+	}
+
+	private String[] readLayout() {
+		int code = (int) readVarint();
+		if (code > 0) {
+			return this.layouts.get(code - 1);
+		}
+		String[] layout = new String[(int) readVarint()];
+		for (int k = 0; k < layout.length; k++) {
+			layout[k] = readString().intern();
+		}
+		this.layouts.add(layout);
+		return layout;
+	}
+
+	private double readTime() {
+		long code = readVarint();
+		if ((code & 1) != 0) {
+			return Double.longBitsToDouble(readLong());
+		}
+		long zigzag = code >>> 1;
+		this.lastTime += (zigzag >>> 1) ^ -(zigzag & 1);
+		return this.lastTime;
+	}
+
+	private String readValue() {
+		int code = (int) readVarint();
+		switch (code) {
+		case EventWriterBinary.VALUE_NULL:
+			return null;
+		case EventWriterBinary.VALUE_NEW_ENTRY:
+			String entry = readString();
+			this.dictionary.add(entry);
+			return entry;
+		case EventWriterBinary.VALUE_LITERAL:
+			return readString();
+		default:
+			return this.dictionary.get(code - EventWriterBinary.VALUE_FIRST_ENTRY);
+		}
+	}
+
+	private long readVarint() {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.data[this.pos++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private int readInt() {
+		int value = ((this.data[this.pos] & 0xFF) << 24) | ((this.data[this.pos + 1] & 0xFF) << 16)
+				| ((this.data[this.pos + 2] & 0xFF) << 8) | (this.data[this.pos + 3] & 0xFF);
+		this.pos += 4;
+		return value;
+	}
+
+	private long readLong() {
+		long high = readInt() & 0xFFFFFFFFL;
+		long low = readInt() & 0xFFFFFFFFL;
+		return (high << 32) | low;
+	}
+
+	private String readString() {
+		int length = (int) readVarint();
+		String s = new String(this.data, this.pos, length, UTF8);
+		this.pos += length;
+		return s;
+	}
+
+}
@@ -81,9 +81,14 @@ public class EventsReaderXMLv1 extends MatsimXmlParser {
 	}
 
 	private void startEvent(final Attributes atts) {
-		double time = Double.parseDouble(atts.getValue("time"));
-		String eventType = atts.getValue("type");
+		startEvent(Double.parseDouble(atts.getValue("time")), atts.getValue("type"), atts);
+	}
 
+	/**
+	 * Creates the event described by the given attributes and passes it to the events manager.
+	 * Also used by {@link EventsReaderBinary}, which provides time and type separately.
+	 */
+	/*package*/ void startEvent(final double time, final String eventType, final Attributes atts) {
 		if (LinkLeaveEvent.EVENT_TYPE.equals(eventType)) {
 			this.events.processEvent(new LinkLeaveEvent(time, Id.create(atts.getValue(LinkLeaveEvent.ATTRIBUTE_PERSON), Person.class), Id.create(atts.getValue(LinkLeaveEvent.ATTRIBUTE_LINK), Link.class), atts.getValue(LinkLeaveEvent.ATTRIBUTE_VEHICLE) == null ? null : Id.create(atts.getValue(LinkLeaveEvent.ATTRIBUTE_VEHICLE), Vehicle.class)));
 		} else if (LinkEnterEvent.EVENT_TYPE.equals(eventType)) {
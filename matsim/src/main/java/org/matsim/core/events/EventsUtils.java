@@ -13,8 +13,12 @@ public class EventsUtils {
         Integer numberOfThreads = config.parallelEventHandling().getNumberOfThreads();
         Long estimatedNumberOfEvents = config.parallelEventHandling().getEstimatedNumberOfEvents();
         Boolean synchronizeOnSimSteps = config.parallelEventHandling().getSynchronizeOnSimSteps();
+        boolean batchEventsPerSimStep = config.parallelEventHandling().getBatchEventsPerSimStep();
         if (numberOfThreads != null) {
             if (synchronizeOnSimSteps != null && synchronizeOnSimSteps) {
+                if (batchEventsPerSimStep) {
+                    return new BatchedSimStepParallelEventsManagerImpl(numberOfThreads);
+                }
                 return new SimStepParallelEventsManagerImpl(numberOfThreads);
             } else {
                 if (estimatedNumberOfEvents != null) {
@@ -24,17 +28,22 @@ public class EventsUtils {
                 }
             }
         }
+        if (batchEventsPerSimStep && synchronizeOnSimSteps != null && synchronizeOnSimSteps) {
+            return new BatchedSimStepParallelEventsManagerImpl();
+        }
         return new SimStepParallelEventsManagerImpl();
     }
 
     /**
-     * The SimStepParallelEventsManagerImpl can handle events from multiple threads.
+     * The (Batched)SimStepParallelEventsManagerImpl can handle events from multiple threads.
      * The (Parallel)EventsMangerImpl cannot, therefore it has to be wrapped into a
      * SynchronizedEventsManagerImpl.
      */
     public static EventsManager getParallelFeedableInstance(EventsManager events) {
         if (events instanceof SimStepParallelEventsManagerImpl) {
             return events;
+        } else if (events instanceof BatchedSimStepParallelEventsManagerImpl) {
+            return events;
         } else if (events instanceof SynchronizedEventsManagerImpl) {
             return events;
         } else {
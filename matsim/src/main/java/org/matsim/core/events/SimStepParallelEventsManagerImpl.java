@@ -80,7 +80,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		this.delegate = new EventsManagerImpl();
 
 		this.eventsManagers = new EventsManagerImpl[this.numOfThreads];
-		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(true);
 	}
 
 	@Override
@@ -0,0 +1,323 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in a compact binary format, to be read again with
+ * {@link org.matsim.core.events.EventsReaderBinary} (or {@link org.matsim.core.events.MatsimEventsReader}
+ * for files ending with {@value #FILE_ENDING}).
+ * <p/>
+ * The file starts with the bytes of {@link #MAGIC} followed by the format version as int.
+ * Then follow the blocks, each one consisting of the number of events in the block, the
+ * uncompressed and the compressed size (all int), and the deflate-compressed block data. A block
+ * with zero events marks the end of the file. Within a block, the data is stored column-wise:
+ * <ol>
+ * <li>the layouts: for each event the index of its layout (event type and attribute names),
+ *     new layouts are defined inline on their first occurrence;</li>
+ * <li>the times: integral times as zigzag-encoded difference to the previous integral time,
+ *     other times as raw double;</li>
+ * <li>the attribute values: for each attribute an index into a string dictionary, new entries
+ *     are defined inline on their first occurrence. Values which are unlikely to repeat (numbers
+ *     with a fraction) and all values after the dictionary reached its maximum size are stored
+ *     as literals.</li>
+ * </ol>
+ * The layout and string dictionaries span the whole file, so blocks can only be read in order.
+ * All integers within a block are stored as variable-length integers.
+ *
+ * @see org.matsim.core.events.EventsReaderBinary
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final String FILE_ENDING = ".bin";
+
+	public static final byte[] MAGIC = "MATSIMEVENTS".getBytes(Charset.forName("US-ASCII"));
+	public static final int VERSION = 1;
+
+	private static final Charset UTF8 = IOUtils.CHARSET_UTF8;
+
+	public static final int VALUE_NULL = 0;
+	public static final int VALUE_NEW_ENTRY = 1;
+	public static final int VALUE_LITERAL = 2;
+	public static final int VALUE_FIRST_ENTRY = 3;
+
+	private static final int MAX_EVENTS_PER_BLOCK = 32 * 1024;
+	private static final int MAX_BYTES_PER_BLOCK = 1024 * 1024;
+	private static final int MAX_DICTIONARY_SIZE = 1 << 21;
+
+	private DataOutputStream out = null;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+	private final Map<List<String>, Integer> layouts = new HashMap<>();
+	private final Map<String, Integer> dictionary = new HashMap<>();
+
+	private final Column layoutColumn = new Column();
+	private final Column timeColumn = new Column();
+	private final Column valueColumn = new Column();
+	private int eventsInBlock = 0;
+	private long lastTime = 0;
+	private byte[] compressed = new byte[1024];
+
+	public EventWriterBinary(final String filename) {
+		init(filename);
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		init(stream);
+	}
+
+	public void init(final String filename) {
+		init(IOUtils.getOutputStream(filename));
+	}
+
+	private void init(final OutputStream stream) {
+		closeFile();
+		this.out = new DataOutputStream(stream);
+		this.layouts.clear();
+		this.dictionary.clear();
+		this.lastTime = 0;
+		try {
+			this.out.write(MAGIC);
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.out != null) {
+			try {
+				writeBlock();
+				this.out.writeInt(0);
+				this.out.close();
+				this.out = null;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+		closeFile();
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Map<String, String> attr = event.getAttributes();
+		List<String> layout = new ArrayList<>(attr.size());
+		layout.add(event.getEventType());
+		for (String key : attr.keySet()) {
+			if (!isTimeOrType(key)) {
+				layout.add(key);
+			}
+		}
+		writeLayout(layout);
+		writeTime(event.getTime());
+		for (Map.Entry<String, String> entry : attr.entrySet()) {
+			if (!isTimeOrType(entry.getKey())) {
+				writeValue(entry.getValue());
+			}
+		}
+		this.eventsInBlock++;
+		if (this.eventsInBlock >= MAX_EVENTS_PER_BLOCK || this.valueColumn.size >= MAX_BYTES_PER_BLOCK) {
+			writeBlock();
+		}
+	}
+
+	private static boolean isTimeOrType(final String key) {
+		return Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key);
+	}
+
+	private void writeLayout(final List<String> layout) {
+		Integer index = this.layouts.get(layout);
+		if (index != null) {
+			this.layoutColumn.writeVarint(index.intValue() + 1);
+		} else {
+			this.layouts.put(layout, this.layouts.size());
+			this.layoutColumn.writeVarint(0);
+			this.layoutColumn.writeVarint(layout.size());
+			for (String s : layout) {
+				this.layoutColumn.writeString(s);
+			}
+		}
+	}
+
+	private void writeTime(final double time) {
+		if (time == Math.rint(time) && Math.abs(time) < (1L << 52)) {
+			long t = (long) time;
+			long delta = t - this.lastTime;
+			this.timeColumn.writeVarint(((delta << 1) ^ (delta >> 63)) << 1);
+			this.lastTime = t;
+		} else {
+			this.timeColumn.writeVarint(1);
+			this.timeColumn.writeLong(Double.doubleToLongBits(time));
+		}
+	}
+
+	private void writeValue(final String value) {
+		if (value == null) {
+			this.valueColumn.writeVarint(VALUE_NULL);
+			return;
+		}
+		Integer index = this.dictionary.get(value);
+		if (index != null) {
+			this.valueColumn.writeVarint(index.intValue() + VALUE_FIRST_ENTRY);
+		} else if (this.dictionary.size() < MAX_DICTIONARY_SIZE && !isFractionalNumber(value)) {
+			this.dictionary.put(value, this.dictionary.size());
+			this.valueColumn.writeVarint(VALUE_NEW_ENTRY);
+			this.valueColumn.writeString(value);
+		} else {
+			this.valueColumn.writeVarint(VALUE_LITERAL);
+			this.valueColumn.writeString(value);
+		}
+	}
+
+	/**
+	 * Amounts, distances etc. rarely repeat and would only fill up the dictionary.
+	 * This is only a heuristic, all values are read back correctly either way.
+	 */
+	private static boolean isFractionalNumber(final String value) {
+		int len = value.length();
+		if (len == 0) {
+			return false;
+		}
+		boolean hasDot = false;
+		for (int i = 0; i < len; i++) {
+			char ch = value.charAt(i);
+			if (ch == '.') {
+				hasDot = true;
+			} else if ((ch < '0' || ch > '9') && ch != '-' && ch != 'E') {
+				return false;
+			}
+		}
+		return hasDot;
+	}
+
+	private void writeBlock() {
+		if (this.eventsInBlock == 0) {
+			return;
+		}
+		Column raw = new Column(8 + this.layoutColumn.size + this.timeColumn.size + this.valueColumn.size);
+		raw.writeInt(this.layoutColumn.size);
+		raw.writeInt(this.timeColumn.size);
+		raw.write(this.layoutColumn);
+		raw.write(this.timeColumn);
+		raw.write(this.valueColumn);
+
+		this.deflater.reset();
+		this.deflater.setInput(raw.data, 0, raw.size);
+		this.deflater.finish();
+		int compressedSize = 0;
+		while (!this.deflater.finished()) {
+			if (compressedSize == this.compressed.length) {
+				this.compressed = Arrays.copyOf(this.compressed, this.compressed.length * 2);
+			}
+			compressedSize += this.deflater.deflate(this.compressed, compressedSize, this.compressed.length - compressedSize);
+		}
+
+		try {
+			this.out.writeInt(this.eventsInBlock);
+			this.out.writeInt(raw.size);
+			this.out.writeInt(compressedSize);
+			this.out.write(this.compressed, 0, compressedSize);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		this.layoutColumn.size = 0;
+		this.timeColumn.size = 0;
+		this.valueColumn.size = 0;
+		this.eventsInBlock = 0;
+	}
+
+	private static final class Column {
+		/*package*/ byte[] data;
+		/*package*/ int size = 0;
+
+		/*package*/ Column() {
+			this(64 * 1024);
+		}
+
+		/*package*/ Column(final int initialCapacity) {
+			this.data = new byte[Math.max(16, initialCapacity)];
+		}
+
+		private void ensureCapacity(final int additional) {
+			if (this.size + additional > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.size + additional, this.data.length * 2));
+			}
+		}
+
+		/*package*/ void writeVarint(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+
+		/*package*/ void writeInt(final int value) {
+			ensureCapacity(4);
+			this.data[this.size++] = (byte) (value >>> 24);
+			this.data[this.size++] = (byte) (value >>> 16);
+			this.data[this.size++] = (byte) (value >>> 8);
+			this.data[this.size++] = (byte) value;
+		}
+
+		/*package*/ void writeLong(final long value) {
+			writeInt((int) (value >>> 32));
+			writeInt((int) value);
+		}
+
+		/*package*/ void writeString(final String value) {
+			byte[] bytes = value.getBytes(UTF8);
+			writeVarint(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, this.data, this.size, bytes.length);
+			this.size += bytes.length;
+		}
+
+		/*package*/ void write(final Column other) {
+			ensureCapacity(other.size);
+			System.arraycopy(other.data, 0, this.data, this.size, other.size);
+			this.size += other.size;
+		}
+	}
+
+}
@@ -80,6 +80,19 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * @return the time of the first message which is still alive, or
+	 * {@link Double#POSITIVE_INFINITY} if there is none
+	 */
+	public double getNextMessageTime() {
+		Message m;
+		// discard the dead messages at the head, as getNextMessage() would
+		while ((m = queue1.peek()) != null && !m.isAlive()) {
+			queue1.poll();
+		}
+		return m == null ? Double.POSITIVE_INFINITY : m.getMessageArrivalTime();
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
@@ -20,9 +20,8 @@
 package org.matsim.core.mobsim.qsim;
 
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
@@ -33,11 +32,13 @@ import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.ActivityHandler;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
+import org.matsim.core.utils.collections.CalendarQueue;
 import org.matsim.core.utils.misc.Time;
 
 import javax.inject.Inject;
 
-public class ActivityEngine implements MobsimEngine, ActivityHandler {
+public class ActivityEngine implements MobsimEngine, ActivityHandler, NextEventTimeProvider {
 
 	private EventsManager eventsManager;
 	private AgentCounter agentCounter;
@@ -73,30 +74,33 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	private InternalInterface internalInterface;
 	
 	/**
-	 * This list needs to be a "blocking" queue since this is needed for
+	 * The activity ends are kept in one bucket per second, so agents are added and taken out
+	 * in constant time. All accesses are synchronized on this queue since this is needed for
 	 * thread-safety in the parallel qsim. cdobler, oct'10
 	 */
-	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, new Comparator<AgentEntry>() {
+	private final CalendarQueue<AgentEntry> activityEndsList = new CalendarQueue<>(new Comparator<AgentEntry>() {
 
 		@Override
 		public int compare(AgentEntry arg0, AgentEntry arg1) {
-			int cmp = Double.compare(arg0.activityEndTime, arg1.activityEndTime);
-			if (cmp == 0) {
-				// Both depart at the same time -> let the one with the larger id be first (=smaller)
-				//
-				// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
-				// to say that the agent with the larger ID should be "smaller" one in the comparison.
-				// In practice, it seems
-				// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
-				// It is unclear why this convention is supposed to be helpful.
-				// kai & dominik, jul'12
-				//
-				return arg1.agent.getId().compareTo(arg0.agent.getId());
-			}
-			return cmp;
+			// Both depart at the same time -> let the one with the larger id be first (=smaller)
+			//
+			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+			// to say that the agent with the larger ID should be "smaller" one in the comparison.
+			// In practice, it seems
+			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+			// It is unclear why this convention is supposed to be helpful.
+			// kai & dominik, jul'12
+			//
+			return arg1.agent.getId().compareTo(arg0.agent.getId());
 		}
 
 	});
+
+	/**
+	 * The queued entry of every agent, so that an activity end can be rescheduled without
+	 * searching the whole queue.
+	 */
+	private final Map<MobsimAgent, AgentEntry> agentEntries = new IdentityHashMap<>();
 	
 	// See handleActivity for the reason for this.
 	private boolean beforeFirstSimStep = true;
@@ -109,22 +113,33 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
-		while (activityEndsList.peek() != null) {
-			if (activityEndsList.peek().activityEndTime <= time) {
-				MobsimAgent agent = activityEndsList.poll().agent;
-				unregisterAgentAtActivityLocation(agent);
-				agent.endActivityAndComputeNextState(time);
-				internalInterface.arrangeNextAgentState(agent);
-			} else {
-				return;
+		while (true) {
+			AgentEntry entry;
+			synchronized (activityEndsList) {
+				entry = activityEndsList.poll(time);
+				if (entry == null) {
+					return;
+				}
+				agentEntries.remove(entry.agent);
 			}
+			MobsimAgent agent = entry.agent;
+			unregisterAgentAtActivityLocation(agent);
+			agent.endActivityAndComputeNextState(time);
+			internalInterface.arrangeNextAgentState(agent);
+		}
+	}
+
+	@Override
+	public double getNextEventTime() {
+		synchronized (activityEndsList) {
+			return activityEndsList.peekTime();
 		}
 	}
 
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (AgentEntry entry : activityEndsList) {
+		for (AgentEntry entry : activityEndsList.values()) {
 			if (entry.activityEndTime!=Double.POSITIVE_INFINITY && entry.activityEndTime!=Time.UNDEFINED_TIME) {
 				// since we are at an activity, it is not plausible to assume that the agents know mode or destination
 				// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
@@ -132,6 +147,7 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 			}
 		}
 		activityEndsList.clear();
+		agentEntries.clear();
 	}
 
 	@Override
@@ -163,7 +179,7 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 			internalInterface.arrangeNextAgentState(agent) ;
 		} else {
 			// The agent commences an activity on this link.
-			activityEndsList.add(new AgentEntry(agent, agent.getActivityEndTime()));
+			addAgentToQueue(agent, agent.getActivityEndTime());
 			internalInterface.registerAdditionalAgentOnLink(agent);
 		}
 		// Why beforeFirstSimStep matters:
@@ -198,7 +214,7 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 				// agent was de-activated and still should be de-activated - nothing to do here
 			} else {
 				// re-activate the agent
-				activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+				addAgentToQueue(agent, newActivityEndTime);
 				internalInterface.registerAdditionalAgentOnLink(agent);
 				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
 			}
@@ -213,20 +229,26 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 			/*
 			 *  The activity is just rescheduled during the day, so we keep the agent active. cdobler, oct'11
 			 */
-			activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+			addAgentToQueue(agent, newActivityEndTime);
+		}
+	}
+
+	private void addAgentToQueue(MobsimAgent agent, double activityEndTime) {
+		AgentEntry entry = new AgentEntry(agent, activityEndTime);
+		synchronized (activityEndsList) {
+			activityEndsList.add(entry, activityEndTime);
+			agentEntries.put(agent, entry);
 		}
 	}
 
 	private AgentEntry removeAgentFromQueue(MobsimAgent agent) {
-		Iterator<AgentEntry> iterator = activityEndsList.iterator();
-		while (iterator.hasNext()) {
-			AgentEntry entry = iterator.next();
-			if (entry.agent == agent) {
-				iterator.remove();
-				return entry;
+		synchronized (activityEndsList) {
+			AgentEntry entry = agentEntries.remove(agent);
+			if (entry != null) {
+				activityEndsList.remove(entry, entry.activityEndTime);
 			}
+			return entry;
 		}
-		return null;
 	}
 
 	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
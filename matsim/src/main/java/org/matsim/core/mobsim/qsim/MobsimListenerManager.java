@@ -28,6 +28,7 @@ import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.*;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
 import org.matsim.core.utils.misc.ClassUtils;
 
 import javax.swing.event.EventListenerList;
@@ -99,6 +100,29 @@ class MobsimListenerManager implements MatsimManager {
         }
 	}
 
+	/**
+	 * @return the earliest next event time of the sim step listeners, {@link Double#POSITIVE_INFINITY}
+	 * if there are none, and {@link Double#NEGATIVE_INFINITY} if one of them does not implement
+	 * {@link NextEventTimeProvider} and thus needs to be notified in every sim step
+	 */
+	double getSimStepListenersNextEventTime() {
+		double time = Double.POSITIVE_INFINITY;
+		for (MobsimListener listener : this.listenerList.getListeners(MobsimBeforeSimStepListener.class)) {
+			time = Math.min(time, getNextEventTime(listener));
+		}
+		for (MobsimListener listener : this.listenerList.getListeners(MobsimAfterSimStepListener.class)) {
+			time = Math.min(time, getNextEventTime(listener));
+		}
+		return time;
+	}
+
+	private static double getNextEventTime(final MobsimListener listener) {
+		if (listener instanceof NextEventTimeProvider) {
+			return ((NextEventTimeProvider) listener).getNextEventTime();
+		}
+		return Double.NEGATIVE_INFINITY;
+	}
+
 	public void fireQueueSimulationBeforeSimStepEvent(double time) {
 		MobsimBeforeSimStepEvent<Mobsim> event = new MobsimBeforeSimStepEvent<>(sim, time);
 		MobsimBeforeSimStepListener[] listener = this.listenerList.getListeners(MobsimBeforeSimStepListener.class);
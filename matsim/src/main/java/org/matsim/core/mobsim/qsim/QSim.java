@@ -49,6 +49,7 @@ import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
 import org.matsim.core.mobsim.qsim.pt.TransitQSimEngine;
 import org.matsim.core.mobsim.qsim.qnetsimengine.NetsimNetwork;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
@@ -345,10 +346,45 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		this.listenerManager.fireQueueSimulationAfterSimStepEvent(time);
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if (this.scenario.getConfig().qsim().isSkippingIdleTimeSteps()) {
+				skipIdleTimeSteps();
+			}
 		}
 		return doContinue ;
 	}
 
+	/**
+	 * Advances the sim timer to the first time step in which one of the engines or sim step
+	 * listeners has something to do. Nothing is skipped if one of the engines cannot tell its
+	 * next event time or if there are sim step listeners which do not implement
+	 * {@link NextEventTimeProvider} and thus expect to be notified in every time step. The timer is
+	 * incremented step by step so that the time steps are exactly the same as without
+	 * skipping.
+	 */
+	private void skipIdleTimeSteps() {
+		double now = this.simTimer.getTimeOfDay();
+		double nextEventTime = this.listenerManager.getSimStepListenersNextEventTime();
+		if (nextEventTime <= now) {
+			return;
+		}
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			if (!(mobsimEngine instanceof NextEventTimeProvider)) {
+				return;
+			}
+			nextEventTime = Math.min(nextEventTime, ((NextEventTimeProvider) mobsimEngine).getNextEventTime());
+			if (nextEventTime <= now) {
+				return;
+			}
+		}
+		if (nextEventTime == Double.POSITIVE_INFINITY && this.stopTime == Double.MAX_VALUE) {
+			// agents which wait for nothing keep the simulation alive until the end time, as without skipping
+			return;
+		}
+		while (this.simTimer.getTimeOfDay() < nextEventTime && this.simTimer.getTimeOfDay() < this.stopTime) {
+			this.simTimer.incrementTime();
+		}
+	}
+
 	public void insertAgentIntoMobsim( MobsimAgent agent ) {
 		if ( this.agents.containsKey( agent.getId() ) ) {
 			throw new RuntimeException( "agent with same ID already in mobsim; aborting ... ") ;
@@ -454,7 +490,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private void printSimLog(final double time) {
 		if (time >= this.infoTime) {
 			//		if(true){
-			this.infoTime += INFO_PERIOD;
+			// more than one period may have passed if idle time steps were skipped
+			this.infoTime = Math.max(this.infoTime + INFO_PERIOD, (Math.floor(time / INFO_PERIOD) + 1) * INFO_PERIOD);
 			Date endtime = new Date();
 			long diffreal = (endtime.getTime() - this.realWorldStarttime
 					.getTime()) / 1000;
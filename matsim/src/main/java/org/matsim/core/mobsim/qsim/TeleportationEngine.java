@@ -12,7 +12,8 @@ import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
-import org.matsim.core.utils.collections.Tuple;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
+import org.matsim.core.utils.collections.CalendarQueue;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
 import org.matsim.vis.snapshotwriters.TeleportationVisData;
@@ -22,21 +23,16 @@ import javax.inject.Inject;
 import java.util.*;
 
 public final class TeleportationEngine implements DepartureHandler, MobsimEngine,
-VisData {
+VisData, NextEventTimeProvider {
 	/**
 	 * Includes all agents that have transportation modes unknown to the
 	 * QueueSimulation (i.e. != "car") or have two activities on the same link
 	 */
-	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
-			30, new Comparator<Tuple<Double, MobsimAgent>>() {
+	private final CalendarQueue<MobsimAgent> teleportationList = new CalendarQueue<>(new Comparator<MobsimAgent>() {
 
 		@Override
-		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
-			int ret = o1.getFirst().compareTo(o2.getFirst()); // first compare time information
-			if (ret == 0) {
-				ret = o2.getSecond().getId().compareTo(o1.getSecond().getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
-			}
-			return ret;
+		public int compare(MobsimAgent o1, MobsimAgent o2) {
+			return o2.getId().compareTo(o1.getId()); // agents arriving at the same time: the one with the larger Id should be first
 		}
 	});
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
@@ -58,8 +54,7 @@ VisData {
     				+ " since otherwise mode choice optimization will eventually lead to all legs teleported.  kai/mz, apr'15") ;
     	}
 		double arrivalTime = now + agent.getExpectedTravelTime();
-		this.teleportationList.add(new Tuple<>(arrivalTime,
-				agent));
+		this.teleportationList.add(agent, arrivalTime);
 		Id<Person> agentId = agent.getId();
 		Link currLink = this.scenario
 				.getNetwork().getLinks().get(linkId);
@@ -91,24 +86,23 @@ VisData {
 
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		while (teleportationList.peek() != null) {
-			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
-			if (entry.getFirst() <= now) {
-				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
-				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
-						.getDestinationLinkId());
-				double distance = personAgent.getExpectedTravelDistance();
-				this.eventsManager.processEvent(new TeleportationArrivalEvent(this.internalInterface.getMobsim().getSimTimer().getTimeOfDay(), personAgent.getId(), distance));
-				personAgent.endLegAndComputeNextState(now);
-				this.teleportationData.remove(personAgent.getId());
-				internalInterface.arrangeNextAgentState(personAgent);
-			} else {
-				break;
-			}
+		MobsimAgent personAgent;
+		while ((personAgent = teleportationList.poll(now)) != null) {
+			personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
+					.getDestinationLinkId());
+			double distance = personAgent.getExpectedTravelDistance();
+			this.eventsManager.processEvent(new TeleportationArrivalEvent(this.internalInterface.getMobsim().getSimTimer().getTimeOfDay(), personAgent.getId(), distance));
+			personAgent.endLegAndComputeNextState(now);
+			this.teleportationData.remove(personAgent.getId());
+			internalInterface.arrangeNextAgentState(personAgent);
 		}
 	}
 
+	@Override
+	public double getNextEventTime() {
+		return teleportationList.peekTime();
+	}
+
 	@Override
 	public void onPrepareSim() {
 
@@ -117,8 +111,7 @@ VisData {
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
-			MobsimAgent agent = entry.getSecond();
+		for (MobsimAgent agent : teleportationList.values()) {
 			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
 		}
 		teleportationList.clear();
@@ -18,8 +18,6 @@
  * *********************************************************************** */
 package org.matsim.core.mobsim.qsim.agents;
 
-import java.util.List;
-
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
@@ -28,6 +26,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.mobsim.framework.DriverAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.core.population.routes.ArrayNetworkRouteImpl;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.vehicles.Vehicle;
 
@@ -93,13 +92,14 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 			return null ;
 		}
 
-		List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
+		final NetworkRoute route = (NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute();
+		final int numberOfLinks = getNumberOfLinks(route);
 		
 		// (3) if route has run dry, we return the destination link (except for one special case, which however may not be necessary any more):
-		if (this.basicPlanAgentDelegate.getCurrentLinkIndex() >= routeLinkIds.size() ) {
+		if (this.basicPlanAgentDelegate.getCurrentLinkIndex() >= numberOfLinks ) {
 
 			// special case:
-			if (this.getCurrentLinkId().equals( this.getDestinationLinkId() )  && this.basicPlanAgentDelegate.getCurrentLinkIndex() > routeLinkIds.size()) {
+			if (this.getCurrentLinkId().equals( this.getDestinationLinkId() )  && this.basicPlanAgentDelegate.getCurrentLinkIndex() > numberOfLinks) {
 				// this can happen if the last link in a route is a loop link. Don't ask, it can happen in special transit simulation cases... mrieser/jan2014
 
 				// the condition for arrival used to be "route has run dry AND destination link not attached to current link".  now with loop links,
@@ -116,7 +116,7 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 		}
 
 		// (4) otherwise (normal case): return the next link of the plan (after caching it):
-		this.cachedNextLinkId = routeLinkIds.get(this.basicPlanAgentDelegate.getCurrentLinkIndex());
+		this.cachedNextLinkId = getLinkId(route, this.basicPlanAgentDelegate.getCurrentLinkIndex());
 		return this.cachedNextLinkId;
 		
 	}
@@ -129,8 +129,7 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 			return true ;
 		}
 
-		final List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
-		final int routeLinkIdsSize = routeLinkIds.size();
+		final int routeLinkIdsSize = getNumberOfLinks((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute());
 		
 		// the standard condition used to be "route has run dry AND destination link not attached to current link":
 		// 2nd condition essentially meant "destination link EQUALS current link" but really stupid way of stating this.  Thus
@@ -169,6 +168,21 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 	// ============================================================================================================================
 	// below there only (package-)private methods or setters/getters
 
+	// routes backed by an array of link indices are read directly, without creating a view on their links on every move
+	private static int getNumberOfLinks(final NetworkRoute route) {
+		if (route instanceof ArrayNetworkRouteImpl) {
+			return ((ArrayNetworkRouteImpl) route).getNumberOfLinks();
+		}
+		return route.getLinkIds().size();
+	}
+
+	private static Id<Link> getLinkId(final NetworkRoute route, final int position) {
+		if (route instanceof ArrayNetworkRouteImpl) {
+			return Id.get(((ArrayNetworkRouteImpl) route).getLinkIndex(position), Link.class);
+		}
+		return route.getLinkIds().get(position);
+	}
+
 	/**
 	 * Some data of the currently simulated Leg is cached to speed up
 	 * the simulation. If the Leg changes (for example the Route or
@@ -25,6 +25,7 @@ import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkImpl;
 
@@ -34,7 +35,7 @@ import java.util.PriorityQueue;
 /**
  * @author dgrether
  */
-public class NetworkChangeEventsEngine implements MobsimEngine {
+public class NetworkChangeEventsEngine implements MobsimEngine, NextEventTimeProvider {
 	
 	private PriorityQueue<NetworkChangeEvent> networkChangeEventsQueue = null;
 	private Netsim mobsim;
@@ -65,6 +66,14 @@ public class NetworkChangeEventsEngine implements MobsimEngine {
 		}
 	}
 
+	@Override
+	public double getNextEventTime() {
+		if ((this.networkChangeEventsQueue != null) && (this.networkChangeEventsQueue.size() > 0)) {
+			return this.networkChangeEventsQueue.peek().getStartTime();
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	private void handleNetworkChangeEvents(final double time) {
 		while ((this.networkChangeEventsQueue.size() > 0) && (this.networkChangeEventsQueue.peek().getStartTime() <= time)) {
 			NetworkChangeEvent event = this.networkChangeEventsQueue.poll();
@@ -0,0 +1,43 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NextEventTimeProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.interfaces;
+
+/**
+ * Implemented by {@link MobsimEngine}s and sim step listeners which know when they next
+ * have something to do. If all engines and sim step listeners of the QSim implement this
+ * interface, the QSim can skip the time steps in which none of them has something to do,
+ * e.g. during the night.
+ *
+ * @see org.matsim.core.config.groups.QSimConfigGroup#isSkippingIdleTimeSteps()
+ */
+public interface NextEventTimeProvider {
+
+	/**
+	 * Called after all engines have done their sim step.
+	 *
+	 * @return the earliest time at which there is something to do in the sim step,
+	 * {@link Double#POSITIVE_INFINITY} if there is nothing scheduled and
+	 * {@link Double#NEGATIVE_INFINITY} if it needs to be called in every time step.
+	 */
+	double getNextEventTime();
+
+}
@@ -4,10 +4,11 @@ import org.matsim.core.mobsim.framework.Steppable;
 import org.matsim.core.mobsim.jdeqsim.Message;
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.jdeqsim.Scheduler;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
 
 import javax.inject.Inject;
 
-public class SteppableScheduler extends Scheduler implements Steppable {
+public class SteppableScheduler extends Scheduler implements Steppable, NextEventTimeProvider {
 
     private Message lookahead;
     private boolean finished = false;
@@ -41,6 +42,15 @@ public class SteppableScheduler extends Scheduler implements Steppable {
         finished = true; // queue has run dry.
     }
 
+    @Override
+    public double getNextEventTime() {
+        double time = queue.getNextMessageTime();
+        if (lookahead != null) {
+            time = Math.min(time, lookahead.getMessageArrivalTime());
+        }
+        return time;
+    }
+
     public boolean isFinished() {
         return finished;
     }
@@ -2,11 +2,12 @@ package org.matsim.core.mobsim.qsim.messagequeueengine;
 
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
 import org.matsim.core.mobsim.qsim.jdeqsimengine.SteppableScheduler;
 
 import javax.inject.Inject;
 
-class MessageQueueEngine implements MobsimBeforeSimStepListener {
+class MessageQueueEngine implements MobsimBeforeSimStepListener, NextEventTimeProvider {
 
 	private final SteppableScheduler scheduler;
 
@@ -20,4 +21,9 @@ class MessageQueueEngine implements MobsimBeforeSimStepListener {
 		scheduler.doSimStep(e.getSimulationTime());
 	}
 
+	@Override
+	public double getNextEventTime() {
+		return scheduler.getNextEventTime();
+	}
+
 }
@@ -38,6 +38,7 @@ import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
 import org.matsim.pt.ReconstructingUmlaufBuilder;
 import org.matsim.pt.Umlauf;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
@@ -51,7 +52,7 @@ import javax.inject.Inject;
  * @author mrieser
  * @author mzilske
  */
-public class TransitQSimEngine implements  DepartureHandler, MobsimEngine, AgentSource {
+public class TransitQSimEngine implements  DepartureHandler, MobsimEngine, AgentSource, NextEventTimeProvider {
 
 
 	private Collection<MobsimAgent> ptDrivers;
@@ -211,6 +212,12 @@ public class TransitQSimEngine implements  DepartureHandler, MobsimEngine, Agent
 		// Nothing to do here.
 	}
 
+	@Override
+	public double getNextEventTime() {
+		// the transit drivers are handled by the other engines
+		return Double.POSITIVE_INFINITY;
+	}
+
 	@Override
 	public void insertAgentsIntoMobsim() {
 		ptDrivers = createVehiclesAndDriversWithUmlaeufe(this.agentTracker);
@@ -21,11 +21,14 @@
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.*;
 
@@ -47,6 +50,7 @@ import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.lanes.data.v20.Lanes;
 import org.matsim.vehicles.Vehicle;
@@ -60,7 +64,7 @@ import javax.inject.Inject;
  * @author dgrether
  * @author dstrippgen
  */
-public class QNetsimEngine implements MobsimEngine {
+public class QNetsimEngine implements MobsimEngine, NextEventTimeProvider {
 
 	private static final Logger log = Logger.getLogger(QNetsimEngine.class);
 
@@ -97,6 +101,24 @@ public class QNetsimEngine implements MobsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final int numOfRunnersPerThread;
+
+	private final double loadBalancingPeriod;
+
+	private double nextLoadBalancingTime;
+
+	/*
+	 * Number of node and link sim steps since the last load balancing, per node (indexed by
+	 * node id index, links counted for their from node).  null if load balancing is off.
+	 */
+	private int[] nodeWorkload = null;
+
+	/*
+	 * Index of the runner each node is currently assigned to (indexed by node id index).
+	 */
+	private int[] runnerOfNode;
+
 	@Override
 	public void setInternalInterface( InternalInterface internalInterface) {
 		this.internalInterface = internalInterface;
@@ -129,6 +151,8 @@ public class QNetsimEngine implements MobsimEngine {
 		final QSimConfigGroup qsimConfigGroup = sim.getScenario().getConfig().qsim();
 		this.stucktimeCache = qsimConfigGroup.getStuckTime();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool() ;
+		this.numOfRunnersPerThread = qsimConfigGroup.getNumberOfRunnersPerThread() ;
+		this.loadBalancingPeriod = qsimConfigGroup.getLoadBalancingPeriod() ;
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -239,6 +263,14 @@ public class QNetsimEngine implements MobsimEngine {
 		 */
 
 		initQSimEngineThreads();
+
+		if (this.loadBalancingPeriod > 0) {
+			this.nodeWorkload = new int[Id.getNumberOfIds(Node.class)];
+			for (QNetsimEngineRunner engine : this.engines) {
+				engine.setNodeWorkload(this.nodeWorkload);
+			}
+			this.nextLoadBalancingTime = internalInterface.getMobsim().getSimTimer().getSimStartTime() + this.loadBalancingPeriod;
+		}
 	}
 
 	@Override
@@ -291,6 +323,20 @@ public class QNetsimEngine implements MobsimEngine {
 		this.printSimLog(time);
 	}
 
+	/**
+	 * Parked vehicles do not need to be simulated, so the network has nothing to do
+	 * as long as no link and no node is active.
+	 */
+	@Override
+	public double getNextEventTime() {
+		for (QNetsimEngineRunner engine : this.engines) {
+			if (!engine.isIdle()) {
+				return Double.NEGATIVE_INFINITY;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 
 	/*
 	 * The Threads are waiting at the startBarrier.
@@ -327,6 +373,15 @@ public class QNetsimEngine implements MobsimEngine {
 		// So make sure that no thread sticks out in terms of slowness.  Difficult to achieve, though.  A decade back, we used a "typical" run
 		// as input for the domain decomposition under (b).
 
+		// The optional load balancing below is a simple version of (b) and (c), using the previous period of the
+		// same run instead of a "typical" run.
+
+		if (this.nodeWorkload != null && time >= this.nextLoadBalancingTime) {
+			balanceLoad();
+			// more than one period may have passed if idle time steps were skipped
+			this.nextLoadBalancingTime = Math.max(this.nextLoadBalancingTime + this.loadBalancingPeriod, (Math.floor(time / this.loadBalancingPeriod) + 1) * this.loadBalancingPeriod);
+		}
+
 		//        try {
 		// set current Time
 		for (QNetsimEngineRunner engine : this.engines) {
@@ -361,7 +416,8 @@ public class QNetsimEngine implements MobsimEngine {
 
 	/*package*/ void printSimLog(double time) {
 		if (time >= this.infoTime) {
-			this.infoTime += INFO_PERIOD;
+			// more than one period may have passed if idle time steps were skipped
+			this.infoTime = Math.max(this.infoTime + INFO_PERIOD, (Math.floor(time / INFO_PERIOD) + 1) * INFO_PERIOD);
 			int nofActiveLinks = this.getNumberOfSimulatedLinks();
 			int nofActiveNodes = this.getNumberOfSimulatedNodes();
 			log.info("SIMULATION (QNetsimEngine) AT " + Time.writeTime(time)
@@ -466,7 +522,8 @@ public class QNetsimEngine implements MobsimEngine {
 		if ( usingThreadpool ) {
 			// The number of runners should be larger than the number of threads, yes,
 			// but see MATSIM-404 - Simulation result still depends on the number of runners.
-//			numOfRunners *= 10 ;
+			// Thus, the default is still one runner per thread.
+			numOfRunners *= this.numOfRunnersPerThread ;
 			this.pool = Executors.newFixedThreadPool(
 					this.numOfThreads,
 					new NamedThreadFactory()) ;
@@ -478,6 +535,9 @@ public class QNetsimEngine implements MobsimEngine {
 			if ( usingThreadpool ) {
 				engine = new QNetsimEngineRunner();
 			} else {
+				if ( i == 0 && this.numOfRunnersPerThread > 1 ) {
+					log.warn( "numberOfRunnersPerThread > 1 only has an effect together with usingThreadpool=true; using one runner per thread." ) ;
+				}
 				engine = new QNetsimEngineRunner(this.startBarrier, separationBarrier, endBarrier);
 				Thread thread = new Thread(engine);
 				thread.setName("QNetsimEngineRunner_" + i);
@@ -507,41 +567,118 @@ public class QNetsimEngine implements MobsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
+		this.runnerOfNode = new int[Id.getNumberOfIds(Node.class)];
+
 		int roundRobin = 0;
 		for (QNode node : network.getNetsimNodes().values()) {
 			int i = roundRobin % this.numOfRunners;
-			node.setNetElementActivator(this.engines.get(i));
 			nodes[i]++;
+			links[i] += assignNode(node, i);
+
+			roundRobin++;
+		}
 
-			// set activator for out links
-			for (Link outLink : node.getNode().getOutLinks().values()) {
-				AbstractQLink qLink = (AbstractQLink) network.getNetsimLink(outLink.getId());
-				// (must be of this type to work.  kai, feb'12)
+		// print some statistics
+		for (int i = 0; i < this.engines.size(); i++) {
+			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
+		}
+
+		this.linksToActivateInitially.clear();
+	}
 
-				// removing qsim as "person in the middle".  not fully sure if this is the same in the parallel impl.  kai, oct'10
-				qLink.setNetElementActivator(this.engines.get(i)) ;
+	/*
+	 * Assigns the node and its out links to the given runner. Returns the number of out links.
+	 */
+	private int assignNode(QNode node, int i) {
+		node.setNetElementActivator(this.engines.get(i));
+		this.runnerOfNode[node.getNode().getId().index()] = i;
+
+		// set activator for out links
+		int cnt = 0;
+		for (Link outLink : node.getNode().getOutLinks().values()) {
+			AbstractQLink qLink = (AbstractQLink) network.getNetsimLink(outLink.getId());
+			// (must be of this type to work.  kai, feb'12)
+
+			// removing qsim as "person in the middle".  not fully sure if this is the same in the parallel impl.  kai, oct'10
+			qLink.setNetElementActivator(this.engines.get(i)) ;
+
+			/*
+			 * If the QLink contains agents that end their activity in the first time
+			 * step, the link should be activated.
+			 */
+			if (linksToActivateInitially.remove(qLink)) {
+				this.engines.get(i).activateLink(qLink);
+			}
 
-				/*
-				 * If the QLink contains agents that end their activity in the first time
-				 * step, the link should be activated.
-				 */
-				if (linksToActivateInitially.remove(qLink)) {
-					this.engines.get(i).activateLink(qLink);
-				}
+			cnt++;
+		}
+		return cnt;
+	}
 
-				links[i]++;
+	/*
+	 * Re-distributes the nodes (and their out links) among the runners such that every runner gets 
+	 * about the same number of node and link sim steps as observed since the last call (greedy: most
+	 * expensive node first, always to the currently least loaded runner).  The step counts are used instead
+	 * of measured cpu times, so that the partition (and with it the simulation result) does not depend on 
+	 * the load of the machine.  Nodes and links which are currently active are handed over to their new runner.
+	 * 
+	 * Must only be called between two time steps, i.e. while no runner is moving nodes or links.
+	 */
+	private void balanceLoad() {
+		final int[] workload = this.nodeWorkload;
 
+		List<QNode> activeNodes = new ArrayList<>();
+		List<QLinkInternalI> activeLinks = new ArrayList<>();
+		for (QNetsimEngineRunner engine : this.engines) {
+			activeNodes.addAll(engine.drainActiveNodes());
+			activeLinks.addAll(engine.drainActiveLinks());
+		}
+
+		List<QNode> nodes = new ArrayList<>(network.getNetsimNodes().values());
+		// stable sort, i.e. nodes with equal workload keep the network order
+		Collections.sort(nodes, new Comparator<QNode>() {
+			@Override
+			public int compare(QNode o1, QNode o2) {
+				return Integer.compare(workload[o2.getNode().getId().index()], workload[o1.getNode().getId().index()]);
+			}
+		});
+
+		final long[] loads = new long[this.numOfRunners];
+		PriorityQueue<Integer> leastLoaded = new PriorityQueue<>(this.numOfRunners, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int cmp = Long.compare(loads[o1], loads[o2]);
+				return cmp != 0 ? cmp : Integer.compare(o1, o2);
 			}
+		});
+		for (int i = 0; i < this.numOfRunners; i++) {
+			leastLoaded.add(i);
+		}
+		for (QNode node : nodes) {
+			int i = leastLoaded.poll();
+			// every node costs at least something, so that idle nodes are distributed as well
+			loads[i] += 1 + workload[node.getNode().getId().index()];
+			assignNode(node, i);
+			leastLoaded.add(i);
+		}
 
-			roundRobin++;
+		for (QNode node : activeNodes) {
+			this.engines.get(this.runnerOfNode[node.getNode().getId().index()]).activateNode(node);
+		}
+		for (QLinkInternalI link : activeLinks) {
+			this.engines.get(this.runnerOfNode[link.getLink().getFromNode().getId().index()]).activateLink(link);
 		}
 
-		// print some statistics
-		for (int i = 0; i < this.engines.size(); i++) {
-			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		for (long load : loads) {
+			min = Math.min(min, load);
+			max = Math.max(max, load);
 		}
+		log.info("Re-distributed nodes and links among " + this.numOfRunners + " QSimEngineRunners; sim steps per runner "
+				+ "in the last period with the new assignment: min=" + min + " max=" + max);
 
-		this.linksToActivateInitially.clear();
+		Arrays.fill(workload, 0);
 	}
 
 	private static class NamedThreadFactory implements ThreadFactory {
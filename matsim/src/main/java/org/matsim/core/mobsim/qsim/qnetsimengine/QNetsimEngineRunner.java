@@ -76,6 +76,13 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 
 	private boolean movingNodes;
 
+	/*
+	 * Number of node and link sim steps per node (indexed by node id index, links counted for
+	 * their from node), shared by all runners. Each slot is only written by the runner the node
+	 * is currently assigned to, so no synchronization is required. null if load balancing is off.
+	 */
+	private int[] nodeWorkload = null;
+
 	/*package*/ QNetsimEngineRunner(Phaser startBarrier, Phaser separationBarrier, Phaser endBarrier) {
 		this.startBarrier = startBarrier;
 		this.separationBarrier = separationBarrier;
@@ -156,6 +163,7 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 		Iterator<QNode> simNodes = this.nodesQueue.iterator();
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
+			if (this.nodeWorkload != null) this.nodeWorkload[node.getNode().getId().index()]++;
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
 		}
@@ -168,6 +176,7 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 		ListIterator<QLinkInternalI> simLinks = this.linksList.listIterator();
 		while (simLinks.hasNext()) {
 			link = simLinks.next();
+			if (this.nodeWorkload != null) this.nodeWorkload[link.getLink().getFromNode().getId().index()]++;
 
 			remainsActive = link.doSimStep(time);
 
@@ -214,7 +223,37 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 		return this.nodesQueue.size();
 	}
 
+	/*
+	 * True if no node and no link is active. Must only be called between two time steps.
+	 */
+	/*package*/ boolean isIdle() {
+		return this.nodesQueue.isEmpty() && this.linksList.isEmpty();
+	}
+
 	public void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
+
+	/*package*/ void setNodeWorkload(int[] nodeWorkload) {
+		this.nodeWorkload = nodeWorkload;
+	}
+
+	/*
+	 * Removes and returns all active nodes, so that they can be handed to another runner
+	 * when the nodes are re-distributed. Must only be called between two time steps.
+	 */
+	/*package*/ List<QNode> drainActiveNodes() {
+		List<QNode> nodes = new ArrayList<>(this.nodesQueue);
+		this.nodesQueue.clear();
+		return nodes;
+	}
+
+	/*
+	 * Same as drainActiveNodes() for the active links.
+	 */
+	/*package*/ List<QLinkInternalI> drainActiveLinks() {
+		List<QLinkInternalI> links = new ArrayList<>(this.linksList);
+		this.linksList.clear();
+		return links;
+	}
 }
\ No newline at end of file
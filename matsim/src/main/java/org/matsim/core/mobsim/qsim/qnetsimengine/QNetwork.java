@@ -25,6 +25,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
@@ -45,6 +46,11 @@ public class QNetwork implements NetsimNetwork {
 
 	private final Map<Id<Node>, QNode> nodes;
 
+	// same content as the maps above, but for index-based lookup during the simulation
+	private final IdMap<Link, QLinkInternalI> linksByIndex;
+
+	private final IdMap<Node, QNode> nodesByIndex;
+
 	private final Network network;
 
 	private final NetsimNetworkFactory queueNetworkFactory;
@@ -59,6 +65,8 @@ public class QNetwork implements NetsimNetwork {
 		this.queueNetworkFactory = netsimNetworkFactory;
 		this.links = new LinkedHashMap<>((int)(network.getLinks().size()*1.1), 0.95f);
 		this.nodes = new LinkedHashMap<>((int)(network.getLinks().size()*1.1), 0.95f);
+		this.linksByIndex = new IdMap<>(Link.class);
+		this.nodesByIndex = new IdMap<>(Node.class);
 		if (! Double.isNaN(network.getEffectiveLaneWidth())){
 			this.linkWidthCalculator.setLaneWidth(network.getEffectiveLaneWidth());
 		}
@@ -69,10 +77,14 @@ public class QNetwork implements NetsimNetwork {
 	public void initialize(QNetsimEngine simEngine) {
 		this.simEngine = simEngine;
 		for (Node n : network.getNodes().values()) {
-			this.nodes.put(n.getId(), this.queueNetworkFactory.createNetsimNode(n, this));
+			QNode qNode = this.queueNetworkFactory.createNetsimNode(n, this);
+			this.nodes.put(n.getId(), qNode);
+			this.nodesByIndex.put(n.getId(), qNode);
 		}
 		for (Link l : network.getLinks().values()) {
-			this.links.put(l.getId(), this.queueNetworkFactory.createNetsimLink(l, this, this.nodes.get(l.getToNode().getId())));
+			QLinkInternalI qLink = this.queueNetworkFactory.createNetsimLink(l, this, this.nodesByIndex.get(l.getToNode().getId()));
+			this.links.put(l.getId(), qLink);
+			this.linksByIndex.put(l.getId(), qLink);
 		}
 		for (QNode n : this.nodes.values()) {
 			n.init();
@@ -105,12 +117,20 @@ public class QNetwork implements NetsimNetwork {
 
 	@Override
 	public QLinkInternalI getNetsimLink(final Id<Link> id) {
-		return this.links.get(id);
+		QLinkInternalI qLink = this.linksByIndex.get(id);
+		if (qLink != null && qLink.getLink().getId() == id) {
+			return qLink;
+		}
+		return this.links.get(id); // id of a different type, see FIXME in Id.equals()
 	}
 
 	@Override
 	public NetsimNode getNetsimNode(final Id<Node> id) {
-		return this.nodes.get(id);
+		QNode qNode = this.nodesByIndex.get(id);
+		if (qNode != null && qNode.getNode().getId() == id) {
+			return qNode;
+		}
+		return this.nodes.get(id); // id of a different type, see FIXME in Id.equals()
 	}
 
 	@Override
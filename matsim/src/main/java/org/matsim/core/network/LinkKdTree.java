@@ -0,0 +1,379 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkKdTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.network;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.collections.KdTree;
+
+/**
+ * A static index to answer nearest-neighbor queries for links in a network, built
+ * once from all links. It answers the same queries as the {@link LinkQuadTree},
+ * but is built in a single pass and stores everything in flat arrays.
+ * <p/>
+ * The links are recursively partitioned at the median of the centers of their
+ * bounding boxes, like the values of a {@link KdTree}. Every node of the tree
+ * stores the bounding box of all links in its range, so the links themselves may
+ * overlap the partitions. The coordinates of the links are copied into arrays in
+ * the order of the tree, so the query does not need to follow references to the
+ * nodes of the network. Changes to the network are not reflected in the tree.
+ * <p/>
+ * If several links have the same distance to a query point, the one that came
+ * first in the collection the tree was built from is preferred. Queries do not
+ * modify the tree, so it can be used by multiple threads concurrently.
+ */
+public final class LinkKdTree {
+
+	/** ranges with at most this number of links are not partitioned further */
+	private final static int LEAF_SIZE = 8;
+
+	private final Link[] links;
+	private final int[] order;
+	private final double[] fromX;
+	private final double[] fromY;
+	private final double[] toX;
+	private final double[] toY;
+
+	/** bounding boxes of the nodes of the tree, the children of node i are 2i+1 and 2i+2 */
+	private final double[] minX;
+	private final double[] minY;
+	private final double[] maxX;
+	private final double[] maxY;
+
+	public LinkKdTree(final Collection<? extends Link> links) {
+		int n = links.size();
+		Link[] input = links.toArray(new Link[n]);
+		double[] centerX = new double[n];
+		double[] centerY = new double[n];
+		int[] perm = new int[n];
+		for (int i = 0; i < n; i++) {
+			Coord from = input[i].getFromNode().getCoord();
+			Coord to = input[i].getToNode().getCoord();
+			centerX[i] = (from.getX() + to.getX()) / 2;
+			centerY[i] = (from.getY() + to.getY()) / 2;
+			perm[i] = i;
+		}
+
+		int depth = 0;
+		for (int s = n; s > LEAF_SIZE; s = (s + 1) / 2) {
+			depth++;
+		}
+		int nOfTreeNodes = (1 << (depth + 1)) - 1;
+		this.minX = new double[nOfTreeNodes];
+		this.minY = new double[nOfTreeNodes];
+		this.maxX = new double[nOfTreeNodes];
+		this.maxY = new double[nOfTreeNodes];
+
+		partition(perm, centerX, centerY, 0, n);
+
+		this.links = new Link[n];
+		this.order = perm;
+		this.fromX = new double[n];
+		this.fromY = new double[n];
+		this.toX = new double[n];
+		this.toY = new double[n];
+		for (int i = 0; i < n; i++) {
+			Link link = input[perm[i]];
+			this.links[i] = link;
+			this.fromX[i] = link.getFromNode().getCoord().getX();
+			this.fromY[i] = link.getFromNode().getCoord().getY();
+			this.toX[i] = link.getToNode().getCoord().getX();
+			this.toY[i] = link.getToNode().getCoord().getY();
+		}
+		if (n > 0) {
+			calcBounds(0, 0, n);
+		}
+	}
+
+	private static void partition(final int[] perm, final double[] centerX, final double[] centerY, final int from, final int to) {
+		if (to - from <= LEAF_SIZE) {
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			double x = centerX[perm[i]];
+			double y = centerY[perm[i]];
+			if (x < minX) { minX = x; }
+			if (x > maxX) { maxX = x; }
+			if (y < minY) { minY = y; }
+			if (y > maxY) { maxY = y; }
+		}
+		int mid = (from + to + 1) >>> 1;
+		select(perm, (maxX - minX >= maxY - minY) ? centerX : centerY, from, to - 1, mid);
+		partition(perm, centerX, centerY, from, mid);
+		partition(perm, centerX, centerY, mid, to);
+	}
+
+	/**
+	 * Rearranges <code>perm[left..right]</code> such that the element at position
+	 * <code>k</code> is the one that would be there if the range was sorted by
+	 * <code>coord</code>, with all smaller elements before and all larger ones after it.
+	 */
+	private static void select(final int[] perm, final double[] coord, int left, int right, final int k) {
+		while (right > left) {
+			int mid = (left + right) >>> 1;
+			if (coord[perm[mid]] < coord[perm[left]]) { swap(perm, mid, left); }
+			if (coord[perm[right]] < coord[perm[left]]) { swap(perm, right, left); }
+			if (coord[perm[right]] < coord[perm[mid]]) { swap(perm, right, mid); }
+			double pivot = coord[perm[mid]];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (coord[perm[i]] < pivot) { i++; }
+				while (coord[perm[j]] > pivot) { j--; }
+				if (i <= j) {
+					swap(perm, i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static void swap(final int[] perm, final int i, final int j) {
+		int tmp = perm[i];
+		perm[i] = perm[j];
+		perm[j] = tmp;
+	}
+
+	private void calcBounds(final int node, final int from, final int to) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				minX = Math.min(minX, Math.min(this.fromX[i], this.toX[i]));
+				minY = Math.min(minY, Math.min(this.fromY[i], this.toY[i]));
+				maxX = Math.max(maxX, Math.max(this.fromX[i], this.toX[i]));
+				maxY = Math.max(maxY, Math.max(this.fromY[i], this.toY[i]));
+			}
+		} else {
+			int mid = (from + to + 1) >>> 1;
+			int left = 2 * node + 1;
+			int right = left + 1;
+			calcBounds(left, from, mid);
+			calcBounds(right, mid, to);
+			minX = Math.min(this.minX[left], this.minX[right]);
+			minY = Math.min(this.minY[left], this.minY[right]);
+			maxX = Math.max(this.maxX[left], this.maxX[right]);
+			maxY = Math.max(this.maxY[left], this.maxY[right]);
+		}
+		this.minX[node] = minX;
+		this.minY[node] = minY;
+		this.maxX[node] = maxX;
+		this.maxY[node] = maxY;
+	}
+
+	/**
+	 * @return the number of links stored in the tree
+	 */
+	public int size() {
+		return this.links.length;
+	}
+
+	/**
+	 * Gets the link closest to x/y, measured to the line segment between the
+	 * from- and to-node of the link.
+	 *
+	 * @return the link found closest to x/y, <code>null</code> if the tree is empty
+	 */
+	public Link getNearest(final double x, final double y) {
+		List<Link> nearest = getKNearest(x, y, 1);
+		return nearest.isEmpty() ? null : nearest.get(0);
+	}
+
+	/**
+	 * Gets the <code>k</code> links closest to x/y, measured to the line segment
+	 * between the from- and to-node of the links.
+	 *
+	 * @return the (at most) <code>k</code> links closest to x/y, ordered by increasing distance
+	 */
+	public List<Link> getKNearest(final double x, final double y, final int k) {
+		int capacity = Math.min(k, this.links.length);
+		if (capacity <= 0) {
+			return new ArrayList<>(0);
+		}
+		Candidates candidates = new Candidates(capacity);
+		findNearest(x, y, 0, 0, this.links.length, candidates);
+		List<Link> result = new ArrayList<>(candidates.size);
+		for (int i = 0; i < candidates.size; i++) {
+			result.add(this.links[candidates.index[i]]);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets all links within a certain distance around x/y, measured to the line
+	 * segment between the from- and to-node of the links.
+	 *
+	 * @param distance the maximal distance returned links can be away from x/y
+	 * @return the links found within distance to x/y
+	 */
+	public Collection<Link> getDisk(final double x, final double y, final double distance) {
+		List<Link> result = new ArrayList<>();
+		if (distance >= 0 && this.links.length > 0) {
+			findDisk(x, y, distance * distance, 0, 0, this.links.length, result);
+		}
+		return result;
+	}
+
+	private void findNearest(final double x, final double y, final int node, final int from, final int to, final Candidates candidates) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				candidates.offer(i, calcLineSegmentPseudoDistance(x, y, i));
+			}
+			return;
+		}
+		int mid = (from + to + 1) >>> 1;
+		int left = 2 * node + 1;
+		int right = left + 1;
+		double leftDistance = calcBoundsPseudoDistance(x, y, left);
+		double rightDistance = calcBoundsPseudoDistance(x, y, right);
+		if (leftDistance <= rightDistance) {
+			findNearest(x, y, left, from, mid, candidates);
+			if (rightDistance <= candidates.getWorstDistance()) {
+				findNearest(x, y, right, mid, to, candidates);
+			}
+		} else {
+			findNearest(x, y, right, mid, to, candidates);
+			if (leftDistance <= candidates.getWorstDistance()) {
+				findNearest(x, y, left, from, mid, candidates);
+			}
+		}
+	}
+
+	private void findDisk(final double x, final double y, final double maxPseudoDistance, final int node, final int from, final int to, final List<Link> result) {
+		if (calcBoundsPseudoDistance(x, y, node) > maxPseudoDistance) {
+			return;
+		}
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				if (calcLineSegmentPseudoDistance(x, y, i) <= maxPseudoDistance) {
+					result.add(this.links[i]);
+				}
+			}
+			return;
+		}
+		int mid = (from + to + 1) >>> 1;
+		findDisk(x, y, maxPseudoDistance, 2 * node + 1, from, mid, result);
+		findDisk(x, y, maxPseudoDistance, 2 * node + 2, mid, to, result);
+	}
+
+	/**
+	 * @return the squared distance of x/y to the bounding box of the given tree node, 0 if inside
+	 */
+	private double calcBoundsPseudoDistance(final double x, final double y, final int node) {
+		double dx = 0;
+		double dy = 0;
+		if (x < this.minX[node]) {
+			dx = this.minX[node] - x;
+		} else if (x > this.maxX[node]) {
+			dx = x - this.maxX[node];
+		}
+		if (y < this.minY[node]) {
+			dy = this.minY[node] - y;
+		} else if (y > this.maxY[node]) {
+			dy = y - this.maxY[node];
+		}
+		return dx * dx + dy * dy;
+	}
+
+	private double calcLineSegmentPseudoDistance(final double x, final double y, final int i) {
+		double fx = this.fromX[i];
+		double fy = this.fromY[i];
+		double lineDX = this.toX[i] - fx;
+		double lineDY = this.toY[i] - fy;
+
+		double u = 0;
+		if ((lineDX != 0.0) || (lineDY != 0.0)) {
+			u = ((x - fx)*lineDX + (y - fy)*lineDY) / (lineDX*lineDX + lineDY*lineDY);
+			if (u < 0) {
+				u = 0;
+			} else if (u > 1) {
+				u = 1;
+			}
+		}
+		double dx = fx + u*lineDX - x;
+		double dy = fy + u*lineDY - y;
+		return dx*dx + dy*dy; // no Math.sqrt, as we use the values only to compare to each other. Thus "pseudo distance"
+	}
+
+	/**
+	 * The best links found so far, sorted by increasing distance. The number of
+	 * requested links is usually small, so a sorted array is sufficient.
+	 */
+	private final class Candidates {
+		final int[] index;
+		final double[] distance;
+		int size = 0;
+
+		Candidates(final int k) {
+			this.index = new int[k];
+			this.distance = new double[k];
+		}
+
+		double getWorstDistance() {
+			return this.size < this.index.length ? Double.POSITIVE_INFINITY : this.distance[this.size - 1];
+		}
+
+		void offer(final int i, final double d) {
+			int pos = this.size;
+			while (pos > 0 && isBefore(d, i, this.distance[pos - 1], this.index[pos - 1])) {
+				pos--;
+			}
+			if (pos == this.index.length) {
+				return;
+			}
+			int last = Math.min(this.size, this.index.length - 1);
+			System.arraycopy(this.index, pos, this.index, pos + 1, last - pos);
+			System.arraycopy(this.distance, pos, this.distance, pos + 1, last - pos);
+			this.index[pos] = i;
+			this.distance[pos] = d;
+			if (this.size < this.index.length) {
+				this.size++;
+			}
+		}
+
+		private boolean isBefore(final double distanceA, final int a, final double distanceB, final int b) {
+			if (distanceA != distanceB) {
+				return distanceA < distanceB;
+			}
+			return LinkKdTree.this.order[a] < LinkKdTree.this.order[b];
+		}
+	}
+
+}
@@ -34,6 +34,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.collections.KdTree;
 import org.matsim.core.utils.collections.QuadTree;
 
 /**
@@ -62,9 +63,17 @@ public final class NetworkImpl implements Network {
 
 	private final Map<Id<Link>, Link> links = new LinkedHashMap<>();
 
+	private KdTree<Node> nodeKdTree = null;
+
 	private QuadTree<Node> nodeQuadTree = null;
+
+	/* The kd-tree is built in one pass but cannot be modified. Once nodes are added
+	 * or removed after the spatial index was built, the quad tree is used instead,
+	 * as it can be updated incrementally.
+	 */
+	private boolean modifiedAfterIndexing = false;
 	
-	private LinkQuadTree linkQuadTree = null;
+	private LinkKdTree linkKdTree = null;
 
 	private static final double DEFAULT_EFFECTIVE_CELL_SIZE = 7.5;
 
@@ -148,6 +157,10 @@ public final class NetworkImpl implements Network {
 					".\nNode is not added to the network.");
 		}
 		this.nodes.put(id, nn);
+		if (this.nodeKdTree != null) {
+			this.nodeKdTree = null;
+			this.modifiedAfterIndexing = true;
+		}
 		if (this.nodeQuadTree != null) {
 			if (Double.isInfinite(this.nodeQuadTree.getMinEasting())) {
 				// looks like the quad tree was initialized with infinite bounds, see MATSIM-278.
@@ -186,6 +199,10 @@ public final class NetworkImpl implements Network {
 		for (Link l : links1) {
 			removeLink(l.getId());
 		}
+		if (this.nodeKdTree != null) {
+			this.nodeKdTree = null;
+			this.modifiedAfterIndexing = true;
+		}
 		if (this.nodeQuadTree != null) {
 			this.nodeQuadTree.remove(n.getCoord().getX(),n.getCoord().getY(),n);
 		}
@@ -289,10 +306,10 @@ public final class NetworkImpl implements Network {
 	}
 
     public Link getNearestLinkExactly(final Coord coord) {
-		if (this.linkQuadTree == null) {
-			buildLinkQuadTree();
+		if (this.linkKdTree == null) {
+			buildLinkKdTree();
 		}
-		return this.linkQuadTree.getNearest(coord.getX(), coord.getY());
+		return this.linkKdTree.getNearest(coord.getX(), coord.getY());
 	}
 
     /**
@@ -302,7 +319,11 @@ public final class NetworkImpl implements Network {
 	 * @return the closest node found, null if none
 	 */
 	public Node getNearestNode(final Coord coord) {
-		if (this.nodeQuadTree == null) { buildQuadTree(); }
+		if (this.nodeKdTree == null && this.nodeQuadTree == null) { buildQuadTree(); }
+		KdTree<Node> kdTree = this.nodeKdTree;
+		if (kdTree != null) {
+			return kdTree.getClosest(coord.getX(), coord.getY());
+		}
 		return this.nodeQuadTree.getClosest(coord.getX(), coord.getY());
 	}
 
@@ -314,7 +335,11 @@ public final class NetworkImpl implements Network {
 	 * @return all nodes within distance to <code>coord</code>
 	 */
 	public Collection<Node> getNearestNodes(final Coord coord, final double distance) {
-		if (this.nodeQuadTree == null) { buildQuadTree(); }
+		if (this.nodeKdTree == null && this.nodeQuadTree == null) { buildQuadTree(); }
+		KdTree<Node> kdTree = this.nodeKdTree;
+		if (kdTree != null) {
+			return kdTree.getDisk(coord.getX(), coord.getY(), distance);
+		}
 		return this.nodeQuadTree.getDisk(coord.getX(), coord.getY(), distance);
 	}
 
@@ -347,10 +372,20 @@ public final class NetworkImpl implements Network {
 		/* the method must be synchronized to ensure we only build one quadTree
 		 * in case that multiple threads call a method that requires the quadTree.
 		 */
-		if (this.nodeQuadTree != null) {
+		if (this.nodeKdTree != null || this.nodeQuadTree != null) {
 			return;
 		}
 		double startTime = System.currentTimeMillis();
+		if (!this.modifiedAfterIndexing) {
+			log.info("building KdTree for " + this.nodes.size() + " nodes");
+			KdTree.Builder<Node> builder = new KdTree.Builder<>();
+			for (Node n : this.nodes.values()) {
+				builder.put(n.getCoord().getX(), n.getCoord().getY(), n);
+			}
+			this.nodeKdTree = builder.build();
+			log.info("Building KdTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+			return;
+		}
 		double minx = Double.POSITIVE_INFINITY;
 		double miny = Double.POSITIVE_INFINITY;
 		double maxx = Double.NEGATIVE_INFINITY;
@@ -379,34 +414,14 @@ public final class NetworkImpl implements Network {
 		log.info("Building QuadTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
 	}
 	
-	synchronized private void buildLinkQuadTree() {
-		if (this.linkQuadTree != null) {
+	synchronized private void buildLinkKdTree() {
+		if (this.linkKdTree != null) {
 			return;
 		}
 		double startTime = System.currentTimeMillis();
-		double minx = Double.POSITIVE_INFINITY;
-		double miny = Double.POSITIVE_INFINITY;
-		double maxx = Double.NEGATIVE_INFINITY;
-		double maxy = Double.NEGATIVE_INFINITY;
-		for (Node n : this.nodes.values()) {
-			if (n.getCoord().getX() < minx) { minx = n.getCoord().getX(); }
-			if (n.getCoord().getY() < miny) { miny = n.getCoord().getY(); }
-			if (n.getCoord().getX() > maxx) { maxx = n.getCoord().getX(); }
-			if (n.getCoord().getY() > maxy) { maxy = n.getCoord().getY(); }
-		}
-		minx -= 1.0;
-		miny -= 1.0;
-		maxx += 1.0;
-		maxy += 1.0;
-		// yy the above four lines are problematic if the coordinate values are much smaller than one. kai, oct'15
-		
-		log.info("building LinkQuadTree for nodes: xrange(" + minx + "," + maxx + "); yrange(" + miny + "," + maxy + ")");
-		LinkQuadTree qt = new LinkQuadTree(minx, miny, maxx, maxy);
-		for (Link l : this.links.values()) {
-			qt.put(l);
-		}
-		this.linkQuadTree = qt;
-		log.info("Building LinkQuadTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		log.info("building LinkKdTree for " + this.links.size() + " links");
+		this.linkKdTree = new LinkKdTree(this.links.values());
+		log.info("Building LinkKdTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
 	}
 
 	@Override
@@ -20,12 +20,19 @@
 
 package org.matsim.core.population;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.utils.misc.Time;
 
 public class LegImpl implements Leg {
 
+	// there are only a few modes, so all legs can share one instance per mode
+	private static final int MAX_CANONICAL_MODES = 256;
+	private static final ConcurrentMap<String, String> canonicalModes = new ConcurrentHashMap<>();
+
 	protected Route route = null;
 
 	private double depTime = Time.UNDEFINED_TIME;
@@ -35,7 +42,7 @@ public class LegImpl implements Leg {
 	private double arrTime = Time.UNDEFINED_TIME;
 
 	public LegImpl(final String transportMode) {
-		this.mode = transportMode;
+		this.mode = getCanonicalMode(transportMode);
 	}
 
 	/**
@@ -44,7 +51,8 @@ public class LegImpl implements Leg {
 	 * @param leg
 	 */
 	public LegImpl(final LegImpl leg) {
-		this(leg.getMode());
+		// the mode of the copied leg is canonical already
+		this.mode = leg.getMode();
 		this.setDepartureTime(leg.getDepartureTime());
 		this.setTravelTime(leg.getTravelTime());
 		this.setArrivalTime(leg.getArrivalTime());
@@ -60,7 +68,25 @@ public class LegImpl implements Leg {
 
 	@Override
 	public final void setMode(String transportMode) {
-		this.mode = transportMode;
+		this.mode = getCanonicalMode(transportMode);
+	}
+
+	private static String getCanonicalMode(final String transportMode) {
+		if (transportMode == null) {
+			return null;
+		}
+		String mode = canonicalModes.get(transportMode);
+		if (mode == null) {
+			if (canonicalModes.size() >= MAX_CANONICAL_MODES) {
+				// unusually many distinct modes, further ones are kept as they are
+				return transportMode;
+			}
+			mode = canonicalModes.putIfAbsent(transportMode, transportMode);
+			if (mode == null) {
+				mode = transportMode;
+			}
+		}
+		return mode;
 	}
 
 	@Override
@@ -27,6 +27,7 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.core.utils.io.MatsimXmlParser;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 
 /**
  * A reader for plans-files of MATSim. This reader recognizes the format of the plans-file and uses
@@ -73,6 +74,18 @@ public class MatsimPopulationReader extends MatsimXmlParser implements Populatio
 		parse(filename);
 	}
 
+	@Override
+	protected void parse(final InputSource input) throws UncheckedIOException {
+		try {
+			super.parse(input);
+		} finally {
+			if (this.delegate instanceof ParallelPopulationReaderMatsimV5) {
+				// do not leave the worker threads waiting if the file could not be parsed completely
+				((ParallelPopulationReaderMatsimV5) this.delegate).stopThreads();
+			}
+		}
+	}
+
 	@Override
 	protected void setDoctype(final String doctype) {
 		super.setDoctype(doctype);
@@ -82,7 +95,7 @@ public class MatsimPopulationReader extends MatsimXmlParser implements Populatio
 			this.delegate = new ParallelPopulationReaderMatsimV4(this.scenario);
 			log.info("using plans_v4-reader.");
 		} else if (POPULATION_V5.equals(doctype)) {
-			this.delegate = new PopulationReaderMatsimV5(this.scenario);
+			this.delegate = new ParallelPopulationReaderMatsimV5(this.scenario);
 			log.info("using population_v5-reader.");
 		} else if (PLANS_V1.equals(doctype)) {
 			this.delegate = new PopulationReaderMatsimV1(this.scenario);
@@ -0,0 +1,312 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV5.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV5. The main thread only reads the
+ * file and splits it into chunks of persons. Worker threads, each with its own
+ * PopulationReaderMatsimV5, interpret the xml data of the chunks and create the persons.
+ * The persons are then added to the population by the main thread in the order of the file.
+ * <p/>
+ * In contrast to {@link ParallelPopulationReaderMatsimV4}, this reader also works with
+ * population streaming: as the persons are handed to {@link Population#addPerson(Person)}
+ * in order and on the main thread, the person algorithms of a streaming population see the
+ * same sequence of persons as with the non-parallel reader, while the parsing of the
+ * following persons continues in the background. Only a limited number of chunks is kept
+ * in memory at any time.
+ */
+public class ParallelPopulationReaderMatsimV5 extends PopulationReaderMatsimV5 {
+
+	static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV5.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+
+	/*package*/ static final int PERSONS_PER_CHUNK = 100;
+
+	private final Scenario scenario;
+	private final Population population;
+	private final int numThreads;
+	private final int maxPendingChunks;
+	private final BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+	private final ArrayDeque<Chunk> pendingChunks = new ArrayDeque<>();
+
+	private Thread[] threads;
+	private boolean threadsStopped = false;
+	private Chunk currentChunk = null;
+
+	public ParallelPopulationReaderMatsimV5(final Scenario scenario) {
+		super(scenario);
+		this.scenario = scenario;
+		this.population = scenario.getPopulation();
+		if (scenario.getConfig().global().getNumberOfThreads() > 0) {
+			this.numThreads = scenario.getConfig().global().getNumberOfThreads();
+		} else this.numThreads = 1;
+		this.maxPendingChunks = 4 * this.numThreads;
+	}
+
+	private void initThreads() {
+		this.threads = new Thread[this.numThreads];
+		for (int i = 0; i < this.numThreads; i++) {
+			ChunkParser parser = new ChunkParser(this.scenario, this.population.getFactory(), this.population.getPersonAttributes(), this.queue);
+			Thread thread = new Thread(parser);
+			thread.setDaemon(true);
+			thread.setName(ChunkParser.class.getSimpleName() + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * Tells the worker threads to end once they have parsed the chunks in the queue. This is
+	 * also called if the parsing fails, so the workers do not wait for further chunks forever.
+	 */
+	/*package*/ void stopThreads() {
+		if (this.threads != null && !this.threadsStopped) {
+			this.threadsStopped = true;
+			for (int i = 0; i < this.threads.length; i++) {
+				this.queue.add(Chunk.END);
+			}
+		}
+	}
+
+	@Override
+	protected void parse(final InputSource input) throws UncheckedIOException {
+		try {
+			super.parse(input);
+		} finally {
+			stopThreads();
+		}
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (POPULATION.equals(name)) {
+			log.info("Start parallel population reading...");
+			initThreads();
+			super.startTag(name, atts, context);
+		} else {
+			if (this.currentChunk == null) {
+				this.currentChunk = new Chunk();
+			}
+			// We have to create copies of the attributes because the object is re-used by the parser!
+			this.currentChunk.tags.add(new Tag(name, new AttributesImpl(atts), null, true));
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (POPULATION.equals(name)) {
+			try {
+				if (this.currentChunk != null) {
+					submit(this.currentChunk);
+					this.currentChunk = null;
+				}
+				while (!this.pendingChunks.isEmpty()) {
+					addPersons(this.pendingChunks.poll());
+				}
+			} finally {
+				// signal the threads that they should end parsing
+				stopThreads();
+			}
+			try {
+				for (Thread thread : this.threads) {
+					thread.join();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			super.endTag(name, content, context);
+			log.info("Finished parallel population reading...");
+		} else {
+			this.currentChunk.tags.add(new Tag(name, null, content, false));
+			if (PERSON.equals(name)) {
+				this.currentChunk.nOfPersons++;
+				if (this.currentChunk.nOfPersons >= PERSONS_PER_CHUNK) {
+					submit(this.currentChunk);
+					this.currentChunk = null;
+				}
+			}
+		}
+	}
+
+	private void submit(final Chunk chunk) {
+		this.queue.add(chunk);
+		this.pendingChunks.add(chunk);
+		// hand over finished chunks, and block if too many chunks are waiting to limit the memory consumption
+		while (!this.pendingChunks.isEmpty()
+				&& (this.pendingChunks.peek().done.getCount() == 0 || this.pendingChunks.size() > this.maxPendingChunks)) {
+			addPersons(this.pendingChunks.poll());
+		}
+	}
+
+	private void addPersons(final Chunk chunk) {
+		try {
+			chunk.done.await();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		if (chunk.exception != null) {
+			throw new RuntimeException("Error while parsing the population.", chunk.exception);
+		}
+		for (Person person : chunk.persons) {
+			this.population.addPerson(person);
+		}
+	}
+
+	private static final class Tag {
+		final String name;
+		final Attributes atts;
+		final String content;
+		final boolean isStart;
+
+		Tag(final String name, final Attributes atts, final String content, final boolean isStart) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+			this.isStart = isStart;
+		}
+	}
+
+	private static final class Chunk {
+		/*
+		 * Marker Chunk to inform the threads that no further data has to be parsed.
+		 */
+		static final Chunk END = new Chunk();
+
+		final List<Tag> tags = new ArrayList<>();
+		final List<Person> persons = new ArrayList<>();
+		final CountDownLatch done = new CountDownLatch(1);
+		int nOfPersons = 0;
+		Throwable exception = null;
+	}
+
+	/**
+	 * Runnable which parses chunks taken from the queue with its own reader.
+	 */
+	private static final class ChunkParser implements Runnable {
+		private final BlockingQueue<Chunk> queue;
+		private final ChunkPopulation chunkPopulation;
+		private final PopulationReaderMatsimV5 reader;
+
+		ChunkParser(final Scenario scenario, final PopulationFactory factory, final ObjectAttributes personAttributes, final BlockingQueue<Chunk> queue) {
+			this.queue = queue;
+			this.chunkPopulation = new ChunkPopulation(factory, personAttributes);
+			this.reader = new PopulationReaderMatsimV5(scenario, this.chunkPopulation);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Chunk chunk;
+				try {
+					chunk = this.queue.take();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				if (chunk == Chunk.END) {
+					return;
+				}
+				this.chunkPopulation.persons = chunk.persons;
+				try {
+					for (Tag tag : chunk.tags) {
+						if (tag.isStart) {
+							this.reader.startTag(tag.name, tag.atts, null);
+						} else {
+							this.reader.endTag(tag.name, tag.content, null);
+						}
+					}
+				} catch (Throwable e) {
+					chunk.exception = e;
+				}
+				chunk.tags.clear();
+				chunk.done.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Collects the persons parsed by one worker for the chunk it is currently working on.
+	 */
+	private static final class ChunkPopulation implements Population {
+
+		private final PopulationFactory factory;
+		private final ObjectAttributes personAttributes;
+		/*package*/ List<Person> persons = null;
+
+		ChunkPopulation(final PopulationFactory factory, final ObjectAttributes personAttributes) {
+			this.factory = factory;
+			this.personAttributes = personAttributes;
+		}
+
+		@Override
+		public PopulationFactory getFactory() {
+			return this.factory;
+		}
+
+		@Override
+		public ObjectAttributes getPersonAttributes() {
+			return this.personAttributes;
+		}
+
+		@Override
+		public void addPerson(final Person p) {
+			this.persons.add(p);
+		}
+
+		@Override
+		public String getName() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void setName(final String name) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Map<Id<Person>, ? extends Person> getPersons() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+	}
+
+}
@@ -98,8 +98,16 @@ public class PopulationReaderMatsimV5 extends MatsimXmlParser implements Populat
 	private ActivityImpl prevAct = null;
 
 	public PopulationReaderMatsimV5(final Scenario scenario) {
+		this(scenario, scenario.getPopulation());
+	}
+
+	/**
+	 * Creates a reader which adds the parsed persons to the given population instead of the
+	 * scenario's one. Used by {@link ParallelPopulationReaderMatsimV5}.
+	 */
+	/*package*/ PopulationReaderMatsimV5(final Scenario scenario, final Population plans) {
 		this.scenario = scenario;
-		this.plans = scenario.getPopulation();
+		this.plans = plans;
 	}
 
 	@Override
@@ -320,10 +328,10 @@ public class PopulationReaderMatsimV5 extends MatsimXmlParser implements Populat
 			}
 		}
 		
-		ModeRouteFactory factory = ((PopulationFactoryImpl) this.scenario.getPopulation().getFactory()).getModeRouteFactory();
+		ModeRouteFactory factory = ((PopulationFactoryImpl) this.plans.getFactory()).getModeRouteFactory();
 		Class<? extends Route> routeClass = factory.getRouteClassForType(routeType);
 		
-		this.currRoute = ((PopulationFactoryImpl) this.scenario.getPopulation().getFactory()).createRoute(
+		this.currRoute = ((PopulationFactoryImpl) this.plans.getFactory()).createRoute(
 				routeClass, 
 				startLinkId == null ? null : Id.create(startLinkId, Link.class), 
 						endLinkId == null ? null : Id.create(endLinkId, Link.class));
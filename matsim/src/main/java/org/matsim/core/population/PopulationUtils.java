@@ -46,6 +46,7 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.routes.ArrayNetworkRouteFactory;
 import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
 import org.matsim.core.population.routes.LinkNetworkRouteFactory;
 import org.matsim.core.population.routes.ModeRouteFactory;
@@ -98,6 +99,8 @@ public final class PopulationUtils {
             factory = new LinkNetworkRouteFactory();
         } else if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(networkRouteType) && network != null) {
             factory = new CompressedNetworkRouteFactory(network);
+        } else if (PlansConfigGroup.NetworkRouteType.ArrayNetworkRoute.equals(networkRouteType)) {
+            factory = new ArrayNetworkRouteFactory();
         } else {
             throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
         }
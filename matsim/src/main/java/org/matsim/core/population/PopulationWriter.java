@@ -34,6 +34,15 @@ import org.matsim.population.algorithms.PersonAlgorithm;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class PopulationWriter extends AbstractMatsimWriter implements MatsimWriter, PersonAlgorithm {
 
@@ -43,6 +52,9 @@ public class PopulationWriter extends AbstractMatsimWriter implements MatsimWrit
 	private final Population population;
 	private final Network network;
 	private Counter counter = new Counter("[" + this.getClass().getSimpleName() + "] dumped person # ");
+	private int numberOfThreads = 1;
+
+	private static final int PERSONS_PER_CHUNK = 100;
 
 	private final static Logger log = Logger.getLogger(PopulationWriter.class);
 	
@@ -164,11 +176,77 @@ public class PopulationWriter extends AbstractMatsimWriter implements MatsimWrit
 	}
 
 	public final void writePersons() {
+		if (this.numberOfThreads > 1) {
+			writePersonsParallel();
+			return;
+		}
 		for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
 			writePerson(p);
 		}
 	}
 
+	/**
+	 * Serializes chunks of persons in parallel into strings, which are then written to the file
+	 * in the original order. The result is identical to the one of the sequential version.
+	 */
+	private void writePersonsParallel() {
+		ExecutorService pool = Executors.newFixedThreadPool(this.numberOfThreads);
+		ArrayDeque<Future<String>> pendingChunks = new ArrayDeque<>();
+		try {
+			List<Person> chunk = new ArrayList<>(PERSONS_PER_CHUNK);
+			for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
+				if ((this.write_person_fraction < 1.0) && (MatsimRandom.getRandom().nextDouble() >= this.write_person_fraction)) {
+					continue;
+				}
+				chunk.add(p);
+				counter.incCounter();
+				if (chunk.size() == PERSONS_PER_CHUNK) {
+					pendingChunks.add(pool.submit(new PersonsSerializer(chunk, this.handler)));
+					chunk = new ArrayList<>(PERSONS_PER_CHUNK);
+					// limit the number of serialized chunks kept in memory
+					while (pendingChunks.size() > 4 * this.numberOfThreads) {
+						this.writer.write(pendingChunks.poll().get());
+					}
+				}
+			}
+			if (!chunk.isEmpty()) {
+				pendingChunks.add(pool.submit(new PersonsSerializer(chunk, this.handler)));
+			}
+			while (!pendingChunks.isEmpty()) {
+				this.writer.write(pendingChunks.poll().get());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static final class PersonsSerializer implements Callable<String> {
+		private final List<Person> persons;
+		private final PopulationWriterHandler handler;
+
+		PersonsSerializer(final List<Person> persons, final PopulationWriterHandler handler) {
+			this.persons = persons;
+			this.handler = handler;
+		}
+
+		@Override
+		public String call() throws IOException {
+			StringWriter stringWriter = new StringWriter();
+			BufferedWriter out = new BufferedWriter(stringWriter);
+			for (Person person : this.persons) {
+				this.handler.writePerson(person, out);
+			}
+			out.flush();
+			return stringWriter.toString();
+		}
+	}
+
 	public final void writePerson(final Person person) {
 		try {
 			if ((this.write_person_fraction < 1.0) && (MatsimRandom.getRandom().nextDouble() >= this.write_person_fraction)) {
@@ -212,5 +290,15 @@ public class PopulationWriter extends AbstractMatsimWriter implements MatsimWrit
 	public final void setWriterHandler(final PopulationWriterHandler handler) {
 		this.handler = handler;
 	}
+
+	/**
+	 * Sets the number of threads used to serialize the persons when writing a whole population
+	 * (default: 1). Streaming is always sequential. When using more than one thread, the writer
+	 * handler must support concurrent calls to {@link PopulationWriterHandler#writePerson}; the
+	 * handlers provided by MATSim do.
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
 	
 }
@@ -0,0 +1,53 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayNetworkRouteFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.routes;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Route;
+
+/**
+ * Creates {@link ArrayNetworkRouteImpl}s which all share the same {@link LinkIndicesPool}.
+ */
+public class ArrayNetworkRouteFactory implements RouteFactory {
+
+	private final LinkIndicesPool pool;
+
+	public ArrayNetworkRouteFactory() {
+		this(new LinkIndicesPool());
+	}
+
+	public ArrayNetworkRouteFactory(final LinkIndicesPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public Route createRoute(final Id<Link> startLinkId, final Id<Link> endLinkId) {
+		return new ArrayNetworkRouteImpl(startLinkId, endLinkId, this.pool);
+	}
+
+	@Override
+	public String getCreatedRouteType() {
+		return ArrayNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+}
@@ -0,0 +1,238 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayNetworkRouteImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.routes;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.LinkIndicesPool.LinkIndices;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link NetworkRoute} that stores the links of the route as
+ * an array of their indices (see {@link Id#index()}) instead of a list of Ids.
+ * <p/>
+ * The arrays are shared through a {@link LinkIndicesPool}: routes with the same
+ * links use the same array, and cloning a route does not copy it. The list
+ * returned by {@link #getLinkIds()} is a read-only view on the array, so
+ * iterating over the route, as the mobsim does, needs no copy either.
+ *
+ * @see ArrayNetworkRouteFactory
+ */
+public final class ArrayNetworkRouteImpl extends AbstractRoute implements NetworkRoute, Cloneable {
+
+	/*package*/ final static String ROUTE_TYPE = "links";
+
+	private final LinkIndicesPool pool;
+	private LinkIndices links = LinkIndices.EMPTY;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+
+	public ArrayNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId, final LinkIndicesPool pool) {
+		super(startLinkId, endLinkId);
+		this.pool = pool;
+	}
+
+	@Override
+	public ArrayNetworkRouteImpl clone() {
+		// the link indices are immutable and can be shared with the clone
+		return (ArrayNetworkRouteImpl) super.clone();
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		return new LinkIdList(this.links.indices);
+	}
+
+	/**
+	 * @return the number of links in the route, without the start and end link
+	 */
+	public int getNumberOfLinks() {
+		return this.links.indices.length;
+	}
+
+	/**
+	 * @return the index of the Id of the link at the given position in the route
+	 */
+	public int getLinkIndex(final int position) {
+		return this.links.indices[position];
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		// same semantics as in LinkNetworkRouteImpl, including cutting loops short
+		int[] route = this.links.indices;
+		int from = fromLinkId.index();
+		int to = toLinkId.index();
+		int fromIndex = -1;
+		int toIndex = -1;
+
+		if (fromLinkId.equals(this.getStartLinkId())) {
+			fromIndex = 0;
+		} else {
+			for (int i = 0; (i < route.length) && (fromIndex < 0); i++) {
+				if (route[i] == from) {
+					fromIndex = i + 1;
+				}
+			}
+			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
+				fromIndex = route.length;
+			}
+			if (fromIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
+			}
+		}
+
+		if (fromLinkId.equals(toLinkId)) {
+			toIndex = fromIndex - 1;
+		} else {
+			for (int i = fromIndex; (i < route.length) && (toIndex < 0); i++) {
+				if (route[i] == from) {
+					fromIndex = i + 1; // in case of a loop, cut it short
+				}
+				if (route[i] == to) {
+					toIndex = i;
+				}
+			}
+			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
+				toIndex = route.length;
+			}
+			if (toIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
+			}
+		}
+		ArrayNetworkRouteImpl ret = new ArrayNetworkRouteImpl(fromLinkId, toLinkId, this.pool);
+		if (toIndex > fromIndex) {
+			int[] subRoute = new int[toIndex - fromIndex];
+			System.arraycopy(route, fromIndex, subRoute, 0, subRoute.length);
+			ret.links = this.pool.intern(subRoute);
+		}
+		return ret;
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		if (srcRoute == null || srcRoute.isEmpty()) {
+			this.links = LinkIndices.EMPTY;
+			return;
+		}
+		int[] indices = new int[srcRoute.size()];
+		int i = 0;
+		for (Id<Link> linkId : srcRoute) {
+			indices[i++] = linkId.index();
+		}
+		this.links = this.pool.intern(indices);
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		StringBuilder desc = new StringBuilder(100);
+		desc.append(this.getStartLinkId().toString());
+		for (Id<Link> linkId : this.getLinkIds()) {
+			desc.append(" ");
+			desc.append(linkId.toString());
+		}
+		// If the start links equals the end link additionally check if its is a round trip.
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.getNumberOfLinks() > 0) {
+			desc.append(" ");
+			desc.append(this.getEndLinkId().toString());
+		}
+		return desc.toString();
+	}
+
+	@Override
+	public void setRouteDescription(final String routeDescription) {
+		List<Id<Link>> linkIds = NetworkUtils.getLinkIds(routeDescription);
+		Id<Link> startLinkId = getStartLinkId();
+		Id<Link> endLinkId = getEndLinkId();
+		if (linkIds.size() > 0) {
+			startLinkId = linkIds.remove(0);
+			setStartLinkId(startLinkId);
+		}
+		if (linkIds.size() > 0) {
+			endLinkId = linkIds.remove(linkIds.size() - 1);
+			setEndLinkId(endLinkId);
+		}
+		this.setLinkIds(startLinkId, linkIds, endLinkId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return ROUTE_TYPE;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + this.getLinkIds() ;
+		str += " travelCost=" + this.getTravelCost() ;
+		return str ;
+	}
+
+	/**
+	 * Read-only view of the link indices as list of Ids.
+	 */
+	private static final class LinkIdList extends AbstractList<Id<Link>> implements RandomAccess {
+		private final int[] indices;
+
+		LinkIdList(final int[] indices) {
+			this.indices = indices;
+		}
+
+		@Override
+		public Id<Link> get(final int index) {
+			return Id.get(this.indices[index], Link.class);
+		}
+
+		@Override
+		public int size() {
+			return this.indices.length;
+		}
+	}
+
+}
@@ -30,7 +30,8 @@ import org.matsim.core.network.algorithms.SubsequentLinksAnalyzer;
 
 public class CompressedNetworkRouteFactory implements RouteFactory {
 
-	private Map<Id<Link>, Id<Link>> subsequentLinks = null;
+	// volatile, as the routes may be created by several threads, e.g. by the parallel population reader
+	private volatile Map<Id<Link>, Id<Link>> subsequentLinks = null;
 	private final Network network;
 	/**
 	 * Uses {@link SubsequentLinksAnalyzer} to get the map of subsequent links,
@@ -47,10 +48,17 @@ public class CompressedNetworkRouteFactory implements RouteFactory {
 		if ( network==null ) {
 			throw new RuntimeException( "need to set Network in Population in order to be able to create compressed routes") ;
 		}
-		if (this.subsequentLinks == null) {
-			this.subsequentLinks = new SubsequentLinksAnalyzer(this.network).getSubsequentLinks();
+		Map<Id<Link>, Id<Link>> links = this.subsequentLinks;
+		if (links == null) {
+			synchronized (this) {
+				links = this.subsequentLinks;
+				if (links == null) {
+					links = new SubsequentLinksAnalyzer(this.network).getSubsequentLinks();
+					this.subsequentLinks = links;
+				}
+			}
 		}
-		return new CompressedNetworkRouteImpl(startLinkId, endLinkId, this.network, this.subsequentLinks);
+		return new CompressedNetworkRouteImpl(startLinkId, endLinkId, this.network, links);
 	}
 	
 	@Override
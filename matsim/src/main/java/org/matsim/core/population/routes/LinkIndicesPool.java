@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkIndicesPool.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.routes;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Shares the link sequences of {@link ArrayNetworkRouteImpl}s, so that identical
+ * routes, e.g. in the different plans of an agent or of agents with the same origin
+ * and destination, are stored only once.
+ * <p/>
+ * The pool only keeps weak references, so a sequence is removed from the pool once
+ * no route uses it anymore. The pool is split into several independently locked
+ * parts, so routes can be created concurrently by multiple threads.
+ */
+public final class LinkIndicesPool {
+
+	private static final int STRIPES = 16;
+
+	private final Map<LinkIndices, WeakReference<LinkIndices>>[] stripes;
+
+	@SuppressWarnings("unchecked")
+	public LinkIndicesPool() {
+		this.stripes = new Map[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			this.stripes[i] = new WeakHashMap<>();
+		}
+	}
+
+	/**
+	 * @return a sequence equal to the given indices, either the one already in the pool or
+	 * a new one. The array must not be modified afterwards.
+	 */
+	/*package*/ LinkIndices intern(final int[] indices) {
+		if (indices.length == 0) {
+			return LinkIndices.EMPTY;
+		}
+		LinkIndices key = new LinkIndices(indices);
+		Map<LinkIndices, WeakReference<LinkIndices>> stripe = this.stripes[(key.hash >>> 16 ^ key.hash) & (STRIPES - 1)];
+		synchronized (stripe) {
+			WeakReference<LinkIndices> ref = stripe.get(key);
+			LinkIndices existing = ref == null ? null : ref.get();
+			if (existing != null) {
+				return existing;
+			}
+			stripe.put(key, new WeakReference<>(key));
+			return key;
+		}
+	}
+
+	/**
+	 * @return the number of distinct link sequences currently in the pool
+	 */
+	public int size() {
+		int size = 0;
+		for (Map<LinkIndices, WeakReference<LinkIndices>> stripe : this.stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * An immutable sequence of link indices, compared by its content.
+	 */
+	/*package*/ static final class LinkIndices {
+
+		/*package*/ static final LinkIndices EMPTY = new LinkIndices(new int[0]);
+
+		/*package*/ final int[] indices;
+		private final int hash;
+
+		private LinkIndices(final int[] indices) {
+			this.indices = indices;
+			this.hash = Arrays.hashCode(indices);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof LinkIndices)) {
+				return false;
+			}
+			LinkIndices other = (LinkIndices) obj;
+			return this.hash == other.hash && Arrays.equals(this.indices, other.indices);
+		}
+	}
+
+}
@@ -24,14 +24,17 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningWorkDistribution;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.population.algorithms.PlanAlgorithm;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract strategy module for running multiple plan algorithms in parallel.
@@ -50,6 +53,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p/>
+ * Alternatively, with {@link ReplanningWorkDistribution#sharedQueue}, all plans are collected in one
+ * list, from which the threads take small batches as soon as they are done with their previous batch.
+ * Expensive plans then no longer pile up on single threads, but which thread (and thus which instance
+ * of the plan algorithm, including its random number generator) handles which plan depends on timing.
+ * <p/>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -67,6 +75,9 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	private int count = 0;
 
+	private ReplanningWorkDistribution workDistribution = ReplanningWorkDistribution.roundRobin;
+	private final List<Plan> sharedPlans = new ArrayList<>();
+
 	private final AtomicBoolean hadException = new AtomicBoolean(false);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
 
@@ -84,12 +95,24 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this.workDistribution = globalConfigGroup.getReplanningWorkDistribution();
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
 		this.numOfThreads = numOfThreads;
 	}
 	
+	/**
+	 * Sets how the plans are distributed among the threads. Defaults to the value from the {@link GlobalConfigGroup} if
+	 * that one was given to the constructor, and to {@link ReplanningWorkDistribution#roundRobin} otherwise.
+	 */
+	public final void setWorkDistribution(final ReplanningWorkDistribution workDistribution) {
+		if (this.threads != null) {
+			throw new IllegalStateException("cannot change the work distribution while replanning.");
+		}
+		this.workDistribution = workDistribution;
+	}
+
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
 		// left empty for inheritance
 	}
@@ -118,7 +141,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			if (this.workDistribution == ReplanningWorkDistribution.sharedQueue) {
+				this.sharedPlans.add(plan);
+			} else {
+				this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			}
 			this.count++;
 		} else {
 			this.directAlgo.run(plan);
@@ -140,6 +167,15 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			// only try to start threads if we did not directly work on all the plans
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
+			if (this.workDistribution == ReplanningWorkDistribution.sharedQueue) {
+				// small batches for a good balance at the end, but not too small to keep the contention on the queue low
+				int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, this.count / (this.numOfThreads * 64)));
+				SharedPlanQueue queue = new SharedPlanQueue(this.sharedPlans, batchSize);
+				for (PlanAlgoThread algothread : this.algothreads) {
+					algothread.setSharedQueue(queue);
+				}
+			}
+
 			// start threads
 			for (Thread thread : this.threads) {
 				thread.start();
@@ -163,6 +199,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.threads = null;
 		this.replanningContext = null;
 		this.count = 0;
+		this.sharedPlans.clear();
 		
 		this.afterFinishReplanningHook();
 	}
@@ -212,11 +249,38 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	}
 
+	private static final int MAX_BATCH_SIZE = 100;
+
+	/**
+	 * All plans to be handled, from which the threads take batches of consecutive plans.
+	 * The plans are only added before the threads are started, so only the position needs to be synchronized.
+	 */
+	private final static class SharedPlanQueue {
+
+		private final List<Plan> plans;
+		private final int batchSize;
+		private final AtomicInteger nextIndex = new AtomicInteger(0);
+
+		public SharedPlanQueue(final List<Plan> plans, final int batchSize) {
+			this.plans = plans;
+			this.batchSize = batchSize;
+		}
+
+		/**
+		 * @return the index of the first plan of the next batch, or -1 if all plans are taken.
+		 */
+		public int nextBatch() {
+			int start = this.nextIndex.getAndAdd(this.batchSize);
+			return start < this.plans.size() ? start : -1;
+		}
+	}
+
 	private final static class PlanAlgoThread implements Runnable {
 
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private SharedPlanQueue sharedQueue = null;
 
 		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
 			this.planAlgo = algo;
@@ -227,12 +291,27 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			this.plans.add(plan);
 		}
 
+		public void setSharedQueue(final SharedPlanQueue sharedQueue) {
+			this.sharedQueue = sharedQueue;
+		}
+
 		@Override
 		public void run() {
 			for (Plan plan : this.plans) {
 				this.planAlgo.run(plan);
 				this.counter.incCounter();
 			}
+			if (this.sharedQueue != null) {
+				List<Plan> sharedPlans = this.sharedQueue.plans;
+				int start;
+				while ((start = this.sharedQueue.nextBatch()) >= 0) {
+					int end = Math.min(start + this.sharedQueue.batchSize, sharedPlans.size());
+					for (int i = start; i < end; i++) {
+						this.planAlgo.run(sharedPlans.get(i));
+						this.counter.incCounter();
+					}
+				}
+			}
 		}
 	}
 }
@@ -61,7 +61,7 @@ public class ChangeLegMode extends AbstractMultithreadedModule {
 	private boolean ignoreCarAvailability = true;
 
 	public ChangeLegMode(final Config config) {
-		super(config.global().getNumberOfThreads());
+		super(config.global());
 
 		// try to get the modes from the "changeLegMode" module of the config file
 		String modes = config.findParam(CONFIG_MODULE, CONFIG_PARAM_MODES);
@@ -58,6 +58,7 @@ public class SubtourModeChoice extends AbstractMultithreadedModule {
 				config.subtourModeChoice().getModes(),
 				config.subtourModeChoice().getChainBasedModes(),
 				config.subtourModeChoice().considerCarAvailability());
+		setWorkDistribution(config.global().getReplanningWorkDistribution());
 	}
 
 	public SubtourModeChoice(
@@ -20,7 +20,7 @@
 
 package org.matsim.core.replanning.selectors;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,12 +33,14 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.population.routes.NetworkRoute;
-import org.matsim.core.population.routes.RouteUtils;
 
 /**
  * select an existing Plan according to the Path Size Logit (e.g. Frejinger, E. and Bierlaire, M.: Capturing Correlation
  * with subnetworks in route choice models, Transportation Research Part B (2006), doi:10.1016/j.trb.2006.06.003.)
  * If there are unscored plans one of it will be chosen randomly (optimistic strategy).
+ * <p/>
+ * The overlap of the routes is computed on arrays of link indices that are re-used between the calls,
+ * so this class is NOT thread-safe!
  *
  * @author laemmel
  */
@@ -47,7 +49,16 @@ public final class PathSizeLogitSelector extends AbstractPlanSelector {
 	private final double pathSizeLogitExponent;
 	private final double logitScaleFactor;
 	private Network network;
-	
+
+	// buffers that are re-used between the calls, see calcWeights()
+	private int nOfEntries = 0;
+	private long[] sortKeys = new long[64];
+	private double[] departureTimes = new double[64];
+	private double[] linkLengths = new double[64];
+	private int[] denominators = new int[64];
+	private double[] planLength = new double[8];
+	private int[] planEntriesEnd = new int[8];
+
 	public PathSizeLogitSelector( final double pathSizeLogitExponent, final double logitScaleFactor, final Network network ) {
 		this.pathSizeLogitExponent = pathSizeLogitExponent ;
 		this.logitScaleFactor = logitScaleFactor ;
@@ -67,79 +78,68 @@ public final class PathSizeLogitSelector extends AbstractPlanSelector {
 
 		double maxScore = Double.NEGATIVE_INFINITY;
 
-		HashMap<Id<Link>, ArrayList<Double>> linksInTime = new HashMap<>();
-		// (a data structure that memorizes possible leg start times for link utilization (??))
-		
-		HashMap<Integer,Double> planLength = new HashMap<Integer, Double>();
-		// (a data structure that memorizes the total travel distance of each plan)
-		// (yyyy is it obvious that no two plans can have the same hash code?  what happens if they do?  kai, oct'12)
-		// (why not just <Plan,Double>?????)
+		// every link of every leg of every plan is stored as one entry, in the order of the plans, legs and links.
+		// (for each entry, the link, the departure time of the leg and the link length are memorized)
+		this.nOfEntries = 0;
+		if (this.planLength.length < plans.size()) {
+			this.planLength = new double[plans.size()];
+			this.planEntriesEnd = new int[plans.size()];
+		}
+		// (the total travel distance of each plan and the end of its entries, by position in the list of plans)
 		
 		//this gets the choice sets C_n
 		//TODO [GL] since the lack of information in Route(),
 		//the very first and the very last link of a path will be ignored - gl
 		//dg, 09-2013: as first and last link are equal for all routes between to activities this is no major issue
 
-		for (Plan plan : plans) {
+		for (int p = 0; p < plans.size(); p++) {
+			Plan plan = plans.get(p);
 
 			if (plan.getScore() > maxScore) maxScore = plan.getScore();
 
 			double pathSize = 0;
-			double currentEndTime = 0.0;
-			for (PlanElement pe : plan.getPlanElements()) {
+			List<PlanElement> planElements = plan.getPlanElements();
+			for (int i = 0; i < planElements.size(); i++) {
+				PlanElement pe = planElements.get(i);
 				if (pe instanceof Leg) {
 					Leg leg = (Leg) pe;
-					currentEndTime = leg.getDepartureTime();
+					double currentEndTime = leg.getDepartureTime();
 
 					NetworkRoute r = (NetworkRoute) leg.getRoute();
 					// (yyyy this will fail when the route is not a network route.  kai, oct'12)
 
-					pathSize += RouteUtils.calcDistance(r, network);
-					// (i.e. pathSize will be the sum over all routes of the plan)
-					
-					for (Id<Link> linkId : r.getLinkIds()){
-						ArrayList<Double> lit = linksInTime.get(linkId);
-						if (lit == null){
-							lit = new ArrayList<Double>();
-							linksInTime.put(linkId, lit);
-						}
-						lit.add(currentEndTime);
+					double distance = 0;
+					List<Id<Link>> linkIds = r.getLinkIds();
+					for (int l = 0; l < linkIds.size(); l++) {
+						Id<Link> linkId = linkIds.get(l);
+						double length = this.network.getLinks().get(linkId).getLength();
+						distance += length;
+						addEntry(linkId.index(), currentEndTime, length);
 					}
+					pathSize += distance;
+					// (i.e. pathSize will be the sum over all routes of the plan)
 				}
 			}
-			planLength.put(plan.hashCode(), pathSize);
+			this.planLength[p] = pathSize;
+			this.planEntriesEnd[p] = this.nOfEntries;
 		}
 
-		for (Plan plan : plans) {
+		countOverlaps();
+
+		int entry = 0;
+		for (int p = 0; p < plans.size(); p++) {
+			Plan plan = plans.get(p);
 
 			double tmp = 0;
-			for (PlanElement pe : plan.getPlanElements()) {
-				if (pe instanceof Leg) {
-					Leg leg = (Leg) pe;
-					double currentTime = leg.getDepartureTime();
-					NetworkRoute route = (NetworkRoute) leg.getRoute();
-					for (Id<Link> linkId : route.getLinkIds()){
-						double denominator = 0;
-						for (double dbl : linksInTime.get(linkId)){
-							//TODO this is just for testing (those legs where the departure time differs more then 3600 seconds will not compared to each other) - need a
-							//little bit to brood on it - gl
-							// An alternative might be to use a kernal, e.g. a Gaussian.  Something like
-							// denominator += exp( (dbl-currentTime)^2 / sigma^2 ) .  kai, oct'12
-							if (Math.abs(dbl - currentTime) <= 3600)
-								denominator++;
-						}
-						// (the meaning seems to be: for each link that the plan uses, it checks how many other times the
-						// same link is used by a leg that has roughly the same departure time (*))
-
-						Link link = network.getLinks().get(linkId);
-						tmp += link.getLength() / denominator;
-						// (for a plan, the weight of a link is divided by the number of times it is used)
-					}
-				}
+			for (; entry < this.planEntriesEnd[p]; entry++) {
+				// (the denominator is the number of times the link is used by a leg that has roughly the same departure
+				// time (*), including this one)
+				tmp += this.linkLengths[entry] / this.denominators[entry];
+				// (for a plan, the weight of a link is divided by the number of times it is used)
 			}
 			// tmp is now a number that contains the ``reduced'' travel distance of the plan.  Divide it by the full travel distance
 			// of the plan, and take to the power of this.beta:
-			double PSi = Math.pow(tmp/planLength.get(plan.hashCode()), this.pathSizeLogitExponent);
+			double PSi = Math.pow(tmp/this.planLength[p], this.pathSizeLogitExponent);
 			
 			double weight;
 			if (Double.isInfinite(maxScore)) {
@@ -168,4 +168,49 @@ public final class PathSizeLogitSelector extends AbstractPlanSelector {
 		return weights ;
 	}
 
+	private void addEntry(final int linkIndex, final double departureTime, final double length) {
+		if (this.nOfEntries == this.departureTimes.length) {
+			int capacity = 2 * this.nOfEntries;
+			this.sortKeys = Arrays.copyOf(this.sortKeys, capacity);
+			this.departureTimes = Arrays.copyOf(this.departureTimes, capacity);
+			this.linkLengths = Arrays.copyOf(this.linkLengths, capacity);
+			this.denominators = Arrays.copyOf(this.denominators, capacity);
+		}
+		// the entries are sorted by link, and by position within the same link
+		this.sortKeys[this.nOfEntries] = ((long) linkIndex << 32) | this.nOfEntries;
+		this.departureTimes[this.nOfEntries] = departureTime;
+		this.linkLengths[this.nOfEntries] = length;
+		this.nOfEntries++;
+	}
+
+	/**
+	 * Sets the denominator of every entry to the number of entries on the same link, including itself,
+	 * whose departure time differs by at most one hour.
+	 */
+	private void countOverlaps() {
+		Arrays.sort(this.sortKeys, 0, this.nOfEntries);
+		int groupStart = 0;
+		while (groupStart < this.nOfEntries) {
+			int linkIndex = (int) (this.sortKeys[groupStart] >>> 32);
+			int groupEnd = groupStart + 1;
+			while (groupEnd < this.nOfEntries && (int) (this.sortKeys[groupEnd] >>> 32) == linkIndex) {
+				groupEnd++;
+			}
+			for (int i = groupStart; i < groupEnd; i++) {
+				double currentTime = this.departureTimes[(int) this.sortKeys[i]];
+				int denominator = 0;
+				for (int j = groupStart; j < groupEnd; j++) {
+					//TODO this is just for testing (those legs where the departure time differs more then 3600 seconds will not compared to each other) - need a
+					//little bit to brood on it - gl
+					// An alternative might be to use a kernal, e.g. a Gaussian.  Something like
+					// denominator += exp( (dbl-currentTime)^2 / sigma^2 ) .  kai, oct'12
+					if (Math.abs(this.departureTimes[(int) this.sortKeys[j]] - currentTime) <= 3600)
+						denominator++;
+				}
+				this.denominators[(int) this.sortKeys[i]] = denominator;
+			}
+			groupStart = groupEnd;
+		}
+	}
+
 }
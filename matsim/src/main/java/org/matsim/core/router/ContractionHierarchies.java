@@ -0,0 +1,228 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.PreProcessContractionHierarchies.Customization;
+import org.matsim.core.router.util.PreProcessContractionHierarchies.Customizations;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator based on customizable contraction hierarchies.
+ * <p/>
+ * The contraction of the network is computed once by
+ * {@link PreProcessContractionHierarchies} and does not depend on the link costs.
+ * For every time bin in which a route is requested, the costs of all arcs are computed
+ * from the travel disutility at the start of the time bin, so the route is searched
+ * on a static snapshot of the costs. As the customization has to visit all arcs, this
+ * router pays off if many routes are calculated per time bin, as it is the case in the
+ * replanning. The customizations are kept until the router is discarded, or they are
+ * shared with other routers, see {@link org.matsim.core.router.util.ContractionHierarchiesFactory}.
+ * <p/>
+ * Note that the costs used to find the route are evaluated without person and vehicle,
+ * so person-dependent travel disutilities are not supported.
+ * The travel time and cost of the returned path are computed along the route with the
+ * given person and vehicle and with the time at which each link is entered.
+ * <p/>
+ * This class is NOT thread-safe!
+ *
+ * @see PreProcessContractionHierarchies
+ * @see org.matsim.core.router.util.ContractionHierarchiesFactory
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final PreProcessContractionHierarchies preProcessData;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final Customizations customizations;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardArc;
+	private final int[] backwardArc;
+	private int[] stack = new int[64];
+
+	public ContractionHierarchies(final PreProcessContractionHierarchies preProcessData,
+			final TravelDisutility costFunction, final TravelTime timeFunction, final double timeBinSize) {
+		this(preProcessData, costFunction, timeFunction, new Customizations(preProcessData, timeBinSize));
+	}
+
+	/**
+	 * Creates a router which uses the given, possibly shared, customizations. They must have been
+	 * computed from costs equal to the ones of the given travel disutility.
+	 */
+	public ContractionHierarchies(final PreProcessContractionHierarchies preProcessData,
+			final TravelDisutility costFunction, final TravelTime timeFunction, final Customizations customizations) {
+		if (!preProcessData.containsData()) {
+			throw new IllegalArgumentException("The preprocessing data provided to router class ContractionHierarchies contains no data! Please execute its run(...) method first!");
+		}
+		this.preProcessData = preProcessData;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.customizations = customizations;
+
+		int n = preProcessData.getNumberOfNodes();
+		this.forwardCost = new double[n];
+		this.backwardCost = new double[n];
+		this.forwardArc = new int[n];
+		this.backwardArc = new int[n];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int from = this.preProcessData.getRank(fromNode);
+		int to = this.preProcessData.getRank(toNode);
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+
+		Customization c = this.customizations.get(this.costFunction, starttime);
+
+		// search upwards from both nodes along their ancestors in the elimination tree
+		this.forwardCost[from] = 0;
+		for (int v = from; v >= 0; v = this.preProcessData.getParent(v)) {
+			double cost = this.forwardCost[v];
+			if (cost == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			for (int a = this.preProcessData.getFirstArc(v), end = this.preProcessData.getEndArc(v); a < end; a++) {
+				double headCost = cost + c.upCost[a];
+				int head = this.preProcessData.getArcHead(a);
+				if (headCost < this.forwardCost[head]) {
+					this.forwardCost[head] = headCost;
+					this.forwardArc[head] = a;
+				}
+			}
+		}
+		this.backwardCost[to] = 0;
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		for (int v = to; v >= 0; v = this.preProcessData.getParent(v)) {
+			double cost = this.backwardCost[v];
+			if (cost == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			if (cost + this.forwardCost[v] < bestCost) {
+				bestCost = cost + this.forwardCost[v];
+				meetingNode = v;
+			}
+			for (int a = this.preProcessData.getFirstArc(v), end = this.preProcessData.getEndArc(v); a < end; a++) {
+				double headCost = cost + c.downCost[a];
+				int head = this.preProcessData.getArcHead(a);
+				if (headCost < this.backwardCost[head]) {
+					this.backwardCost[head] = headCost;
+					this.backwardArc[head] = a;
+				}
+			}
+		}
+
+		List<Link> links = new ArrayList<>();
+		if (meetingNode >= 0) {
+			int[] upArcs = new int[16];
+			int nOfUpArcs = 0;
+			for (int v = meetingNode; v != from; v = this.preProcessData.getArcTail(this.forwardArc[v])) {
+				if (nOfUpArcs == upArcs.length) {
+					upArcs = Arrays.copyOf(upArcs, 2 * nOfUpArcs);
+				}
+				upArcs[nOfUpArcs++] = this.forwardArc[v];
+			}
+			for (int i = nOfUpArcs - 1; i >= 0; i--) {
+				unpack(c, upArcs[i], true, links);
+			}
+			for (int v = meetingNode; v != to; v = this.preProcessData.getArcTail(this.backwardArc[v])) {
+				unpack(c, this.backwardArc[v], false, links);
+			}
+		}
+
+		for (int v = from; v >= 0; v = this.preProcessData.getParent(v)) {
+			this.forwardCost[v] = Double.POSITIVE_INFINITY;
+		}
+		for (int v = to; v >= 0; v = this.preProcessData.getParent(v)) {
+			this.backwardCost[v] = Double.POSITIVE_INFINITY;
+		}
+
+		if (meetingNode < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+			return null;
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.costFunction.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.timeFunction.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	/**
+	 * Appends the links represented by the given arc to the list. Arcs in upward direction
+	 * lead from the tail to the head of the arc, arcs in downward direction the other way.
+	 */
+	private void unpack(final Customization c, final int arc, final boolean upward, final List<Link> links) {
+		int size = 0;
+		this.stack[size++] = upward ? 2 * arc : 2 * arc + 1;
+		while (size > 0) {
+			int entry = this.stack[--size];
+			int a = entry >> 1;
+			boolean up = (entry & 1) == 0;
+			int via = up ? c.upVia[a] : c.downVia[a];
+			if (via < 0) {
+				links.add(this.preProcessData.getLink(-via - 1));
+				continue;
+			}
+			if (size + 2 > this.stack.length) {
+				this.stack = Arrays.copyOf(this.stack, 2 * this.stack.length);
+			}
+			int tailArc = this.preProcessData.findArc(via, this.preProcessData.getArcTail(a));
+			int headArc = this.preProcessData.findArc(via, this.preProcessData.getArcHead(a));
+			if (up) {
+				// tail -> via -> head, pushed in reverse order
+				this.stack[size++] = 2 * headArc;
+				this.stack[size++] = 2 * tailArc + 1;
+			} else {
+				// head -> via -> tail
+				this.stack[size++] = 2 * tailArc;
+				this.stack[size++] = 2 * headArc + 1;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,457 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FastBidirectionalDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.BinaryMinHeap;
+import org.matsim.core.router.util.ArrayRoutingNetwork;
+import org.matsim.core.router.util.ArrayRoutingNetworkNode;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.RoutingNetworkLink;
+import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * <p>
+ * Bidirectional, time-dependent least cost path router on an {@link ArrayRoutingNetwork}.
+ * </p>
+ * <p>
+ * The forward search starts at the from-node at the departure time and uses the
+ * time-dependent travel disutilities. As the arrival time at the to-node is not known,
+ * the backward search starts at the to-node and uses the minimum travel disutilities of
+ * the links, i.e. it calculates lower bounds of the remaining costs. Both searches
+ * alternate until one of them settles a node which was already settled by the other one.
+ * The path via this node gives an upper bound of the costs. Then the backward search
+ * stops, and the forward search continues as A* search, using the lower bounds of the
+ * backward search as estimation of the remaining costs. For nodes not reached by the
+ * backward search, its radius is used. The forward search stops as soon as no path can
+ * be cheaper than the best path found so far. Compared to a unidirectional Dijkstra, the
+ * forward search settles far less nodes when it approaches the to-node.
+ * </p>
+ * <p>
+ * If landmarks are given, the forward search additionally uses them for estimating the
+ * remaining costs, like {@link FastAStarLandmarks}.
+ * </p>
+ * <p>
+ * The results are exact as long as the minimum travel disutility of every link is a lower
+ * bound of its travel disutility, which is also required by the A* routers. Dead end data is
+ * not used. The routing network must have been created by an
+ * {@link org.matsim.core.router.util.ArrayRoutingNetworkFactory}, which also sets the in-links
+ * of the nodes.
+ * </p>
+ * <p>
+ * This class is NOT thread-safe!
+ * </p>
+ *
+ * @see org.matsim.core.router.util.FastBidirectionalDijkstraFactory
+ */
+public class FastBidirectionalDijkstra implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(FastBidirectionalDijkstra.class);
+
+	private final ArrayRoutingNetwork routingNetwork;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final int nOfLandmarks;
+
+	private final double[] forwardCost;
+	private final double[] forwardTime;
+	private final RoutingNetworkLink[] forwardLink;
+	private final int[] forwardVisited;
+	private final int[] forwardSettled;
+	private final double[] backwardCost;
+	private final RoutingNetworkLink[] backwardLink;
+	private final int[] backwardVisited;
+	private final int[] backwardSettled;
+	private final BinaryMinHeap<ArrayRoutingNetworkNode> forwardQueue;
+	private final BinaryMinHeap<ArrayRoutingNetworkNode> backwardQueue;
+
+	private int iterationId = 0;
+	private Person person = null;
+	private Vehicle vehicle = null;
+	private boolean backwardActive;
+	private double backwardRadius;
+	private int[] activeLandmarks = new int[0];
+	private PreProcessLandmarks.LandmarksData toLandmarksData = null;
+	private int settledNodes = 0;
+
+	public FastBidirectionalDijkstra(final ArrayRoutingNetwork routingNetwork, final TravelDisutility costFunction,
+			final TravelTime timeFunction) {
+		this(routingNetwork, costFunction, timeFunction, null);
+	}
+
+	/**
+	 * @param preProcessData the landmarks used by the forward search, or <code>null</code>. The landmarks data
+	 * must have been set as dead end data of the nodes of the routing network.
+	 */
+	public FastBidirectionalDijkstra(final ArrayRoutingNetwork routingNetwork, final TravelDisutility costFunction,
+			final TravelTime timeFunction, final PreProcessLandmarks preProcessData) {
+		this.routingNetwork = routingNetwork;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.nOfLandmarks = preProcessData == null ? 0 : preProcessData.getLandmarks().length;
+
+		int n = routingNetwork.getNodes().size();
+		for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+			if (((ArrayRoutingNetworkNode) node).getInLinksArray() == null) {
+				throw new IllegalArgumentException("The nodes of the routing network have no in-links. " +
+						"Use an ArrayRoutingNetworkFactory to create the routing network.");
+			}
+			if (this.nOfLandmarks > 0 && !(node.getDeadEndData() instanceof PreProcessLandmarks.LandmarksData)) {
+				throw new IllegalArgumentException("The nodes of the routing network have no landmarks data.");
+			}
+			break;
+		}
+		this.forwardCost = new double[n];
+		this.forwardTime = new double[n];
+		this.forwardLink = new RoutingNetworkLink[n];
+		this.forwardVisited = new int[n];
+		this.forwardSettled = new int[n];
+		this.backwardCost = new double[n];
+		this.backwardLink = new RoutingNetworkLink[n];
+		this.backwardVisited = new int[n];
+		this.backwardSettled = new int[n];
+		this.forwardQueue = new BinaryMinHeap<>(n);
+		this.backwardQueue = new BinaryMinHeap<>(n);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		ArrayRoutingNetworkNode from = (ArrayRoutingNetworkNode) this.routingNetwork.getNodes().get(fromNode.getId());
+		ArrayRoutingNetworkNode to = (ArrayRoutingNetworkNode) this.routingNetwork.getNodes().get(toNode.getId());
+		if (from == null || to == null || from.getNode() != fromNode || to.getNode() != toNode) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+
+		augmentIterationId();
+		this.person = person;
+		this.vehicle = vehicle;
+		this.settledNodes = 0;
+		this.forwardQueue.reset();
+		this.backwardQueue.reset();
+		initializeActiveLandmarks(from, to);
+
+		this.backwardActive = true;
+		this.backwardRadius = 0;
+		visitForward(from, null, startTime, 0);
+		visitBackward(to, null, 0);
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		ArrayRoutingNetworkNode meetingNode = null;
+		boolean forwardTurn = true;
+		while (true) {
+			if (this.backwardActive) {
+				if (this.backwardQueue.isEmpty()) {
+					stopBackwardSearch();
+					continue;
+				}
+				if (!forwardTurn) {
+					ArrayRoutingNetworkNode node = this.backwardQueue.poll();
+					int index = node.getArrayIndex();
+					this.backwardSettled[index] = this.iterationId;
+					this.settledNodes++;
+					relaxBackward(node);
+					if (this.forwardSettled[index] == this.iterationId) {
+						double cost = evaluateUpperBound(node, bestCost);
+						if (cost < bestCost) {
+							bestCost = cost;
+							meetingNode = node;
+						}
+						stopBackwardSearch();
+					}
+					forwardTurn = true;
+					continue;
+				}
+			}
+			forwardTurn = false;
+
+			ArrayRoutingNetworkNode node = this.forwardQueue.peek();
+			if (node == null) {
+				break;
+			}
+			int index = node.getArrayIndex();
+			if (this.forwardCost[index] + getRemainingCostEstimate(node) >= bestCost) {
+				break;
+			}
+			this.forwardQueue.poll();
+			this.forwardSettled[index] = this.iterationId;
+			this.settledNodes++;
+			if (node == to) {
+				bestCost = this.forwardCost[index];
+				meetingNode = node;
+				break;
+			}
+			if (this.backwardSettled[index] == this.iterationId) {
+				double cost = evaluateUpperBound(node, bestCost);
+				if (cost < bestCost) {
+					bestCost = cost;
+					meetingNode = node;
+				}
+				if (this.backwardActive) {
+					stopBackwardSearch();
+				}
+			}
+			relaxForward(node);
+		}
+
+		if (meetingNode == null) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+			return null;
+		}
+		return constructPath(from, meetingNode, startTime);
+	}
+
+	/**
+	 * @return the number of nodes settled by the forward and the backward search in the last query.
+	 */
+	/*package*/ int getNumberOfSettledNodes() {
+		return this.settledNodes;
+	}
+
+	private void augmentIterationId() {
+		if (this.iterationId == Integer.MAX_VALUE) {
+			Arrays.fill(this.forwardVisited, 0);
+			Arrays.fill(this.forwardSettled, 0);
+			Arrays.fill(this.backwardVisited, 0);
+			Arrays.fill(this.backwardSettled, 0);
+			this.iterationId = 0;
+		}
+		this.iterationId++;
+	}
+
+	private void visitForward(final ArrayRoutingNetworkNode node, final RoutingNetworkLink link, final double time, final double cost) {
+		double estimate = getRemainingCostEstimate(node);
+		if (estimate == Double.POSITIVE_INFINITY) {
+			// the to-node cannot be reached from this node
+			return;
+		}
+		int index = node.getArrayIndex();
+		this.forwardVisited[index] = this.iterationId;
+		this.forwardCost[index] = cost;
+		this.forwardTime[index] = time;
+		this.forwardLink[index] = link;
+		this.forwardQueue.decreaseKey(node, cost + estimate);
+	}
+
+	private void visitBackward(final ArrayRoutingNetworkNode node, final RoutingNetworkLink link, final double cost) {
+		int index = node.getArrayIndex();
+		this.backwardVisited[index] = this.iterationId;
+		this.backwardCost[index] = cost;
+		this.backwardLink[index] = link;
+		this.backwardQueue.decreaseKey(node, cost);
+	}
+
+	private void relaxForward(final ArrayRoutingNetworkNode node) {
+		int index = node.getArrayIndex();
+		double currTime = this.forwardTime[index];
+		double currCost = this.forwardCost[index];
+		for (RoutingNetworkLink link : node.getOutLinksArray()) {
+			ArrayRoutingNetworkNode toNode = (ArrayRoutingNetworkNode) link.getToNode();
+			int toIndex = toNode.getArrayIndex();
+			double travelTime = this.timeFunction.getLinkTravelTime(link, currTime, this.person, this.vehicle);
+			double travelCost = this.costFunction.getLinkTravelDisutility(link, currTime, this.person, this.vehicle);
+			double cost = currCost + travelCost;
+			if (this.forwardVisited[toIndex] != this.iterationId || cost < this.forwardCost[toIndex]) {
+				/*
+				 * Like in the Dijkstra, a node is re-opened if a cheaper path to it is found after
+				 * it has been settled, which can happen as the landmarks' estimation is not consistent.
+				 */
+				this.forwardSettled[toIndex] = 0;
+				visitForward(toNode, link, currTime + travelTime, cost);
+			}
+		}
+	}
+
+	private void relaxBackward(final ArrayRoutingNetworkNode node) {
+		double currCost = this.backwardCost[node.getArrayIndex()];
+		for (RoutingNetworkLink link : node.getInLinksArray()) {
+			ArrayRoutingNetworkNode fromNode = (ArrayRoutingNetworkNode) link.getFromNode();
+			int fromIndex = fromNode.getArrayIndex();
+			if (this.backwardSettled[fromIndex] == this.iterationId) {
+				continue;
+			}
+			double cost = currCost + this.costFunction.getLinkMinimumTravelDisutility(link);
+			if (this.backwardVisited[fromIndex] != this.iterationId || cost < this.backwardCost[fromIndex]) {
+				visitBackward(fromNode, link, cost);
+			}
+		}
+	}
+
+	/**
+	 * Stops the backward search. From now on, its lower bounds are used to estimate the remaining
+	 * costs of the forward search, so the nodes in the forward queue get new keys.
+	 */
+	private void stopBackwardSearch() {
+		this.backwardActive = false;
+		ArrayRoutingNetworkNode next = this.backwardQueue.peek();
+		// all nodes which were not settled by the backward search have at least the costs of the next node
+		this.backwardRadius = next == null ? Double.POSITIVE_INFINITY : this.backwardCost[next.getArrayIndex()];
+
+		List<ArrayRoutingNetworkNode> pendingNodes = new ArrayList<>(this.forwardQueue.size());
+		Iterator<ArrayRoutingNetworkNode> iter = this.forwardQueue.iterator();
+		while (iter.hasNext()) {
+			pendingNodes.add(iter.next());
+		}
+		this.forwardQueue.reset();
+		for (ArrayRoutingNetworkNode node : pendingNodes) {
+			double estimate = getRemainingCostEstimate(node);
+			if (estimate < Double.POSITIVE_INFINITY) {
+				this.forwardQueue.add(node, this.forwardCost[node.getArrayIndex()] + estimate);
+			}
+		}
+	}
+
+	/**
+	 * @return the costs of the path consisting of the forward search's path to the given node and the backward
+	 * search's path from the node, evaluated with the time-dependent costs, or <code>bestCost</code> if the
+	 * path cannot be cheaper.
+	 */
+	private double evaluateUpperBound(final ArrayRoutingNetworkNode node, final double bestCost) {
+		int index = node.getArrayIndex();
+		double cost = this.forwardCost[index];
+		if (cost + this.backwardCost[index] >= bestCost) {
+			return bestCost;
+		}
+		double time = this.forwardTime[index];
+		RoutingNetworkLink link = this.backwardLink[index];
+		while (link != null) {
+			cost += this.costFunction.getLinkTravelDisutility(link, time, this.person, this.vehicle);
+			time += this.timeFunction.getLinkTravelTime(link, time, this.person, this.vehicle);
+			link = this.backwardLink[((ArrayRoutingNetworkNode) link.getToNode()).getArrayIndex()];
+		}
+		return cost;
+	}
+
+	private double getRemainingCostEstimate(final ArrayRoutingNetworkNode node) {
+		double estimate = 0;
+		if (this.nOfLandmarks > 0) {
+			PreProcessLandmarks.LandmarksData data = (PreProcessLandmarks.LandmarksData) node.getDeadEndData();
+			for (int landmark : this.activeLandmarks) {
+				double landmarkEstimate = estimateRemainingTravelCost(data, this.toLandmarksData, landmark);
+				if (landmarkEstimate > estimate) {
+					estimate = landmarkEstimate;
+				}
+			}
+		}
+		if (!this.backwardActive) {
+			int index = node.getArrayIndex();
+			double lowerBound = this.backwardSettled[index] == this.iterationId ? this.backwardCost[index] : this.backwardRadius;
+			if (lowerBound > estimate) {
+				estimate = lowerBound;
+			}
+		}
+		return estimate;
+	}
+
+	/*
+	 * Uses the two landmarks giving the best estimation between the from- and the to-node,
+	 * like the initial active landmarks of the AStarLandmarks.
+	 */
+	private void initializeActiveLandmarks(final ArrayRoutingNetworkNode from, final ArrayRoutingNetworkNode to) {
+		if (this.nOfLandmarks == 0) {
+			return;
+		}
+		PreProcessLandmarks.LandmarksData fromData = (PreProcessLandmarks.LandmarksData) from.getDeadEndData();
+		this.toLandmarksData = (PreProcessLandmarks.LandmarksData) to.getDeadEndData();
+		int best = -1;
+		int second = -1;
+		double bestEstimate = -1;
+		double secondEstimate = -1;
+		for (int i = 0; i < this.nOfLandmarks; i++) {
+			double estimate = estimateRemainingTravelCost(fromData, this.toLandmarksData, i);
+			if (estimate > bestEstimate) {
+				second = best;
+				secondEstimate = bestEstimate;
+				best = i;
+				bestEstimate = estimate;
+			} else if (estimate > secondEstimate) {
+				second = i;
+				secondEstimate = estimate;
+			}
+		}
+		this.activeLandmarks = second < 0 ? new int[] {best} : new int[] {best, second};
+	}
+
+	/*
+	 * Same estimation as in AStarLandmarks.
+	 */
+	private static double estimateRemainingTravelCost(final PreProcessLandmarks.LandmarksData fromRole,
+			final PreProcessLandmarks.LandmarksData toRole, final int index) {
+		double tmpTravTime = fromRole.getMinLandmarkTravelTime(index) - toRole.getMaxLandmarkTravelTime(index);
+		if (tmpTravTime < 0) {
+			tmpTravTime = toRole.getMinLandmarkTravelTime(index) - fromRole.getMaxLandmarkTravelTime(index);
+			if (tmpTravTime <= 0) {
+				return 0;
+			}
+		}
+		return tmpTravTime;
+	}
+
+	/*
+	 * Joins the paths of the forward and the backward search at the meeting node and
+	 * replaces the nodes and links from the routing network with the ones from the network.
+	 */
+	private Path constructPath(final ArrayRoutingNetworkNode from, final ArrayRoutingNetworkNode meetingNode, final double startTime) {
+		List<Link> links = new ArrayList<>();
+		RoutingNetworkLink link = this.forwardLink[meetingNode.getArrayIndex()];
+		while (link != null) {
+			links.add(link);
+			link = this.forwardLink[((ArrayRoutingNetworkNode) link.getFromNode()).getArrayIndex()];
+		}
+		for (int i = 0, j = links.size() - 1; i < j; i++, j--) {
+			Link tmp = links.get(i);
+			links.set(i, links.get(j));
+			links.set(j, tmp);
+		}
+		link = this.backwardLink[meetingNode.getArrayIndex()];
+		while (link != null) {
+			links.add(link);
+			link = this.backwardLink[((ArrayRoutingNetworkNode) link.getToNode()).getArrayIndex()];
+		}
+
+		List<Node> pathNodes = new ArrayList<>(links.size() + 1);
+		List<Link> pathLinks = new ArrayList<>(links.size());
+		pathNodes.add(from.getNode());
+		double time = startTime;
+		double cost = 0;
+		for (Link l : links) {
+			cost += this.costFunction.getLinkTravelDisutility(l, time, this.person, this.vehicle);
+			time += this.timeFunction.getLinkTravelTime(l, time, this.person, this.vehicle);
+			Link original = ((RoutingNetworkLink) l).getLink();
+			pathLinks.add(original);
+			pathNodes.add(original.getToNode());
+		}
+		return new Path(pathNodes, pathLinks, time - startTime, cost);
+	}
+
+}
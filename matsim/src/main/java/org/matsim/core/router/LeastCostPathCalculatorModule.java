@@ -36,10 +36,20 @@ public class LeastCostPathCalculatorModule extends AbstractModule {
             bind(LeastCostPathCalculatorFactory.class).to(DijkstraFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.AStarLandmarks)) {
             bind(LeastCostPathCalculatorFactory.class).to(AStarLandmarksFactory.class);
+            // updates the travel costs to and from the landmarks with the current travel times
+            addControlerListenerBinding().to(AStarLandmarksFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastDijkstra)) {
             bind(LeastCostPathCalculatorFactory.class).to(FastDijkstraFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastAStarLandmarks)) {
             bind(LeastCostPathCalculatorFactory.class).to(FastAStarLandmarksFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchies)) {
+            bind(LeastCostPathCalculatorFactory.class).to(ContractionHierarchiesFactory.class);
+            // discards the customizations of the arc costs when the travel times have changed
+            addControlerListenerBinding().to(ContractionHierarchiesFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastBidirectionalDijkstra)) {
+            bind(LeastCostPathCalculatorFactory.class).to(FastBidirectionalDijkstraFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastBidirectionalAStarLandmarks)) {
+            bind(LeastCostPathCalculatorFactory.class).to(FastBidirectionalAStarLandmarksFactory.class);
         }
     }
 
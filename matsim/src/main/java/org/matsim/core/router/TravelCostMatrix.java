@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelCostMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Travel times, distances and costs between a list of origin and a list of destination
+ * nodes. The values are stored as <code>float</code>s; destinations that cannot be
+ * reached from an origin have infinite values.
+ *
+ * @see TravelCostMatrixCalculator
+ * @see TravelCostMatrixWriter
+ * @see TravelCostMatrixReader
+ */
+public final class TravelCostMatrix {
+
+	private final List<Id<Node>> origins;
+	private final List<Id<Node>> destinations;
+	private final Map<Id<Node>, Integer> originIndices;
+	private final Map<Id<Node>, Integer> destinationIndices;
+	/*package*/ final float[] travelTimes;
+	/*package*/ final float[] distances;
+	/*package*/ final float[] travelCosts;
+
+	public TravelCostMatrix(final List<Id<Node>> origins, final List<Id<Node>> destinations) {
+		this.origins = Collections.unmodifiableList(new ArrayList<>(origins));
+		this.destinations = Collections.unmodifiableList(new ArrayList<>(destinations));
+		this.originIndices = createIndices(this.origins);
+		this.destinationIndices = createIndices(this.destinations);
+		int size = origins.size() * destinations.size();
+		this.travelTimes = new float[size];
+		this.distances = new float[size];
+		this.travelCosts = new float[size];
+		Arrays.fill(this.travelTimes, Float.POSITIVE_INFINITY);
+		Arrays.fill(this.distances, Float.POSITIVE_INFINITY);
+		Arrays.fill(this.travelCosts, Float.POSITIVE_INFINITY);
+	}
+
+	private static Map<Id<Node>, Integer> createIndices(final List<Id<Node>> ids) {
+		Map<Id<Node>, Integer> indices = new HashMap<>();
+		for (int i = 0; i < ids.size(); i++) {
+			indices.put(ids.get(i), i);
+		}
+		return indices;
+	}
+
+	public List<Id<Node>> getOrigins() {
+		return this.origins;
+	}
+
+	public List<Id<Node>> getDestinations() {
+		return this.destinations;
+	}
+
+	/**
+	 * @return the position of the node in the list of origins, or -1 if it is not an origin.
+	 */
+	public int getOriginIndex(final Id<Node> nodeId) {
+		Integer index = this.originIndices.get(nodeId);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the position of the node in the list of destinations, or -1 if it is not a destination.
+	 */
+	public int getDestinationIndex(final Id<Node> nodeId) {
+		Integer index = this.destinationIndices.get(nodeId);
+		return index == null ? -1 : index;
+	}
+
+	public double getTravelTime(final int origin, final int destination) {
+		return this.travelTimes[index(origin, destination)];
+	}
+
+	public double getDistance(final int origin, final int destination) {
+		return this.distances[index(origin, destination)];
+	}
+
+	public double getTravelCost(final int origin, final int destination) {
+		return this.travelCosts[index(origin, destination)];
+	}
+
+	/*package*/ void set(final int origin, final int destination, final double travelTime, final double distance, final double travelCost) {
+		int index = index(origin, destination);
+		this.travelTimes[index] = (float) travelTime;
+		this.distances[index] = (float) distance;
+		this.travelCosts[index] = (float) travelCost;
+	}
+
+	private int index(final int origin, final int destination) {
+		if (destination < 0 || destination >= this.destinations.size()) {
+			throw new IndexOutOfBoundsException("destination " + destination);
+		}
+		return origin * this.destinations.size() + destination;
+	}
+
+}
@@ -0,0 +1,336 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelCostMatrixCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.PreProcessContractionHierarchies.Customization;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates the travel times, distances and costs of the least cost paths between many
+ * origins and destinations.
+ * <p/>
+ * Instead of one shortest path tree per origin, the calculator uses the buckets algorithm
+ * on the contraction hierarchy of the network: the upward searches from all destinations
+ * are stored in buckets at the nodes they reach, the upward search of every origin then
+ * only has to scan the buckets of the nodes it reaches. The origins are processed in
+ * parallel.
+ * <p/>
+ * All link costs and travel times are evaluated at the departure time without person and
+ * vehicle, i.e. the matrices are computed on a static snapshot of the network.
+ *
+ * @see TravelCostMatrix
+ * @see PreProcessContractionHierarchies
+ */
+public class TravelCostMatrixCalculator {
+
+	private final static Logger log = Logger.getLogger(TravelCostMatrixCalculator.class);
+
+	private final PreProcessContractionHierarchies preProcessData;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private int numberOfThreads = 1;
+
+	public TravelCostMatrixCalculator(final Network network, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this(createPreProcessData(network), costFunction, timeFunction);
+	}
+
+	/**
+	 * @param preProcessData the contraction of the network, may be shared with other calculators and routers
+	 */
+	public TravelCostMatrixCalculator(final PreProcessContractionHierarchies preProcessData,
+			final TravelDisutility costFunction, final TravelTime timeFunction) {
+		if (!preProcessData.containsData()) {
+			throw new IllegalArgumentException("The preprocessing data provided to TravelCostMatrixCalculator contains no data! Please execute its run(...) method first!");
+		}
+		this.preProcessData = preProcessData;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+	}
+
+	private static PreProcessContractionHierarchies createPreProcessData(final Network network) {
+		PreProcessContractionHierarchies preProcessData = new PreProcessContractionHierarchies();
+		preProcessData.run(network);
+		return preProcessData;
+	}
+
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public TravelCostMatrix calculate(final List<? extends Node> origins, final List<? extends Node> destinations, final double departureTime) {
+		int[] originRanks = getRanks(origins);
+		int[] destinationRanks = getRanks(destinations);
+		TravelCostMatrix matrix = new TravelCostMatrix(getIds(origins), getIds(destinations));
+
+		log.info("Calculating travel cost matrix with " + origins.size() + " origins and " + destinations.size() + " destinations...");
+		long now = System.currentTimeMillis();
+		ArcValues arcValues = new ArcValues(departureTime);
+		Buckets buckets = new Buckets(arcValues, destinationRanks);
+
+		int nOfThreads = Math.max(1, Math.min(this.numberOfThreads, originRanks.length));
+		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < nOfThreads; i++) {
+			futures.add(executor.submit(new OriginsCalculator(arcValues, buckets, originRanks, i, nOfThreads, matrix)));
+		}
+		executor.shutdown();
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+		return matrix;
+	}
+
+	private int[] getRanks(final List<? extends Node> nodes) {
+		int[] ranks = new int[nodes.size()];
+		for (int i = 0; i < ranks.length; i++) {
+			ranks[i] = this.preProcessData.getRank(nodes.get(i));
+			if (ranks[i] < 0) {
+				throw new IllegalArgumentException("Node " + nodes.get(i).getId() + " is not part of the network stored by "
+						+ getClass().getSimpleName() + ". Aborting!");
+			}
+		}
+		return ranks;
+	}
+
+	private static List<Id<Node>> getIds(final List<? extends Node> nodes) {
+		List<Id<Node>> ids = new ArrayList<>(nodes.size());
+		for (Node node : nodes) {
+			ids.add(node.getId());
+		}
+		return ids;
+	}
+
+	/**
+	 * The costs, travel times and distances of the arcs at the departure time.
+	 */
+	private class ArcValues {
+		final Customization c;
+		final double[] upTime;
+		final double[] downTime;
+		final double[] upDistance;
+		final double[] downDistance;
+
+		ArcValues(final double time) {
+			PreProcessContractionHierarchies data = TravelCostMatrixCalculator.this.preProcessData;
+			this.c = data.customize(TravelCostMatrixCalculator.this.costFunction, time);
+			double[] linkTimes = new double[data.getNumberOfLinks()];
+			double[] linkLengths = new double[data.getNumberOfLinks()];
+			for (int l = 0; l < linkTimes.length; l++) {
+				Link link = data.getLink(l);
+				linkTimes[l] = TravelCostMatrixCalculator.this.timeFunction.getLinkTravelTime(link, time, null, null);
+				linkLengths[l] = link.getLength();
+			}
+			int m = data.getNumberOfArcs();
+			this.upTime = new double[m];
+			this.downTime = new double[m];
+			this.upDistance = new double[m];
+			this.downDistance = new double[m];
+			data.sumAlongArcs(this.c, linkTimes, this.upTime, this.downTime);
+			data.sumAlongArcs(this.c, linkLengths, this.upDistance, this.downDistance);
+		}
+	}
+
+	/**
+	 * The results of the upward searches from the destinations, grouped by the node they
+	 * reached.
+	 */
+	private class Buckets {
+		final int[] start;
+		final int[] destination;
+		final double[] cost;
+		final double[] time;
+		final double[] distance;
+
+		Buckets(final ArcValues arcs, final int[] destinationRanks) {
+			PreProcessContractionHierarchies data = TravelCostMatrixCalculator.this.preProcessData;
+			int n = data.getNumberOfNodes();
+			UpwardSearch search = new UpwardSearch(n);
+			TIntArrayList entryNodes = new TIntArrayList();
+			TIntArrayList entryDestinations = new TIntArrayList();
+			TDoubleArrayList entryCosts = new TDoubleArrayList();
+			TDoubleArrayList entryTimes = new TDoubleArrayList();
+			TDoubleArrayList entryDistances = new TDoubleArrayList();
+			for (int d = 0; d < destinationRanks.length; d++) {
+				search.run(destinationRanks[d], arcs.c.downCost, arcs.downTime, arcs.downDistance);
+				for (int v = destinationRanks[d]; v >= 0; v = data.getParent(v)) {
+					if (search.cost[v] < Double.POSITIVE_INFINITY) {
+						entryNodes.add(v);
+						entryDestinations.add(d);
+						entryCosts.add(search.cost[v]);
+						entryTimes.add(search.time[v]);
+						entryDistances.add(search.distance[v]);
+					}
+				}
+				search.reset(destinationRanks[d]);
+			}
+
+			// sort the entries by node
+			this.start = new int[n + 1];
+			for (int i = 0; i < entryNodes.size(); i++) {
+				this.start[entryNodes.get(i) + 1]++;
+			}
+			for (int v = 0; v < n; v++) {
+				this.start[v + 1] += this.start[v];
+			}
+			int size = entryNodes.size();
+			this.destination = new int[size];
+			this.cost = new double[size];
+			this.time = new double[size];
+			this.distance = new double[size];
+			int[] next = Arrays.copyOf(this.start, n);
+			for (int i = 0; i < size; i++) {
+				int pos = next[entryNodes.get(i)]++;
+				this.destination[pos] = entryDestinations.get(i);
+				this.cost[pos] = entryCosts.get(i);
+				this.time[pos] = entryTimes.get(i);
+				this.distance[pos] = entryDistances.get(i);
+			}
+		}
+	}
+
+	/**
+	 * Search along the ancestors of a node in the elimination tree.
+	 */
+	private class UpwardSearch {
+		final double[] cost;
+		final double[] time;
+		final double[] distance;
+
+		UpwardSearch(final int nOfNodes) {
+			this.cost = new double[nOfNodes];
+			this.time = new double[nOfNodes];
+			this.distance = new double[nOfNodes];
+			Arrays.fill(this.cost, Double.POSITIVE_INFINITY);
+		}
+
+		void run(final int start, final double[] arcCosts, final double[] arcTimes, final double[] arcDistances) {
+			PreProcessContractionHierarchies data = TravelCostMatrixCalculator.this.preProcessData;
+			this.cost[start] = 0;
+			this.time[start] = 0;
+			this.distance[start] = 0;
+			for (int v = start; v >= 0; v = data.getParent(v)) {
+				double vCost = this.cost[v];
+				if (vCost == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				for (int a = data.getFirstArc(v), end = data.getEndArc(v); a < end; a++) {
+					double headCost = vCost + arcCosts[a];
+					int head = data.getArcHead(a);
+					if (headCost < this.cost[head]) {
+						this.cost[head] = headCost;
+						this.time[head] = this.time[v] + arcTimes[a];
+						this.distance[head] = this.distance[v] + arcDistances[a];
+					}
+				}
+			}
+		}
+
+		void reset(final int start) {
+			PreProcessContractionHierarchies data = TravelCostMatrixCalculator.this.preProcessData;
+			for (int v = start; v >= 0; v = data.getParent(v)) {
+				this.cost[v] = Double.POSITIVE_INFINITY;
+			}
+		}
+	}
+
+	/**
+	 * Calculates the rows of every <code>step</code>-th origin, starting with <code>first</code>.
+	 */
+	private class OriginsCalculator implements Runnable {
+		private final ArcValues arcs;
+		private final Buckets buckets;
+		private final int[] originRanks;
+		private final int first;
+		private final int step;
+		private final TravelCostMatrix matrix;
+
+		OriginsCalculator(final ArcValues arcs, final Buckets buckets, final int[] originRanks, final int first, final int step,
+				final TravelCostMatrix matrix) {
+			this.arcs = arcs;
+			this.buckets = buckets;
+			this.originRanks = originRanks;
+			this.first = first;
+			this.step = step;
+			this.matrix = matrix;
+		}
+
+		@Override
+		public void run() {
+			PreProcessContractionHierarchies data = TravelCostMatrixCalculator.this.preProcessData;
+			UpwardSearch search = new UpwardSearch(data.getNumberOfNodes());
+			int nOfDestinations = this.matrix.getDestinations().size();
+			double[] bestCost = new double[nOfDestinations];
+			double[] bestTime = new double[nOfDestinations];
+			double[] bestDistance = new double[nOfDestinations];
+			Buckets b = this.buckets;
+			for (int o = this.first; o < this.originRanks.length; o += this.step) {
+				int origin = this.originRanks[o];
+				Arrays.fill(bestCost, Double.POSITIVE_INFINITY);
+				search.run(origin, this.arcs.c.upCost, this.arcs.upTime, this.arcs.upDistance);
+				for (int v = origin; v >= 0; v = data.getParent(v)) {
+					double cost = search.cost[v];
+					if (cost == Double.POSITIVE_INFINITY) {
+						continue;
+					}
+					for (int i = b.start[v], end = b.start[v + 1]; i < end; i++) {
+						int d = b.destination[i];
+						if (cost + b.cost[i] < bestCost[d]) {
+							bestCost[d] = cost + b.cost[i];
+							bestTime[d] = search.time[v] + b.time[i];
+							bestDistance[d] = search.distance[v] + b.distance[i];
+						}
+					}
+				}
+				search.reset(origin);
+				for (int d = 0; d < nOfDestinations; d++) {
+					if (bestCost[d] < Double.POSITIVE_INFINITY) {
+						this.matrix.set(o, d, bestTime[d], bestDistance[d], bestCost[d]);
+					}
+				}
+			}
+		}
+	}
+
+}
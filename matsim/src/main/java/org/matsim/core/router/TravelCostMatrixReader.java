@@ -0,0 +1,75 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelCostMatrixReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Reads a {@link TravelCostMatrix} written by {@link TravelCostMatrixWriter}.
+ */
+public class TravelCostMatrixReader {
+
+	public TravelCostMatrix read(final String filename) {
+		try (DataInputStream in = new DataInputStream(IOUtils.getInputStream(filename))) {
+			if (in.readInt() != TravelCostMatrixWriter.MAGIC_NUMBER) {
+				throw new IllegalArgumentException(filename + " is not a travel cost matrix file.");
+			}
+			int version = in.readInt();
+			if (version != TravelCostMatrixWriter.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of travel cost matrix file " + filename);
+			}
+			List<Id<Node>> origins = readIds(in);
+			List<Id<Node>> destinations = readIds(in);
+			TravelCostMatrix matrix = new TravelCostMatrix(origins, destinations);
+			readValues(in, matrix.travelTimes);
+			readValues(in, matrix.distances);
+			readValues(in, matrix.travelCosts);
+			return matrix;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static List<Id<Node>> readIds(final DataInputStream in) throws IOException {
+		int size = in.readInt();
+		List<Id<Node>> ids = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			ids.add(Id.create(in.readUTF(), Node.class));
+		}
+		return ids;
+	}
+
+	private static void readValues(final DataInputStream in, final float[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readFloat();
+		}
+	}
+
+}
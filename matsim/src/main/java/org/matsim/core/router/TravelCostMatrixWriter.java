@@ -0,0 +1,81 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelCostMatrixWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes a {@link TravelCostMatrix} in a compact binary format. If the file name ends
+ * with <code>.gz</code>, the file is compressed.
+ * <p/>
+ * The file starts with a magic number and the format version, followed by the number and
+ * ids of the origins and destinations. Then, the travel times, distances and costs follow
+ * as three blocks of <code>float</code>s, each ordered by origin and destination.
+ *
+ * @see TravelCostMatrixReader
+ */
+public class TravelCostMatrixWriter {
+
+	/*package*/ static final int MAGIC_NUMBER = 0x4d43544d; // "MCTM"
+	/*package*/ static final int VERSION = 1;
+
+	private final TravelCostMatrix matrix;
+
+	public TravelCostMatrixWriter(final TravelCostMatrix matrix) {
+		this.matrix = matrix;
+	}
+
+	public void write(final String filename) {
+		try (DataOutputStream out = new DataOutputStream(IOUtils.getOutputStream(filename))) {
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(VERSION);
+			writeIds(out, this.matrix.getOrigins());
+			writeIds(out, this.matrix.getDestinations());
+			writeValues(out, this.matrix.travelTimes);
+			writeValues(out, this.matrix.distances);
+			writeValues(out, this.matrix.travelCosts);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeIds(final DataOutputStream out, final List<Id<Node>> ids) throws IOException {
+		out.writeInt(ids.size());
+		for (Id<Node> id : ids) {
+			out.writeUTF(id.toString());
+		}
+	}
+
+	private static void writeValues(final DataOutputStream out, final float[] values) throws IOException {
+		for (float value : values) {
+			out.writeFloat(value);
+		}
+	}
+
+}
@@ -181,6 +181,14 @@ public final class RandomizingTimeDistanceTravelDisutility implements TravelDisu
 		return this.marginalCostOfTime * travelTime + logNormalRnd * this.marginalCostOfDistance * link.getLength();
 	}
 
+	/**
+	 * @return the width of the log-normal distribution of the distance costs; if it is not zero, the
+	 * travel disutility depends on the person.
+	 */
+	public double getSigma() {
+		return this.sigma;
+	}
+
 	@Override
 	public double getLinkMinimumTravelDisutility(final Link link) {
 		return (link.getLength() / link.getFreespeed()) * this.marginalCostOfTime + this.marginalCostOfDistance * link.getLength();
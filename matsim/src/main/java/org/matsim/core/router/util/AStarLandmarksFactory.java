@@ -23,6 +23,8 @@ package org.matsim.core.router.util;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.router.AStarLandmarks;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 
@@ -31,17 +33,30 @@ import javax.inject.Singleton;
 import java.util.Map;
 
 /**
+ * When used within the controler, the factory is registered as
+ * {@link IterationStartsListener}: at the start of each iteration, i.e. before
+ * the replanning, the travel costs to and from the landmarks are updated with
+ * the current car travel disutility. The landmarks themselves are kept.
+ *
  * @author dgrether
  */
 @Singleton
-public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
+public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
 
 	private PreProcessLandmarks preProcessData;
+	private Network network;
+
+	private Config config;
+	private Map<String, TravelTime> travelTime;
+	private Map<String, TravelDisutilityFactory> travelDisutilityFactory;
 
 	@Inject
 	AStarLandmarksFactory(Config config, Network network, Map<String, TravelTime> travelTime, Map<String, TravelDisutilityFactory> travelDisutilityFactory) {
 		//TODO: No guarantee that these are the same travel times for which the router is later requested.
 		this(network, travelDisutilityFactory.get(TransportMode.car).createTravelDisutility(travelTime.get(TransportMode.car), config.planCalcScore()), config.global().getNumberOfThreads());
+		this.config = config;
+		this.travelTime = travelTime;
+		this.travelDisutilityFactory = travelDisutilityFactory;
 	}
 
 	public AStarLandmarksFactory(Network network, final TravelDisutility fsttc) {
@@ -57,12 +72,35 @@ public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 	 */
 	public void processNetwork(Network network, final TravelDisutility fsttc, final int numberOfThreads) {
 		synchronized (this) {
+			if (this.preProcessData != null && this.network == network) {
+				// keep the landmarks, only the travel costs to and from them might have to be updated
+				this.preProcessData.setNumberOfThreads(numberOfThreads);
+				this.preProcessData.update(fsttc);
+			} else {
 				this.preProcessData = new PreProcessLandmarks(fsttc);
 				this.preProcessData.setNumberOfThreads(numberOfThreads);
 				this.preProcessData.run(network);
+				this.network = network;
+			}
 		}
 	}
 	
+	/**
+	 * Updates the travel costs to and from the landmarks with the current car travel
+	 * disutility. No routers created by this factory may be in use at that time, which
+	 * holds at the start of an iteration.
+	 */
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		if (this.travelTime == null) {
+			// not created by injection, thus the travel disutility is not known
+			return;
+		}
+		TravelDisutility travelDisutility = this.travelDisutilityFactory.get(TransportMode.car)
+				.createTravelDisutility(this.travelTime.get(TransportMode.car), this.config.planCalcScore());
+		processNetwork(this.network, travelDisutility, this.config.global().getNumberOfThreads());
+	}
+
 	@Override
 	public LeastCostPathCalculator createPathCalculator(Network network,
 			TravelDisutility travelCosts, TravelTime travelTimes) {
@@ -75,6 +75,8 @@ public class ArrayRoutingNetworkFactory extends AbstractRoutingNetworkFactory {
 		if (routingLinks.size() > 0) log.warn("Not all links have been use in the ArrayRoutingNetwork - " +
 				"check connectivity of input network!");
 		
+		setInLinks(routingNetwork);
+		
 		if (preProcessData != null) {
 			if (preProcessData.containsData()) {
 				for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
@@ -86,6 +88,35 @@ public class ArrayRoutingNetworkFactory extends AbstractRoutingNetworkFactory {
 		return routingNetwork;
 	}
 
+	/*
+	 * Collects the in-links of each node from the out-links of all nodes.
+	 */
+	private void setInLinks(ArrayRoutingNetwork routingNetwork) {
+		int[] inLinkCounts = new int[this.nodeArrayIndexCounter];
+		for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+			for (RoutingNetworkLink link : node.getOutLinksArray()) {
+				if (link != null) inLinkCounts[((ArrayRoutingNetworkNode) link.getToNode()).getArrayIndex()]++;
+			}
+		}
+		RoutingNetworkLink[][] inLinks = new RoutingNetworkLink[this.nodeArrayIndexCounter][];
+		for (int i = 0; i < inLinks.length; i++) {
+			inLinks[i] = new RoutingNetworkLink[inLinkCounts[i]];
+			inLinkCounts[i] = 0;
+		}
+		for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+			for (RoutingNetworkLink link : node.getOutLinksArray()) {
+				if (link != null) {
+					int index = ((ArrayRoutingNetworkNode) link.getToNode()).getArrayIndex();
+					inLinks[index][inLinkCounts[index]++] = link;
+				}
+			}
+		}
+		for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+			ArrayRoutingNetworkNode arrayNode = (ArrayRoutingNetworkNode) node;
+			arrayNode.setInLinksArray(inLinks[arrayNode.getArrayIndex()]);
+		}
+	}
+
 	@Override
 	public ArrayRoutingNetworkNode createRoutingNetworkNode(Node node, int numOutLinks) {
 		return new ArrayRoutingNetworkNode(node, numOutLinks, nodeArrayIndexCounter++);
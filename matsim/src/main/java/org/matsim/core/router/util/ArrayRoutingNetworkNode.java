@@ -27,11 +27,28 @@ public class ArrayRoutingNetworkNode extends AbstractRoutingNetworkNode implemen
 
 	final int arrayIndex;
 	
+	private RoutingNetworkLink[] inLinks = null;
+	
 	public ArrayRoutingNetworkNode(Node node, int numOutLinks, int arrayIndex) {
 		super(node, numOutLinks);
 		this.arrayIndex = arrayIndex;
 	}
 	
+	/*
+	 * The in-links are only needed by routers which also search backwards,
+	 * e.g. the FastBidirectionalDijkstra.
+	 */
+	public void setInLinksArray(RoutingNetworkLink[] inLinks) {
+		this.inLinks = inLinks;
+	}
+	
+	/**
+	 * @return the in-links of the node, or <code>null</code> if they have not been set by the factory of the routing network.
+	 */
+	public RoutingNetworkLink[] getInLinksArray() {
+		return this.inLinks;
+	}
+	
 	@Override
 	public int getArrayIndex() {
 		return this.arrayIndex;
@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.router.ContractionHierarchies;
+import org.matsim.core.router.util.PreProcessContractionHierarchies.Customizations;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates {@link ContractionHierarchies} routers. The contraction is done once per
+ * network and shared by all routers; the costs of the arcs are computed for the time
+ * bins in which routes are requested. By default, the time bins of the travel time
+ * calculator are used.
+ * <p/>
+ * The customizations of the time bins are shared by all routers created for the same
+ * network with the same travel time and the same type of travel disutility, e.g. the
+ * routers of the different replanning threads, so every time bin is customized and
+ * stored only once. Such routers are expected to have equal link costs. As the travel
+ * times change in the mobsim, the shared customizations are discarded after each mobsim
+ * run, if this factory is registered as controler listener.
+ * <p/>
+ * Person-dependent travel disutilities, e.g. randomizing ones with a sigma other than
+ * zero, are not supported, as the arc costs are computed without a person.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, AfterMobsimListener {
+
+	private final double timeBinSize;
+	private final Map<Network, PreProcessContractionHierarchies> preProcessData = new HashMap<>();
+	private final Map<CustomizationsKey, Customizations> customizations = new HashMap<>();
+
+	@Inject
+	ContractionHierarchiesFactory(Config config) {
+		this(config.travelTimeCalculator().getTraveltimeBinSize());
+	}
+
+	public ContractionHierarchiesFactory(final double timeBinSize) {
+		this.timeBinSize = timeBinSize;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		Customizations c;
+		// routers for the different threads are usually created concurrently
+		synchronized (this.preProcessData) {
+			PreProcessContractionHierarchies data = this.preProcessData.get(network);
+			if (data == null) {
+				data = new PreProcessContractionHierarchies();
+				data.run(network);
+				this.preProcessData.put(network, data);
+			}
+			CustomizationsKey key = new CustomizationsKey(network, travelTimes, travelCosts.getClass());
+			c = this.customizations.get(key);
+			if (c == null) {
+				c = new Customizations(data, this.timeBinSize);
+				this.customizations.put(key, c);
+			}
+			return new ContractionHierarchies(data, travelCosts, travelTimes, c);
+		}
+	}
+
+	@Override
+	public void notifyAfterMobsim(final AfterMobsimEvent event) {
+		synchronized (this.preProcessData) {
+			// routers which are still in use re-compute their customizations on demand
+			for (Customizations c : this.customizations.values()) {
+				c.clear();
+			}
+			this.customizations.clear();
+		}
+	}
+
+	private static final class CustomizationsKey {
+		private final Network network;
+		private final TravelTime travelTime;
+		private final Class<?> travelDisutilityType;
+
+		CustomizationsKey(final Network network, final TravelTime travelTime, final Class<?> travelDisutilityType) {
+			this.network = network;
+			this.travelTime = travelTime;
+			this.travelDisutilityType = travelDisutilityType;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.network) * 31 * 31 + System.identityHashCode(this.travelTime) * 31
+					+ this.travelDisutilityType.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof CustomizationsKey)) {
+				return false;
+			}
+			CustomizationsKey other = (CustomizationsKey) obj;
+			return this.network == other.network && this.travelTime == other.travelTime
+					&& this.travelDisutilityType == other.travelDisutilityType;
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FastBidirectionalAStarLandmarksFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+
+/**
+ * Creates {@link org.matsim.core.router.FastBidirectionalDijkstra} routers whose forward
+ * search also uses landmarks. The landmarks are calculated like for the
+ * {@link FastAStarLandmarksFactory}.
+ */
+@Singleton
+public class FastBidirectionalAStarLandmarksFactory extends FastBidirectionalDijkstraFactory {
+
+	@Inject
+	FastBidirectionalAStarLandmarksFactory(Network network, Config config, Map<String,TravelTime> travelTime, Map<String,TravelDisutilityFactory> fsttc) {
+		//TODO: No guarantee that these are the same travel times for which the router is later requested.
+		this(network, fsttc.get(TransportMode.car).createTravelDisutility(travelTime.get(TransportMode.car), config.planCalcScore()));
+	}
+
+	public FastBidirectionalAStarLandmarksFactory(Network network, final TravelDisutility fsttc) {
+		super(createPreProcessData(network, fsttc));
+	}
+
+	private static PreProcessLandmarks createPreProcessData(Network network, TravelDisutility fsttc) {
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(fsttc);
+		preProcessData.run(network);
+		return preProcessData;
+	}
+}
@@ -0,0 +1,66 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FastBidirectionalDijkstraFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.FastBidirectionalDijkstra;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates {@link FastBidirectionalDijkstra} routers, optionally using landmarks.
+ *
+ * @see FastBidirectionalAStarLandmarksFactory
+ */
+@Singleton
+public class FastBidirectionalDijkstraFactory implements LeastCostPathCalculatorFactory {
+
+	private final PreProcessLandmarks preProcessData;
+	private final RoutingNetworkFactory routingNetworkFactory;
+	private final Map<Network, ArrayRoutingNetwork> routingNetworks;
+
+	@Inject
+	public FastBidirectionalDijkstraFactory() {
+		this(null);
+	}
+
+	/**
+	 * @param preProcessData the landmarks used by the forward search, or <code>null</code>.
+	 */
+	public FastBidirectionalDijkstraFactory(final PreProcessLandmarks preProcessData) {
+		this.preProcessData = preProcessData;
+		this.routingNetworkFactory = new ArrayRoutingNetworkFactory(preProcessData);
+		this.routingNetworks = new HashMap<>();
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		ArrayRoutingNetwork routingNetwork = this.routingNetworks.get(network);
+		if (routingNetwork == null) {
+			routingNetwork = (ArrayRoutingNetwork) this.routingNetworkFactory.createRoutingNetwork(network);
+			this.routingNetworks.put(network, routingNetwork);
+		}
+		return new FastBidirectionalDijkstra(routingNetwork, travelCosts, travelTimes, this.preProcessData);
+	}
+}
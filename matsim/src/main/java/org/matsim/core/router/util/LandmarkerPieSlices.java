@@ -27,6 +27,9 @@ import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -43,13 +46,24 @@ import org.matsim.core.utils.geometry.CoordUtils;
 
 	private final Rectangle2D.Double travelZone;
 
+	private final int numberOfThreads;
+
 	private static final Logger log = Logger.getLogger(LandmarkerPieSlices.class);
 
 	private static final double ZONE_EXPANSION = 0.1;
 
 	LandmarkerPieSlices(final int landmarkCount, final Rectangle2D.Double travelZone) {
+		this(landmarkCount, travelZone, 1);
+	}
+
+	/**
+	 * @param numberOfThreads The number of threads used to search the farthest node in
+	 * each sector. Sorting the nodes into the sectors and refining the landmarks are sequential.
+	 */
+	LandmarkerPieSlices(final int landmarkCount, final Rectangle2D.Double travelZone, final int numberOfThreads) {
 		this.landmarks = new Node[landmarkCount];
 		this.travelZone = travelZone;
+		this.numberOfThreads = numberOfThreads;
 	}
 
 	public void run(final Network network) {
@@ -100,15 +114,42 @@ import org.matsim.core.utils.geometry.CoordUtils;
 			log.info("Reducing number of landmarks from " + landmarkCount + " to " + angles.length + "...");
 			this.landmarks = new Node[angles.length];
 		}
-		for (int i = 0; i < this.landmarks.length; i++) {
-			this.landmarks[i] = getLandmark(sectors.get(i), angles[i]);
-		}
+		putInitialLandmarks(sectors, angles);
 
 		log.info("Refining landmarks...");
 		refineLandmarks(sectors, angles);
 		log.info("done");
 	}
 
+	private void putInitialLandmarks(final ArrayList<ArrayList<Node>> sectors, final double[][] angles) {
+		int nOfThreads = Math.min(this.numberOfThreads, this.landmarks.length);
+		if (nOfThreads < 2) {
+			for (int i = 0; i < this.landmarks.length; i++) {
+				this.landmarks[i] = getLandmark(sectors.get(i), angles[i]);
+			}
+			return;
+		}
+		// the sectors are disjoint, every task only writes the landmark of its own sector
+		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		for (int i = 0; i < this.landmarks.length; i++) {
+			final int sector = i;
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					LandmarkerPieSlices.this.landmarks[sector] = getLandmark(sectors.get(sector), angles[sector]);
+				}
+			});
+		}
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(10, TimeUnit.MINUTES)) {
+				log.info("wait for landmarks to be selected...");
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	private double[][] fillSectors(final ArrayList<ArrayList<Node>> sectors, final Collection<? extends Node> nodes) {
 		ArrayList<double[]> angles = new ArrayList<double[]>();
 		// Sort nodes according to angle
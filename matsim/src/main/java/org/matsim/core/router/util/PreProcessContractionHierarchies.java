@@ -0,0 +1,576 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PreProcessContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutility;
+
+/**
+ * Pre-processes a given network for routing with contraction hierarchies. The
+ * pre-processing only depends on the topology of the network, not on the link
+ * costs, so it has to be done only once per network. The costs are added later
+ * by a {@link Customization}, which is cheap enough to be repeated whenever the
+ * travel times change, e.g. once per time bin of the travel time calculator.
+ * <p/>
+ * The nodes are ordered by nested dissection: the network is recursively cut along
+ * the longer side of its bounding box, and the nodes at the border of the cut are
+ * contracted after the nodes of both halves. Contracting the nodes in this order
+ * yields the shortcuts, which are stored as "upward" arcs from each node to its
+ * neighbours of higher rank. Every arc can be traversed in both directions; the
+ * costs of the two directions are stored separately by the customization.
+ *
+ * @see org.matsim.core.router.ContractionHierarchies
+ */
+public class PreProcessContractionHierarchies {
+
+	private static final Logger log = Logger.getLogger(PreProcessContractionHierarchies.class);
+
+	/*
+	 * Parts with at most this number of nodes are not cut any further.
+	 */
+	private static final int LEAF_SIZE = 16;
+
+	private static final byte NONE = 0;
+	private static final byte LEFT = 1;
+	private static final byte RIGHT = 2;
+	private static final byte SEPARATOR = 3;
+
+	private Network network = null;
+
+	private Node[] nodes;
+	private int[] rankByIdIndex;
+	private int[] parent;
+	private int[] arcStart;
+	private int[] arcTail;
+	private int[] arcHead;
+	private Link[] links;
+	private int[] linkArc;
+	private boolean[] linkUpward;
+
+	// only used while the order of the nodes is computed
+	private double[] x;
+	private double[] y;
+	private int[] adjStart;
+	private int[] adj;
+	private byte[] side;
+	private int[] rank;
+	private int nextRank;
+
+	public void run(final Network network) {
+		log.info("Contraction hierarchies pre-processing...");
+		long now = System.currentTimeMillis();
+
+		this.network = network;
+		int n = network.getNodes().size();
+		Node[] nodesByIndex = network.getNodes().values().toArray(new Node[n]);
+		int maxIdIndex = -1;
+		for (Node node : nodesByIndex) {
+			maxIdIndex = Math.max(maxIdIndex, node.getId().index());
+		}
+		int[] indexByIdIndex = new int[maxIdIndex + 1];
+		Arrays.fill(indexByIdIndex, -1);
+		for (int i = 0; i < n; i++) {
+			indexByIdIndex[nodesByIndex[i].getId().index()] = i;
+		}
+
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		int[] linkFrom = new int[this.links.length];
+		int[] linkTo = new int[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			linkFrom[l] = indexByIdIndex[this.links[l].getFromNode().getId().index()];
+			linkTo[l] = indexByIdIndex[this.links[l].getToNode().getId().index()];
+		}
+
+		computeOrder(nodesByIndex, linkFrom, linkTo);
+		contract(n, linkFrom, linkTo);
+
+		this.nodes = new Node[n];
+		this.rankByIdIndex = new int[maxIdIndex + 1];
+		Arrays.fill(this.rankByIdIndex, -1);
+		for (int i = 0; i < n; i++) {
+			this.nodes[this.rank[i]] = nodesByIndex[i];
+			this.rankByIdIndex[nodesByIndex[i].getId().index()] = this.rank[i];
+		}
+		this.rank = null;
+
+		log.info("  " + n + " nodes, " + this.links.length + " links, " + this.arcHead.length + " arcs.");
+		log.info("Contraction hierarchies pre-processing took " + (System.currentTimeMillis() - now) + " ms.");
+	}
+
+	/**
+	 * Computes the contraction order of the nodes by nested dissection.
+	 */
+	private void computeOrder(final Node[] nodesByIndex, final int[] linkFrom, final int[] linkTo) {
+		int n = nodesByIndex.length;
+		this.x = new double[n];
+		this.y = new double[n];
+		for (int i = 0; i < n; i++) {
+			Coord coord = nodesByIndex[i].getCoord();
+			if (coord != null) {
+				this.x[i] = coord.getX();
+				this.y[i] = coord.getY();
+			}
+		}
+
+		// undirected adjacency of the nodes
+		this.adjStart = new int[n + 1];
+		for (int l = 0; l < linkFrom.length; l++) {
+			this.adjStart[linkFrom[l] + 1]++;
+			this.adjStart[linkTo[l] + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			this.adjStart[i + 1] += this.adjStart[i];
+		}
+		this.adj = new int[this.adjStart[n]];
+		int[] pos = Arrays.copyOf(this.adjStart, n);
+		for (int l = 0; l < linkFrom.length; l++) {
+			this.adj[pos[linkFrom[l]]++] = linkTo[l];
+			this.adj[pos[linkTo[l]]++] = linkFrom[l];
+		}
+
+		this.side = new byte[n];
+		this.rank = new int[n];
+		this.nextRank = 0;
+		int[] all = new int[n];
+		for (int i = 0; i < n; i++) {
+			all[i] = i;
+		}
+		dissect(all);
+
+		this.x = null;
+		this.y = null;
+		this.adjStart = null;
+		this.adj = null;
+		this.side = null;
+	}
+
+	private void dissect(final int[] part) {
+		if (part.length <= LEAF_SIZE) {
+			for (int v : part) {
+				this.rank[v] = this.nextRank++;
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int v : part) {
+			minX = Math.min(minX, this.x[v]);
+			maxX = Math.max(maxX, this.x[v]);
+			minY = Math.min(minY, this.y[v]);
+			maxY = Math.max(maxY, this.y[v]);
+		}
+		double[] coords = (maxX - minX >= maxY - minY) ? this.x : this.y;
+
+		// sort the nodes by coordinate, the node index in the lower bits keeps the keys unique
+		long[] keys = new long[part.length];
+		for (int i = 0; i < part.length; i++) {
+			keys[i] = ((long) sortableBits(coords[part[i]]) << 32) | part[i];
+		}
+		Arrays.sort(keys);
+		int half = part.length / 2;
+		for (int i = 0; i < part.length; i++) {
+			this.side[(int) keys[i]] = i < half ? LEFT : RIGHT;
+		}
+
+		// the nodes with links to the other half; the smaller of the two sets is used as separator
+		int leftBoundary = 0;
+		int rightBoundary = 0;
+		for (int v : part) {
+			if (isBoundary(v)) {
+				if (this.side[v] == LEFT) leftBoundary++;
+				else rightBoundary++;
+			}
+		}
+		byte separatorSide = leftBoundary <= rightBoundary ? LEFT : RIGHT;
+		int[] separator = new int[Math.min(leftBoundary, rightBoundary)];
+		int s = 0;
+		for (int v : part) {
+			if (this.side[v] == separatorSide && isBoundary(v)) {
+				separator[s++] = v;
+			}
+		}
+		for (int v : separator) {
+			this.side[v] = SEPARATOR;
+		}
+
+		int[] left = new int[half - (separatorSide == LEFT ? separator.length : 0)];
+		int[] right = new int[part.length - half - (separatorSide == RIGHT ? separator.length : 0)];
+		int l = 0;
+		int r = 0;
+		for (int v : part) {
+			if (this.side[v] == LEFT) left[l++] = v;
+			else if (this.side[v] == RIGHT) right[r++] = v;
+			this.side[v] = NONE;
+		}
+
+		dissect(left);
+		dissect(right);
+		for (int v : separator) {
+			this.rank[v] = this.nextRank++;
+		}
+	}
+
+	private boolean isBoundary(final int v) {
+		byte other = this.side[v] == LEFT ? RIGHT : LEFT;
+		for (int a = this.adjStart[v]; a < this.adjStart[v + 1]; a++) {
+			if (this.side[this.adj[a]] == other) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Maps a coordinate to an int which has the same order as the coordinate.
+	 */
+	private static int sortableBits(final double coord) {
+		int bits = Float.floatToIntBits((float) coord);
+		return bits ^ ((bits >> 31) & 0x7fffffff);
+	}
+
+	/**
+	 * Contracts the nodes in the order of their rank, adding shortcuts between all
+	 * higher ranked neighbours of each contracted node.
+	 */
+	private void contract(final int n, final int[] linkFrom, final int[] linkTo) {
+		TIntHashSet[] upward = new TIntHashSet[n];
+		for (int v = 0; v < n; v++) {
+			upward[v] = new TIntHashSet(4);
+		}
+		for (int l = 0; l < linkFrom.length; l++) {
+			int a = this.rank[linkFrom[l]];
+			int b = this.rank[linkTo[l]];
+			if (a != b) {
+				upward[Math.min(a, b)].add(Math.max(a, b));
+			}
+		}
+
+		int[][] heads = new int[n][];
+		int nOfArcs = 0;
+		for (int v = 0; v < n; v++) {
+			int[] neighbours = upward[v].toArray();
+			upward[v] = null;
+			Arrays.sort(neighbours);
+			if (neighbours.length > 0) {
+				// the neighbours of v become neighbours of its lowest ranked neighbour
+				TIntHashSet p = upward[neighbours[0]];
+				for (int i = 1; i < neighbours.length; i++) {
+					p.add(neighbours[i]);
+				}
+			}
+			heads[v] = neighbours;
+			nOfArcs += neighbours.length;
+		}
+
+		this.parent = new int[n];
+		this.arcStart = new int[n + 1];
+		this.arcTail = new int[nOfArcs];
+		this.arcHead = new int[nOfArcs];
+		int a = 0;
+		for (int v = 0; v < n; v++) {
+			this.arcStart[v] = a;
+			this.parent[v] = heads[v].length > 0 ? heads[v][0] : -1;
+			for (int head : heads[v]) {
+				this.arcTail[a] = v;
+				this.arcHead[a] = head;
+				a++;
+			}
+			heads[v] = null;
+		}
+		this.arcStart[n] = a;
+
+		this.linkArc = new int[linkFrom.length];
+		this.linkUpward = new boolean[linkFrom.length];
+		for (int l = 0; l < linkFrom.length; l++) {
+			int from = this.rank[linkFrom[l]];
+			int to = this.rank[linkTo[l]];
+			if (from == to) {
+				this.linkArc[l] = -1;
+			} else if (from < to) {
+				this.linkArc[l] = findArc(from, to);
+				this.linkUpward[l] = true;
+			} else {
+				this.linkArc[l] = findArc(to, from);
+				this.linkUpward[l] = false;
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the arc from <code>tail</code> to <code>head</code>, which must have a higher rank than
+	 * <code>tail</code>, or a negative value if there is no such arc.
+	 */
+	public int findArc(final int tail, final int head) {
+		int a = Arrays.binarySearch(this.arcHead, this.arcStart[tail], this.arcStart[tail + 1], head);
+		return a >= 0 ? a : -1;
+	}
+
+	/**
+	 * @return the rank of the given node, or -1 if the node is not part of the pre-processed network.
+	 */
+	public int getRank(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.rankByIdIndex.length || this.rankByIdIndex[index] < 0 || this.nodes[this.rankByIdIndex[index]] != node) {
+			return -1;
+		}
+		return this.rankByIdIndex[index];
+	}
+
+	public Node getNode(final int rank) {
+		return this.nodes[rank];
+	}
+
+	public int getNumberOfNodes() {
+		return this.nodes.length;
+	}
+
+	public int getNumberOfArcs() {
+		return this.arcHead.length;
+	}
+
+	/**
+	 * @return the lowest ranked upward neighbour of the given node, i.e. its parent
+	 * in the elimination tree, or -1 if the node has no upward neighbours.
+	 */
+	public int getParent(final int rank) {
+		return this.parent[rank];
+	}
+
+	public int getFirstArc(final int rank) {
+		return this.arcStart[rank];
+	}
+
+	public int getEndArc(final int rank) {
+		return this.arcStart[rank + 1];
+	}
+
+	public int getArcTail(final int arc) {
+		return this.arcTail[arc];
+	}
+
+	public int getArcHead(final int arc) {
+		return this.arcHead[arc];
+	}
+
+	public Link getLink(final int linkIndex) {
+		return this.links[linkIndex];
+	}
+
+	public int getNumberOfLinks() {
+		return this.links.length;
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	public boolean containsData() {
+		return this.network != null;
+	}
+
+	/**
+	 * Computes the costs of all arcs for the link costs at a given time. The link costs are
+	 * evaluated without person and vehicle, so the travel disutility must not depend on them.
+	 *
+	 * @return the costs of the arcs
+	 * @throws IllegalArgumentException if the travel disutility is a randomizing one with non-zero sigma
+	 */
+	public Customization customize(final TravelDisutility travelDisutility, final double time) {
+		if (travelDisutility instanceof RandomizingTimeDistanceTravelDisutility
+				&& ((RandomizingTimeDistanceTravelDisutility) travelDisutility).getSigma() != 0.) {
+			throw new IllegalArgumentException("The travel disutility " + travelDisutility.getClass().getName() + " depends on the " +
+					"person. Contraction hierarchies only support person-independent travel disutilities.");
+		}
+		int m = this.arcHead.length;
+		Customization c = new Customization(m);
+		Arrays.fill(c.upCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(c.downCost, Double.POSITIVE_INFINITY);
+
+		for (int l = 0; l < this.links.length; l++) {
+			int a = this.linkArc[l];
+			if (a < 0) {
+				continue;
+			}
+			double cost = travelDisutility.getLinkTravelDisutility(this.links[l], time, null, null);
+			if (this.linkUpward[l]) {
+				if (cost < c.upCost[a]) {
+					c.upCost[a] = cost;
+					c.upVia[a] = -(l + 1);
+				}
+			} else if (cost < c.downCost[a]) {
+				c.downCost[a] = cost;
+				c.downVia[a] = -(l + 1);
+			}
+		}
+
+		/*
+		 * Every pair of upward neighbours x < y of a node v is connected by an arc. Going
+		 * from x to y via v might be cheaper than the arc itself. As the arcs of v only
+		 * depend on nodes of lower rank than v, processing the nodes in the order of their
+		 * rank yields the final costs.
+		 */
+		int n = this.nodes.length;
+		for (int v = 0; v < n; v++) {
+			int end = this.arcStart[v + 1];
+			for (int vx = this.arcStart[v]; vx < end; vx++) {
+				int x = this.arcHead[vx];
+				double xToV = c.downCost[vx];
+				double vToX = c.upCost[vx];
+				if (xToV == Double.POSITIVE_INFINITY && vToX == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				// the upward neighbours of v with higher rank than x are all upward neighbours of x
+				int xy = this.arcStart[x];
+				for (int vy = vx + 1; vy < end; vy++) {
+					int y = this.arcHead[vy];
+					while (this.arcHead[xy] != y) {
+						xy++;
+					}
+					double up = xToV + c.upCost[vy];
+					if (up < c.upCost[xy]) {
+						c.upCost[xy] = up;
+						c.upVia[xy] = v;
+					}
+					double down = c.downCost[vy] + vToX;
+					if (down < c.downCost[xy]) {
+						c.downCost[xy] = down;
+						c.downVia[xy] = v;
+					}
+				}
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Sums up another attribute of the links, e.g. the travel time or length, along the
+	 * cheapest paths represented by the arcs of a customization.
+	 *
+	 * @param c the customization defining the cheapest paths of the arcs
+	 * @param linkValues the values of the links, indexed like {@link #getLink(int)}
+	 * @param upValues will contain the sums along the arcs in upward direction
+	 * @param downValues will contain the sums along the arcs in downward direction
+	 */
+	public void sumAlongArcs(final Customization c, final double[] linkValues, final double[] upValues, final double[] downValues) {
+		// the arcs of a node are made of arcs of nodes with lower rank, so the order of the arcs suffices
+		for (int a = 0; a < this.arcHead.length; a++) {
+			upValues[a] = c.upCost[a] == Double.POSITIVE_INFINITY ? Double.POSITIVE_INFINITY
+					: sumAlongArc(c.upVia[a], a, true, linkValues, upValues, downValues);
+			downValues[a] = c.downCost[a] == Double.POSITIVE_INFINITY ? Double.POSITIVE_INFINITY
+					: sumAlongArc(c.downVia[a], a, false, linkValues, upValues, downValues);
+		}
+	}
+
+	private double sumAlongArc(final int via, final int arc, final boolean upward,
+			final double[] linkValues, final double[] upValues, final double[] downValues) {
+		if (via < 0) {
+			return linkValues[-via - 1];
+		}
+		int tailArc = findArc(via, this.arcTail[arc]);
+		int headArc = findArc(via, this.arcHead[arc]);
+		// up: tail -> via -> head; down: head -> via -> tail
+		return upward ? downValues[tailArc] + upValues[headArc] : downValues[headArc] + upValues[tailArc];
+	}
+
+	/**
+	 * The costs of the arcs for one set of link costs. For every arc and direction, the
+	 * <code>via</code> arrays contain either the node over which the arc is cheapest, or,
+	 * if the direct link is cheapest, <code>-(linkIndex + 1)</code>.
+	 */
+	public static final class Customization {
+		public final double[] upCost;
+		public final double[] downCost;
+		public final int[] upVia;
+		public final int[] downVia;
+
+		/*package*/ Customization(final int nOfArcs) {
+			this.upCost = new double[nOfArcs];
+			this.downCost = new double[nOfArcs];
+			this.upVia = new int[nOfArcs];
+			this.downVia = new int[nOfArcs];
+		}
+	}
+
+	/**
+	 * The customizations of the time bins in which routes were requested, computed on
+	 * demand. Can be shared by routers on several threads which use equal link costs, so
+	 * every time bin is customized only once.
+	 */
+	public static final class Customizations {
+		private final PreProcessContractionHierarchies preProcessData;
+		private final double timeBinSize;
+		private final TIntObjectHashMap<CustomizationHolder> bins = new TIntObjectHashMap<>();
+
+		public Customizations(final PreProcessContractionHierarchies preProcessData, final double timeBinSize) {
+			this.preProcessData = preProcessData;
+			this.timeBinSize = timeBinSize;
+		}
+
+		/**
+		 * @return the customization for the time bin containing the given time, computed from the link
+		 * costs at the start of the time bin
+		 */
+		public Customization get(final TravelDisutility travelDisutility, final double time) {
+			int bin = time > 0 ? (int) (time / this.timeBinSize) : 0;
+			CustomizationHolder holder;
+			synchronized (this.bins) {
+				holder = this.bins.get(bin);
+				if (holder == null) {
+					holder = new CustomizationHolder();
+					this.bins.put(bin, holder);
+				}
+			}
+			// different time bins can be customized concurrently
+			synchronized (holder) {
+				if (holder.customization == null) {
+					holder.customization = this.preProcessData.customize(travelDisutility, bin * this.timeBinSize);
+				}
+				return holder.customization;
+			}
+		}
+
+		/**
+		 * Removes all customizations, e.g. after the link costs have changed.
+		 */
+		public void clear() {
+			synchronized (this.bins) {
+				this.bins.clear();
+			}
+		}
+	}
+
+	private static final class CustomizationHolder {
+		private Customization customization = null;
+	}
+
+}
@@ -62,7 +62,7 @@ public class PreProcessEuclidean extends PreProcessDijkstra {
 		updateMinTravelCostPerLength(network);
 	}
 
-	private void updateMinTravelCostPerLength(final Network network) {
+	/*package*/ void updateMinTravelCostPerLength(final Network network) {
 		for (Link link : network.getLinks().values()) {
 			double minCost = this.costFunction.getLinkMinimumTravelDisutility(link) / link.getLength();
 			if (getMinTravelCostPerLength() > minCost) {
@@ -24,12 +24,11 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +39,12 @@ import java.util.concurrent.TimeUnit;
  * between a start and an end node. Specifically, designates some
  * nodes in the network that act as landmarks and computes the last-cost-path
  * from and to each node in the network to each of the landmarks.
+ * <p/>
+ * The travel costs to and from the landmarks are stored in flat arrays, indexed by
+ * <code>nodeIndex * landmarkCount + landmarkIndex</code>. The {@link LandmarksData}
+ * of a node only stores the index of the node. When the link costs change, the
+ * landmark travel costs can be refreshed with {@link #update(TravelDisutility)}
+ * without selecting the landmarks again.
  *
  * @author lnicolas
  */
@@ -53,6 +58,23 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private double refreshTolerance = 0.0;
+
+	private Network network = null;
+
+	// the network as arrays, indexed by the node indices of the LandmarksData
+	private int[] outStart;
+	private int[] outHead;
+	private int[] inStart;
+	private int[] inTail;
+	private Link[] links;
+	private double[] linkCosts;
+	private int[] outLink;
+	private int[] inLink;
+
+	private double[] minLandmarkTravelTimes;
+	private double[] maxLandmarkTravelTimes;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -82,6 +104,17 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	public void setNumberOfThreads(int numberOfThreads) {
 		this.numberOfThreads = numberOfThreads;
 	}
+
+	/**
+	 * Sets by how much (relative to the old cost) the minimum travel cost of a link may increase before
+	 * {@link #update(TravelDisutility)} calculates the travel costs to and from the landmarks again.
+	 * Default is 0, i.e. the travel costs are calculated again whenever a link cost changes.
+	 *
+	 * @param refreshTolerance
+	 */
+	public void setRefreshTolerance(double refreshTolerance) {
+		this.refreshTolerance = refreshTolerance;
+	}
 	
 	/**
 	 * @param costFunction
@@ -99,19 +132,99 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	@Override
 	public void run(final Network network) {
 		super.run(network);
+		this.network = network;
 		
 		log.info("Putting landmarks on network...");
 		long now = System.currentTimeMillis();
-		LandmarkerPieSlices landmarker = new LandmarkerPieSlices(this.landmarkCount, this.travelZone);
+		LandmarkerPieSlices landmarker = new LandmarkerPieSlices(this.landmarkCount, this.travelZone, this.numberOfThreads);
 		landmarker.run(network);
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
 		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
-		}
+		initArrays(network);
 		
 		this.landmarks = landmarker.getLandmarks();
+		calculateLandmarkTravelTimes();
+	}
+
+	/**
+	 * Calculates the travel costs to and from the landmarks again for a new cost function, keeping the landmarks.
+	 * If no link became cheaper and no link became more expensive than allowed by the refresh tolerance, the
+	 * existing travel costs are still valid (though less tight) estimates and are kept. Must not be called
+	 * while the data is used by a router.
+	 *
+	 * @param costFunction A cost function that returns the minimal possible cost for each link.
+	 * @return <code>true</code> if the travel costs to and from the landmarks were calculated again.
+	 */
+	public boolean update(final TravelDisutility costFunction) {
+		if (this.network == null) {
+			throw new IllegalStateException("The landmarks have not been calculated yet. Please execute the run(...) method first!");
+		}
+		boolean refresh = false;
+		double[] newLinkCosts = new double[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			newLinkCosts[l] = costFunction.getLinkMinimumTravelDisutility(this.links[l]);
+			if (newLinkCosts[l] < this.linkCosts[l] || newLinkCosts[l] > this.linkCosts[l] * (1.0 + this.refreshTolerance)) {
+				refresh = true;
+			}
+		}
+		if (!refresh) {
+			log.info("Link costs changed less than the refresh tolerance, keeping the landmark travel costs.");
+			return false;
+		}
+		this.costFunction = costFunction;
+		this.linkCosts = newLinkCosts;
+		setMinTravelCostPerLength(Double.POSITIVE_INFINITY);
+		updateMinTravelCostPerLength(this.network);
+		calculateLandmarkTravelTimes();
+		return true;
+	}
+
+	private void initArrays(final Network network) {
+		int n = network.getNodes().size();
+		Map<Node, Integer> indices = new HashMap<>(2 * n);
+		for (Node node : network.getNodes().values()) {
+			this.nodeData.put(node, new LandmarksData(indices.size()));
+			indices.put(node, indices.size());
+		}
+
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		this.linkCosts = new double[this.links.length];
+		this.outStart = new int[n + 1];
+		this.inStart = new int[n + 1];
+		int[] from = new int[this.links.length];
+		int[] to = new int[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			from[l] = indices.get(this.links[l].getFromNode());
+			to[l] = indices.get(this.links[l].getToNode());
+			this.outStart[from[l] + 1]++;
+			this.inStart[to[l] + 1]++;
+			this.linkCosts[l] = this.costFunction.getLinkMinimumTravelDisutility(this.links[l]);
+		}
+		for (int i = 0; i < n; i++) {
+			this.outStart[i + 1] += this.outStart[i];
+			this.inStart[i + 1] += this.inStart[i];
+		}
+		this.outHead = new int[this.links.length];
+		this.outLink = new int[this.links.length];
+		this.inTail = new int[this.links.length];
+		this.inLink = new int[this.links.length];
+		int[] outPos = Arrays.copyOf(this.outStart, n);
+		int[] inPos = Arrays.copyOf(this.inStart, n);
+		for (int l = 0; l < this.links.length; l++) {
+			int o = outPos[from[l]]++;
+			this.outHead[o] = to[l];
+			this.outLink[o] = l;
+			int i = inPos[to[l]]++;
+			this.inTail[i] = from[l];
+			this.inLink[i] = l;
+		}
+
+		this.minLandmarkTravelTimes = new double[n * this.landmarkCount];
+		this.maxLandmarkTravelTimes = new double[n * this.landmarkCount];
+	}
+
+	private void calculateLandmarkTravelTimes() {
 		int nOfThreads = this.numberOfThreads;
 		if (nOfThreads > this.landmarks.length) {
 			nOfThreads = this.landmarks.length;
@@ -120,12 +233,13 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 			nOfThreads = 2; // always use at least two threads
 		}
  		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
-		now = System.currentTimeMillis();
+		long now = System.currentTimeMillis();
 
-		
+		Arrays.fill(this.minLandmarkTravelTimes, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.maxLandmarkTravelTimes, Double.POSITIVE_INFINITY);
 		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
 		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
+			executor.execute(new Calculator(i, ((LandmarksData) getNodeData(this.landmarks[i])).nodeIndex));
 		}
 		executor.shutdown();
 		while (!executor.isTerminated()) {
@@ -137,92 +251,139 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 			}
 		}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = (LandmarksData) getNodeData(node);
-			r.updateMinMaxTravelTimes();
-		}
-
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = (LandmarksData) getNodeData(node);
-			for (int i = 0; i < this.landmarks.length; i++) {
-				if (r.getMinLandmarkTravelTime(i) > r.getMaxLandmarkTravelTime(i)) {
-					log.info("Min > max for node " + node.getId() + " and landmark " + i);
-				}
-			}
-		}
-
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 	}
 
-	private static class Calculator implements Runnable {
+	/**
+	 * Calculates the travel costs from and to one landmark. Every calculator only writes
+	 * the entries of its own landmark into the shared arrays.
+	 */
+	private class Calculator implements Runnable {
 		
 		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
+		private final int landmark;
 		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
+		public Calculator(final int landmarkIdx, final int landmark) {
 			this.landmarkIdx = landmarkIdx;
 			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
 		}
 		
 		@Override
 		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
+			double[] fromTravelTimes = expandLandmark(PreProcessLandmarks.this.outStart, PreProcessLandmarks.this.outHead, PreProcessLandmarks.this.outLink);
+			double[] toTravelTimes = expandLandmark(PreProcessLandmarks.this.inStart, PreProcessLandmarks.this.inTail, PreProcessLandmarks.this.inLink);
+			int count = PreProcessLandmarks.this.landmarkCount;
+			for (int i = 0; i < fromTravelTimes.length; i++) {
+				int index = i * count + this.landmarkIdx;
+				double travelTime1 = toTravelTimes[i];
+				double travelTime2 = fromTravelTimes[i];
+				if (travelTime1 > travelTime2) {
+					PreProcessLandmarks.this.minLandmarkTravelTimes[index] = travelTime2;
+					PreProcessLandmarks.this.maxLandmarkTravelTimes[index] = travelTime1;
+				} else {
+					PreProcessLandmarks.this.minLandmarkTravelTimes[index] = travelTime1;
+					PreProcessLandmarks.this.maxLandmarkTravelTimes[index] = travelTime2;
+				}
+			}
 		}
-	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
+
+		/**
+		 * Dijkstra from the landmark, following the given adjacency arrays.
+		 */
+		private double[] expandLandmark(final int[] start, final int[] adjacent, final int[] adjacentLink) {
+			double[] linkCosts = PreProcessLandmarks.this.linkCosts;
+			double[] travelTimes = new double[start.length - 1];
+			Arrays.fill(travelTimes, Double.POSITIVE_INFINITY);
+			NodeHeap pendingNodes = new NodeHeap(travelTimes);
+			travelTimes[this.landmark] = 0.0;
+			pendingNodes.decreaseKey(this.landmark);
 			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
+				int node = pendingNodes.poll();
+				double travelTime = travelTimes[node];
+				for (int a = start[node]; a < start[node + 1]; a++) {
+					int n = adjacent[a];
+					double totalTravelTime = travelTime + linkCosts[adjacentLink[a]];
+					if (travelTimes[n] > totalTravelTime) {
+						travelTimes[n] = totalTravelTime;
+						pendingNodes.decreaseKey(n);
 					}
 				}
 			}
+			return travelTimes;
 		}
+	
+	}
 
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
+	/**
+	 * A binary min-heap of node indices, ordered by the travel times of the nodes.
+	 */
+	private static final class NodeHeap {
+		private final double[] keys;
+		private final int[] heap;
+		private final int[] position;
+		private int size = 0;
+
+		NodeHeap(final double[] keys) {
+			this.keys = keys;
+			this.heap = new int[keys.length];
+			this.position = new int[keys.length];
+			Arrays.fill(this.position, -1);
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		/**
+		 * Adds the node or moves it up after its key was decreased.
+		 */
+		void decreaseKey(final int node) {
+			int pos = this.position[node];
+			if (pos < 0) {
+				pos = this.size++;
+			}
+			double key = this.keys[node];
+			while (pos > 0) {
+				int parent = (pos - 1) >> 1;
+				int parentNode = this.heap[parent];
+				if (this.keys[parentNode] <= key) {
+					break;
+				}
+				this.heap[pos] = parentNode;
+				this.position[parentNode] = pos;
+				pos = parent;
+			}
+			this.heap[pos] = node;
+			this.position[node] = pos;
+		}
+
+		int poll() {
+			int top = this.heap[0];
+			this.position[top] = -1;
+			int last = this.heap[--this.size];
+			if (this.size > 0) {
+				double key = this.keys[last];
+				int pos = 0;
+				while (true) {
+					int child = 2 * pos + 1;
+					if (child >= this.size) {
+						break;
+					}
+					if (child + 1 < this.size && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+						child++;
 					}
+					if (this.keys[this.heap[child]] >= key) {
+						break;
+					}
+					this.heap[pos] = this.heap[child];
+					this.position[this.heap[pos]] = pos;
+					pos = child;
 				}
+				this.heap[pos] = last;
+				this.position[last] = pos;
 			}
+			return top;
 		}
-	
 	}
 
 	public Node[] getLandmarks() {
@@ -233,127 +394,38 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	public DeadEndData getNodeData(final Node n) {
 		DeadEndData r = this.nodeData.get(n);
 		if (r == null) {
-			r = new LandmarksData(this.landmarkCount);
+			r = new LandmarksData(-1);
 			this.nodeData.put(n, r);
 		}
 		return r;
 	}
 
+	/**
+	 * Gives access to the travel costs between a node and the landmarks. The travel costs
+	 * are stored in the arrays of the outer class, the data itself only knows the index of
+	 * its node. Nodes which were not part of the network when the landmarks were calculated
+	 * have no index and infinite travel costs.
+	 */
 	public class LandmarksData extends DeadEndData {
 
-		private final double[] landmarkTravelTime1;
-		private final double[] landmarkTravelTime2;
+		private final int nodeIndex;
 
-		LandmarksData(final int landmarkCount) {
-			this.landmarkTravelTime2 = new double[landmarkCount];
-			this.landmarkTravelTime1 = new double[landmarkCount];
-			for (int i = 0; i < this.landmarkTravelTime2.length; i++) {
-				this.landmarkTravelTime2[i] = Double.POSITIVE_INFINITY;
-				this.landmarkTravelTime1[i] = Double.POSITIVE_INFINITY;
-			}
-		}
-
-		void setToLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime2[landmarkIndex] = travelTime;
-		}
-
-		void setFromLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime1[landmarkIndex] = travelTime;
-		}
-
-		double getToLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
-		}
-
-		double getFromLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
-		}
-
-		void updateMinMaxTravelTimes() {
-			for (int i = 0; i < this.landmarkTravelTime1.length; i++) {
-				setTravelTimes(i, this.landmarkTravelTime2[i], this.landmarkTravelTime1[i]);
-			}
-		}
-
-		private void setTravelTimes(final int landmarkIndex, final double travelTime1,
-				final double travelTime2) {
-			if (travelTime1 > travelTime2) {
-				this.landmarkTravelTime2[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime1[landmarkIndex] = travelTime2;
-			} else {
-				this.landmarkTravelTime1[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime2[landmarkIndex] = travelTime2;
-			}
+		LandmarksData(final int nodeIndex) {
+			this.nodeIndex = nodeIndex;
 		}
 
 		public double getMinLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
-		}
-
-		public double getMaxLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
-		}
-	}
-
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
-
-			if (c1 < c2) {
-				return -1;
+			if (this.nodeIndex < 0) {
+				return Double.POSITIVE_INFINITY;
 			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
+			return PreProcessLandmarks.this.minLandmarkTravelTimes[this.nodeIndex * PreProcessLandmarks.this.landmarkCount + landmarkIndex];
 		}
-	}
 
-	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
+		public double getMaxLandmarkTravelTime(final int landmarkIndex) {
+			if (this.nodeIndex < 0) {
+				return Double.POSITIVE_INFINITY;
 			}
-			return n1.getId().compareTo(n2.getId());
+			return PreProcessLandmarks.this.maxLandmarkTravelTimes[this.nodeIndex * PreProcessLandmarks.this.landmarkCount + landmarkIndex];
 		}
 	}
 	
@@ -20,8 +20,13 @@
 
 package org.matsim.core.scoring;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -57,14 +62,28 @@ import org.matsim.core.events.handler.BasicEventHandler;
  * Therefore, this class is instantiated and used by the Controler. Create your own instance if you want
  * to compute scores from an Event file, for example. You will still need a Scenario with proper selected
  * Plans, though. This is not yet fully decoupled.
+ * <p/>
+ * If more than one thread is configured for the scoring, the persons are split into disjoint
+ * partitions by their id, and the events of every partition are processed by a separate thread.
+ * The events of a person are always processed in the order they were created. Events which are not
+ * related to a single person, but are needed to reconstruct the legs of all persons, are passed to
+ * all partitions. As a consequence, the scoring functions of one partition are only ever accessed by
+ * a single thread, but the scoring functions of different persons must not share any state that is
+ * not thread-safe.
  *
  * @author mrieser, michaz
  */
 public class EventsToScore implements BasicEventHandler {
 	static private final Logger log = Logger.getLogger(EventsToScore.class);
 
-	private EventsToActivities eventsToActivities;
-	private EventsToLegs eventsToLegs;
+	private static final int EVENTS_PER_BATCH = 1000;
+	/*
+	 * Marker to inform the threads that no further events have to be processed.
+	 */
+	private static final List<Event> END_OF_EVENTS = Collections.emptyList();
+
+	private Partition[] partitions;
+	private Thread[] threads = null;
 	private ScoringFunctionsForPopulation scoringFunctionsForPopulation;
 	private Scenario scenario;
 	private ScoringFunctionFactory scoringFunctionFactory;
@@ -105,53 +124,78 @@ public class EventsToScore implements BasicEventHandler {
 	}
 
 	private void initHandlers(final ScoringFunctionFactory factory) {
-		this.eventsToActivities = new EventsToActivities();
 		this.scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(scenario, factory);
-		this.eventsToActivities.setActivityHandler(this.scoringFunctionsForPopulation);
-		this.eventsToLegs = new EventsToLegs(this.scenario);
-		this.eventsToLegs.setLegHandler(this.scoringFunctionsForPopulation);
+		this.partitions = new Partition[this.scenario.getConfig().planCalcScore().getNumberOfThreads()];
+		for (int i = 0; i < this.partitions.length; i++) {
+			this.partitions[i] = new Partition();
+		}
 	}
 
 	@Override
 	public void handleEvent(Event event) {
-		// this is for the activity and leg related stuff ("old" scoring function)
+		if (this.partitions.length == 1) {
+			this.partitions[0].handleEvent(event);
+			return;
+		}
+
+		// events which are not needed for the scoring are not passed to the partitions at all
+		Id<Person> personId = null;
 		if ( event instanceof LinkEnterEvent ) {
-			eventsToLegs.handleEvent((LinkEnterEvent) event) ;
-		} else if ( event instanceof LinkLeaveEvent ) {
-			eventsToLegs.handleEvent((LinkLeaveEvent) event ) ;
-		} else if ( event instanceof PersonDepartureEvent ) {
-			eventsToLegs.handleEvent((PersonDepartureEvent) event) ;
-		} else if ( event instanceof PersonArrivalEvent ) {
-			eventsToLegs.handleEvent((PersonArrivalEvent) event ) ;
-		} else if ( event instanceof ActivityStartEvent ) {
-			eventsToActivities.handleEvent((ActivityStartEvent) event) ;
-		} else if ( event instanceof ActivityEndEvent ) {
-			eventsToActivities.handleEvent( (ActivityEndEvent) event ) ;
-		} else if ( event instanceof TeleportationArrivalEvent ) {
-			eventsToLegs.handleEvent( (TeleportationArrivalEvent) event ) ;
-		} else if ( event instanceof PersonEntersVehicleEvent ) {
-			eventsToLegs.handleEvent( (PersonEntersVehicleEvent) event) ;
-		} else if ( event instanceof VehicleArrivesAtFacilityEvent ) {
-			eventsToLegs.handleEvent( (VehicleArrivesAtFacilityEvent) event ) ;
-		} else if ( event instanceof TransitDriverStartsEvent ) {
-			eventsToLegs.handleEvent( (TransitDriverStartsEvent) event ) ;
-		} 
-
-		// this is for the stuff that is directly based on events.
-		// note that this passes on _all_ person events, even those already passed above.
-		// for the time being, not all PersonEvents may "implement HasPersonId".
-		// link enter/leave events are NOT passed on, for performance reasons.
-		// kai/dominik, dec'12
-		if ( event instanceof HasPersonId ) {
-			ScoringFunction sf = getScoringFunctionForAgent( ((HasPersonId)event).getPersonId());
-			if (sf != null) {
-				if ( event instanceof PersonStuckEvent ) {
-					sf.agentStuck( event.getTime() ) ;
-				} else if ( event instanceof PersonMoneyEvent ) {
-					sf.addMoney( ((PersonMoneyEvent)event).getAmount() ) ;
-				} else {
-					sf.handleEvent( event ) ;
-				}
+			personId = ((LinkEnterEvent) event).getDriverId();
+		} else if ( event instanceof VehicleArrivesAtFacilityEvent || event instanceof TransitDriverStartsEvent ) {
+			// needed by all partitions to reconstruct the transit legs
+			if (this.threads == null) {
+				startThreads();
+			}
+			for (Partition partition : this.partitions) {
+				partition.addEvent(event);
+			}
+			return;
+		} else if ( event instanceof HasPersonId ) {
+			personId = ((HasPersonId) event).getPersonId();
+		}
+		if ( personId != null ) {
+			if (this.threads == null) {
+				startThreads();
+			}
+			this.partitions[personId.index() % this.partitions.length].addEvent(event);
+		}
+	}
+
+	private void startThreads() {
+		this.threads = new Thread[this.partitions.length];
+		for (int i = 0; i < this.partitions.length; i++) {
+			Thread thread = new Thread(this.partitions[i]);
+			thread.setDaemon(true);
+			thread.setName("EventsToScore." + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * Waits until the threads have processed all events passed to them so far. Afterwards,
+	 * further events are processed by the calling thread.
+	 */
+	private void stopThreads() {
+		if (this.threads == null) {
+			return;
+		}
+		for (Partition partition : this.partitions) {
+			partition.flush();
+			partition.queue.add(END_OF_EVENTS);
+		}
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		this.threads = null;
+		for (Partition partition : this.partitions) {
+			if (partition.exception != null) {
+				throw new RuntimeException("Exception while scoring the events.", partition.exception);
 			}
 		}
 	}
@@ -167,7 +211,10 @@ public class EventsToScore implements BasicEventHandler {
 	 * yy Absolutely.  kai, oct'12
 	 */
 	public void finish() {
-		eventsToActivities.finish();	
+		stopThreads();
+		for (Partition partition : this.partitions) {
+			partition.eventsToActivities.finish();
+		}
 		scoringFunctionsForPopulation.finishScoringFunctions();
 		assignNewScores();
 		finished = true;
@@ -278,8 +325,11 @@ public class EventsToScore implements BasicEventHandler {
 
 	@Override
 	public void reset(final int iteration) {
-		this.eventsToActivities.reset(iteration);
-		this.eventsToLegs.reset(iteration);
+		stopThreads();
+		for (Partition partition : this.partitions) {
+			partition.eventsToActivities.reset(iteration);
+			partition.eventsToLegs.reset(iteration);
+		}
 		initHandlers(scoringFunctionFactory);
 		finished = false;
 		this.iteration = iteration ;
@@ -300,4 +350,114 @@ public class EventsToScore implements BasicEventHandler {
 		scoringFunctionsForPopulation.writeExperiencedPlans(iterationFilename);
 	}
 
+	/**
+	 * Converts the events of a subset of the persons into activities and legs and passes them,
+	 * together with the other events of the persons, to the persons' scoring functions.
+	 * The ScoringFunctionsForPopulation is shared by all partitions, but as its maps are not modified
+	 * after construction, and every person belongs to exactly one partition, no synchronization is needed.
+	 */
+	private final class Partition implements Runnable {
+
+		final EventsToActivities eventsToActivities = new EventsToActivities();
+		final EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		final BlockingQueue<List<Event>> queue = new LinkedBlockingQueue<>();
+		private List<Event> batch = new ArrayList<>(EVENTS_PER_BATCH);
+		/*package*/ volatile Throwable exception = null;
+
+		Partition() {
+			this.eventsToActivities.setActivityHandler(scoringFunctionsForPopulation);
+			this.eventsToLegs.setLegHandler(scoringFunctionsForPopulation);
+		}
+
+		/*
+		 * Passes the event to the thread of this partition, or processes it directly if the threads are not running.
+		 */
+		void addEvent(final Event event) {
+			if (threads == null) {
+				handleEvent(event);
+				return;
+			}
+			this.batch.add(event);
+			if (this.batch.size() == EVENTS_PER_BATCH) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (!this.batch.isEmpty()) {
+				this.queue.add(this.batch);
+				this.batch = new ArrayList<>(EVENTS_PER_BATCH);
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				List<Event> events;
+				try {
+					events = this.queue.take();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				if (events == END_OF_EVENTS) {
+					return;
+				}
+				// after an exception, the remaining events are only consumed
+				if (this.exception == null) {
+					try {
+						for (Event event : events) {
+							handleEvent(event);
+						}
+					} catch (Throwable e) {
+						log.error("Exception while scoring the events in thread " + Thread.currentThread().getName(), e);
+						this.exception = e;
+					}
+				}
+			}
+		}
+
+		void handleEvent(final Event event) {
+			// this is for the activity and leg related stuff ("old" scoring function)
+			if ( event instanceof LinkEnterEvent ) {
+				eventsToLegs.handleEvent((LinkEnterEvent) event) ;
+			} else if ( event instanceof LinkLeaveEvent ) {
+				eventsToLegs.handleEvent((LinkLeaveEvent) event ) ;
+			} else if ( event instanceof PersonDepartureEvent ) {
+				eventsToLegs.handleEvent((PersonDepartureEvent) event) ;
+			} else if ( event instanceof PersonArrivalEvent ) {
+				eventsToLegs.handleEvent((PersonArrivalEvent) event ) ;
+			} else if ( event instanceof ActivityStartEvent ) {
+				eventsToActivities.handleEvent((ActivityStartEvent) event) ;
+			} else if ( event instanceof ActivityEndEvent ) {
+				eventsToActivities.handleEvent( (ActivityEndEvent) event ) ;
+			} else if ( event instanceof TeleportationArrivalEvent ) {
+				eventsToLegs.handleEvent( (TeleportationArrivalEvent) event ) ;
+			} else if ( event instanceof PersonEntersVehicleEvent ) {
+				eventsToLegs.handleEvent( (PersonEntersVehicleEvent) event) ;
+			} else if ( event instanceof VehicleArrivesAtFacilityEvent ) {
+				eventsToLegs.handleEvent( (VehicleArrivesAtFacilityEvent) event ) ;
+			} else if ( event instanceof TransitDriverStartsEvent ) {
+				eventsToLegs.handleEvent( (TransitDriverStartsEvent) event ) ;
+			} 
+
+			// this is for the stuff that is directly based on events.
+			// note that this passes on _all_ person events, even those already passed above.
+			// for the time being, not all PersonEvents may "implement HasPersonId".
+			// link enter/leave events are NOT passed on, for performance reasons.
+			// kai/dominik, dec'12
+			if ( event instanceof HasPersonId ) {
+				ScoringFunction sf = getScoringFunctionForAgent( ((HasPersonId)event).getPersonId());
+				if (sf != null) {
+					if ( event instanceof PersonStuckEvent ) {
+						sf.agentStuck( event.getTime() ) ;
+					} else if ( event instanceof PersonMoneyEvent ) {
+						sf.addMoney( ((PersonMoneyEvent)event).getAmount() ) ;
+					} else {
+						sf.handleEvent( event ) ;
+					}
+				}
+			}
+		}
+	}
+
 }
@@ -25,59 +25,71 @@ import java.util.Map;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.priorityqueue.HasIndex;
 import org.matsim.core.trafficmonitoring.TravelTimeCalculator.DataContainer;
 
 /**
  *  Uses an array to store DataContainer object for the TravelTimeCalculator.
- *  It is tried to get a DataContainer's position in the array is taken from the
- *  the Link, which is possible if routing networks are used (there, link implement
- *  the HasIndex interface).
+ *  A DataContainer's position in the array is the index of the link's id (see
+ *  {@link Id#index()}), so both the event handling part (where only link ids are
+ *  available) and the TravelTime part of the TravelTimeCalculator do plain array
+ *  lookups instead of hashing the ids.
  *  
- *  If regular network are used, calls are forwarded to a MapBasedDataContainerProvider,
- *  which represents the lookup approach used so far.
+ *  Links whose ids were created after this object (and thus do not fit into the array)
+ *  are forwarded to a MapBasedDataContainerProvider, which represents the lookup 
+ *  approach used so far.
  *  
  * @author cdobler
  */
 public class ArrayBasedDataContainerProvider implements DataContainerProvider {
 
 	private final DataContainer[] arrayLinkData;
+	private final Id<?>[] arrayLinkIds;
 	private final DataContainerProvider delegate;
 	
 	public ArrayBasedDataContainerProvider(Map<Id<Link>, DataContainer> linkData, TravelTimeDataFactory ttDataFactory,
 			Network network) {
-		this.arrayLinkData = new DataContainer[network.getLinks().size()];
+		this.arrayLinkData = new DataContainer[Math.max(network.getLinks().size(), Id.getNumberOfIds(Link.class))];
+		this.arrayLinkIds = new Id<?>[this.arrayLinkData.length];
 		this.delegate = new MapBasedDataContainerProvider(linkData, ttDataFactory);
 	}
 	
 	/*
-	 * This method is called from the EventHandler part of the TravelTimeCalculator.
-	 * There, only link ids are available. We cannot optimize this. 
+	 * Reading is not synchronized. This is fine since a DataContainer only has final or volatile
+	 * fields, i.e. other threads see a fully initialized object once they see the reference.
+	 * Creating new DataContainers is synchronized, so that there is only one per link even if
+	 * several threads (e.g. routers) ask for the same link concurrently.
+	 * The id stored with the DataContainer guards against link ids which were created for a different
+	 * type (and thus have an index from a different range), see FIXME in Id.equals().
 	 */
 	@Override
 	public DataContainer getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
-		return this.delegate.getTravelTimeData(linkId, createIfMissing);
+		int index = linkId.index();
+		if (index >= this.arrayLinkData.length) {
+			return this.delegate.getTravelTimeData(linkId, createIfMissing);
+		}
+		DataContainer data = this.arrayLinkData[index];
+		if (data == null) {
+			synchronized (this) {
+				data = this.arrayLinkData[index];
+				if (data == null) {
+					data = this.delegate.getTravelTimeData(linkId, createIfMissing);
+					if (data != null) {
+						this.arrayLinkIds[index] = linkId;
+						this.arrayLinkData[index] = data;
+					}
+					return data;
+				}
+			}
+		}
+		if (this.arrayLinkIds[index] != linkId) {
+			return this.delegate.getTravelTimeData(linkId, createIfMissing);
+		}
+		return data;
 	}
 	
-	/*
-	 * This method is called from the TravelTime part of the TravelTimeCalculator.
-	 * There, links are available. we can optimize this by using an array instead of a map.
-	 * 
-	 *  Probably pre-initialize all DataContainers to avoid the null-check?
-	 */
 	@Override
 	public DataContainer getTravelTimeData(Link link, boolean createIfMissing) {
-		if (link instanceof HasIndex) {
-			int index = ((HasIndex) link).getArrayIndex();
-			DataContainer data = this.arrayLinkData[index];
-			if (data == null) {
-				data = this.delegate.getTravelTimeData(link, createIfMissing);
-				this.arrayLinkData[index] = data;
-			}
-			return data;
-		} else {
-			return this.delegate.getTravelTimeData(link, createIfMissing);
-		}
+		return this.getTravelTimeData(link.getId(), createIfMissing);
 	}
 	
-}
\ No newline at end of file
+}
@@ -19,13 +19,14 @@
  * *********************************************************************** */
 package org.matsim.core.trafficmonitoring;
 
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdSet;
 import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
@@ -59,6 +60,10 @@ import org.matsim.vehicles.Vehicle;
  * use {@link TravelTimeDataHashMap} (see {@link #setTravelTimeDataFactory(TravelTimeDataFactory)}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
  * {@link TravelTimeDataArray} is used.
+ * <br>
+ * The event handling methods expect to be called by one thread at a time (which all
+ * EventsManager implementations guarantee per handler), while the travel times may
+ * be queried concurrently, e.g. by several router threads.
  * 
  * @author dgrether
  * @author mrieser
@@ -82,9 +87,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	private final DataContainerProvider dataContainerProvider;
 	
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	private final LinkEnterTimes linkEnterTimes = new LinkEnterTimes();
 
-	private final Set<Id<Vehicle>> vehiclesToFilter;
+	private final IdSet<Vehicle> vehiclesToFilter;
 	private final Set<String> analyzedModes;
 
 	private final boolean filterAnalyzedModes;
@@ -154,9 +159,10 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			/*
 			 * So far, link data objects were stored in a HashMap. This lookup strategy is used
 			 * by a MapBasedDataContainerProvider.
-			 * When ArrayRoutingNetworks are used (as the FastRouter implementations do), the
-			 * getArrayIndex() methods from the RoutingLinks can be used to lookup the link
-			 * data objects in an array. This approach is implemented by the ArrayBasedDataContainerProvider.
+			 * The ArrayBasedDataContainerProvider stores the link data objects in an array
+			 * indexed by the index of the link ids (see Id.index()), so both the events handling
+			 * and the routers look them up without hashing. Links whose ids were created later
+			 * are still found via the map.
 			 * Using a ArrayBasedDataContainerProvider instead of a MapBasedDataContainerProvider
 			 * increases the routing performance by 20-30%.
 			 * cdobler, oct'13
@@ -168,8 +174,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
-		this.vehiclesToFilter = new HashSet<>();
+		this.vehiclesToFilter = new IdSet<>(Vehicle.class);
 		this.analyzedModes = CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModes());
 	
 		this.reset(0);
@@ -179,25 +184,28 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	public void handleEvent(final LinkEnterEvent e) {
 		/* if only some modes are analyzed, we check whether the vehicles
 		 * performs a trip with one of those modes. if not, we skip the event. */
-		if (filterAnalyzedModes && vehiclesToFilter.contains(e.getVehicleId())) return;
-
-		LinkEnterEvent oldEvent = this.linkEnterEvents.remove(e.getVehicleId());
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
-			DataContainer data = getLinkToLinkTravelTimeData(fromToLink, true);
-			this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
-			data.needsConsolidation = true;
+		int vehIndex = getVehicleIndex(e.getVehicleId());
+		if (filterAnalyzedModes && vehiclesToFilter.contains(vehIndex)) return;
+
+		if (this.calculateLinkToLinkTravelTimes) {
+			Id<Link> oldLinkId = this.linkEnterTimes.getLinkId(vehIndex);
+			if (oldLinkId != null) {
+				Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldLinkId, e.getLinkId());
+				DataContainer data = getLinkToLinkTravelTimeData(fromToLink, true);
+				this.aggregator.addTravelTime(data.ttData, this.linkEnterTimes.getTime(vehIndex), e.getTime());
+				data.needsConsolidation = true;
+			}
 		}
-		this.linkEnterEvents.put(e.getVehicleId(), e);
+		this.linkEnterTimes.put(vehIndex, e.getLinkId(), e.getTime());
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			int vehIndex = getVehicleIndex(e.getVehicleId());
+			if (this.linkEnterTimes.getLinkId(vehIndex) != null) {
 				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
+				this.aggregator.addTravelTime(data.ttData, this.linkEnterTimes.getTime(vehIndex), e.getTime());
 				data.needsConsolidation = true;
 			}
 		}
@@ -209,7 +217,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		 * starts a leg on a non analyzed transport mode, add the vehicle 
 		 * to the filtered vehicles set. */
 		if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) { 
-			this.vehiclesToFilter.add(event.getVehicleId());
+			this.vehiclesToFilter.add(getVehicleIndex(event.getVehicleId()));
 		}
 	}
 
@@ -218,10 +226,11 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		int vehIndex = getVehicleIndex(event.getVehicleId());
+		this.linkEnterTimes.remove(vehIndex);
 
 		// try to remove vehicles from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToFilter.remove(event.getVehicleId());
+		if (filterAnalyzedModes) this.vehiclesToFilter.remove(vehIndex);
 	}
 
 	@Override
@@ -229,16 +238,19 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.remove(getVehicleIndex(event.getVehicleId()));
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		int vehIndex = getVehicleIndex(event.getVehicleId());
+		Id<Link> enterLinkId = this.linkEnterTimes.getLinkId(vehIndex);
+		if (enterLinkId != null) {
+			double enterTime = this.linkEnterTimes.getTime(vehIndex);
+			this.linkEnterTimes.remove(vehIndex);
+			DataContainer data = this.dataContainerProvider.getTravelTimeData(enterLinkId, true);
 			data.needsConsolidation = true;
-			this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
+			this.aggregator.addStuckEventTravelTime(data.ttData, enterTime, event.getTime());
 			if (this.calculateLinkToLinkTravelTimes){
 				log.error(ERROR_STUCK_AND_LINKTOLINK);
 				throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
@@ -246,7 +258,20 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		}
 
 		// try to remove vehicle from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToFilter.remove(event.getVehicleId());
+		if (filterAnalyzedModes) this.vehiclesToFilter.remove(vehIndex);
+	}
+
+	/*
+	 * The events may carry vehicle ids which were created for a different type (see FIXME in
+	 * Id.equals()), so their index is from a different range. Such ids are mapped to the vehicle id
+	 * with the same key, which is what the HashMap used so far did.
+	 */
+	private static int getVehicleIndex(final Id<Vehicle> vehicleId) {
+		int index = vehicleId.index();
+		if (Id.get(index, Vehicle.class) != vehicleId) {
+			index = Id.create(vehicleId.toString(), Vehicle.class).index();
+		}
+		return index;
 	}
 
 	private DataContainer getLinkToLinkTravelTimeData(Tuple<Id<Link>, Id<Link>> fromLinkToLink, final boolean createIfMissing) {
@@ -296,7 +321,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 				data.needsConsolidation = false;
 			}
 		}
-		this.linkEnterEvents.clear();
+		this.linkEnterTimes.clear();
 		this.vehiclesToFilter.clear();
 	}
 
@@ -382,6 +407,44 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		}
 	}
 
+	/**
+	 * The link and time of the last link enter event per vehicle, stored in arrays indexed by the index 
+	 * of the vehicle id. Replaces a Map&lt;Id&lt;Vehicle&gt;, LinkEnterEvent&gt;, which required hashing
+	 * of the vehicle ids and kept all the event objects alive.
+	 */
+	private static class LinkEnterTimes {
+		private Id<Link>[] linkIds = new Id[0];
+		private double[] times = new double[0];
+
+		/*package*/ Id<Link> getLinkId(final int vehIndex) {
+			return vehIndex < this.linkIds.length ? this.linkIds[vehIndex] : null;
+		}
+
+		/*package*/ double getTime(final int vehIndex) {
+			return this.times[vehIndex];
+		}
+
+		/*package*/ void put(final int vehIndex, final Id<Link> linkId, final double time) {
+			if (vehIndex >= this.linkIds.length) {
+				int newLength = Math.max(vehIndex + 1, Math.max(Id.getNumberOfIds(Vehicle.class), this.linkIds.length * 3 / 2));
+				this.linkIds = Arrays.copyOf(this.linkIds, newLength);
+				this.times = Arrays.copyOf(this.times, newLength);
+			}
+			this.linkIds[vehIndex] = linkId;
+			this.times[vehIndex] = time;
+		}
+
+		/*package*/ void remove(final int vehIndex) {
+			if (vehIndex < this.linkIds.length) {
+				this.linkIds[vehIndex] = null;
+			}
+		}
+
+		/*package*/ void clear() {
+			Arrays.fill(this.linkIds, null);
+		}
+	}
+
 	public TravelTime getLinkTravelTimes() {
 		return new TravelTime() {
 
@@ -0,0 +1,349 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A priority queue for elements which are scheduled at a point in time, e.g. the end of
+ * an activity in the mobsim, and are taken out once this time is reached.
+ * <p/>
+ * The elements are kept in one bucket per second. Adding an element and taking the next
+ * due element from the queue take constant time, except for the sorting of the elements
+ * of one bucket once it becomes due. Elements scheduled at the same time are ordered by
+ * the given comparator. Elements which are added for a time that is already due, and
+ * elements scheduled far in the future, are kept in small regular priority queues, so
+ * the order of {@link #poll(double)} is the same as that of a {@link PriorityQueue}.
+ * <p/>
+ * The times passed to {@link #poll(double)} must not decrease. This class is not
+ * thread-safe.
+ *
+ * @param <E> the type of the elements
+ */
+public class CalendarQueue<E> {
+
+	// elements beyond this number of buckets ahead are kept in a priority queue
+	private static final int HORIZON = 1 << 18;
+
+	private final Comparator<Entry<E>> comparator;
+
+	private Object[] buckets = new Object[1024];
+	// all buckets up to this one were already taken over into the batch
+	private long current = -1;
+	private Entry<E>[] batch;
+	private int batchPosition = 0;
+	private int batchSize = 0;
+	// no bucket after the current one and before this one contains an element
+	private long firstBucket = 0;
+	// the earliest time in the first bucket, NaN if it has to be looked up again
+	private double firstBucketTime = Double.NaN;
+	private final PriorityQueue<Entry<E>> late;
+	private final PriorityQueue<Entry<E>> far;
+	private int size = 0;
+
+	/**
+	 * @param tieBreaker the order of elements scheduled at the same time
+	 */
+	@SuppressWarnings("unchecked")
+	public CalendarQueue(final Comparator<? super E> tieBreaker) {
+		this.comparator = new Comparator<Entry<E>>() {
+			@Override
+			public int compare(final Entry<E> o1, final Entry<E> o2) {
+				int cmp = Double.compare(o1.time, o2.time);
+				return cmp != 0 ? cmp : tieBreaker.compare(o1.element, o2.element);
+			}
+		};
+		this.batch = new Entry[64];
+		this.late = new PriorityQueue<>(16, this.comparator);
+		this.far = new PriorityQueue<>(16, this.comparator);
+	}
+
+	public void add(final E element, final double time) {
+		Entry<E> entry = new Entry<>(element, time);
+		long bucket = getBucket(time);
+		if (bucket <= this.current) {
+			this.late.add(entry);
+		} else if (bucket > this.current + HORIZON) {
+			this.far.add(entry);
+		} else {
+			getBucketList((int) bucket, true).add(entry);
+			if (bucket < this.firstBucket) {
+				this.firstBucket = bucket;
+				this.firstBucketTime = time;
+			} else if (bucket == this.firstBucket && time < this.firstBucketTime) {
+				this.firstBucketTime = time;
+			}
+		}
+		this.size++;
+	}
+
+	/**
+	 * Removes the element, which must have been added for the given time.
+	 *
+	 * @return <code>true</code> if the element was found
+	 */
+	public boolean remove(final E element, final double time) {
+		long bucket = getBucket(time);
+		boolean removed;
+		if (bucket <= this.current) {
+			removed = removeFromBatch(element) || remove(this.late.iterator(), element);
+		} else {
+			List<Entry<E>> list = getBucketList((int) Math.min(bucket, Integer.MAX_VALUE), false);
+			removed = list != null && remove(list.iterator(), element);
+			if (removed && bucket == this.firstBucket) {
+				this.firstBucketTime = Double.NaN;
+			}
+		}
+		removed = removed || remove(this.far.iterator(), element);
+		if (removed) {
+			this.size--;
+		}
+		return removed;
+	}
+
+	private boolean removeFromBatch(final E element) {
+		for (int i = this.batchPosition; i < this.batchSize; i++) {
+			if (this.batch[i] != null && this.batch[i].element == element) {
+				this.batch[i] = null;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static <E> boolean remove(final Iterator<Entry<E>> iterator, final E element) {
+		while (iterator.hasNext()) {
+			if (iterator.next().element == element) {
+				iterator.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the first element scheduled at or before the given time, or <code>null</code>
+	 * if there is no such element.
+	 */
+	public E poll(final double now) {
+		while (true) {
+			while (this.batchPosition < this.batchSize && this.batch[this.batchPosition] == null) {
+				this.batchPosition++;
+			}
+			Entry<E> best = this.batchPosition < this.batchSize ? this.batch[this.batchPosition] : null;
+			Entry<E> lateHead = this.late.peek();
+			if (lateHead != null && (best == null || this.comparator.compare(lateHead, best) < 0)) {
+				best = lateHead;
+			}
+			Entry<E> farHead = this.far.peek();
+			// an element far ahead must not overtake those in the buckets which are not yet loaded
+			if (farHead != null && getBucket(farHead.time) <= this.current && (best == null || this.comparator.compare(farHead, best) < 0)) {
+				best = farHead;
+			}
+			if (best != null && best.time <= now) {
+				if (best == lateHead) {
+					this.late.poll();
+				} else if (best == farHead) {
+					this.far.poll();
+				} else {
+					this.batch[this.batchPosition++] = null;
+				}
+				this.size--;
+				return best.element;
+			}
+			if (!loadNextBucket(now)) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @return the time of the first element, or {@link Double#POSITIVE_INFINITY} if the
+	 * queue is empty.
+	 */
+	public double peekTime() {
+		double time = Double.POSITIVE_INFINITY;
+		for (int i = this.batchPosition; i < this.batchSize; i++) {
+			if (this.batch[i] != null) {
+				time = this.batch[i].time;
+				break;
+			}
+		}
+		if (!this.late.isEmpty()) {
+			time = Math.min(time, this.late.peek().time);
+		}
+		if (!this.far.isEmpty()) {
+			time = Math.min(time, this.far.peek().time);
+		}
+		// the elements in the buckets are later than those in the batch and the late queue
+		if (time == Double.POSITIVE_INFINITY || getBucket(time) > this.current) {
+			time = Math.min(time, getFirstBucketTime());
+		}
+		return time;
+	}
+
+	/**
+	 * Searches the first non-empty bucket starting at the cached one, so the empty
+	 * buckets of long idle periods are skipped only once.
+	 */
+	private double getFirstBucketTime() {
+		long b = Math.max(this.firstBucket, this.current + 1);
+		while (b < this.buckets.length && (this.buckets[(int) b] == null || ((List<?>) this.buckets[(int) b]).isEmpty())) {
+			b++;
+		}
+		if (b != this.firstBucket) {
+			this.firstBucket = b;
+			this.firstBucketTime = Double.NaN;
+		}
+		if (b >= this.buckets.length) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (Double.isNaN(this.firstBucketTime)) {
+			double time = Double.POSITIVE_INFINITY;
+			@SuppressWarnings("unchecked")
+			List<Entry<E>> list = (List<Entry<E>>) this.buckets[(int) b];
+			for (Entry<E> entry : list) {
+				time = Math.min(time, entry.time);
+			}
+			this.firstBucketTime = time;
+		}
+		return this.firstBucketTime;
+	}
+
+	/**
+	 * Takes over the next non-empty bucket which is due into the batch.
+	 *
+	 * @return <code>false</code> if all buckets which are due were already taken over
+	 */
+	private boolean loadNextBucket(final double now) {
+		long last = (long) Math.floor(now);
+		if (this.current >= last) {
+			return false;
+		}
+		while (this.current < last) {
+			this.current++;
+			if (this.current >= this.buckets.length) {
+				// all remaining buckets are empty
+				this.current = last;
+				return true;
+			}
+			@SuppressWarnings("unchecked")
+			List<Entry<E>> list = (List<Entry<E>>) this.buckets[(int) this.current];
+			if (list != null) {
+				this.buckets[(int) this.current] = null;
+				if (list.size() > this.batch.length) {
+					this.batch = Arrays.copyOf(this.batch, Math.max(list.size(), 2 * this.batch.length));
+				}
+				Arrays.fill(this.batch, 0, this.batchSize, null);
+				this.batchSize = list.size();
+				this.batchPosition = 0;
+				list.toArray(this.batch);
+				Arrays.sort(this.batch, 0, this.batchSize, this.comparator);
+				return true;
+			}
+		}
+		return true;
+	}
+
+	private List<Entry<E>> getBucketList(final int bucket, final boolean create) {
+		if (bucket >= this.buckets.length) {
+			if (!create) {
+				return null;
+			}
+			this.buckets = Arrays.copyOf(this.buckets, Math.max(bucket + 1, 2 * this.buckets.length));
+		}
+		@SuppressWarnings("unchecked")
+		List<Entry<E>> list = (List<Entry<E>>) this.buckets[bucket];
+		if (list == null && create) {
+			list = new ArrayList<>(4);
+			this.buckets[bucket] = list;
+		}
+		return list;
+	}
+
+	private static long getBucket(final double time) {
+		return (long) Math.floor(time);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * @return all elements in the order they would be polled
+	 */
+	public List<E> values() {
+		List<Entry<E>> entries = new ArrayList<>(this.size);
+		for (int i = this.batchPosition; i < this.batchSize; i++) {
+			if (this.batch[i] != null) {
+				entries.add(this.batch[i]);
+			}
+		}
+		entries.addAll(this.late);
+		entries.addAll(this.far);
+		for (Object list : this.buckets) {
+			if (list != null) {
+				@SuppressWarnings("unchecked")
+				List<Entry<E>> bucket = (List<Entry<E>>) list;
+				entries.addAll(bucket);
+			}
+		}
+		Collections.sort(entries, this.comparator);
+		List<E> values = new ArrayList<>(entries.size());
+		for (Entry<E> entry : entries) {
+			values.add(entry.element);
+		}
+		return values;
+	}
+
+	public void clear() {
+		Arrays.fill(this.buckets, null);
+		Arrays.fill(this.batch, null);
+		this.batchPosition = 0;
+		this.batchSize = 0;
+		this.firstBucket = this.current + 1;
+		this.firstBucketTime = Double.NaN;
+		this.late.clear();
+		this.far.clear();
+		this.size = 0;
+	}
+
+	private static final class Entry<E> {
+		final E element;
+		final double time;
+
+		Entry(final E element, final double time) {
+			this.element = element;
+			this.time = time;
+		}
+	}
+
+}
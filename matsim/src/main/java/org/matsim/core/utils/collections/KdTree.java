@@ -0,0 +1,388 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * KdTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A static two-dimensional index for nearest-neighbor and range queries, built
+ * once from all its values.
+ * <p/>
+ * In contrast to the {@link QuadTree}, which is built by inserting the values
+ * one after the other, the tree is constructed in a single pass by recursively
+ * partitioning the values at the median of the coordinate with the larger
+ * extent. The values and their coordinates are stored in flat arrays in the order
+ * of the tree, so the tree needs no node objects, and values close to each other
+ * in space are close to each other in memory. The tree cannot be modified after
+ * it is built; use the {@link QuadTree} if values have to be added or removed.
+ * <p/>
+ * If several values have the same distance to a query point, the one added first
+ * to the {@link Builder} is preferred. Queries do not modify the tree, so it can be
+ * used by multiple threads concurrently.
+ *
+ * @param <T> the type of the values stored in the tree
+ */
+public final class KdTree<T> {
+
+	/** ranges with at most this number of values are not partitioned further */
+	private final static int LEAF_SIZE = 8;
+
+	private final static byte SPLIT_X = 0;
+	private final static byte SPLIT_Y = 1;
+
+	private final double[] x;
+	private final double[] y;
+	private final Object[] values;
+	/** the position at which a value was added to the builder, used to break ties */
+	private final int[] order;
+	/** the coordinate an inner node is split at, indexed by the position of its median */
+	private final byte[] split;
+
+	private KdTree(final double[] x, final double[] y, final Object[] values) {
+		int n = values.length;
+		int[] perm = new int[n];
+		for (int i = 0; i < n; i++) {
+			perm[i] = i;
+		}
+		this.split = new byte[n];
+		build(perm, x, y, 0, n);
+
+		this.x = new double[n];
+		this.y = new double[n];
+		this.values = new Object[n];
+		this.order = perm;
+		for (int i = 0; i < n; i++) {
+			this.x[i] = x[perm[i]];
+			this.y[i] = y[perm[i]];
+			this.values[i] = values[perm[i]];
+		}
+	}
+
+	private void build(final int[] perm, final double[] x, final double[] y, final int from, final int to) {
+		if (to - from <= LEAF_SIZE) {
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			double px = x[perm[i]];
+			double py = y[perm[i]];
+			if (px < minX) { minX = px; }
+			if (px > maxX) { maxX = px; }
+			if (py < minY) { minY = py; }
+			if (py > maxY) { maxY = py; }
+		}
+		int mid = (from + to) >>> 1;
+		byte s = (maxX - minX >= maxY - minY) ? SPLIT_X : SPLIT_Y;
+		this.split[mid] = s;
+		select(perm, s == SPLIT_X ? x : y, from, to - 1, mid);
+		build(perm, x, y, from, mid);
+		build(perm, x, y, mid + 1, to);
+	}
+
+	/**
+	 * Rearranges <code>perm[left..right]</code> such that the element at position
+	 * <code>k</code> is the one that would be there if the range was sorted by
+	 * <code>coord</code>, with all smaller elements before and all larger ones after it.
+	 */
+	private static void select(final int[] perm, final double[] coord, int left, int right, final int k) {
+		while (right > left) {
+			// median of three as pivot, to avoid the worst case on sorted input
+			int mid = (left + right) >>> 1;
+			if (coord[perm[mid]] < coord[perm[left]]) { swap(perm, mid, left); }
+			if (coord[perm[right]] < coord[perm[left]]) { swap(perm, right, left); }
+			if (coord[perm[right]] < coord[perm[mid]]) { swap(perm, right, mid); }
+			double pivot = coord[perm[mid]];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (coord[perm[i]] < pivot) { i++; }
+				while (coord[perm[j]] > pivot) { j--; }
+				if (i <= j) {
+					swap(perm, i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static void swap(final int[] perm, final int i, final int j) {
+		int tmp = perm[i];
+		perm[i] = perm[j];
+		perm[j] = tmp;
+	}
+
+	/**
+	 * @return the number of values stored in the tree
+	 */
+	public int size() {
+		return this.values.length;
+	}
+
+	/**
+	 * @return all values stored in the tree, in the order of the tree
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> values() {
+		return (List<T>) Arrays.asList(this.values.clone());
+	}
+
+	/**
+	 * Gets the object closest to x/y
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @return the object found closest to x/y, <code>null</code> if the tree is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T getClosest(final double x, final double y) {
+		if (this.values.length == 0) {
+			return null;
+		}
+		Neighbors neighbors = new Neighbors(1);
+		findNearest(x, y, 0, this.values.length, neighbors);
+		return (T) this.values[neighbors.index[0]];
+	}
+
+	/**
+	 * Gets the <code>k</code> objects closest to x/y
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @param k the maximum number of objects to return
+	 * @return the (at most) <code>k</code> objects closest to x/y, ordered by increasing distance
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> getKNearest(final double x, final double y, final int k) {
+		if (k <= 0 || this.values.length == 0) {
+			return new ArrayList<>(0);
+		}
+		Neighbors neighbors = new Neighbors(Math.min(k, this.values.length));
+		findNearest(x, y, 0, this.values.length, neighbors);
+		int[] sorted = neighbors.sortedIndices();
+		List<T> result = new ArrayList<>(sorted.length);
+		for (int i : sorted) {
+			result.add((T) this.values[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets all objects within a certain distance around x/y
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param distance the maximal distance returned objects can be away from x/y
+	 * @return the objects found within distance to x/y
+	 */
+	public Collection<T> getDisk(final double x, final double y, final double distance) {
+		List<T> result = new ArrayList<>();
+		if (distance >= 0) {
+			findDisk(x, y, distance * distance, 0, this.values.length, result);
+		}
+		return result;
+	}
+
+	private void findNearest(final double qx, final double qy, final int from, final int to, final Neighbors neighbors) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				neighbors.offer(i, pseudoDistance(qx, qy, i));
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		neighbors.offer(mid, pseudoDistance(qx, qy, mid));
+		double diff = this.split[mid] == SPLIT_X ? qx - this.x[mid] : qy - this.y[mid];
+		if (diff < 0) {
+			findNearest(qx, qy, from, mid, neighbors);
+			if (diff * diff <= neighbors.getWorstDistance()) {
+				findNearest(qx, qy, mid + 1, to, neighbors);
+			}
+		} else {
+			findNearest(qx, qy, mid + 1, to, neighbors);
+			if (diff * diff <= neighbors.getWorstDistance()) {
+				findNearest(qx, qy, from, mid, neighbors);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void findDisk(final double qx, final double qy, final double maxPseudoDistance, final int from, final int to, final List<T> result) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				if (pseudoDistance(qx, qy, i) <= maxPseudoDistance) {
+					result.add((T) this.values[i]);
+				}
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		if (pseudoDistance(qx, qy, mid) <= maxPseudoDistance) {
+			result.add((T) this.values[mid]);
+		}
+		double diff = this.split[mid] == SPLIT_X ? qx - this.x[mid] : qy - this.y[mid];
+		if (diff <= 0 || diff * diff <= maxPseudoDistance) {
+			findDisk(qx, qy, maxPseudoDistance, from, mid, result);
+		}
+		if (diff >= 0 || diff * diff <= maxPseudoDistance) {
+			findDisk(qx, qy, maxPseudoDistance, mid + 1, to, result);
+		}
+	}
+
+	private double pseudoDistance(final double qx, final double qy, final int i) {
+		double dx = this.x[i] - qx;
+		double dy = this.y[i] - qy;
+		return dx * dx + dy * dy; // no Math.sqrt(), as it's only used to compare to each other, thus "pseudo distance"
+	}
+
+	/**
+	 * The best candidates found so far, kept as a binary max-heap on the distance so
+	 * the worst candidate can be replaced quickly.
+	 */
+	private final class Neighbors {
+		final int[] index;
+		final double[] distance;
+		int size = 0;
+
+		Neighbors(final int k) {
+			this.index = new int[k];
+			this.distance = new double[k];
+		}
+
+		double getWorstDistance() {
+			return this.size < this.index.length ? Double.POSITIVE_INFINITY : this.distance[0];
+		}
+
+		void offer(final int i, final double d) {
+			if (this.size < this.index.length) {
+				int pos = this.size++;
+				while (pos > 0) {
+					int parent = (pos - 1) >>> 1;
+					if (!isWorse(d, i, this.distance[parent], this.index[parent])) {
+						break;
+					}
+					this.index[pos] = this.index[parent];
+					this.distance[pos] = this.distance[parent];
+					pos = parent;
+				}
+				this.index[pos] = i;
+				this.distance[pos] = d;
+			} else if (isWorse(this.distance[0], this.index[0], d, i)) {
+				int pos = 0;
+				while (true) {
+					int child = 2 * pos + 1;
+					if (child >= this.size) {
+						break;
+					}
+					if (child + 1 < this.size && isWorse(this.distance[child + 1], this.index[child + 1], this.distance[child], this.index[child])) {
+						child++;
+					}
+					if (!isWorse(this.distance[child], this.index[child], d, i)) {
+						break;
+					}
+					this.index[pos] = this.index[child];
+					this.distance[pos] = this.distance[child];
+					pos = child;
+				}
+				this.index[pos] = i;
+				this.distance[pos] = d;
+			}
+		}
+
+		/** @return true if candidate a ranks after candidate b */
+		boolean isWorse(final double distanceA, final int a, final double distanceB, final int b) {
+			if (distanceA != distanceB) {
+				return distanceA > distanceB;
+			}
+			return KdTree.this.order[a] > KdTree.this.order[b];
+		}
+
+		int[] sortedIndices() {
+			Integer[] sorted = new Integer[this.size];
+			for (int i = 0; i < this.size; i++) {
+				sorted[i] = i;
+			}
+			Arrays.sort(sorted, new Comparator<Integer>() {
+				@Override
+				public int compare(final Integer a, final Integer b) {
+					if (isWorse(distance[a], index[a], distance[b], index[b])) {
+						return 1;
+					}
+					if (isWorse(distance[b], index[b], distance[a], index[a])) {
+						return -1;
+					}
+					return 0;
+				}
+			});
+			int[] result = new int[this.size];
+			for (int i = 0; i < this.size; i++) {
+				result[i] = this.index[sorted[i]];
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Collects the values and their coordinates for a {@link KdTree}.
+	 *
+	 * @param <T> the type of the values stored in the tree
+	 */
+	public static final class Builder<T> {
+		private double[] x = new double[16];
+		private double[] y = new double[16];
+		private Object[] values = new Object[16];
+		private int size = 0;
+
+		public Builder<T> put(final double x, final double y, final T value) {
+			if (this.size == this.values.length) {
+				int capacity = 2 * this.size;
+				this.x = Arrays.copyOf(this.x, capacity);
+				this.y = Arrays.copyOf(this.y, capacity);
+				this.values = Arrays.copyOf(this.values, capacity);
+			}
+			this.x[this.size] = x;
+			this.y[this.size] = y;
+			this.values[this.size] = value;
+			this.size++;
+			return this;
+		}
+
+		public KdTree<T> build() {
+			return new KdTree<>(Arrays.copyOf(this.x, this.size), Arrays.copyOf(this.y, this.size), Arrays.copyOf(this.values, this.size));
+		}
+	}
+
+}
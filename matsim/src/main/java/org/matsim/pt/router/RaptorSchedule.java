@@ -0,0 +1,257 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorSchedule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.KdTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * The transit schedule in the array based form used by {@link RaptorTransitRouter}.
+ * <p/>
+ * All routes with at least two stops and one departure are stored with the stops they
+ * serve, the offsets of the stops and the sorted departure times at the first stop. For
+ * every stop, the routes serving it and the stops within the beeline walk connection
+ * distance are stored. The data does not change after construction and can be shared by
+ * all routers, also across threads.
+ *
+ * @see RaptorTransitRouter
+ */
+public class RaptorSchedule {
+
+	private final static Logger log = Logger.getLogger(RaptorSchedule.class);
+
+	/*package*/ final TransitStopFacility[] stops;
+	private final Map<TransitStopFacility, Integer> stopIndices = new HashMap<>();
+	private final KdTree<TransitStopFacility> stopsIndex;
+
+	// the routes serving a stop, and at which position of the route
+	/*package*/ final int[] stopRouteStart;
+	/*package*/ final int[] stopRouteRoute;
+	/*package*/ final int[] stopRoutePosition;
+
+	// the stops which can be reached by walking from a stop
+	/*package*/ final int[] transferStart;
+	/*package*/ final int[] transferStop;
+	/*package*/ final double[] transferDistance;
+
+	/*package*/ final TransitLine[] routeLines;
+	/*package*/ final TransitRoute[] routes;
+	// the stops of a route, with their offsets and the beeline distance from the first stop
+	/*package*/ final int[] routeStopStart;
+	/*package*/ final int[] routeStop;
+	/*package*/ final double[] arrivalOffset;
+	/*package*/ final double[] departureOffset;
+	/*package*/ final double[] distanceFromStart;
+	// the sorted departure times of a route at its first stop
+	/*package*/ final int[] routeDepartureStart;
+	/*package*/ final double[] departureTimes;
+
+	public RaptorSchedule(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
+		log.info("start creating raptor schedule");
+		List<TransitLine> lines = new ArrayList<>();
+		List<TransitRoute> routes = new ArrayList<>();
+		List<TransitStopFacility> stops = new ArrayList<>();
+		int nOfRouteStops = 0;
+		int nOfDepartures = 0;
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getStops().size() < 2 || route.getDepartures().isEmpty()) {
+					continue;
+				}
+				lines.add(line);
+				routes.add(route);
+				nOfRouteStops += route.getStops().size();
+				nOfDepartures += route.getDepartures().size();
+				for (TransitRouteStop stop : route.getStops()) {
+					if (!this.stopIndices.containsKey(stop.getStopFacility())) {
+						this.stopIndices.put(stop.getStopFacility(), stops.size());
+						stops.add(stop.getStopFacility());
+					}
+				}
+			}
+		}
+		this.stops = stops.toArray(new TransitStopFacility[stops.size()]);
+		this.routeLines = lines.toArray(new TransitLine[lines.size()]);
+		this.routes = routes.toArray(new TransitRoute[routes.size()]);
+
+		int nOfRoutes = this.routes.length;
+		this.routeStopStart = new int[nOfRoutes + 1];
+		this.routeStop = new int[nOfRouteStops];
+		this.arrivalOffset = new double[nOfRouteStops];
+		this.departureOffset = new double[nOfRouteStops];
+		this.distanceFromStart = new double[nOfRouteStops];
+		this.routeDepartureStart = new int[nOfRoutes + 1];
+		this.departureTimes = new double[nOfDepartures];
+		int nOfStops = this.stops.length;
+		this.stopRouteStart = new int[nOfStops + 1];
+		int rs = 0;
+		int d = 0;
+		for (int r = 0; r < nOfRoutes; r++) {
+			this.routeStopStart[r] = rs;
+			Coord prevCoord = null;
+			double distance = 0;
+			for (TransitRouteStop stop : this.routes[r].getStops()) {
+				Coord coord = stop.getStopFacility().getCoord();
+				if (prevCoord != null) {
+					distance += CoordUtils.calcDistance(prevCoord, coord);
+				}
+				prevCoord = coord;
+				int s = this.stopIndices.get(stop.getStopFacility());
+				this.routeStop[rs] = s;
+				this.departureOffset[rs] = stop.getDepartureOffset() != Time.UNDEFINED_TIME ? stop.getDepartureOffset() : stop.getArrivalOffset();
+				this.arrivalOffset[rs] = stop.getArrivalOffset() != Time.UNDEFINED_TIME ? stop.getArrivalOffset() : stop.getDepartureOffset();
+				this.distanceFromStart[rs] = distance;
+				this.stopRouteStart[s + 1]++;
+				rs++;
+			}
+			this.routeDepartureStart[r] = d;
+			for (Departure departure : this.routes[r].getDepartures().values()) {
+				this.departureTimes[d++] = departure.getDepartureTime();
+			}
+			Arrays.sort(this.departureTimes, this.routeDepartureStart[r], d);
+		}
+		this.routeStopStart[nOfRoutes] = rs;
+		this.routeDepartureStart[nOfRoutes] = d;
+
+		for (int s = 0; s < nOfStops; s++) {
+			this.stopRouteStart[s + 1] += this.stopRouteStart[s];
+		}
+		this.stopRouteRoute = new int[nOfRouteStops];
+		this.stopRoutePosition = new int[nOfRouteStops];
+		int[] next = Arrays.copyOf(this.stopRouteStart, nOfStops);
+		for (int r = 0; r < nOfRoutes; r++) {
+			for (int pos = this.routeStopStart[r]; pos < this.routeStopStart[r + 1]; pos++) {
+				int i = next[this.routeStop[pos]]++;
+				this.stopRouteRoute[i] = r;
+				this.stopRoutePosition[i] = pos;
+			}
+		}
+
+		this.stopsIndex = createStopsIndex(this.stops);
+
+		this.transferStart = new int[nOfStops + 1];
+		List<Integer> transferStops = new ArrayList<>();
+		List<Double> transferDistances = new ArrayList<>();
+		for (int s = 0; s < nOfStops; s++) {
+			this.transferStart[s] = transferStops.size();
+			Coord coord = this.stops[s].getCoord();
+			for (TransitStopFacility other : this.stopsIndex.getDisk(coord.getX(), coord.getY(), maxBeelineWalkConnectionDistance)) {
+				if (other != this.stops[s]) {
+					transferStops.add(this.stopIndices.get(other));
+					transferDistances.add(CoordUtils.calcDistance(coord, other.getCoord()));
+				}
+			}
+		}
+		this.transferStart[nOfStops] = transferStops.size();
+		this.transferStop = new int[transferStops.size()];
+		this.transferDistance = new double[transferStops.size()];
+		for (int i = 0; i < this.transferStop.length; i++) {
+			this.transferStop[i] = transferStops.get(i);
+			this.transferDistance[i] = transferDistances.get(i);
+		}
+
+		log.info("raptor schedule statistics:");
+		log.info(" # stops:     " + nOfStops);
+		log.info(" # routes:    " + nOfRoutes);
+		log.info(" # transfers: " + this.transferStop.length);
+	}
+
+	private static KdTree<TransitStopFacility> createStopsIndex(final TransitStopFacility[] stops) {
+		KdTree.Builder<TransitStopFacility> builder = new KdTree.Builder<>();
+		for (TransitStopFacility stop : stops) {
+			builder.put(stop.getCoord().getX(), stop.getCoord().getY(), stop);
+		}
+		return builder.build();
+	}
+
+	public int getNumberOfStops() {
+		return this.stops.length;
+	}
+
+	/**
+	 * @return the index of the stop, or -1 if the stop is not served by any route.
+	 */
+	public int getStopIndex(final TransitStopFacility stop) {
+		Integer index = this.stopIndices.get(stop);
+		return index == null ? -1 : index;
+	}
+
+	public Collection<TransitStopFacility> getNearestStops(final Coord coord, final double distance) {
+		return this.stopsIndex.getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	public TransitStopFacility getNearestStop(final Coord coord) {
+		return this.stopsIndex.getClosest(coord.getX(), coord.getY());
+	}
+
+	/**
+	 * Returns the departure time at the first stop of the earliest departure of the route
+	 * which departs at the given position of the route not before the given time. Like
+	 * {@link PreparedTransitSchedule}, the departures are repeated every day.
+	 *
+	 * @param route the index of the route
+	 * @param position the index of the route stop, see {@link #routeStopStart}
+	 */
+	/*package*/ double getNextDepartureTime(final int route, final int position, final double time) {
+		double earliestDepartureAtTerminus = time - this.departureOffset[position];
+		double day = 0;
+		if (earliestDepartureAtTerminus >= TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) {
+			day = Math.floor(earliestDepartureAtTerminus / TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) * TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		} else if (earliestDepartureAtTerminus < 0) {
+			day = -TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		earliestDepartureAtTerminus -= day;
+		int from = this.routeDepartureStart[route];
+		int to = this.routeDepartureStart[route + 1];
+		int pos = Arrays.binarySearch(this.departureTimes, from, to, earliestDepartureAtTerminus);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		}
+		// binarySearch does not necessarily find the first of several equal departure times
+		while (pos > from && this.departureTimes[pos - 1] >= earliestDepartureAtTerminus) {
+			pos--;
+		}
+		if (pos >= to) {
+			// there is no later departure time, take the first of the next day
+			pos = from;
+			day += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		return this.departureTimes[pos] + day;
+	}
+
+}
@@ -0,0 +1,546 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.LegImpl;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Transit router based on the round-based public transit routing algorithm (RAPTOR).
+ * <p/>
+ * Instead of searching a graph of the schedule, RAPTOR works directly on the routes
+ * and departures of the {@link RaptorSchedule}: in round <i>k</i>, all routes serving
+ * a stop which was improved in round <i>k-1</i> are scanned once, which yields the
+ * earliest arrivals with <i>k</i> vehicles. Between the rounds, the stops within the
+ * beeline walk connection distance are relaxed. The search finds, for every number of
+ * vehicles, the earliest arrival at each stop near the destination. Of these journeys,
+ * the one with the lowest disutility according to the {@link TransitRouterConfig} is
+ * returned, unless walking directly is cheaper. In contrast to {@link TransitRouterImpl},
+ * a journey which arrives later with the same number of vehicles is not considered,
+ * even if it has a lower disutility, e.g. because of shorter walks.
+ * <p/>
+ * With {@link #calcRoutes(Coord, Coord, double, double, Person)}, all journeys within a
+ * range of departure times are calculated (rRAPTOR): the search is repeated for every
+ * departure at the stops near the start, from the latest to the earliest one, keeping
+ * the labels of the later departures.
+ * <p/>
+ * Not thread-safe, but all routers may share the same {@link RaptorSchedule}. Does not
+ * expect the TransitSchedule to change once constructed!
+ *
+ * @see RaptorSchedule
+ * @see RaptorTransitRouterFactory
+ */
+public class RaptorTransitRouter implements TransitRouter {
+
+	private final RaptorSchedule schedule;
+	private final TransitRouterConfig config;
+	private final int nOfRounds;
+
+	// labels per round and stop
+	private final double[][] arrivalTime;
+	private final double[][] earliestArrivalTime; // with at most as many vehicles as the round
+	private final double[][] readyTime; // the time at which a vehicle can be boarded
+	private final int[][] readyFrom; // the stop the vehicle arrived at, or -1 for the access
+	private final int[][] boardRoute;
+	private final int[][] boardPosition;
+	private final int[][] alightPosition;
+	private final double[][] tripDepartureTime;
+	private final int[][] arrivalRun;
+	private final double[] bestDestinationArrival;
+
+	private final double[] accessTime;
+	private final double[] egressTime;
+	private final List<TransitStopFacility> accessStops = new ArrayList<>();
+	private final List<TransitStopFacility> egressStops = new ArrayList<>();
+
+	private final boolean[] touched;
+	private int[] touchedStops = new int[64];
+	private int nOfTouchedStops = 0;
+	private final boolean[] marked;
+	private int[] markedStops = new int[64];
+	private int nOfMarkedStops = 0;
+	private final boolean[] improved;
+	private int[] improvedStops = new int[64];
+	private int nOfImprovedStops = 0;
+	private final int[] routeFirstPosition;
+	private final int[] queuedRoutes;
+	private int run = 0;
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final TransitSchedule schedule) {
+		this(config, new RaptorSchedule(schedule, config.getBeelineWalkConnectionDistance()));
+	}
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final RaptorSchedule schedule) {
+		this(config, schedule, 10);
+	}
+
+	/**
+	 * @param maxTransfers the maximum number of transfers between vehicles of a journey
+	 */
+	public RaptorTransitRouter(final TransitRouterConfig config, final RaptorSchedule schedule, final int maxTransfers) {
+		this.config = config;
+		this.schedule = schedule;
+		this.nOfRounds = maxTransfers + 1;
+		int n = schedule.getNumberOfStops();
+		this.arrivalTime = new double[this.nOfRounds + 1][n];
+		this.earliestArrivalTime = new double[this.nOfRounds + 1][n];
+		this.readyTime = new double[this.nOfRounds + 1][n];
+		this.readyFrom = new int[this.nOfRounds + 1][n];
+		this.boardRoute = new int[this.nOfRounds + 1][n];
+		this.boardPosition = new int[this.nOfRounds + 1][n];
+		this.alightPosition = new int[this.nOfRounds + 1][n];
+		this.tripDepartureTime = new double[this.nOfRounds + 1][n];
+		this.arrivalRun = new int[this.nOfRounds + 1][n];
+		for (int k = 0; k <= this.nOfRounds; k++) {
+			Arrays.fill(this.arrivalTime[k], Double.POSITIVE_INFINITY);
+			Arrays.fill(this.earliestArrivalTime[k], Double.POSITIVE_INFINITY);
+			Arrays.fill(this.readyTime[k], Double.POSITIVE_INFINITY);
+		}
+		this.bestDestinationArrival = new double[this.nOfRounds + 1];
+		Arrays.fill(this.bestDestinationArrival, Double.POSITIVE_INFINITY);
+		this.accessTime = new double[n];
+		this.egressTime = new double[n];
+		Arrays.fill(this.accessTime, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.egressTime, Double.POSITIVE_INFINITY);
+		this.touched = new boolean[n];
+		this.marked = new boolean[n];
+		this.improved = new boolean[n];
+		this.routeFirstPosition = new int[schedule.routes.length];
+		Arrays.fill(this.routeFirstPosition, -1);
+		this.queuedRoutes = new int[schedule.routes.length];
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Coord fromCoord, final Coord toCoord, final double departureTime, final Person person) {
+		if (!initSearch(fromCoord, toCoord)) {
+			return null;
+		}
+		search(departureTime);
+
+		Journey best = null;
+		for (int k = 1; k <= this.nOfRounds; k++) {
+			for (TransitStopFacility stop : this.egressStops) {
+				int e = this.schedule.getStopIndex(stop);
+				if (this.arrivalTime[k][e] < Double.POSITIVE_INFINITY) {
+					Journey journey = createJourney(k, e, departureTime, fromCoord, toCoord);
+					if (best == null || journey.cost < best.cost) {
+						best = journey;
+					}
+				}
+			}
+		}
+		reset();
+
+		if (best == null) {
+			return null;
+		}
+		if (getWalkDisutility(fromCoord, toCoord) < best.cost) {
+			return createDirectWalkLegList(fromCoord, toCoord, departureTime);
+		}
+		return best.legs;
+	}
+
+	/**
+	 * Calculates the journeys departing within a range of departure times. A journey is
+	 * returned if no other journey departs later and arrives earlier with at most as many
+	 * vehicles. The journeys are sorted by their departure time. Walking directly is not
+	 * considered.
+	 */
+	public List<List<Leg>> calcRoutes(final Coord fromCoord, final Coord toCoord, final double earliestDepartureTime,
+			final double latestDepartureTime, final Person person) {
+		if (!initSearch(fromCoord, toCoord)) {
+			return Collections.emptyList();
+		}
+		double[] departureTimes = getDepartureTimes(earliestDepartureTime, latestDepartureTime);
+		List<List<Leg>> routes = new ArrayList<>();
+		double[] previousBest = new double[this.nOfRounds + 1];
+		// from the latest to the earliest departure, the labels of later departures remain valid
+		for (int i = departureTimes.length - 1; i >= 0; i--) {
+			System.arraycopy(this.bestDestinationArrival, 0, previousBest, 0, previousBest.length);
+			search(departureTimes[i]);
+			for (int k = 1; k <= this.nOfRounds; k++) {
+				int bestStop = -1;
+				double bestArrival = previousBest[k];
+				for (TransitStopFacility stop : this.egressStops) {
+					int e = this.schedule.getStopIndex(stop);
+					if (this.arrivalRun[k][e] == this.run && this.arrivalTime[k][e] + this.egressTime[e] < bestArrival) {
+						bestArrival = this.arrivalTime[k][e] + this.egressTime[e];
+						bestStop = e;
+					}
+				}
+				if (bestStop >= 0) {
+					routes.add(createJourney(k, bestStop, departureTimes[i], fromCoord, toCoord).legs);
+				}
+			}
+		}
+		reset();
+		Collections.reverse(routes);
+		return routes;
+	}
+
+	/**
+	 * @return the distinct times, sorted, at which one has to leave the start to catch a
+	 * departure at one of the access stops within the range
+	 */
+	private double[] getDepartureTimes(final double earliestDepartureTime, final double latestDepartureTime) {
+		RaptorSchedule s = this.schedule;
+		double[] times = new double[16];
+		int nOfTimes = 0;
+		for (TransitStopFacility stop : this.accessStops) {
+			int a = s.getStopIndex(stop);
+			double walkTime = this.accessTime[a];
+			for (int i = s.stopRouteStart[a]; i < s.stopRouteStart[a + 1]; i++) {
+				int route = s.stopRouteRoute[i];
+				int position = s.stopRoutePosition[i];
+				double time = earliestDepartureTime + walkTime;
+				while (true) {
+					double departure = s.getNextDepartureTime(route, position, time) + s.departureOffset[position];
+					if (departure - walkTime > latestDepartureTime) {
+						break;
+					}
+					if (nOfTimes == times.length) {
+						times = Arrays.copyOf(times, 2 * nOfTimes);
+					}
+					times[nOfTimes++] = departure - walkTime;
+					time = departure + 1;
+				}
+			}
+		}
+		times = Arrays.copyOf(times, nOfTimes);
+		Arrays.sort(times);
+		int nOfDistinct = 0;
+		for (int i = 0; i < nOfTimes; i++) {
+			if (nOfDistinct == 0 || times[i] != times[nOfDistinct - 1]) {
+				times[nOfDistinct++] = times[i];
+			}
+		}
+		return Arrays.copyOf(times, nOfDistinct);
+	}
+
+	private boolean initSearch(final Coord fromCoord, final Coord toCoord) {
+		if (this.schedule.getNumberOfStops() == 0) {
+			return false;
+		}
+		this.accessStops.addAll(locateNearestStops(fromCoord));
+		for (TransitStopFacility stop : this.accessStops) {
+			this.accessTime[this.schedule.getStopIndex(stop)] = getWalkTime(fromCoord, stop.getCoord());
+		}
+		this.egressStops.addAll(locateNearestStops(toCoord));
+		for (TransitStopFacility stop : this.egressStops) {
+			this.egressTime[this.schedule.getStopIndex(stop)] = getWalkTime(stop.getCoord(), toCoord);
+		}
+		return true;
+	}
+
+	private Collection<TransitStopFacility> locateNearestStops(final Coord coord) {
+		Collection<TransitStopFacility> nearestStops = this.schedule.getNearestStops(coord, this.config.getSearchRadius());
+		if (nearestStops.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			TransitStopFacility nearestStop = this.schedule.getNearestStop(coord);
+			double distance = CoordUtils.calcDistance(coord, nearestStop.getCoord());
+			nearestStops = this.schedule.getNearestStops(coord, distance + this.config.getExtensionRadius());
+		}
+		return nearestStops;
+	}
+
+	/**
+	 * One run of RAPTOR for the given departure time, starting with the current labels.
+	 */
+	private void search(final double departureTime) {
+		this.run++;
+		for (TransitStopFacility stop : this.accessStops) {
+			int a = this.schedule.getStopIndex(stop);
+			setReadyTime(0, a, departureTime + this.accessTime[a], -1);
+		}
+		RaptorSchedule s = this.schedule;
+		for (int k = 1; k <= this.nOfRounds && this.nOfMarkedStops > 0; k++) {
+			// collect the routes serving the marked stops, with the first marked position
+			int nOfQueuedRoutes = 0;
+			for (int m = 0; m < this.nOfMarkedStops; m++) {
+				int stop = this.markedStops[m];
+				this.marked[stop] = false;
+				for (int i = s.stopRouteStart[stop]; i < s.stopRouteStart[stop + 1]; i++) {
+					int route = s.stopRouteRoute[i];
+					int position = s.stopRoutePosition[i];
+					if (this.routeFirstPosition[route] < 0) {
+						this.queuedRoutes[nOfQueuedRoutes++] = route;
+						this.routeFirstPosition[route] = position;
+					} else if (position < this.routeFirstPosition[route]) {
+						this.routeFirstPosition[route] = position;
+					}
+				}
+			}
+			this.nOfMarkedStops = 0;
+
+			for (int i = 0; i < nOfQueuedRoutes; i++) {
+				int route = this.queuedRoutes[i];
+				scanRoute(k, route, this.routeFirstPosition[route]);
+				this.routeFirstPosition[route] = -1;
+			}
+
+			for (TransitStopFacility stop : this.egressStops) {
+				int e = s.getStopIndex(stop);
+				if (this.arrivalRun[k][e] == this.run) {
+					double arrival = this.arrivalTime[k][e] + this.egressTime[e];
+					for (int j = k; j <= this.nOfRounds && arrival < this.bestDestinationArrival[j]; j++) {
+						this.bestDestinationArrival[j] = arrival;
+					}
+				}
+			}
+
+			// transfers, either at the same stop or by walking to a nearby stop
+			double additionalTransferTime = this.config.getAdditionalTransferTime();
+			for (int i = 0; i < this.nOfImprovedStops; i++) {
+				int stop = this.improvedStops[i];
+				this.improved[stop] = false;
+				double time = this.arrivalTime[k][stop];
+				setReadyTime(k, stop, time + additionalTransferTime, stop);
+				for (int t = s.transferStart[stop]; t < s.transferStart[stop + 1]; t++) {
+					double walkTime = s.transferDistance[t] / this.config.getBeelineWalkSpeed();
+					setReadyTime(k, s.transferStop[t], time + walkTime + additionalTransferTime, stop);
+				}
+			}
+			this.nOfImprovedStops = 0;
+		}
+		for (int m = 0; m < this.nOfMarkedStops; m++) {
+			this.marked[this.markedStops[m]] = false;
+		}
+		this.nOfMarkedStops = 0;
+	}
+
+	private void scanRoute(final int k, final int route, final int firstPosition) {
+		RaptorSchedule s = this.schedule;
+		double tripDeparture = Double.NaN;
+		int boardedAt = -1;
+		for (int position = firstPosition, end = s.routeStopStart[route + 1]; position < end; position++) {
+			int stop = s.routeStop[position];
+			if (boardedAt >= 0) {
+				double arrival = tripDeparture + s.arrivalOffset[position];
+				if (arrival < this.earliestArrivalTime[k][stop] && arrival < this.bestDestinationArrival[k]) {
+					this.arrivalTime[k][stop] = arrival;
+					this.boardRoute[k][stop] = route;
+					this.boardPosition[k][stop] = boardedAt;
+					this.alightPosition[k][stop] = position;
+					this.tripDepartureTime[k][stop] = tripDeparture;
+					this.arrivalRun[k][stop] = this.run;
+					for (int j = k; j <= this.nOfRounds && arrival < this.earliestArrivalTime[j][stop]; j++) {
+						this.earliestArrivalTime[j][stop] = arrival;
+					}
+					touch(stop);
+					if (!this.improved[stop]) {
+						this.improved[stop] = true;
+						this.improvedStops = add(this.improvedStops, this.nOfImprovedStops++, stop);
+					}
+				}
+			}
+			double ready = this.readyTime[k - 1][stop];
+			if (ready < Double.POSITIVE_INFINITY && (boardedAt < 0 || ready <= tripDeparture + s.departureOffset[position])) {
+				// an earlier trip might be caught here
+				double departure = s.getNextDepartureTime(route, position, ready);
+				if (boardedAt < 0 || departure < tripDeparture) {
+					tripDeparture = departure;
+					boardedAt = position;
+				}
+			}
+		}
+	}
+
+	private void setReadyTime(final int k, final int stop, final double time, final int from) {
+		if (time < this.readyTime[k][stop] && time < this.bestDestinationArrival[k]) {
+			this.readyTime[k][stop] = time;
+			this.readyFrom[k][stop] = from;
+			touch(stop);
+			if (!this.marked[stop]) {
+				this.marked[stop] = true;
+				this.markedStops = add(this.markedStops, this.nOfMarkedStops++, stop);
+			}
+		}
+	}
+
+	private void touch(final int stop) {
+		if (!this.touched[stop]) {
+			this.touched[stop] = true;
+			this.touchedStops = add(this.touchedStops, this.nOfTouchedStops++, stop);
+		}
+	}
+
+	private static int[] add(int[] array, final int index, final int value) {
+		if (index == array.length) {
+			array = Arrays.copyOf(array, 2 * array.length);
+		}
+		array[index] = value;
+		return array;
+	}
+
+	private void reset() {
+		for (int i = 0; i < this.nOfTouchedStops; i++) {
+			int stop = this.touchedStops[i];
+			this.touched[stop] = false;
+			for (int k = 0; k <= this.nOfRounds; k++) {
+				this.arrivalTime[k][stop] = Double.POSITIVE_INFINITY;
+				this.earliestArrivalTime[k][stop] = Double.POSITIVE_INFINITY;
+				this.readyTime[k][stop] = Double.POSITIVE_INFINITY;
+			}
+		}
+		this.nOfTouchedStops = 0;
+		Arrays.fill(this.bestDestinationArrival, Double.POSITIVE_INFINITY);
+		for (TransitStopFacility stop : this.accessStops) {
+			this.accessTime[this.schedule.getStopIndex(stop)] = Double.POSITIVE_INFINITY;
+		}
+		for (TransitStopFacility stop : this.egressStops) {
+			this.egressTime[this.schedule.getStopIndex(stop)] = Double.POSITIVE_INFINITY;
+		}
+		this.accessStops.clear();
+		this.egressStops.clear();
+	}
+
+	/**
+	 * Follows the labels back from the arrival at the egress stop in round <code>k</code>
+	 * and converts the journey into legs.
+	 */
+	private Journey createJourney(final int k, final int egressStop, final double departureTime, final Coord fromCoord, final Coord toCoord) {
+		// the stops where vehicles are left, from the last to the first vehicle
+		int[] alightStops = new int[k];
+		int stop = egressStop;
+		int round = k;
+		while (round > 0) {
+			alightStops[round - 1] = stop;
+			int board = this.schedule.routeStop[this.boardPosition[round][stop]];
+			round--;
+			stop = round > 0 ? this.readyFrom[round][board] : -1;
+		}
+
+		RaptorSchedule s = this.schedule;
+		Journey journey = new Journey();
+		double time = departureTime;
+		double readyTime = time;
+		TransitStopFacility prevStop = null;
+		for (int i = 0; i < k; i++) {
+			int alightStop = alightStops[i];
+			int boardPos = this.boardPosition[i + 1][alightStop];
+			int alightPos = this.alightPosition[i + 1][alightStop];
+			int route = this.boardRoute[i + 1][alightStop];
+			double tripDeparture = this.tripDepartureTime[i + 1][alightStop];
+			TransitStopFacility boardStop = s.stops[s.routeStop[boardPos]];
+			TransitStopFacility egress = s.stops[alightStop];
+
+			if (prevStop == null) {
+				double walkTime = getWalkTime(fromCoord, boardStop.getCoord());
+				journey.addLeg(createWalkLeg(null, null, time, walkTime));
+				journey.cost += getWalkDisutility(fromCoord, boardStop.getCoord());
+				time += walkTime;
+				readyTime = time;
+			} else {
+				double distance = CoordUtils.calcDistance(prevStop.getCoord(), boardStop.getCoord());
+				double walkTime = distance / this.config.getBeelineWalkSpeed();
+				if (prevStop != boardStop) {
+					journey.addLeg(createWalkLeg(prevStop, boardStop, time, walkTime));
+				}
+				double additionalTransferTime = this.config.getAdditionalTransferTime();
+				journey.cost += - walkTime * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+						- distance * this.config.getMarginalUtilityOfTravelDistancePt_utl_m()
+						- additionalTransferTime * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+						- this.config.getUtilityOfLineSwitch_utl();
+				time += walkTime;
+				readyTime = time + additionalTransferTime;
+			}
+
+			double vehicleArrival = tripDeparture + s.arrivalOffset[boardPos];
+			double waitTime = Math.max(0, vehicleArrival - readyTime);
+			double arrival = tripDeparture + s.arrivalOffset[alightPos];
+			journey.cost += - (arrival - readyTime - waitTime) * this.config.getMarginalUtilityOfTravelTimePt_utl_s()
+					- waitTime * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+					- (s.distanceFromStart[alightPos] - s.distanceFromStart[boardPos]) * this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+
+			Leg leg = new LegImpl(TransportMode.pt);
+			ExperimentalTransitRoute ptRoute = new ExperimentalTransitRoute(boardStop, s.routeLines[route], s.routes[route], egress);
+			ptRoute.setTravelTime(arrival - time);
+			leg.setRoute(ptRoute);
+			leg.setDepartureTime(time);
+			leg.setTravelTime(arrival - time);
+			journey.addLeg(leg);
+			time = arrival;
+			prevStop = egress;
+		}
+		double walkTime = getWalkTime(prevStop.getCoord(), toCoord);
+		journey.addLeg(createWalkLeg(null, null, time, walkTime));
+		journey.cost += getWalkDisutility(prevStop.getCoord(), toCoord);
+		return journey;
+	}
+
+	private Leg createWalkLeg(final TransitStopFacility fromStop, final TransitStopFacility toStop, final double departureTime, final double walkTime) {
+		Leg leg = new LegImpl(TransportMode.transit_walk);
+		if (fromStop != null) {
+			GenericRouteImpl walkRoute = new GenericRouteImpl(fromStop.getLinkId(), toStop.getLinkId());
+			walkRoute.setTravelTime(walkTime);
+			leg.setRoute(walkRoute);
+		}
+		leg.setDepartureTime(departureTime);
+		leg.setTravelTime(walkTime);
+		return leg;
+	}
+
+	private List<Leg> createDirectWalkLegList(final Coord fromCoord, final Coord toCoord, final double departureTime) {
+		List<Leg> legs = new ArrayList<>();
+		double walkTime = getWalkTime(fromCoord, toCoord);
+		Leg leg = createWalkLeg(null, null, departureTime, walkTime);
+		GenericRouteImpl walkRoute = new GenericRouteImpl(null, null);
+		walkRoute.setTravelTime(walkTime);
+		leg.setRoute(walkRoute);
+		legs.add(leg);
+		return legs;
+	}
+
+	private double getWalkTime(final Coord coord, final Coord toCoord) {
+		return CoordUtils.calcDistance(coord, toCoord) / this.config.getBeelineWalkSpeed();
+	}
+
+	private double getWalkDisutility(final Coord coord, final Coord toCoord) {
+		// same as TransitRouterNetworkTravelTimeAndDisutility
+		return - getWalkTime(coord, toCoord) * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+				- CoordUtils.calcDistance(coord, toCoord) * this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+	}
+
+	private static class Journey {
+		final List<Leg> legs = new ArrayList<>();
+		double cost = 0;
+
+		void addLeg(final Leg leg) {
+			this.legs.add(leg);
+		}
+	}
+
+}
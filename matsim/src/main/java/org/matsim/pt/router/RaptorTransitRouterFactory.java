@@ -0,0 +1,59 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.matsim.core.config.Config;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+/**
+ * Creates {@link RaptorTransitRouter}s which all share the same {@link RaptorSchedule}.
+ */
+@Singleton
+public class RaptorTransitRouterFactory implements Provider<TransitRouter> {
+
+	private final TransitRouterConfig config;
+	private final RaptorSchedule raptorSchedule;
+
+	@Inject
+	RaptorTransitRouterFactory(final TransitSchedule schedule, final Config config) {
+		this(schedule, new TransitRouterConfig(
+				config.planCalcScore(),
+				config.plansCalcRoute(),
+				config.transitRouter(),
+				config.vspExperimental()));
+	}
+
+	public RaptorTransitRouterFactory(final TransitSchedule schedule, final TransitRouterConfig config) {
+		this.config = config;
+		this.raptorSchedule = new RaptorSchedule(schedule, this.config.getBeelineWalkConnectionDistance());
+	}
+
+	@Override
+	public TransitRouter get() {
+		return new RaptorTransitRouter(this.config, this.raptorSchedule);
+	}
+
+}
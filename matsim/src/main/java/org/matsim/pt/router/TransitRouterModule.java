@@ -31,7 +31,13 @@ public class TransitRouterModule extends AbstractModule {
     @Override
     public void install() {
         if (getConfig().transit().isUseTransit()) {
-            bind(TransitRouter.class).toProvider(TransitRouterImplFactory.class);
+            switch (getConfig().transitRouter().getRoutingAlgorithmType()) {
+                case Raptor:
+                    bind(TransitRouter.class).toProvider(RaptorTransitRouterFactory.class);
+                    break;
+                default:
+                    bind(TransitRouter.class).toProvider(TransitRouterImplFactory.class);
+            }
         } else {
             bind(TransitRouter.class).toProvider(DummyTransitRouterFactory.class);
         }
@@ -35,7 +35,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.utils.collections.IdentifiableArrayMap;
-import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.collections.KdTree;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.misc.Counter;
@@ -59,7 +59,7 @@ public final class TransitRouterNetwork implements Network {
 
 	private final Map<Id<Link>, TransitRouterNetworkLink> links = new LinkedHashMap<Id<Link>, TransitRouterNetworkLink>();
 	private final Map<Id<Node>, TransitRouterNetworkNode> nodes = new LinkedHashMap<Id<Node>, TransitRouterNetworkNode>();
-	private QuadTree<TransitRouterNetworkNode> qtNodes = null;
+	private KdTree<TransitRouterNetworkNode> kdNodes = null;
 
 	private long nextNodeId = 0;
 	private long nextLinkId = 0;
@@ -290,41 +290,20 @@ public final class TransitRouterNetwork implements Network {
 	}
 
 	public void finishInit() {
-		double minX = Double.POSITIVE_INFINITY;
-		double minY = Double.POSITIVE_INFINITY;
-		double maxX = Double.NEGATIVE_INFINITY;
-		double maxY = Double.NEGATIVE_INFINITY;
-
-		for (TransitRouterNetworkNode node : this.nodes.values()) {
-			Coord c = node.stop.getStopFacility().getCoord();
-			if (c.getX() < minX) {
-				minX = c.getX();
-			}
-			if (c.getY() < minY) {
-				minY = c.getY();
-			}
-			if (c.getX() > maxX) {
-				maxX = c.getX();
-			}
-			if (c.getY() > maxY) {
-				maxY = c.getY();
-			}
-		}
-
-		QuadTree<TransitRouterNetworkNode> quadTree = new QuadTree<TransitRouterNetworkNode>(minX, minY, maxX, maxY);
+		KdTree.Builder<TransitRouterNetworkNode> builder = new KdTree.Builder<TransitRouterNetworkNode>();
 		for (TransitRouterNetworkNode node : this.nodes.values()) {
 			Coord c = node.stop.getStopFacility().getCoord();
-			quadTree.put(c.getX(), c.getY(), node);
+			builder.put(c.getX(), c.getY(), node);
 		}
-		this.qtNodes = quadTree;
+		this.kdNodes = builder.build();
 	}
 
 	public Collection<TransitRouterNetworkNode> getNearestNodes(final Coord coord, final double distance) {
-		return this.qtNodes.getDisk(coord.getX(), coord.getY(), distance);
+		return this.kdNodes.getDisk(coord.getX(), coord.getY(), distance);
 	}
 
 	public TransitRouterNetworkNode getNearestNode(final Coord coord) {
-		return this.qtNodes.getClosest(coord.getX(), coord.getY());
+		return this.kdNodes.getClosest(coord.getX(), coord.getY());
 	}
 
 	@Override
@@ -21,7 +21,12 @@
 package org.matsim.withinday.mobsim;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
 import org.matsim.core.mobsim.qsim.ActivityEndRescheduler;
 import org.matsim.core.mobsim.qsim.ActivityEndReschedulerProvider;
 import org.matsim.core.mobsim.qsim.InternalInterface;
@@ -37,9 +42,12 @@ import org.matsim.withinday.replanning.replanners.interfaces.WithinDayInitialRep
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 
 /**
  * This Class implements the MobsimEngine interface. If added to a
@@ -49,6 +57,14 @@ import java.util.Map.Entry;
  * Also, it lives as long as the Controler, as opposed to all other party of the QSim,
  * and is added to each new QSim instance in turn.
  *
+ * If asynchronous during activity replanning is enabled, agents which perform an
+ * activity that does not end in the current time step are replanned in parallel
+ * to the other engines. The replanning is awaited after the time step, when the
+ * travel times estimated by the TravelTimeCollector are still those of the time
+ * step. Activity end reschedulings and replanning events of these agents are then
+ * applied sorted by agent, so the results do not depend on the scheduling of the
+ * threads.
+ *
  * @author cdobler
  */
 @Singleton
@@ -62,7 +78,10 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 	private boolean duringActivityReplanning = true;
 	private boolean duringLegReplanning = true;
 
+	private boolean asynchronousDuringActivityReplanning = false;
+
 	private boolean initialReplanningPerformed = false;
+	private boolean asynchronousReplanningRunning = false;
 	
 	private InitialReplanningModule initialReplanningModule;
 	private DuringActivityReplanningModule duringActivityReplanningModule;
@@ -76,6 +95,9 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 	private Map<WithinDayDuringLegReplannerFactory, Tuple<Double, Double>> duringLegReplannerFactory;
 	
 	private InternalInterface internalInterface;
+	private final ActivityEndRescheduler activityEndRescheduler = new DeferringActivityEndRescheduler();
+	private final Map<Id<Person>, MobsimAgent> deferredActivityEndReschedulings = new TreeMap<>();
+	private volatile boolean deferringActivityEndRescheduling = false;
 
 	@Inject
 	public WithinDayEngine(EventsManager eventsManager) {
@@ -117,6 +139,21 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		return duringActivityReplanning;
 	}
 
+	/**
+	 * Replan agents during their activities in parallel to the other engines, see
+	 * the class comment. Should only be used with replanners which do not depend on
+	 * the state of other agents in the current time step. The travel times used by
+	 * the replanners must not change during the time step; this holds for the
+	 * TravelTimeCollector, which updates its estimates only before a time step.
+	 */
+	public void doAsynchronousDuringActivityReplanning(boolean value) {
+		asynchronousDuringActivityReplanning = value;
+	}
+
+	public boolean isAsynchronousDuringActivityReplanning() {
+		return asynchronousDuringActivityReplanning;
+	}
+
 	public void doDuringLegReplanning(boolean value) {
 		duringLegReplanning = value;
 	}
@@ -181,6 +218,30 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 			if (entry.getValue().getSecond() == time) this.parallelDuringLegReplanner.removeWithinDayReplannerFactory(entry.getKey());
 		}
 		
+		if (isDuringActivityReplanning() && isAsynchronousDuringActivityReplanning()) {
+			/*
+			 * The during leg replanning is done first, so the activity end reschedulings
+			 * of its replanners do not have to be deferred.
+			 */
+			if (isDuringLegReplanning()) {
+				duringLegReplanningModule.doReplanning(time);
+			}
+
+			/*
+			 * Agents whose activity ends in this time step are replanned synchronously, so
+			 * their activity end reschedulings have to reach the activity engine before it
+			 * ends the activities. Only the reschedulings of the asynchronous replanning
+			 * are deferred.
+			 */
+			duringActivityReplanningModule.doSynchronousReplanning(time);
+			deferringActivityEndRescheduling = true;
+			asynchronousReplanningRunning = duringActivityReplanningModule.startAsynchronousReplanning(time);
+			if (!asynchronousReplanningRunning) {
+				deferringActivityEndRescheduling = false;
+			}
+			return;
+		}
+
 		if (isDuringActivityReplanning()) {
 			duringActivityReplanningModule.doReplanning(time);
 		}
@@ -190,6 +251,23 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		}
 	}
 
+	private void awaitAsynchronousReplanning() {
+		if (!asynchronousReplanningRunning) return;
+		asynchronousReplanningRunning = false;
+
+		this.parallelDuringActivityReplanner.awaitAsynchronous();
+		deferringActivityEndRescheduling = false;
+
+		List<MobsimAgent> agents;
+		synchronized (this.deferredActivityEndReschedulings) {
+			agents = new ArrayList<>(this.deferredActivityEndReschedulings.values());
+			this.deferredActivityEndReschedulings.clear();
+		}
+		for (MobsimAgent agent : agents) {
+			this.internalInterface.rescheduleActivityEnd(agent);
+		}
+	}
+
 	@Override
 	public void onPrepareSim() {
 		this.parallelInitialReplanner.onPrepareSim();
@@ -206,6 +284,7 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 
 	@Override
 	public void afterSim() {
+		awaitAsynchronousReplanning();
 		this.parallelInitialReplanner.afterSim();
 		this.parallelDuringActivityReplanner.afterSim();
 		this.parallelDuringLegReplanner.afterSim();
@@ -214,11 +293,37 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 	@Override
 	public void setInternalInterface(InternalInterface internalInterface) {
 		this.internalInterface = internalInterface;
+		if (internalInterface.getMobsim() != null) {
+			internalInterface.getMobsim().addQueueSimulationListeners(new MobsimAfterSimStepListener() {
+				@Override
+				public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
+					awaitAsynchronousReplanning();
+				}
+			});
+		}
 	}
 	
 	
 	@Override
 	public ActivityEndRescheduler getActivityRescheduler() {
-		return this.internalInterface;
+		return this.activityEndRescheduler;
+	}
+
+	/*
+	 * While the asynchronous replanning is running, the activity engine must not be
+	 * modified by the replanning threads. The reschedulings are collected and applied
+	 * after the replanning has been awaited.
+	 */
+	private class DeferringActivityEndRescheduler implements ActivityEndRescheduler {
+		@Override
+		public void rescheduleActivityEnd(MobsimAgent agent) {
+			if (deferringActivityEndRescheduling) {
+				synchronized (deferredActivityEndReschedulings) {
+					deferredActivityEndReschedulings.put(agent.getId(), agent);
+				}
+			} else {
+				internalInterface.rescheduleActivityEnd(agent);
+			}
+		}
 	}
 }
\ No newline at end of file
@@ -20,10 +20,13 @@
 
 package org.matsim.withinday.mobsim;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.MobsimAgent.State;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
 import org.matsim.withinday.replanning.parallel.ParallelReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
@@ -33,6 +36,9 @@ import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
 public abstract class WithinDayReplanningModule<T extends WithinDayReplannerFactory<? extends AgentSelector>> {
 
 	protected ParallelReplanner<T> parallelReplanner;
+
+	// tasks of agents which are replanned in parallel to the mobsim, see doSynchronousReplanning(...)
+	private final List<ReplanningTask> asynchronousTasks = new ArrayList<ReplanningTask>();
 	
 	public void doReplanning(double time) {
 		for (T factory : this.parallelReplanner.getWithinDayReplannerFactories()) {
@@ -49,6 +55,45 @@ public abstract class WithinDayReplanningModule<T extends WithinDayReplannerFact
 		
 		this.parallelReplanner.run(time);
 	}
+
+	/*
+	 * Agents which perform an activity that does not end in the current time step
+	 * are not touched by the mobsim in this time step. They are replanned in parallel
+	 * to the mobsim, all other agents are replanned immediately. The asynchronous
+	 * replanning is started via startAsynchronousReplanning(...) and has to be
+	 * awaited via ParallelReplanner.awaitAsynchronous().
+	 */
+	public void doSynchronousReplanning(double time) {
+		for (T factory : this.parallelReplanner.getWithinDayReplannerFactories()) {
+			Set<? extends AgentSelector> identifiers = factory.getIdentifers(); 
+			Id<WithinDayReplanner> id = factory.getId();
+			
+			for (AgentSelector identifier : identifiers) {
+				for (MobsimAgent withinDayAgent : identifier.getAgentsToReplan(time)) {					
+					ReplanningTask replanningTask = new ReplanningTask(withinDayAgent, id);
+					if (withinDayAgent.getState() == State.ACTIVITY && withinDayAgent.getActivityEndTime() > time) {
+						this.asynchronousTasks.add(replanningTask);
+					} else {
+						this.parallelReplanner.addReplanningTask(replanningTask);
+					}
+				}
+			}
+		}
+		
+		this.parallelReplanner.run(time);
+	}
+
+	/*
+	 * Starts the replanning of the agents which were skipped by doSynchronousReplanning(...).
+	 * Returns true if an asynchronous replanning was started.
+	 */
+	public boolean startAsynchronousReplanning(double time) {
+		for (ReplanningTask replanningTask : this.asynchronousTasks) {
+			this.parallelReplanner.addReplanningTask(replanningTask);
+		}
+		this.asynchronousTasks.clear();
+		return this.parallelReplanner.startAsynchronous(time);
+	}
 	
 
 }
@@ -21,9 +21,12 @@
 package org.matsim.withinday.replanning.parallel;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
@@ -33,6 +36,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.withinday.events.ReplanningEvent;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplannerFactory;
@@ -75,6 +79,7 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	protected CyclicBarrier timeStepEndBarrier;
 	
 	protected boolean simIsRunning = false;
+	private boolean asynchronousRunning = false;
 	
 	public ParallelReplanner(int numOfThreads, EventsManager eventsManager) {
 		this.setNumberOfThreads(numOfThreads);
@@ -200,9 +205,88 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		}
 	}
 
+	/*
+	 * Starts the replanning of the agents added since the last run but does not wait
+	 * until it is finished, so the calling thread can go on, e.g. with simulating the
+	 * network. awaitAsynchronous() has to be called before the replanned agents are
+	 * used again. The ReplanningEvents are created when the replanning is awaited.
+	 * 
+	 * Returns false if there were no agents to replan.
+	 */
+	public final boolean startAsynchronous(double time) {
+		if (this.asynchronousRunning) {
+			throw new IllegalStateException("Asynchronous replanning has already been started.");
+		}
+		
+		// no Agents to Replan
+		if (lastRoundRobin == roundRobin) return false;
+		else lastRoundRobin = roundRobin;
+
+		if (hadException.get()) {
+			return false;
+		}
+		
+		try {
+			for (ReplanningRunnable replanningRunnable : replanningRunnables) {
+				replanningRunnable.setTime(time);
+				replanningRunnable.setDeferringEvents(true);
+			}
+
+			this.timeStepStartBarrier.await();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (BrokenBarrierException e) {
+	      	throw new RuntimeException(e);
+		}
+		this.asynchronousRunning = true;
+		return true;
+	}
+
+	/*
+	 * Waits until the replanning started by startAsynchronous(...) is finished. The
+	 * ReplanningEvents are then processed sorted by person and replanner, so their
+	 * order does not depend on the scheduling of the threads.
+	 */
+	public final void awaitAsynchronous() {
+		if (!this.asynchronousRunning) return;
+		this.asynchronousRunning = false;
+
+		try {
+			this.timeStepEndBarrier.await();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (BrokenBarrierException e) {
+	      	throw new RuntimeException(e);
+		}
+
+		List<ReplanningEvent> events = new ArrayList<ReplanningEvent>();
+		for (ReplanningRunnable replanningRunnable : replanningRunnables) {
+			events.addAll(replanningRunnable.getDeferredEvents());
+			replanningRunnable.setDeferringEvents(false);
+		}
+		if (this.eventsManager != null && !events.isEmpty()) {
+			Collections.sort(events, new Comparator<ReplanningEvent>() {
+				@Override
+				public int compare(ReplanningEvent e1, ReplanningEvent e2) {
+					int cmp = e1.getPersonId().compareTo(e2.getPersonId());
+					return cmp != 0 ? cmp : e1.getReplannerType().compareTo(e2.getReplannerType());
+				}
+			});
+			for (ReplanningEvent event : events) {
+				this.eventsManager.processEvent(event);
+			}
+		}
+	}
+
+	public final boolean isAsynchronousRunning() {
+		return this.asynchronousRunning;
+	}
+
 	public final void afterSim() {
 
 		this.simIsRunning = false;
+
+		awaitAsynchronous();
 		
 		if (this.hadException.get()) {
 			throw new RuntimeException("Exception while replanning. " +
@@ -32,7 +32,9 @@ import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
@@ -70,6 +72,13 @@ public abstract class ReplanningRunnable implements Runnable {
 	 */
 	protected Map<Id<WithinDayReplanner>, Queue<ReplanningTask>> replanningTasks = new TreeMap<>();
     protected EventsManager eventsManager;
+
+	/*
+	 * If not null, the ReplanningEvents are collected here instead of being
+	 * passed to the EventsManager, e.g. while the replanning runs in parallel
+	 * to the mobsim.
+	 */
+	private List<ReplanningEvent> deferredEvents = null;
 	
 	protected CyclicBarrier timeStepStartBarrier;
 	protected CyclicBarrier betweenReplannerBarrier;
@@ -121,6 +130,19 @@ public abstract class ReplanningRunnable implements Runnable {
 		}
 	}
 	
+	public final void setDeferringEvents(boolean deferringEvents) {
+		this.deferredEvents = deferringEvents ? new ArrayList<ReplanningEvent>() : null;
+	}
+
+	/*
+	 * Returns the events collected since the last call and clears them.
+	 */
+	public final List<ReplanningEvent> getDeferredEvents() {
+		List<ReplanningEvent> events = this.deferredEvents;
+		if (events != null) this.deferredEvents = new ArrayList<ReplanningEvent>();
+		return events;
+	}
+
 	public final void beforeSim() {
 		this.simulationRunning = true;
 	}
@@ -180,7 +202,8 @@ public abstract class ReplanningRunnable implements Runnable {
 					if (eventsManager != null) {
 						ReplanningEvent replanningEvent = new ReplanningEvent(time, withinDayAgent.getId(), 
 								withinDayReplanner.getClass().getSimpleName());
-						eventsManager.processEvent(replanningEvent);
+						if (this.deferredEvents != null) this.deferredEvents.add(replanningEvent);
+						else eventsManager.processEvent(replanningEvent);
 					}
 					
 					counter.incCounter();
@@ -25,9 +25,12 @@ import java.util.Map;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.priorityqueue.HasIndex;
 import org.matsim.withinday.trafficmonitoring.TravelTimeCollector.TravelTimeInfo;
 
+/**
+ * Looks up the TravelTimeInfos in an array indexed by the index of the link ids.
+ * Links created after the provider fall back to the map, if one was given.
+ */
 public class ArrayBasedTravelTimeInfoProvider implements TravelTimeInfoProvider {
 
 	private final TravelTimeInfo[] arrayLinkData;
@@ -35,35 +38,30 @@ public class ArrayBasedTravelTimeInfoProvider implements TravelTimeInfoProvider
 	
 	public ArrayBasedTravelTimeInfoProvider(Map<Id<Link>, TravelTimeInfo> linkData, Network network) {
 		this.delegate = new MapBasedTravelTimeInfoProvider(linkData);
-		this.arrayLinkData = new TravelTimeInfo[linkData.size()];
+		this.arrayLinkData = new TravelTimeInfo[Id.getNumberOfIds(Link.class)];
+		for (Map.Entry<Id<Link>, TravelTimeInfo> entry : linkData.entrySet()) {
+			this.arrayLinkData[entry.getKey().index()] = entry.getValue();
+		}
+	}
+
+	/*package*/ ArrayBasedTravelTimeInfoProvider(TravelTimeInfo[] linkData) {
+		this.delegate = null;
+		this.arrayLinkData = linkData;
 	}
 	
-	/*
-	 * This method is called from the EventHandler part of the TravelTimeCollector.
-	 * There, only link ids are available. We cannot optimize this. 
-	 */
 	@Override
 	public TravelTimeInfo getTravelTimeData(final Id<Link> linkId) {
-		return this.delegate.getTravelTimeData(linkId);
+		int index = linkId.index();
+		TravelTimeInfo data = index < this.arrayLinkData.length ? this.arrayLinkData[index] : null;
+		if (data == null && this.delegate != null) {
+			data = this.delegate.getTravelTimeData(linkId);
+		}
+		return data;
 	}
 	
-	/*
-	 * This method is called from the TravelTime part of the TravelTimeCollector.
-	 * There, link are available. we can optimize this by using an array instead of a map.
-	 */
 	@Override
 	public TravelTimeInfo getTravelTimeData(Link link) {
-		if (link instanceof HasIndex) {
-			int index = ((HasIndex) link).getArrayIndex();
-			TravelTimeInfo data = this.arrayLinkData[index];
-			if (data == null) {
-				data = this.delegate.getTravelTimeData(link);
-				this.arrayLinkData[index] = data;
-			}
-			return data;
-		} else {
-			return this.delegate.getTravelTimeData(link);
-		}
+		return this.getTravelTimeData(link.getId());
 	}
 	
-}
\ No newline at end of file
+}
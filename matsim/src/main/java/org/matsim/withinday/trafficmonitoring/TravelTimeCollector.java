@@ -49,12 +49,18 @@ import org.matsim.vehicles.Vehicle;
 import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CyclicBarrier;
 
 /**
  * Collects link travel times over a given time span (storedTravelTimesBinSize)
  * and calculates an average travel time over this time span.
+ * <p/>
+ * The data of the links and of the agents is stored in arrays indexed by the
+ * index of their ids. The links are split into stripes, each of them guarded
+ * by its own lock, so the event handling does not have to wait for the update
+ * of links in other stripes. In every time step, only links with new observations
+ * or with observations that drop out of their time window are updated. If there
+ * is no such link, the update threads are not triggered at all.
  * 
  * TODO:
  * - make storedTravelTimesBinSize configurable (e.g. via config)
@@ -69,11 +75,14 @@ public class TravelTimeCollector implements TravelTime,
 
 	private static final Logger log = Logger.getLogger(TravelTimeCollector.class);
 
+	private static final int STRIPES_PER_THREAD = 8;
+
 	private Network network;
 
-	// Trips with no Activity on the current Link
-	private Map<Id<Person>, TripBin> regularActiveTrips; // PersonId
-	private Map<Id<Link>, TravelTimeInfo> travelTimeInfos; // LinkId
+	// Link enter times of trips with no Activity on the current Link, indexed by person index
+	private double[] enterTimes;
+	private TravelTimeInfo[] travelTimeInfos; // indexed by link index
+	private Stripe[] stripes;
 	
 	private TravelTimeInfoProvider travelTimeInfoProvider;
 
@@ -92,7 +101,7 @@ public class TravelTimeCollector implements TravelTime,
 	private final int infoTimeStep = 3600;
 	private int nextInfoTime = 0;
 	
-	private Set<Id<Person>> agentsToFilter;
+	private BitSet agentsToFilter; // indexed by person index
 	private final Set<String> analyzedModes;
 	private final boolean filterModes;
 	
@@ -124,22 +133,21 @@ public class TravelTimeCollector implements TravelTime,
 	}
 
 	private void init() {
-		this.regularActiveTrips = new HashMap<>();
-		this.travelTimeInfos = new ConcurrentHashMap<>();
+		this.enterTimes = new double[Math.max(16, Id.getNumberOfIds(Person.class))];
+		Arrays.fill(this.enterTimes, Double.NaN);
 		this.changedLinks = new HashMap<Double, Collection<Link>>();
-		this.agentsToFilter = new HashSet<>();
-				
+		this.agentsToFilter = new BitSet();
+
+		this.travelTimeInfos = new TravelTimeInfo[Id.getNumberOfIds(Link.class)];
 		for (Link link : this.network.getLinks().values()) {
-			TravelTimeInfo travelTimeInfo = new TravelTimeInfo();
-			this.travelTimeInfos.put(link.getId(), travelTimeInfo);
+			int index = link.getId().index();
+			this.travelTimeInfos[index] = new TravelTimeInfo(index);
 		}
-		/*
-		 * If no RoutingNetwork is used, ArrayBasedTravelTimeInfoProvider uses 
-		 * a MapBasedTravelTimeInfoProvider as fall back solution. This increases 
-		 * routing times of a AStarLandmarks router by ~5%.
-		 */
-//		this.travelTimeInfoProvider = new MapBasedTravelTimeInfoProvider(this.travelTimeInfos);
-		this.travelTimeInfoProvider = new ArrayBasedTravelTimeInfoProvider(this.travelTimeInfos, this.network);
+		this.stripes = new Stripe[Math.max(1, this.numOfThreads) * STRIPES_PER_THREAD];
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new Stripe();
+		}
+		this.travelTimeInfoProvider = new ArrayBasedTravelTimeInfoProvider(this.travelTimeInfos);
 		
 		/*
 		 * If the network is time variant, we have to update the link parameters
@@ -172,11 +180,36 @@ public class TravelTimeCollector implements TravelTime,
 		return this.travelTimeInfoProvider;
 	}
 	
+	/*
+	 * The estimated travel times are only changed when the mobsim is initialized and
+	 * before each time step. During a time step, they do not change, so within-day
+	 * replanners running in parallel to the mobsim see the state of the time step.
+	 */
 	@Override
 	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
 		return this.travelTimeInfoProvider.getTravelTimeData(link).travelTime;
 	}
 
+	/**
+	 * Returns a copy of the currently estimated link travel times which is not affected
+	 * by later updates of this collector, e.g. to route on the state of the network of
+	 * an earlier time step.
+	 */
+	public TravelTime createSnapshot() {
+		double[] travelTimes = new double[this.travelTimeInfos.length];
+		for (int i = 0; i < travelTimes.length; i++) {
+			TravelTimeInfo travelTimeInfo = this.travelTimeInfos[i];
+			if (travelTimeInfo == null) {
+				travelTimes[i] = Double.MAX_VALUE;
+			} else {
+				synchronized (getStripe(travelTimeInfo)) {
+					travelTimes[i] = travelTimeInfo.travelTime;
+				}
+			}
+		}
+		return new TravelTimeSnapshot(travelTimes);
+	}
+
 	@Override
 	public void reset(int iteration) {
 		init();
@@ -191,40 +224,43 @@ public class TravelTimeCollector implements TravelTime,
 
 	@Override
 	public void handleEvent(LinkEnterEvent event) {
+		int index = event.getDriverId().index();
+
 		/* 
 		 * If only some modes are analyzed, we check whether the agent
 		 * performs a trip with one of those modes. if not, we skip the event.
 		 */
-		if (filterModes && agentsToFilter.contains(event.getDriverId())) return;
+		if (filterModes && agentsToFilter.get(index)) return;
 		
-		Id<Person> personId = event.getDriverId();
-		double time = event.getTime();
-
-		TripBin tripBin = new TripBin();
-		tripBin.enterTime = time;
-
-		this.regularActiveTrips.put(personId, tripBin);
+		if (index >= this.enterTimes.length) {
+			int oldLength = this.enterTimes.length;
+			this.enterTimes = Arrays.copyOf(this.enterTimes, Math.max(2 * oldLength, index + 1));
+			Arrays.fill(this.enterTimes, oldLength, this.enterTimes.length, Double.NaN);
+		}
+		this.enterTimes[index] = event.getTime();
 	}
 
 	@Override
 	public void handleEvent(LinkLeaveEvent event) {
-		Id<Link> linkId = event.getLinkId();
-		Id<Person> personId = event.getDriverId();
-		double time = event.getTime();
+		int index = event.getDriverId().index();
+		if (index >= this.enterTimes.length) return;
 
-		TripBin tripBin = this.regularActiveTrips.remove(personId);
-		if (tripBin != null) {
-			tripBin.leaveTime = time;
+		double enterTime = this.enterTimes[index];
+		if (!Double.isNaN(enterTime)) {
+			this.enterTimes[index] = Double.NaN;
+			double leaveTime = event.getTime();
 
-			double tripTime = tripBin.leaveTime - tripBin.enterTime;
+			double tripTime = leaveTime - enterTime;
 
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(linkId);
-			travelTimeInfo.tripBins.add(tripBin);
-			travelTimeInfo.addedTravelTimes += tripTime;
-			travelTimeInfo.addedTrips++;
+			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(event.getLinkId());
+			Stripe stripe = getStripe(travelTimeInfo);
+			synchronized (stripe) {
+				travelTimeInfo.addTrip(leaveTime, tripTime);
+				travelTimeInfo.addedTravelTimes += tripTime;
 
-			travelTimeInfo.checkActiveState();
-			travelTimeInfo.checkBinSize(tripTime);
+				stripe.markChanged(travelTimeInfo);
+				travelTimeInfo.checkBinSize(tripTime);
+			}
 		}
 	}
 
@@ -244,12 +280,12 @@ public class TravelTimeCollector implements TravelTime,
 	 */
 	@Override
 	public void handleEvent(PersonArrivalEvent event) {
-		Id<Person> personId = event.getPersonId();
+		int index = event.getPersonId().index();
 
-		this.regularActiveTrips.remove(personId);
+		if (index < this.enterTimes.length) this.enterTimes[index] = Double.NaN;
 		
 		// try to remove agent from set with filtered agents
-		if (filterModes) this.agentsToFilter.remove(event.getPersonId());
+		if (filterModes) this.agentsToFilter.clear(index);
 	}
 
 	@Override
@@ -259,7 +295,7 @@ public class TravelTimeCollector implements TravelTime,
 		 * starts a leg on a non analyzed transport mode, add the agent
 		 * to the filtered agents set.
 		 */
-		if (filterModes && !analyzedModes.contains(event.getLegMode())) this.agentsToFilter.add(event.getPersonId());
+		if (filterModes && !analyzedModes.contains(event.getLegMode())) this.agentsToFilter.set(event.getPersonId().index());
 	}
 	
 	/*
@@ -284,8 +320,10 @@ public class TravelTimeCollector implements TravelTime,
 			double freeSpeedTravelTime = link.getLength() / link.getFreespeed(Time.UNDEFINED_TIME);
 
 			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(link);
-			travelTimeInfo.travelTime = freeSpeedTravelTime;
-			travelTimeInfo.init(freeSpeedTravelTime);
+			synchronized (getStripe(travelTimeInfo)) {
+				travelTimeInfo.travelTime = freeSpeedTravelTime;
+				travelTimeInfo.init(freeSpeedTravelTime);
+			}
 		}
 
 		// Now initialize the Parallel Update Threads
@@ -303,8 +341,11 @@ public class TravelTimeCollector implements TravelTime,
 			for (Link link : links) {
 				double freeSpeedTravelTime = link.getLength() / link.getFreespeed(e.getSimulationTime());
 				TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(link);
-				travelTimeInfo.init(freeSpeedTravelTime);
-				travelTimeInfo.checkActiveState();	// ensure that the estimated link travel time is updated
+				Stripe stripe = getStripe(travelTimeInfo);
+				synchronized (stripe) {
+					travelTimeInfo.init(freeSpeedTravelTime);
+					stripe.markChanged(travelTimeInfo);	// ensure that the estimated link travel time is updated
+				}
 			}
 		}
 	}
@@ -350,8 +391,10 @@ public class TravelTimeCollector implements TravelTime,
 	private void printInfo(double time) {
 		if (time >= this.nextInfoTime) {
 			int activeLinks = 0;
-			for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
-				activeLinks += runnable.getActiveLinksCount();
+			for (Stripe stripe : this.stripes) {
+				synchronized (stripe) {
+					activeLinks += stripe.activeLinks;
+				}
 			}
 
 			log.info("TravelTimeCollector at " + Time.writeTime(time) + " #links=" + activeLinks);
@@ -360,19 +403,24 @@ public class TravelTimeCollector implements TravelTime,
 		}
 	}
 
-	private static class TripBin {
-		double enterTime;
-		double leaveTime;
+	private Stripe getStripe(TravelTimeInfo travelTimeInfo) {
+		return this.stripes[travelTimeInfo.index % this.stripes.length];
 	}
 
 	/*package*/ static class TravelTimeInfo {
 
-		UpdateMeanTravelTimesRunnable runnable;
-		List<TripBin> tripBins = new ArrayList<TripBin>();
+		final int index; // index of the link
 
 		boolean isActive = false;
-		// int numActiveTrips = 0;
-		int addedTrips = 0;
+		boolean isChanged = false;
+		double updateTime = Double.NaN; // time step in which the link was updated last
+
+		// the trips within the time window, stored in a ring buffer ordered by their leave time
+		double[] leaveTimes = null;
+		double[] tripTimes = null;
+		int firstTrip = 0;
+		int numTrips = 0;
+
 		double addedTravelTimes = 0.0;
 		double sumTravelTimes = 0.0; // We cache the sum of the TravelTimes
 
@@ -384,16 +432,35 @@ public class TravelTimeCollector implements TravelTime,
 		static Counter enlarge = new Counter("TravelTimeCollector: enlarged time bin size: ");
 		static Counter shrink = new Counter("TravelTimeCollector: shrunk time bin size: ");
 
+		/*package*/ TravelTimeInfo(int index) {
+			this.index = index;
+		}
+
 		/*package*/ void init(double freeSpeedTravelTime) {
 			this.freeSpeedTravelTime = freeSpeedTravelTime;
 			this.dynamicBinSize = freeSpeedTravelTime * 2.5;
 		}
 
-		/*package*/ void checkActiveState() {
-			if (!isActive) {
-				this.isActive = true;
-				runnable.addTravelTimeInfo(this);
+		/*package*/ void addTrip(double leaveTime, double tripTime) {
+			if (this.leaveTimes == null) {
+				this.leaveTimes = new double[4];
+				this.tripTimes = new double[4];
+			} else if (this.numTrips == this.leaveTimes.length) {
+				double[] newLeaveTimes = new double[2 * this.numTrips];
+				double[] newTripTimes = new double[2 * this.numTrips];
+				for (int i = 0; i < this.numTrips; i++) {
+					int j = (this.firstTrip + i) % this.leaveTimes.length;
+					newLeaveTimes[i] = this.leaveTimes[j];
+					newTripTimes[i] = this.tripTimes[j];
+				}
+				this.leaveTimes = newLeaveTimes;
+				this.tripTimes = newTripTimes;
+				this.firstTrip = 0;
 			}
+			int last = (this.firstTrip + this.numTrips) % this.leaveTimes.length;
+			this.leaveTimes[last] = leaveTime;
+			this.tripTimes[last] = tripTime;
+			this.numTrips++;
 		}
 
 		/*package*/ void checkBinSize(double tripTime) {
@@ -407,6 +474,169 @@ public class TravelTimeCollector implements TravelTime,
 		}
 	}
 
+	/*
+	 * A set of links which is guarded by the stripe's lock. Keeps track of the links
+	 * which got new trips or whose oldest trip leaves the time window, so only those
+	 * have to be updated.
+	 */
+	private static class Stripe {
+
+		int activeLinks = 0;
+
+		private int[] changedLinks = new int[16];
+		private int numChangedLinks = 0;
+
+		// binary min-heap of the times at which the oldest trip of a link leaves the time window
+		private double[] expiryTimes = new double[16];
+		private int[] expiryLinks = new int[16];
+		private int numExpiries = 0;
+
+		/*package*/ void markChanged(TravelTimeInfo travelTimeInfo) {
+			if (!travelTimeInfo.isActive) {
+				travelTimeInfo.isActive = true;
+				this.activeLinks++;
+			}
+			if (!travelTimeInfo.isChanged) {
+				travelTimeInfo.isChanged = true;
+				if (this.numChangedLinks == this.changedLinks.length) {
+					this.changedLinks = Arrays.copyOf(this.changedLinks, 2 * this.numChangedLinks);
+				}
+				this.changedLinks[this.numChangedLinks++] = travelTimeInfo.index;
+			}
+		}
+
+		/*package*/ boolean hasWork(double time) {
+			return this.numChangedLinks > 0 || (this.numExpiries > 0 && this.expiryTimes[0] < time);
+		}
+
+		/*package*/ void update(double time, TravelTimeInfo[] travelTimeInfos) {
+			for (int i = 0; i < this.numChangedLinks; i++) {
+				TravelTimeInfo travelTimeInfo = travelTimeInfos[this.changedLinks[i]];
+				travelTimeInfo.isChanged = false;
+				update(time, travelTimeInfo);
+			}
+			this.numChangedLinks = 0;
+
+			/*
+			 * Entries of links which have been updated in the meantime are outdated,
+			 * but updating such a link again does not change anything.
+			 */
+			while (this.numExpiries > 0 && this.expiryTimes[0] < time) {
+				int index = this.expiryLinks[0];
+				removeFirstExpiry();
+				update(time, travelTimeInfos[index]);
+			}
+		}
+
+		private void update(double time, TravelTimeInfo travelTimeInfo) {
+			if (travelTimeInfo.updateTime == time) return;
+			travelTimeInfo.updateTime = time;
+
+			calcBinTravelTime(time, travelTimeInfo);
+
+			/*
+			 * If no further trips are stored in the TravelTimeInfo,
+			 * we deactivate the link and ensure that its expected
+			 * travel time is its free speed travel time.
+			 */
+			if (travelTimeInfo.numTrips == 0) {
+				if (travelTimeInfo.isActive) {
+					travelTimeInfo.isActive = false;
+					this.activeLinks--;
+				}
+				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
+			} else {
+				addExpiry(travelTimeInfo.leaveTimes[travelTimeInfo.firstTrip] + travelTimeInfo.dynamicBinSize, travelTimeInfo.index);
+			}
+		}
+
+		private static void calcBinTravelTime(double time, TravelTimeInfo travelTimeInfo) {
+			double removedTravelTimes = 0.0;
+
+			// first remove old TravelTimes
+			while (travelTimeInfo.numTrips > 0) {
+				int first = travelTimeInfo.firstTrip;
+				if (travelTimeInfo.leaveTimes[first] + travelTimeInfo.dynamicBinSize < time) {
+					removedTravelTimes += travelTimeInfo.tripTimes[first];
+					travelTimeInfo.firstTrip = (first + 1) % travelTimeInfo.leaveTimes.length;
+					travelTimeInfo.numTrips--;
+				} else break;
+			}
+
+			/*
+			 * We don't need an update if no Trips have been added or removed
+			 * within the current SimStep. The initial FreeSpeedTravelTime has
+			 * to be set correctly via setTravelTime!
+			 */
+			if (removedTravelTimes == 0.0 && travelTimeInfo.addedTravelTimes == 0.0) return;
+
+			travelTimeInfo.sumTravelTimes = travelTimeInfo.sumTravelTimes - removedTravelTimes + travelTimeInfo.addedTravelTimes;
+
+			travelTimeInfo.addedTravelTimes = 0.0;
+
+			/*
+			 * Ensure, that we don't allow TravelTimes shorter than the
+			 * FreeSpeedTravelTime.
+			 */
+			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
+			if (travelTimeInfo.numTrips > 0) meanTravelTime = travelTimeInfo.sumTravelTimes / travelTimeInfo.numTrips;
+
+			if (meanTravelTime < travelTimeInfo.freeSpeedTravelTime) {
+				log.warn("Mean TravelTime to short?");
+				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
+			} else travelTimeInfo.travelTime = meanTravelTime;
+		}
+
+		private void addExpiry(double time, int index) {
+			if (this.numExpiries == this.expiryTimes.length) {
+				this.expiryTimes = Arrays.copyOf(this.expiryTimes, 2 * this.numExpiries);
+				this.expiryLinks = Arrays.copyOf(this.expiryLinks, 2 * this.numExpiries);
+			}
+			int i = this.numExpiries++;
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (this.expiryTimes[parent] <= time) break;
+				this.expiryTimes[i] = this.expiryTimes[parent];
+				this.expiryLinks[i] = this.expiryLinks[parent];
+				i = parent;
+			}
+			this.expiryTimes[i] = time;
+			this.expiryLinks[i] = index;
+		}
+
+		private void removeFirstExpiry() {
+			int n = --this.numExpiries;
+			double time = this.expiryTimes[n];
+			int index = this.expiryLinks[n];
+			int i = 0;
+			while (2 * i + 1 < n) {
+				int child = 2 * i + 1;
+				if (child + 1 < n && this.expiryTimes[child + 1] < this.expiryTimes[child]) child++;
+				if (time <= this.expiryTimes[child]) break;
+				this.expiryTimes[i] = this.expiryTimes[child];
+				this.expiryLinks[i] = this.expiryLinks[child];
+				i = child;
+			}
+			this.expiryTimes[i] = time;
+			this.expiryLinks[i] = index;
+		}
+	}
+
+	private static class TravelTimeSnapshot implements TravelTime {
+
+		private final double[] travelTimes;
+
+		TravelTimeSnapshot(double[] travelTimes) {
+			this.travelTimes = travelTimes;
+		}
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			int index = link.getId().index();
+			return index < this.travelTimes.length ? this.travelTimes[index] : Double.MAX_VALUE;
+		}
+	}
+
 	/*
 	 * ----------------------------------------------------------------
 	 * Methods for parallel Execution
@@ -423,6 +653,16 @@ public class TravelTimeCollector implements TravelTime,
 	 */
 	private void run(double time) {
 
+		// nothing to update in this time step, so the threads do not have to be woken up
+		boolean hasWork = false;
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				hasWork = stripe.hasWork(time);
+			}
+			if (hasWork) break;
+		}
+		if (!hasWork) return;
+
 		try {
 			// set current Time
 			for (UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable : updateMeanTravelTimesRunnables) {
@@ -449,7 +689,16 @@ public class TravelTimeCollector implements TravelTime,
 
 		// setup threads
 		for (int i = 0; i < numOfThreads; i++) {
-			UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable = new UpdateMeanTravelTimesRunnable();
+			/*
+			 * Assign the stripes to the Threads
+			 */
+			List<Stripe> threadStripes = new ArrayList<Stripe>();
+			for (int j = i; j < this.stripes.length; j += numOfThreads) {
+				threadStripes.add(this.stripes[j]);
+			}
+
+			UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable = new UpdateMeanTravelTimesRunnable(
+					threadStripes.toArray(new Stripe[threadStripes.size()]), this.travelTimeInfos);
 			updateMeanTravelTimesRunnable.setStartBarrier(this.startBarrier);
 			updateMeanTravelTimesRunnable.setEndBarrier(this.endBarrier);
 			updateMeanTravelTimesRunnables[i] = updateMeanTravelTimesRunnable;
@@ -462,15 +711,6 @@ public class TravelTimeCollector implements TravelTime,
 			thread.start();
 		}
 
-		/*
-		 * Assign the TravelTimeInfos to the Threads
-		 */
-		int roundRobin = 0;
-		for (TravelTimeInfo travelTimeInfo : this.travelTimeInfos.values()) {
-			travelTimeInfo.runnable = updateMeanTravelTimesRunnables[roundRobin % numOfThreads];
-			roundRobin++;
-		}
-
 		/*
 		 * After initialization the Threads are waiting at the endBarrier. We
 		 * trigger this Barrier once so they wait at the startBarrier what has
@@ -496,10 +736,12 @@ public class TravelTimeCollector implements TravelTime,
 		private CyclicBarrier endBarrier = null;
 		
 		private double time = Time.UNDEFINED_TIME;
-		private Collection<TravelTimeInfo> activeTravelTimeInfos;
+		private final Stripe[] stripes;
+		private final TravelTimeInfo[] travelTimeInfos;
 
-		public UpdateMeanTravelTimesRunnable() {
-			activeTravelTimeInfos = new ArrayList<TravelTimeInfo>();
+		public UpdateMeanTravelTimesRunnable(Stripe[] stripes, TravelTimeInfo[] travelTimeInfos) {
+			this.stripes = stripes;
+			this.travelTimeInfos = travelTimeInfos;
 		}
 
 		public void setStartBarrier(CyclicBarrier cyclicBarrier) {
@@ -514,14 +756,6 @@ public class TravelTimeCollector implements TravelTime,
 			time = t;
 		}
 
-		public void addTravelTimeInfo(TravelTimeInfo travelTimeInfo) {
-			this.activeTravelTimeInfos.add(travelTimeInfo);
-		}
-
-		public int getActiveLinksCount() {
-			return this.activeTravelTimeInfos.size();
-		}
-
 		public void afterSim() {
 			this.simulationRunning = false;
 		}
@@ -553,20 +787,9 @@ public class TravelTimeCollector implements TravelTime,
 						return;
 					}
 					
-					Iterator<TravelTimeInfo> iter = activeTravelTimeInfos.iterator();
-					while (iter.hasNext()) {
-						TravelTimeInfo travelTimeInfo = iter.next();
-						calcBinTravelTime(this.time, travelTimeInfo);
-
-						/*
-						 * If no further trips are stored in the TravelTimeInfo,
-						 * we deactivate the link and ensure that its expected
-						 * travel time is its free speed travel time.
-						 */
-						if (travelTimeInfo.tripBins.size() == 0) {
-							travelTimeInfo.isActive = false;
-							travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-							iter.remove();
+					for (Stripe stripe : this.stripes) {
+						synchronized (stripe) {
+							stripe.update(this.time, this.travelTimeInfos);
 						}
 					}
 
@@ -578,46 +801,6 @@ public class TravelTimeCollector implements TravelTime,
 			}
 		} // run()
 
-		private void calcBinTravelTime(double time, TravelTimeInfo travelTimeInfo) {
-			double removedTravelTimes = 0.0;
-
-			List<TripBin> tripBins = travelTimeInfo.tripBins;
-
-			// first remove old TravelTimes
-			Iterator<TripBin> iter = tripBins.iterator();
-			while (iter.hasNext()) {
-				TripBin tripBin = iter.next();
-				if (tripBin.leaveTime + travelTimeInfo.dynamicBinSize < time) {
-					double travelTime = tripBin.leaveTime - tripBin.enterTime;
-					removedTravelTimes += travelTime;
-					iter.remove();
-				} else break;
-			}
-
-			/*
-			 * We don't need an update if no Trips have been added or removed
-			 * within the current SimStep. The initial FreeSpeedTravelTime has
-			 * to be set correctly via setTravelTime!
-			 */
-			if (removedTravelTimes == 0.0 && travelTimeInfo.addedTravelTimes == 0.0) return;
-
-			travelTimeInfo.sumTravelTimes = travelTimeInfo.sumTravelTimes - removedTravelTimes + travelTimeInfo.addedTravelTimes;
-
-			travelTimeInfo.addedTravelTimes = 0.0;
-
-			/*
-			 * Ensure, that we don't allow TravelTimes shorter than the
-			 * FreeSpeedTravelTime.
-			 */
-			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
-			if (!tripBins.isEmpty()) meanTravelTime = travelTimeInfo.sumTravelTimes / tripBins.size();
-
-			if (meanTravelTime < travelTimeInfo.freeSpeedTravelTime) {
-				log.warn("Mean TravelTime to short?");
-				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-			} else travelTimeInfo.travelTime = meanTravelTime;
-		}
-
 	} // ReplannerRunnable
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VolumesAnalyzerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+
+public class VolumesAnalyzerTest {
+
+	@Test
+	public void testVolumesPerMode() {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory nf = network.getFactory();
+		Node node1 = nf.createNode(Id.create("1", Node.class), new Coord((double) 0, (double) 0));
+		Node node2 = nf.createNode(Id.create("2", Node.class), new Coord((double) 1000, (double) 0));
+		Node node3 = nf.createNode(Id.create("3", Node.class), new Coord((double) 2000, (double) 0));
+		network.addNode(node1);
+		network.addNode(node2);
+		network.addNode(node3);
+		Link link1 = nf.createLink(Id.create("va1", Link.class), node1, node2);
+		Link link2 = nf.createLink(Id.create("va2", Link.class), node2, node3);
+		network.addLink(link1);
+		network.addLink(link2);
+
+		VolumesAnalyzer analyzer = new VolumesAnalyzer(3600, 86400, network);
+		Id<Person> carDriver = Id.create("va_car", Person.class);
+		Id<Person> busDriver = Id.create("va_bus", Person.class);
+		Id<Person> unknown = Id.create("va_unknown", Person.class);
+		analyzer.handleEvent(new PersonDepartureEvent(100, carDriver, link1.getId(), TransportMode.car));
+		analyzer.handleEvent(new PersonDepartureEvent(100, busDriver, link1.getId(), "bus"));
+		analyzer.handleEvent(new LinkLeaveEvent(200, carDriver, link1.getId(), null));
+		analyzer.handleEvent(new LinkLeaveEvent(300, busDriver, link1.getId(), null));
+		analyzer.handleEvent(new LinkLeaveEvent(3700, carDriver, link1.getId(), null));
+		analyzer.handleEvent(new LinkLeaveEvent(3800, unknown, link1.getId(), null));
+		analyzer.handleEvent(new LinkLeaveEvent(200000, carDriver, link1.getId(), null)); // after maxTime
+
+		Assert.assertEquals(26, analyzer.getVolumesArraySize());
+		int[] volumes = analyzer.getVolumesForLink(link1.getId());
+		Assert.assertEquals(26, volumes.length);
+		Assert.assertEquals(2, volumes[0]);
+		Assert.assertEquals(2, volumes[1]);
+		Assert.assertEquals(1, volumes[25]);
+		int[] carVolumes = analyzer.getVolumesForLink(link1.getId(), TransportMode.car);
+		Assert.assertEquals(1, carVolumes[0]);
+		Assert.assertEquals(1, carVolumes[1]);
+		Assert.assertEquals(1, carVolumes[25]);
+		int[] busVolumes = analyzer.getVolumesForLink(link1.getId(), "bus");
+		Assert.assertEquals(1, busVolumes[0]);
+		Assert.assertEquals(0, busVolumes[1]);
+		Assert.assertNull(analyzer.getVolumesForLink(link2.getId()));
+		Assert.assertNull(analyzer.getVolumesForLink(link1.getId(), TransportMode.walk));
+
+		double[] perHour = analyzer.getVolumesPerHourForLink(link1.getId(), TransportMode.car);
+		Assert.assertEquals(1.0, perHour[0], 0.0);
+		Assert.assertEquals(1.0, perHour[1], 0.0);
+
+		List<String> modes = new ArrayList<>(analyzer.getModes());
+		Assert.assertEquals(2, modes.size());
+		Assert.assertEquals("bus", modes.get(0));
+		Assert.assertEquals(TransportMode.car, modes.get(1));
+		Set<Id<Link>> linkIds = analyzer.getLinkIds();
+		Assert.assertEquals(1, linkIds.size());
+		Assert.assertTrue(linkIds.contains(link1.getId()));
+
+		// the returned arrays are copies
+		volumes[0] = 100;
+		Assert.assertEquals(2, analyzer.getVolumesForLink(link1.getId())[0]);
+
+		analyzer.reset(1);
+		Assert.assertNull(analyzer.getVolumesForLink(link1.getId()));
+		Assert.assertTrue(analyzer.getModes().isEmpty());
+		Assert.assertTrue(analyzer.getLinkIds().isEmpty());
+		analyzer.handleEvent(new LinkLeaveEvent(200, carDriver, link2.getId(), null));
+		Assert.assertEquals(1, analyzer.getVolumesForLink(link2.getId())[0]);
+		Assert.assertNull(analyzer.getVolumesForLink(link2.getId(), TransportMode.car));
+	}
+
+}
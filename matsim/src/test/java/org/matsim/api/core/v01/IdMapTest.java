@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Id<TMapped> id1 = Id.create("map-1", TMapped.class);
+		Id<TMapped> id2 = Id.create("map-2", TMapped.class);
+		Id<TMapped> id3 = Id.create("map-3", TMapped.class);
+
+		IdMap<TMapped, String> map = new IdMap<>(TMapped.class, 1);
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals("one", map.put(id1, "eins"));
+		Assert.assertEquals(2, map.size());
+
+		Assert.assertEquals("eins", map.get(id1));
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals("three", map.get(id3));
+		Assert.assertTrue(map.containsKey(id3));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertFalse(map.containsKey("map-3"));
+		Assert.assertTrue(map.containsValue("three"));
+
+		Assert.assertEquals("three", map.remove(id3));
+		Assert.assertNull(map.remove(id3));
+		Assert.assertEquals(1, map.size());
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(id1));
+	}
+
+	@Test
+	public void testIteration() {
+		Id<TMapped> id1 = Id.create("iter-1", TMapped.class);
+		Id<TMapped> id2 = Id.create("iter-2", TMapped.class);
+		Id<TMapped> id3 = Id.create("iter-3", TMapped.class);
+
+		IdMap<TMapped, Integer> map = new IdMap<>(TMapped.class);
+		map.put(id3, 3);
+		map.put(id1, 1);
+		map.put(id2, 2);
+
+		Iterator<Map.Entry<Id<TMapped>, Integer>> iter = map.entrySet().iterator();
+		Map.Entry<Id<TMapped>, Integer> e = iter.next();
+		Assert.assertSame(id1, e.getKey());
+		Assert.assertEquals(1, e.getValue().intValue());
+		e = iter.next();
+		Assert.assertSame(id2, e.getKey());
+		iter.remove();
+		e = iter.next();
+		Assert.assertSame(id3, e.getKey());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertEquals(2, map.keySet().size());
+		Assert.assertTrue(map.keySet().contains(id3));
+		Assert.assertTrue(map.values().contains(3));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testPut_nullValue() {
+		IdMap<TMapped, String> map = new IdMap<>(TMapped.class);
+		map.put(Id.create("null", TMapped.class), null);
+	}
+
+	private static class TMapped {}
+
+}
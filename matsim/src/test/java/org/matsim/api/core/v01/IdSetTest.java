@@ -0,0 +1,79 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSetTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.Iterator;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class IdSetTest {
+
+	@Test
+	public void testAddContainsRemove() {
+		Id<TSet> id1 = Id.create("1", TSet.class);
+		Id<TSet> id2 = Id.create("2", TSet.class);
+
+		IdSet<TSet> set = new IdSet<>(TSet.class);
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertTrue(set.add(id2));
+		Assert.assertFalse(set.add(id2));
+		Assert.assertEquals(1, set.size());
+		Assert.assertTrue(set.contains(id2));
+		Assert.assertFalse(set.contains(id1));
+		Assert.assertFalse(set.contains("2"));
+
+		Assert.assertTrue(set.add(id1));
+		Assert.assertEquals(2, set.size());
+		Assert.assertTrue(set.remove(id2));
+		Assert.assertFalse(set.remove(id2));
+		Assert.assertEquals(1, set.size());
+
+		set.clear();
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertFalse(set.contains(id1));
+	}
+
+	@Test
+	public void testIteration() {
+		Id<TSet> id1 = Id.create("iter-1", TSet.class);
+		Id<TSet> id2 = Id.create("iter-2", TSet.class);
+		Id<TSet> id3 = Id.create("iter-3", TSet.class);
+
+		IdSet<TSet> set = new IdSet<>(TSet.class);
+		set.add(id3);
+		set.add(id1);
+
+		Iterator<Id<TSet>> iter = set.iterator();
+		Assert.assertSame(id1, iter.next());
+		iter.remove();
+		Assert.assertSame(id3, iter.next());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(1, set.size());
+		Assert.assertFalse(set.contains(id1));
+		Assert.assertFalse(set.contains(id2));
+	}
+
+	private static class TSet {}
+
+}
@@ -67,6 +67,25 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		Id<TIndexed> id1 = Id.create("1", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("2", TIndexed.class);
+		Id<TIndexed> id1again = Id.create("1", TIndexed.class);
+		Id<TLink> linkId1 = Id.create("1", TLink.class);
+		
+		Assert.assertEquals(0, id1.index());
+		Assert.assertEquals(1, id2.index());
+		Assert.assertEquals(0, id1again.index());
+		Assert.assertEquals(2, Id.getNumberOfIds(TIndexed.class));
+		
+		Assert.assertSame(id1, Id.get(0, TIndexed.class));
+		Assert.assertSame(id2, Id.get(1, TIndexed.class));
+		Assert.assertNull(Id.get(2, TIndexed.class));
+		Assert.assertSame(linkId1, Id.get(linkId1.index(), TLink.class));
+	}
+	
+	private static class TIndexed {}
 	private static class TLink {}
 	private static class TNode {}
 	
@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchedSimStepParallelEventsManagerImplTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonMoneyEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+
+public class BatchedSimStepParallelEventsManagerImplTest {
+
+	@Test
+	public void testCreateEventsManager() {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setBatchEventsPerSimStep(true);
+		EventsManager events = EventsUtils.createEventsManager(config);
+		Assert.assertTrue(events instanceof BatchedSimStepParallelEventsManagerImpl);
+		Assert.assertSame(events, EventsUtils.getParallelFeedableInstance(events));
+	}
+
+	@Test
+	public void testEventsAreProcessedAtEndOfSimStep() {
+		BatchedSimStepParallelEventsManagerImpl events = new BatchedSimStepParallelEventsManagerImpl(2);
+		LinkEnterCollector collector1 = new LinkEnterCollector();
+		LinkEnterCollector collector2 = new LinkEnterCollector();
+		events.addHandler(collector1);
+		events.addHandler(collector2);
+
+		events.initProcessing();
+		for (int time = 0; time < 10; time++) {
+			for (int i = 0; i < 1000; i++) {
+				events.processEvent(new LinkEnterEvent(time, Id.create(i, Person.class), Id.create(i, Link.class), null));
+			}
+			Assert.assertEquals("events must only be handled at the end of the time step.", 1000 * time, collector1.events.size());
+			events.afterSimStep(time);
+			Assert.assertEquals(1000 * (time + 1), collector1.events.size());
+			Assert.assertEquals(1000 * (time + 1), collector2.events.size());
+		}
+		events.processEvent(new LinkEnterEvent(10, Id.create("stuck", Person.class), Id.create(0, Link.class), null));
+		events.finishProcessing();
+
+		Assert.assertEquals(10001, collector1.events.size());
+		Assert.assertEquals(collector1.events, collector2.events);
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertEquals("events must be handled in the order they were added.", Id.create(i, Link.class), collector1.events.get(9000 + i).getLinkId());
+		}
+
+		// after finishProcessing, events are processed immediately
+		events.processEvent(new LinkEnterEvent(20, Id.create(0, Person.class), Id.create(0, Link.class), null));
+		Assert.assertEquals(10002, collector1.events.size());
+	}
+
+	@Test
+	public void testEventsFromHandlersAndOtherThreads() throws InterruptedException {
+		final BatchedSimStepParallelEventsManagerImpl events = new BatchedSimStepParallelEventsManagerImpl(3);
+		// creates a money event for every link enter event
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(final LinkEnterEvent event) {
+				events.processEvent(new PersonMoneyEvent(event.getTime(), event.getDriverId(), 1.0));
+			}
+			@Override
+			public void reset(final int iteration) {
+			}
+		});
+		MoneyCounter counter1 = new MoneyCounter();
+		MoneyCounter counter2 = new MoneyCounter();
+		events.addHandler(counter1);
+		events.addHandler(counter2);
+
+		events.initProcessing();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 50000; i++) {
+						events.processEvent(new LinkEnterEvent(0, Id.create(i, Person.class), Id.create(i, Link.class), null));
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		events.afterSimStep(0);
+		Assert.assertEquals("events created by handlers must be processed within the same time step.", 200000, counter1.count);
+		Assert.assertEquals(200000, counter2.count);
+		events.finishProcessing();
+	}
+
+	@Test
+	public void testExceptionInHandler() {
+		BatchedSimStepParallelEventsManagerImpl events = new BatchedSimStepParallelEventsManagerImpl(2);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(final LinkEnterEvent event) {
+				throw new IllegalStateException("test");
+			}
+			@Override
+			public void reset(final int iteration) {
+			}
+		});
+		events.addHandler(new LinkEnterCollector());
+
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0, Id.create(0, Person.class), Id.create(0, Link.class), null));
+		try {
+			events.afterSimStep(0);
+			Assert.fail("expected exception.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	/*package*/ static class LinkEnterCollector implements LinkEnterEventHandler {
+		/*package*/ final List<LinkEnterEvent> events = new ArrayList<>();
+		@Override
+		public void handleEvent(final LinkEnterEvent event) {
+			this.events.add(event);
+		}
+		@Override
+		public void reset(final int iteration) {
+			this.events.clear();
+		}
+	}
+
+	/*package*/ static class MoneyCounter implements PersonMoneyEventHandler {
+		/*package*/ int count = 0;
+		@Override
+		public void handleEvent(final PersonMoneyEvent event) {
+			this.count++;
+		}
+		@Override
+		public void reset(final int iteration) {
+			this.count = 0;
+		}
+	}
+
+}
@@ -22,9 +22,18 @@ package org.matsim.core.events;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
@@ -63,6 +72,56 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_CustomEventSubclass() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		CountingMySubEventHandler subHandler = new CountingMySubEventHandler();
+		manager.addHandler(handler);
+		manager.addHandler(subHandler);
+		manager.processEvent(new MyEvent(1.0));
+		manager.processEvent(new MySubEvent(2.0));
+		Assert.assertEquals("handlers of the super class must get the events of the sub class as well.", 2, handler.counter);
+		Assert.assertEquals(1, subHandler.counter);
+	}
+
+	@Test
+	public void testProcessEvent_CustomEventInterface() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingTaggedEventHandler handler = new CountingTaggedEventHandler();
+		manager.addHandler(handler);
+		manager.processEvent(new MyEvent(1.0));
+		manager.processEvent(new MySubEvent(2.0));
+		Assert.assertEquals("handlers for an interface must get the events implementing it.", 1, handler.counter);
+	}
+
+	@Test
+	public void testProcessEvent_SeveralHandlerInterfaces() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		MultipleHandler handler = new MultipleHandler();
+		manager.addHandler(handler);
+		Id<Link> linkId = Id.create("1", Link.class);
+		manager.processEvent(new LinkEnterEvent(1.0, Id.create("1", Person.class), linkId, Id.create("1", Vehicle.class)));
+		manager.processEvent(new MyEvent(2.0));
+		manager.processEvent(new LinkLeaveEvent(3.0, Id.create("1", Person.class), linkId, Id.create("1", Vehicle.class)));
+		manager.processEvent(new MySubEvent(4.0));
+		Assert.assertEquals(1, handler.linkEnterCounter);
+		Assert.assertEquals("the handler interface of the super class must be found.", 1, handler.linkLeaveCounter);
+		Assert.assertEquals(2, handler.myEventCounter);
+		Assert.assertEquals(1, handler.mySubEventCounter);
+		Assert.assertEquals(4, handler.basicCounter);
+
+		manager.resetHandlers(1);
+		Assert.assertEquals("a handler implementing several interfaces must be reset only once.", 1, handler.resetCounter);
+
+		manager.removeHandler(handler);
+		manager.processEvent(new MyEvent(5.0));
+		manager.processEvent(new LinkEnterEvent(6.0, Id.create("1", Person.class), linkId, Id.create("1", Vehicle.class)));
+		Assert.assertEquals(0, handler.linkEnterCounter);
+		Assert.assertEquals(0, handler.myEventCounter);
+		Assert.assertEquals(0, handler.basicCounter);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -77,6 +136,96 @@ public class EventsManagerImplTest {
 		public void handleEvent(final MyEvent e);
 	}
 
+	private static interface TaggedEvent {
+	}
+
+	/*package*/ static class MySubEvent extends MyEvent implements TaggedEvent {
+		public MySubEvent(final double time) {
+			super(time);
+		}
+		@Override
+		public String getEventType() {
+			return "mySubEvent";
+		}
+	}
+
+	/*package*/ static interface MySubEventHandler extends EventHandler {
+		public void handleEvent(final MySubEvent e);
+	}
+
+	private static interface TaggedEventHandler extends EventHandler {
+		public void handleEvent(final TaggedEvent e);
+	}
+
+	/*package*/ static class CountingMySubEventHandler implements MySubEventHandler {
+		/*package*/ int counter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+		}
+		@Override
+		public void handleEvent(final MySubEvent e) {
+			this.counter++;
+		}
+	}
+
+	private static class CountingTaggedEventHandler implements TaggedEventHandler {
+		/*package*/ int counter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+		}
+		@Override
+		public void handleEvent(final TaggedEvent e) {
+			this.counter++;
+		}
+	}
+
+	private static class LinkLeaveCountingHandler implements LinkLeaveEventHandler {
+		/*package*/ int linkLeaveCounter = 0;
+		/*package*/ int resetCounter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.linkLeaveCounter = 0;
+			this.resetCounter++;
+		}
+		@Override
+		public void handleEvent(final LinkLeaveEvent e) {
+			this.linkLeaveCounter++;
+		}
+	}
+
+	private static class MultipleHandler extends LinkLeaveCountingHandler implements LinkEnterEventHandler, MyEventHandler, MySubEventHandler, BasicEventHandler {
+		/*package*/ int linkEnterCounter = 0;
+		/*package*/ int myEventCounter = 0;
+		/*package*/ int mySubEventCounter = 0;
+		/*package*/ int basicCounter = 0;
+		@Override
+		public void reset(final int iteration) {
+			super.reset(iteration);
+			this.linkEnterCounter = 0;
+			this.myEventCounter = 0;
+			this.mySubEventCounter = 0;
+			this.basicCounter = 0;
+		}
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			this.linkEnterCounter++;
+		}
+		@Override
+		public void handleEvent(final MyEvent e) {
+			this.myEventCounter++;
+		}
+		@Override
+		public void handleEvent(final MySubEvent e) {
+			this.mySubEventCounter++;
+		}
+		@Override
+		public void handleEvent(final Event e) {
+			this.basicCounter++;
+		}
+	}
+
 	/*package*/ static class CountingMyEventHandler implements MyEventHandler {
 		/*package*/ int counter = 0;
 		@Override
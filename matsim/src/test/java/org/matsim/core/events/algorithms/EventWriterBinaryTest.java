@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		List<Event> original = new ArrayList<>();
+		// enough events to span multiple blocks
+		for (int i = 0; i < 100000; i++) {
+			double time = 6 * 3600 + i / 10;
+			Id<Person> personId = Id.create("p" + (i % 997), Person.class);
+			Id<Link> linkId = Id.create(i % 113, Link.class);
+			Id<Vehicle> vehicleId = (i % 5 == 0) ? null : Id.create("v" + (i % 997), Vehicle.class);
+			if (i % 2 == 0) {
+				original.add(new LinkEnterEvent(time, personId, linkId, vehicleId));
+			} else {
+				original.add(new LinkLeaveEvent(time, personId, linkId, vehicleId));
+			}
+		}
+		original.add(new PersonMoneyEvent(7200.5, Id.create("p1", Person.class), -3.25));
+		original.add(new ActivityEndEvent(-1.0, Id.create("p2", Person.class), Id.create("1", Link.class), Id.create("f1", ActivityFacility.class), "home"));
+		original.add(new ActivityEndEvent(Double.NEGATIVE_INFINITY, Id.create("p3", Person.class), Id.create("1", Link.class), null, "work"));
+		GenericEvent generic = new GenericEvent("TEST", 1.0e10);
+		generic.getAttributes().put("text", "some <special> \"text\" with \u00fcmlauts");
+		generic.getAttributes().put("number", "42.42");
+		original.add(generic);
+
+		String filename = this.utils.getOutputDirectory() + "events" + EventWriterBinary.FILE_ENDING;
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		for (Event event : original) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+		Assert.assertTrue(new File(filename).exists());
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		Assert.assertEquals(original.size(), collector.getEvents().size());
+		for (int i = 0; i < original.size(); i++) {
+			Event expected = original.get(i);
+			Event actual = collector.getEvents().get(i);
+			Assert.assertEquals(expected.getClass(), actual.getClass());
+			Assert.assertEquals(expected.getTime(), actual.getTime(), 0.0);
+			Assert.assertEquals(expected.getAttributes(), actual.getAttributes());
+		}
+	}
+
+	@Test
+	public void testNullAttribute() {
+		String filename = this.utils.getOutputDirectory() + "events" + EventWriterBinary.FILE_ENDING;
+		EventWriterBinary writer = new EventWriterBinary(filename);
+
+		GenericEvent event = new GenericEvent("TEST", 3600.0);
+		event.getAttributes().put("dummy", null);
+		event.getAttributes().put("other", "value");
+		writer.handleEvent(event);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		Assert.assertEquals("there must be 1 event.", 1, collector.getEvents().size());
+		Event read = collector.getEvents().get(0);
+		Assert.assertFalse(read.getAttributes().containsKey("dummy"));
+		Assert.assertEquals("value", read.getAttributes().get("other"));
+	}
+
+}
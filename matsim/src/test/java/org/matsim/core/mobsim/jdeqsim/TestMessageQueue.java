@@ -51,6 +51,25 @@ public class TestMessageQueue extends MatsimTestCase {
 		assertEquals(true, mq.getNextMessage().getMessageArrivalTime()==1);
 	}
 	
+	public void testGetNextMessageTime(){
+		MessageQueue mq=new MessageQueue();
+		assertEquals(Double.POSITIVE_INFINITY, mq.getNextMessageTime());
+		Message m1=new DummyMessage();
+		m1.setMessageArrivalTime(1);
+		
+		Message m2=new DummyMessage();
+		m2.setMessageArrivalTime(2);
+		
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		assertEquals(1.0, mq.getNextMessageTime());
+		mq.removeMessage(m1);
+		assertEquals(2.0, mq.getNextMessageTime());
+		assertEquals(1, mq.getQueueSize());
+		assertEquals(true, mq.getNextMessage()==m2);
+		assertEquals(Double.POSITIVE_INFINITY, mq.getNextMessageTime());
+	}
+	
 	public void testRemoveMessage1(){
 		MessageQueue mq=new MessageQueue();
 		Message m1=new DummyMessage();
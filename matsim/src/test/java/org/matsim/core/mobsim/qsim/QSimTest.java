@@ -21,6 +21,7 @@
 package org.matsim.core.mobsim.qsim;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -67,7 +68,9 @@ import org.matsim.core.mobsim.qsim.agents.AgentFactory;
 import org.matsim.core.mobsim.qsim.agents.DefaultAgentFactory;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
 import org.matsim.core.mobsim.qsim.agents.PopulationAgentSource;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.core.mobsim.qsim.interfaces.NextEventTimeProvider;
 import org.matsim.core.mobsim.qsim.qnetsimengine.NetsimLink;
 import org.matsim.core.mobsim.qsim.qnetsimengine.NetsimNetwork;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineModule;
@@ -80,8 +83,10 @@ import org.matsim.core.population.PersonImpl;
 import org.matsim.core.population.PersonUtils;
 import org.matsim.core.population.PlanImpl;
 import org.matsim.core.population.PopulationFactoryImpl;
+import org.matsim.core.population.routes.ArrayNetworkRouteImpl;
 import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.population.routes.LinkNetworkRouteFactory;
+import org.matsim.core.population.routes.LinkIndicesPool;
 import org.matsim.core.population.routes.LinkNetworkRouteImpl;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.scenario.MutableScenario;
@@ -577,7 +582,135 @@ public class QSimTest {
 		Assert.assertEquals(1000, volume[8]); // all the rest
 	}
 
+
+	/**
+	 * Same as {@link #testFlowCapacityDriving()}, but with several runners per thread and nodes and links
+	 * being re-distributed among the runners every half hour.  The flow must not be affected by that.
+	 */
+	@Test
+	public void testFlowCapacityDriving_loadBalancing() {
+		Fixture f = new Fixture();
+		f.config.qsim().setNumberOfThreads(2);
+		f.config.qsim().setUsingThreadpool(true);
+		f.config.qsim().setNumberOfRunnersPerThread(3);
+		f.config.qsim().setLoadBalancingPeriod(1800);
+
+		for (int i = 1; i <= 10000; i++) {
+			Person person = PersonImpl.createPerson(Id.create(i, Person.class));
+			PlanImpl plan = PersonUtils.createAndAddPlan(person, true);
+			ActivityImpl a = plan.createAndAddActivity("h", f.link1.getId());
+			a.setEndTime(7*3600 - 1812);
+			LegImpl leg = plan.createAndAddLeg(TransportMode.car);
+			NetworkRoute route = ((PopulationFactoryImpl) f.scenario.getPopulation().getFactory()).createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			plan.createAndAddActivity("w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		VolumesAnalyzer vAnalyzer = new VolumesAnalyzer(3600, 9*3600, f.network);
+		events.addHandler(vAnalyzer);
+
+		QSim sim = createQSim(f, events);
+		sim.run();
+
+		int[] volume = vAnalyzer.getVolumesForLink(f.link2.getId());
+		Assert.assertEquals(3000, volume[6]);
+		Assert.assertEquals(6000, volume[7]);
+		Assert.assertEquals(1000, volume[8]);
+	}
 	
+	/**
+	 * Tests that skipping the time steps in which nothing happens results in exactly the
+	 * same events, but less sim steps.
+	 */
+	@Test
+	public void testSkippingIdleTimeSteps() {
+		runSkippingIdleTimeSteps(false);
+	}
+
+	/**
+	 * Tests that idle time steps are skipped in a QSim created with the default plugins as well,
+	 * which register sim step listeners that can tell their next event time.
+	 */
+	@Test
+	public void testSkippingIdleTimeSteps_defaultQSim() {
+		runSkippingIdleTimeSteps(true);
+	}
+
+	private void runSkippingIdleTimeSteps(final boolean defaultQSim) {
+		List<Event> expected = null;
+		int expectedSimSteps = 0;
+		for (boolean skipping : new boolean[] { false, true }) {
+			Fixture f = new Fixture();
+			f.config.qsim().setSkippingIdleTimeSteps(skipping);
+			for (int i = 0; i < 20; i++) {
+				Person person = PersonImpl.createPerson(Id.create(i, Person.class));
+				PlanImpl plan = PersonUtils.createAndAddPlan(person, true);
+				ActivityImpl a1 = plan.createAndAddActivity("h", f.link1.getId());
+				a1.setEndTime(6*3600 + i*1800 + i*7);
+				LegImpl leg = plan.createAndAddLeg(TransportMode.car);
+				NetworkRoute route = ((PopulationFactoryImpl) f.scenario.getPopulation().getFactory()).createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+				route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+				leg.setRoute(route);
+				ActivityImpl a2 = plan.createAndAddActivity("w", f.link3.getId());
+				a2.setEndTime(15*3600 + i*1800 + 0.5);
+				LegImpl leg2 = plan.createAndAddLeg("other");
+				Route route2 = f.scenario.getPopulation().getFactory().createRoute(Route.class, f.link3.getId(), f.link1.getId());
+				route2.setTravelTime(600.0);
+				leg2.setRoute(route2);
+				plan.createAndAddActivity("h", f.link1.getId());
+				f.plans.addPerson(person);
+			}
+
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+			QSim sim = defaultQSim ? QSimUtils.createDefaultQSim(f.scenario, events) : createQSim(f, events);
+			SimStepCounter counter = new SimStepCounter();
+			sim.addMobsimEngine(counter);
+			sim.run();
+
+			if (expected == null) {
+				expected = collector.getEvents();
+				expectedSimSteps = counter.simSteps;
+			} else {
+				Assert.assertEquals("wrong number of events.", expected.size(), collector.getEvents().size());
+				for (int i = 0; i < expected.size(); i++) {
+					Assert.assertEquals("different event.", expected.get(i).toString(), collector.getEvents().get(i).toString());
+				}
+				Assert.assertTrue("no time steps were skipped.", counter.simSteps < expectedSimSteps / 10);
+			}
+		}
+	}
+
+	private static class SimStepCounter implements MobsimEngine, NextEventTimeProvider {
+		int simSteps = 0;
+
+		@Override
+		public void doSimStep(double time) {
+			this.simSteps++;
+		}
+
+		@Override
+		public double getNextEventTime() {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		@Override
+		public void onPrepareSim() {
+		}
+
+		@Override
+		public void afterSim() {
+		}
+
+		@Override
+		public void setInternalInterface(InternalInterface internalInterface) {
+		}
+	}
+
 	/**
 	 * Tests that on a link with a flow capacity of 0.25 vehicles per time step, after the first vehicle
 	 * at time step t, the second vehicle may pass in time step t + 4 and the third in time step t+8.
@@ -1099,6 +1232,50 @@ public class QSimTest {
 		Assert.assertEquals("wrong type of event.", ActivityStartEvent.class, allEvents.get(19).getClass());
 	}
 
+	/**
+	 * Tests that a route backed by an array of link indices is driven like any
+	 * other network route, including an end link which is contained in the route.
+	 */
+	@Test
+	public void testRouteWithEndLinkTwice_arrayNetworkRoute() {
+		Fixture f = new Fixture();
+		Link link4 = f.network.createAndAddLink(Id.create(4, Link.class), f.node4, f.node1, 1000.0, 100.0, 6000, 1.0); // close the network
+
+		Person person = PersonImpl.createPerson(Id.create(1, Person.class));
+		PlanImpl plan = PersonUtils.createAndAddPlan(person, true);
+		ActivityImpl a1 = plan.createAndAddActivity("h", f.link1.getId());
+		a1.setEndTime(7.0*3600);
+		LegImpl l1 = plan.createAndAddLeg(TransportMode.car);
+		l1.setTravelTime(10);
+		NetworkRoute netRoute = new ArrayNetworkRouteImpl(f.link1.getId(), f.link3.getId(), new LinkIndicesPool());
+		List<Id<Link>> routeLinks = new ArrayList<Id<Link>>();
+		Collections.addAll(routeLinks, f.link2.getId(), f.link3.getId(), link4.getId(), f.link1.getId(), f.link2.getId());
+		netRoute.setLinkIds(f.link1.getId(), routeLinks, f.link3.getId());
+		l1.setRoute(netRoute);
+
+		plan.createAndAddActivity("w", f.link3.getId());
+		f.plans.addPerson(person);
+
+		/* build events */
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		/* run sim */
+		QSim sim = createQSim(f, events);
+		sim.run();
+
+		/* finish */
+		List<Id<Link>> enteredLinks = new ArrayList<Id<Link>>();
+		for (Event event : collector.getEvents()) {
+			if (event instanceof LinkEnterEvent) {
+				enteredLinks.add(((LinkEnterEvent) event).getLinkId());
+			}
+		}
+		Assert.assertEquals("wrong links entered.", Arrays.asList(f.link2.getId(), f.link3.getId(), link4.getId(), f.link1.getId(), f.link2.getId(), f.link3.getId()), enteredLinks);
+		Assert.assertEquals("wrong type of event.", ActivityStartEvent.class, collector.getEvents().get(collector.getEvents().size() - 1).getClass());
+	}
+
 	/**
 	 * Tests that the QueueSimulation reports a problem if the route of a vehicle
 	 * does not lead to the destination link.
@@ -0,0 +1,160 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkKdTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class LinkKdTreeTest {
+
+	@Test
+	public void testGetNearest() {
+		Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Link foo = createLink(s, 100, 200, 800, 500);
+		Link bar = createLink(s, 400, 300, 500, 400);
+		Link fbr = createLink(s, 800, 1400, 1400, 800);
+		Link a = createLink(s, 1100, 1100, 1200, 1200);
+		Link b = createLink(s, 1100, 1100, 1200, 1100);
+		Link c = createLink(s, 1200, 1200, 1200, 1100);
+		LinkKdTree tree = new LinkKdTree(Arrays.asList(foo, bar, fbr, a, b, c));
+
+		Assert.assertEquals(foo, tree.getNearest(200, 200));
+		Assert.assertEquals(foo, tree.getNearest(300, 300));
+		Assert.assertEquals(bar, tree.getNearest(390, 300));
+		Assert.assertEquals(fbr, tree.getNearest(1000, 1100));
+		Assert.assertEquals(foo, tree.getNearest(-50, -50));
+		Assert.assertEquals(a, tree.getNearest(1105, 1104));
+		Assert.assertEquals(a, tree.getNearest(1105, 1103));
+		Assert.assertEquals(b, tree.getNearest(1105, 1102));
+		Assert.assertEquals(b, tree.getNearest(1105, 1101));
+		Assert.assertEquals(c, tree.getNearest(1205, 1101));
+		Assert.assertEquals(Arrays.asList(b, a, fbr), tree.getKNearest(1150, 1105, 3));
+	}
+
+	@Test
+	public void testGetNearest_longNear_smallFarAway() {
+		Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Link a = createLink(s, 500, 200, 700, 200);
+		Link b = createLink(s, 100, 100, 900, 100);
+		LinkKdTree tree = new LinkKdTree(Arrays.asList(a, b));
+
+		Assert.assertEquals(b, tree.getNearest(600, 0));
+		Assert.assertEquals(a, tree.getNearest(600, 210));
+		Assert.assertEquals(b, tree.getNearest(300, 210));
+		Assert.assertEquals(a, tree.getNearest(400, 210));
+	}
+
+	@Test
+	public void testEmpty() {
+		LinkKdTree tree = new LinkKdTree(new ArrayList<Link>());
+		Assert.assertNull(tree.getNearest(0, 0));
+		Assert.assertTrue(tree.getDisk(0, 0, 100).isEmpty());
+	}
+
+	@Test
+	public void testQueries_sameAsExhaustiveSearch() {
+		Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Random random = new Random(42);
+		final List<Link> links = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			double fx = random.nextDouble() * 10000;
+			double fy = random.nextDouble() * 10000;
+			// mostly short links, but some long ones which overlap many others
+			double length = i % 50 == 0 ? 5000 : 300;
+			double tx = fx + (random.nextDouble() - 0.5) * length;
+			double ty = fy + (random.nextDouble() - 0.5) * length;
+			links.add(createLink(s, fx, fy, tx, ty));
+			if (i % 20 == 0) {
+				links.add(createLink(s, tx, ty, fx, fy)); // opposite direction, always same distance
+			}
+		}
+		LinkKdTree tree = new LinkKdTree(links);
+		Assert.assertEquals(links.size(), tree.size());
+
+		for (int q = 0; q < 300; q++) {
+			final double x = random.nextDouble() * 11000 - 500;
+			final double y = random.nextDouble() * 11000 - 500;
+			List<Link> expected = new ArrayList<>(links);
+			Collections.sort(expected, new Comparator<Link>() {
+				@Override
+				public int compare(final Link o1, final Link o2) {
+					int c = Double.compare(distance(o1, x, y), distance(o2, x, y));
+					return c != 0 ? c : Integer.compare(links.indexOf(o1), links.indexOf(o2));
+				}
+			});
+			Assert.assertEquals(expected.get(0), tree.getNearest(x, y));
+			Assert.assertEquals(expected.subList(0, 5), tree.getKNearest(x, y, 5));
+
+			double radius = random.nextDouble() * 500;
+			HashSet<Link> expectedDisk = new HashSet<>();
+			for (Link link : links) {
+				if (distance(link, x, y) <= radius * radius) {
+					expectedDisk.add(link);
+				}
+			}
+			Assert.assertEquals(expectedDisk, new HashSet<>(tree.getDisk(x, y, radius)));
+		}
+	}
+
+	/*
+	 * squared distance to the line segment of the link, computed the same way as in the tree
+	 */
+	private static double distance(final Link link, final double x, final double y) {
+		double fx = link.getFromNode().getCoord().getX();
+		double fy = link.getFromNode().getCoord().getY();
+		double dx = link.getToNode().getCoord().getX() - fx;
+		double dy = link.getToNode().getCoord().getY() - fy;
+		double u = ((x - fx) * dx + (y - fy) * dy) / (dx * dx + dy * dy);
+		u = Math.max(0, Math.min(1, u));
+		double px = fx + u * dx - x;
+		double py = fy + u * dy - y;
+		return px * px + py * py;
+	}
+
+	private Link createLink(Scenario s, double fromX, double fromY, double toX, double toY) {
+		NetworkFactory nf = s.getNetwork().getFactory();
+		Coord fc = new Coord(fromX, fromY);
+		Coord tc = new Coord(toX, toY);
+		return nf.createLink(
+				Id.create(fc.toString() + "-" + tc.toString(), Link.class),
+				nf.createNode(Id.create(fc.toString(), Node.class), fc),
+				nf.createNode(Id.create(tc.toString(), Node.class), tc)
+				);
+	}
+
+}
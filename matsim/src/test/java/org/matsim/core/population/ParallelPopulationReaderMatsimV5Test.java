@@ -0,0 +1,160 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV5Test.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.population.algorithms.PersonAlgorithm;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderMatsimV5Test {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final int N_OF_PERSONS = 5 * ParallelPopulationReaderMatsimV5.PERSONS_PER_CHUNK + 17;
+
+	@Test
+	public void testReadWrite_sameResultAsSequential() {
+		Scenario original = createScenario(1);
+		createPopulation(original.getPopulation());
+
+		byte[] sequential = write(original.getPopulation(), 1);
+		byte[] parallel = write(original.getPopulation(), 3);
+		Assert.assertArrayEquals("parallel writing must produce the same file.", sequential, parallel);
+
+		String filename = this.utils.getOutputDirectory() + "population.xml";
+		new org.matsim.api.core.v01.population.PopulationWriter(original.getPopulation(), null).write(filename);
+
+		Scenario read = createScenario(3);
+		new MatsimPopulationReader(read).readFile(filename);
+		Assert.assertEquals(N_OF_PERSONS, read.getPopulation().getPersons().size());
+		// the writer sorts the persons by id
+		List<Id<Person>> originalIds = new ArrayList<>(PopulationUtils.getSortedPersons(original.getPopulation()).keySet());
+		List<Id<Person>> readIds = new ArrayList<>(read.getPopulation().getPersons().keySet());
+		Assert.assertEquals("persons must be added in the order of the file.", originalIds, readIds);
+		Assert.assertArrayEquals("read population must be identical to the original one.", sequential, write(read.getPopulation(), 1));
+	}
+
+	@Test
+	public void testStreaming() {
+		Scenario original = createScenario(1);
+		createPopulation(original.getPopulation());
+		String filename = this.utils.getOutputDirectory() + "population.xml";
+		new org.matsim.api.core.v01.population.PopulationWriter(original.getPopulation(), null).write(filename);
+
+		Scenario read = createScenario(3);
+		PopulationImpl population = (PopulationImpl) read.getPopulation();
+		population.setIsStreaming(true);
+		final List<Id<Person>> streamedIds = new ArrayList<>();
+		population.addAlgorithm(new PersonAlgorithm() {
+			@Override
+			public void run(final Person person) {
+				Assert.assertEquals(3, person.getSelectedPlan().getPlanElements().size());
+				streamedIds.add(person.getId());
+			}
+		});
+		new MatsimPopulationReader(read).readFile(filename);
+
+		Assert.assertEquals("persons must not be kept in streaming mode.", 0, population.getPersons().size());
+		Assert.assertEquals(new ArrayList<>(PopulationUtils.getSortedPersons(original.getPopulation()).keySet()), streamedIds);
+	}
+
+	@Test
+	public void testTruncatedFile_workersEnd() throws IOException, InterruptedException {
+		Scenario original = createScenario(1);
+		createPopulation(original.getPopulation());
+		byte[] data = write(original.getPopulation(), 1);
+		String filename = this.utils.getOutputDirectory() + "truncated.xml";
+		OutputStream out = new FileOutputStream(filename);
+		out.write(data, 0, data.length / 2);
+		out.close();
+
+		Scenario read = createScenario(3);
+		try {
+			new MatsimPopulationReader(read).readFile(filename);
+			Assert.fail("expected an exception for the truncated file.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("ChunkParser")) {
+				thread.join(10000);
+				Assert.assertFalse("worker threads must end if the file cannot be parsed.", thread.isAlive());
+			}
+		}
+	}
+
+	private static Scenario createScenario(final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		return ScenarioUtils.createScenario(config);
+	}
+
+	private static void createPopulation(final Population population) {
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < N_OF_PERSONS; i++) {
+			Person person = pf.createPerson(Id.create(i, Person.class));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromCoord("home", new Coord(i, 0));
+			home.setEndTime(6 * 3600 + i);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg("walk");
+			leg.setRoute(new GenericRouteImpl(Id.create("a" + i, Link.class), Id.create("b" + i, Link.class)));
+			leg.getRoute().setDistance(100.0 + i);
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromCoord("work", new Coord(i, 1000)));
+			person.addPlan(plan);
+			person.setSelectedPlan(plan);
+			population.addPerson(person);
+		}
+	}
+
+	private static byte[] write(final Population population, final int numberOfThreads) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PopulationWriter writer = new PopulationWriter(population, null);
+		writer.setNumberOfThreads(numberOfThreads);
+		writer.write(out);
+		return out.toByteArray();
+	}
+
+}
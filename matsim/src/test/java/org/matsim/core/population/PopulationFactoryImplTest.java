@@ -23,6 +23,8 @@ import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlansConfigGroup;
@@ -70,4 +72,18 @@ public class PopulationFactoryImplTest {
 		Assert.assertEquals(CompressedNetworkRouteImpl.class, pf.createRoute(NetworkRoute.class, linkId, linkId).getClass());
 	}
 
+	@Test
+	public void testCreateLeg_modesShared() {
+		PopulationFactory pf = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation().getFactory();
+		Leg leg1 = pf.createLeg(new String("someMode"));
+		Leg leg2 = pf.createLeg(new String("someMode"));
+		Assert.assertEquals("someMode", leg1.getMode());
+		Assert.assertSame(leg1.getMode(), leg2.getMode());
+		leg2.setMode(new String("otherMode"));
+		Assert.assertSame(leg2.getMode(), new LegImpl(new String("otherMode")).getMode());
+		Assert.assertSame(leg2.getMode(), new LegImpl((LegImpl) leg2).getMode());
+		leg2.setMode(null);
+		Assert.assertNull(leg2.getMode());
+	}
+
 }
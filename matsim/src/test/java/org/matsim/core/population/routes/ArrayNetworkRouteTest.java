@@ -0,0 +1,97 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayNetworkRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkImpl;
+
+public class ArrayNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	private final LinkIndicesPool pool = new LinkIndicesPool();
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final NetworkImpl network) {
+		return new ArrayNetworkRouteImpl(fromLinkId, toLinkId, this.pool);
+	}
+
+	@Test
+	public void testClone() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(Id.create(3, Link.class));
+		srcRoute.add(Id.create(4, Link.class));
+		ArrayNetworkRouteImpl route1 = new ArrayNetworkRouteImpl(id1, id2, this.pool);
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		ArrayNetworkRouteImpl route2 = route1.clone();
+
+		srcRoute.add(Id.create(5, Link.class));
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		Assert.assertEquals(3, route1.getLinkIds().size());
+		Assert.assertEquals(2, route2.getLinkIds().size());
+		Assert.assertEquals(Id.create(4, Link.class), route2.getLinkIds().get(1));
+		Assert.assertEquals(Id.create(4, Link.class).index(), route2.getLinkIndex(1));
+	}
+
+	@Test
+	public void testIdenticalRoutesShareLinks() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(Id.create(3, Link.class));
+		srcRoute.add(Id.create(4, Link.class));
+
+		ArrayNetworkRouteImpl route1 = new ArrayNetworkRouteImpl(id1, id2, this.pool);
+		route1.setLinkIds(id1, srcRoute, id2);
+		ArrayNetworkRouteImpl route2 = new ArrayNetworkRouteImpl(id1, id2, this.pool);
+		route2.setLinkIds(id1, new ArrayList<>(srcRoute), id2);
+		Assert.assertEquals(1, this.pool.size());
+		Assert.assertEquals(route1.getLinkIds(), route2.getLinkIds());
+
+		srcRoute.add(Id.create(5, Link.class));
+		route2.setLinkIds(id1, srcRoute, id2);
+		Assert.assertEquals(2, route1.getLinkIds().size());
+		Assert.assertEquals(3, route2.getLinkIds().size());
+
+		route1.setLinkIds(id1, srcRoute, id2);
+		Assert.assertEquals(route2.getLinkIds(), route1.getLinkIds());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetLinkIds_readOnly() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(Id.create(3, Link.class));
+		ArrayNetworkRouteImpl route = new ArrayNetworkRouteImpl(id1, id1, this.pool);
+		route.setLinkIds(id1, srcRoute, id1);
+		route.getLinkIds().add(id1);
+	}
+
+}
@@ -20,12 +20,17 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PlanImpl;
 import org.matsim.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +65,39 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testSharedQueue_allPlansHandledOnce() {
+		Config config = new Config();
+		config.addCoreModules();
+		config.global().setNumberOfThreads(3);
+		config.global().setReplanningWorkDistribution(GlobalConfigGroup.ReplanningWorkDistribution.sharedQueue);
+		final AtomicInteger[] handled = new AtomicInteger[1000];
+		final List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < handled.length; i++) {
+			handled[i] = new AtomicInteger(0);
+			plans.add(new PlanImpl());
+		}
+		AbstractMultithreadedModule testee = new AbstractMultithreadedModule(config.global()) {
+			@Override
+			public PlanAlgorithm getPlanAlgoInstance() {
+				return new PlanAlgorithm() {
+					@Override
+					public void run(Plan plan) {
+						handled[plans.indexOf(plan)].incrementAndGet();
+					}
+				};
+			}
+		};
+		testee.prepareReplanning(null);
+		for (Plan plan : plans) {
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+		for (AtomicInteger cnt : handled) {
+			Assert.assertEquals(1, cnt.get());
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -20,11 +20,31 @@
 
 package org.matsim.core.router;
 
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Injector;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.network.MatsimNetworkReader;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.PreProcessLandmarks.LandmarksData;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
 
 public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 
@@ -36,4 +56,163 @@ public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 		return new AStarLandmarks(network, preProcessData, travelTimeCostCalculator);
 	}
 
+	public void testPreProcess_landmarkTravelTimes() {
+		Network network = loadNetwork();
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(travelTimeCostCalculator, 4);
+		preProcessData.run(network);
+		assertLandmarkTravelTimes(network, preProcessData, travelTimeCostCalculator);
+	}
+
+	public void testPreProcess_update() {
+		Network network = loadNetwork();
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(travelTimeCostCalculator, 4);
+		preProcessData.run(network);
+		Node[] landmarks = preProcessData.getLandmarks();
+
+		assertFalse("unchanged costs must not trigger a refresh.", preProcessData.update(travelTimeCostCalculator));
+
+		ScaledDisutility moreExpensive = new ScaledDisutility(travelTimeCostCalculator, 1.05);
+		preProcessData.setRefreshTolerance(0.1);
+		assertFalse("slightly higher costs must not trigger a refresh.", preProcessData.update(moreExpensive));
+		assertSame(travelTimeCostCalculator, preProcessData.getCostFunction());
+
+		preProcessData.setRefreshTolerance(0.0);
+		assertTrue(preProcessData.update(moreExpensive));
+		assertSame(moreExpensive, preProcessData.getCostFunction());
+		assertLandmarkTravelTimes(network, preProcessData, moreExpensive);
+
+		ScaledDisutility cheaper = new ScaledDisutility(travelTimeCostCalculator, 0.5);
+		preProcessData.setRefreshTolerance(0.1);
+		assertTrue("cheaper links must always trigger a refresh.", preProcessData.update(cheaper));
+		assertLandmarkTravelTimes(network, preProcessData, cheaper);
+
+		Node[] updatedLandmarks = preProcessData.getLandmarks();
+		assertEquals(landmarks.length, updatedLandmarks.length);
+		for (int i = 0; i < landmarks.length; i++) {
+			assertSame("the landmarks must be kept.", landmarks[i], updatedLandmarks[i]);
+		}
+	}
+
+	public void testFactory_updateOnIterationStart() {
+		Config config = loadConfig(null);
+		config.controler().setRoutingAlgorithmType(ControlerConfigGroup.RoutingAlgorithmType.AStarLandmarks);
+		final Network network = loadNetwork(config);
+		final FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(config.planCalcScore());
+		final ScaledDisutilityFactory disutilityFactory = new ScaledDisutilityFactory(travelTimeCostCalculator);
+		Injector injector = Injector.createInjector(config, new AbstractModule() {
+			@Override
+			public void install() {
+				install(new LeastCostPathCalculatorModule());
+				bind(Network.class).toInstance(network);
+				addTravelTimeBinding(TransportMode.car).toInstance(travelTimeCostCalculator);
+				addTravelDisutilityFactoryBinding(TransportMode.car).toInstance(disutilityFactory);
+			}
+		});
+		LeastCostPathCalculatorFactory factory = injector.getInstance(LeastCostPathCalculatorFactory.class);
+		assertTrue(factory instanceof IterationStartsListener);
+
+		AStarLandmarks router = (AStarLandmarks) factory.createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		assertLandmarkTravelTimes(network, router, travelTimeCostCalculator);
+
+		// the travel times of the last iteration made the links cheaper, the landmarks have to be updated before the replanning
+		disutilityFactory.factor = 0.5;
+		((IterationStartsListener) factory).notifyIterationStarts(new IterationStartsEvent(null, 1));
+		assertLandmarkTravelTimes(network, router, disutilityFactory.createTravelDisutility(travelTimeCostCalculator, config.planCalcScore()));
+	}
+
+	private Network loadNetwork() {
+		return loadNetwork(loadConfig(null));
+	}
+
+	private static Network loadNetwork(final Config config) {
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario).parse("test/scenarios/equil/network.xml");
+		return scenario.getNetwork();
+	}
+
+	private static void assertLandmarkTravelTimes(final Network network, final PreProcessLandmarks preProcessData, final TravelDisutility costFunction) {
+		Dijkstra dijkstra = new Dijkstra(network, new MinimumDisutility(costFunction), new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()));
+		Node[] landmarks = preProcessData.getLandmarks();
+		for (Node node : network.getNodes().values()) {
+			LandmarksData data = (LandmarksData) preProcessData.getNodeData(node);
+			for (int i = 0; i < landmarks.length; i++) {
+				double fromLandmark = travelCost(dijkstra.calcLeastCostPath(landmarks[i], node, 0, null, null));
+				double toLandmark = travelCost(dijkstra.calcLeastCostPath(node, landmarks[i], 0, null, null));
+				assertEquals(Math.min(fromLandmark, toLandmark), data.getMinLandmarkTravelTime(i), 1e-6);
+				assertEquals(Math.max(fromLandmark, toLandmark), data.getMaxLandmarkTravelTime(i), 1e-6);
+			}
+		}
+	}
+
+	private static void assertLandmarkTravelTimes(final Network network, final AStarLandmarks router, final TravelDisutility costFunction) {
+		Dijkstra dijkstra = new Dijkstra(network, new MinimumDisutility(costFunction), new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()));
+		for (Node node : network.getNodes().values()) {
+			LandmarksData data = router.getPreProcessData(node);
+			for (int i = 0; i < router.landmarks.length; i++) {
+				double fromLandmark = travelCost(dijkstra.calcLeastCostPath(router.landmarks[i], node, 0, null, null));
+				double toLandmark = travelCost(dijkstra.calcLeastCostPath(node, router.landmarks[i], 0, null, null));
+				assertEquals(Math.min(fromLandmark, toLandmark), data.getMinLandmarkTravelTime(i), 1e-6);
+				assertEquals(Math.max(fromLandmark, toLandmark), data.getMaxLandmarkTravelTime(i), 1e-6);
+			}
+		}
+	}
+
+	private static double travelCost(final Path path) {
+		return path == null ? Double.POSITIVE_INFINITY : path.travelCost;
+	}
+
+	private static class MinimumDisutility implements TravelDisutility {
+		private final TravelDisutility delegate;
+
+		MinimumDisutility(final TravelDisutility delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+	}
+
+	private static class ScaledDisutility implements TravelDisutility {
+		private final TravelDisutility delegate;
+		private final double factor;
+
+		ScaledDisutility(final TravelDisutility delegate, final double factor) {
+			this.delegate = delegate;
+			this.factor = factor;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return this.factor * this.delegate.getLinkTravelDisutility(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return this.factor * this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+	}
+
+	private static class ScaledDisutilityFactory implements TravelDisutilityFactory {
+		private final TravelDisutility delegate;
+		/*package*/ double factor = 1.0;
+
+		ScaledDisutilityFactory(final TravelDisutility delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public TravelDisutility createTravelDisutility(final TravelTime timeCalculator, final PlanCalcScoreConfigGroup cnScoringGroup) {
+			return new ScaledDisutility(this.delegate, this.factor);
+		}
+	}
+
 }
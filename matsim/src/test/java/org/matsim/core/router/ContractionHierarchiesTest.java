@@ -0,0 +1,258 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutility;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.PreProcessContractionHierarchies.Customization;
+import org.matsim.core.router.util.PreProcessContractionHierarchies.Customizations;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory(900).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testCalcLeastCostPath_sameCostsAsDijkstra() {
+		Network network = createRandomGrid(25);
+		TimeBinDisutility disutility = new TimeBinDisutility(network);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory(3600).createPathCalculator(network, disutility, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(4711);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = random.nextInt(2 * 3600);
+			// the contraction hierarchies use the costs at the start of the time bin for the whole route
+			FixedTimeDisutility fixed = new FixedTimeDisutility(disutility, Math.floor(time / 3600) * 3600);
+			Path expected = new Dijkstra(network, fixed, travelTime).calcLeastCostPath(from, to, time, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, time, null, null);
+
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			assertEquals(actual.links.size() + 1, actual.nodes.size());
+			double cost = 0;
+			for (int l = 0; l < actual.links.size(); l++) {
+				Link link = actual.links.get(l);
+				assertEquals("links must be connected.", actual.nodes.get(l), link.getFromNode());
+				assertEquals("links must be connected.", actual.nodes.get(l + 1), link.getToNode());
+				cost += fixed.getLinkTravelDisutility(link, 0, null, null);
+			}
+			assertEquals("route " + i + " is not a least cost path.", expected.travelCost, cost, 1e-6);
+		}
+	}
+
+	public void testCalcLeastCostPath_nodeNotInNetwork() {
+		Network network = createRandomGrid(3);
+		Network otherNetwork = createRandomGrid(3);
+		LeastCostPathCalculator ch = getLeastCostPathCalculator(network);
+		Node node = network.getNodes().values().iterator().next();
+		try {
+			ch.calcLeastCostPath(node, otherNetwork.getNodes().get(node.getId()), 0, null, null);
+			fail("expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testCustomizations_sharedPerTimeBin() {
+		Network network = createRandomGrid(5);
+		PreProcessContractionHierarchies data = new PreProcessContractionHierarchies();
+		data.run(network);
+		TimeBinDisutility disutility = new TimeBinDisutility(network);
+		Customizations customizations = new Customizations(data, 3600);
+
+		Customization first = customizations.get(disutility, 100);
+		assertSame(first, customizations.get(disutility, 3500));
+		assertNotSame(first, customizations.get(disutility, 3700));
+
+		customizations.clear();
+		assertNotSame(first, customizations.get(disutility, 100));
+	}
+
+	public void testCalcLeastCostPath_personDependentDisutility() {
+		Network network = createRandomGrid(3);
+		PlanCalcScoreConfigGroup scoring = new PlanCalcScoreConfigGroup();
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(scoring);
+		TravelDisutility disutility = new RandomizingTimeDistanceTravelDisutility.Builder(TransportMode.car).setSigma(3.)
+				.createTravelDisutility(travelTime, scoring);
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory(900).createPathCalculator(network, disutility, travelTime);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		try {
+			ch.calcLeastCostPath(nodes[0], nodes[1], 0, null, null);
+			fail("expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testCalcLeastCostPath_randomizingDisutilityWithoutSigma() {
+		Network network = createRandomGrid(3);
+		PlanCalcScoreConfigGroup scoring = new PlanCalcScoreConfigGroup();
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(scoring);
+		TravelDisutility disutility = new RandomizingTimeDistanceTravelDisutility.Builder(TransportMode.car).setSigma(0.)
+				.createTravelDisutility(travelTime, scoring);
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory(900).createPathCalculator(network, disutility, travelTime);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Dijkstra dijkstra = new Dijkstra(network, disutility, travelTime);
+		for (Node to : nodes) {
+			Path expected = dijkstra.calcLeastCostPath(nodes[0], to, 0, null, null);
+			Path actual = ch.calcLeastCostPath(nodes[0], to, 0, null, null);
+			if (expected == null) {
+				assertNull(actual);
+			} else {
+				assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			}
+		}
+	}
+
+	public void testCalcLeastCostPath_disutilityExceptionsPropagate() {
+		Network network = createRandomGrid(3);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		final IllegalStateException failure = new IllegalStateException("broken disutility");
+		TravelDisutility disutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				throw failure;
+			}
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return 0;
+			}
+		};
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory(900).createPathCalculator(network, disutility, travelTime);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		try {
+			ch.calcLeastCostPath(nodes[0], nodes[1], 0, null, null);
+			fail("expected IllegalStateException.");
+		} catch (IllegalStateException e) {
+			assertSame(failure, e);
+		}
+	}
+
+	/*
+	 * A grid with links of random length in both directions, some of them missing.
+	 */
+	/*package*/ static Network createRandomGrid(final int size) {
+		Random random = new Random(42);
+		NetworkImpl network = (NetworkImpl) NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = network.createAndAddNode(Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					linkId = addLinks(network, nodes[x][y], nodes[x + 1][y], random, linkId);
+				}
+				if (y + 1 < size) {
+					linkId = addLinks(network, nodes[x][y], nodes[x][y + 1], random, linkId);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static int addLinks(final NetworkImpl network, final Node a, final Node b, final Random random, int linkId) {
+		if (random.nextDouble() < 0.9) {
+			network.createAndAddLink(Id.create(linkId++, Link.class), a, b, 100 + random.nextInt(100), 10 + random.nextInt(10), 1000, 1);
+		}
+		if (random.nextDouble() < 0.9) {
+			network.createAndAddLink(Id.create(linkId++, Link.class), b, a, 100 + random.nextInt(100), 10 + random.nextInt(10), 1000, 1);
+		}
+		return linkId;
+	}
+
+	/*
+	 * Random costs which differ between the first and second hour.
+	 */
+	private static class TimeBinDisutility implements TravelDisutility {
+		private final double[][] costs = new double[2][Id.getNumberOfIds(Link.class)];
+
+		TimeBinDisutility(final Network network) {
+			Random random = new Random(13);
+			for (Link link : network.getLinks().values()) {
+				this.costs[0][link.getId().index()] = link.getLength() * (1 + random.nextDouble());
+				this.costs[1][link.getId().index()] = link.getLength() * (1 + 2 * random.nextDouble());
+			}
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return this.costs[time < 3600 ? 0 : 1][link.getId().index()];
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return Math.min(this.costs[0][link.getId().index()], this.costs[1][link.getId().index()]);
+		}
+	}
+
+	private static class FixedTimeDisutility implements TravelDisutility {
+		private final TravelDisutility delegate;
+		private final double time;
+
+		FixedTimeDisutility(final TravelDisutility delegate, final double time) {
+			this.delegate = delegate;
+			this.time = time;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return this.delegate.getLinkTravelDisutility(link, this.time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FastBidirectionalDijkstraTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.FastBidirectionalDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
+import org.matsim.vehicles.Vehicle;
+
+public class FastBidirectionalDijkstraTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new FastBidirectionalDijkstraFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testCalcLeastCostPath_timeDependent() {
+		Network network = createRandomGrid(30);
+		CongestedTravelTime travelTime = new CongestedTravelTime();
+		doTestCompareWithDijkstra(network, travelTime, new FastBidirectionalDijkstraFactory().createPathCalculator(network, travelTime, travelTime));
+	}
+
+	public void testCalcLeastCostPath_timeDependentWithLandmarks() {
+		Network network = createRandomGrid(30);
+		CongestedTravelTime travelTime = new CongestedTravelTime();
+		PreProcessLandmarks landmarks = new PreProcessLandmarks(travelTime);
+		landmarks.run(network);
+		doTestCompareWithDijkstra(network, travelTime, new FastBidirectionalDijkstraFactory(landmarks).createPathCalculator(network, travelTime, travelTime));
+	}
+
+	public void testCalcLeastCostPath_settlesLessNodes() {
+		Network network = createRandomGrid(60);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		FastBidirectionalDijkstra router = (FastBidirectionalDijkstra) new FastBidirectionalDijkstraFactory().createPathCalculator(network, travelTime, travelTime);
+		Node from = network.getNodes().get(Id.create("15_30", Node.class));
+		Node to = network.getNodes().get(Id.create("45_30", Node.class));
+		Path path = router.calcLeastCostPath(from, to, 0, null, null);
+		assertNotNull(path);
+
+		// a unidirectional Dijkstra settles all nodes closer to the start node than the destination
+		LeastCostPathTree tree = new LeastCostPathTree(travelTime, travelTime);
+		tree.calculate(network, from, 0);
+		int closerNodes = 0;
+		for (LeastCostPathTree.NodeData data : tree.getTree().values()) {
+			if (data.getCost() < path.travelCost) {
+				closerNodes++;
+			}
+		}
+		assertTrue("settled " + router.getNumberOfSettledNodes() + " nodes, Dijkstra settles " + closerNodes + ".",
+				router.getNumberOfSettledNodes() < closerNodes);
+	}
+
+	private static void doTestCompareWithDijkstra(final Network network, final TravelTimeAndDisutility travelTime, final LeastCostPathCalculator router) {
+		Dijkstra dijkstra = new Dijkstra(network, travelTime, travelTime);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(4711);
+		for (int i = 0; i < 300; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = 6 * 3600 + random.nextInt(4 * 3600);
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			Path actual = router.calcLeastCostPath(from, to, time, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals("links must be connected.", actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals("links must be connected.", actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+			assertEquals("route " + i + " is not a least cost path.", expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+		}
+	}
+
+	/*
+	 * A grid with links of random length in both directions, some of them missing.
+	 */
+	private static Network createRandomGrid(final int size) {
+		Random random = new Random(42);
+		NetworkImpl network = (NetworkImpl) NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = network.createAndAddNode(Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					linkId = addLinks(network, nodes[x][y], nodes[x + 1][y], random, linkId);
+				}
+				if (y + 1 < size) {
+					linkId = addLinks(network, nodes[x][y], nodes[x][y + 1], random, linkId);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static int addLinks(final NetworkImpl network, final Node a, final Node b, final Random random, int linkId) {
+		if (random.nextDouble() < 0.9) {
+			network.createAndAddLink(Id.create(linkId++, Link.class), a, b, 100 + random.nextInt(100), 10 + random.nextInt(10), 1000, 1);
+		}
+		if (random.nextDouble() < 0.9) {
+			network.createAndAddLink(Id.create(linkId++, Link.class), b, a, 100 + random.nextInt(100), 10 + random.nextInt(10), 1000, 1);
+		}
+		return linkId;
+	}
+
+	private interface TravelTimeAndDisutility extends TravelTime, TravelDisutility {
+	}
+
+	/*
+	 * Travel times which are up to three times the free speed travel times during the morning peak,
+	 * differently for every link.
+	 */
+	private static class CongestedTravelTime implements TravelTimeAndDisutility {
+
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			double freespeedTravelTime = link.getLength() / link.getFreespeed();
+			double peak = Math.max(0, 1 - Math.abs(time - 8 * 3600) / 3600);
+			int factor = Math.abs(link.getId().hashCode()) % 3;
+			return freespeedTravelTime * (1 + factor * peak);
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+}
@@ -42,9 +42,12 @@ import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.AStarEuclideanFactory;
 import org.matsim.core.router.util.AStarLandmarksFactory;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
 import org.matsim.core.router.util.DijkstraFactory;
 import org.matsim.core.router.util.FastAStarEuclideanFactory;
 import org.matsim.core.router.util.FastAStarLandmarksFactory;
+import org.matsim.core.router.util.FastBidirectionalAStarLandmarksFactory;
+import org.matsim.core.router.util.FastBidirectionalDijkstraFactory;
 import org.matsim.core.router.util.FastDijkstraFactory;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessDijkstra;
@@ -171,6 +174,45 @@ public class RoutingTest  {
 			}
 		});
 	}
+	@Test
+	public void testFastBidirectionalDijkstra() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "FastBidirectionalDijkstra";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new FastBidirectionalDijkstraFactory();
+			}
+		});
+	}
+	@Test
+	public void testFastBidirectionalAStarLandmarks() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "FastBidirectionalAStarLandmarks";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new FastBidirectionalAStarLandmarksFactory(network, costCalc);
+			}
+		});
+	}
+	@Test
+	public void testContractionHierarchies() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "ContractionHierarchies";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new ContractionHierarchiesFactory(900);
+			}
+		});
+	}
 
 	private void doTest(final RouterProvider provider) {
 //		final Config config = loadConfig("test/input/" + this.getClass().getCanonicalName().replace('.', '/') + "/config.xml");
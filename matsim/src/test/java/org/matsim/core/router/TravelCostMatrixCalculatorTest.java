@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelCostMatrixCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class TravelCostMatrixCalculatorTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCalculate_sameAsDijkstra() {
+		Network network = ContractionHierarchiesTest.createRandomGrid(20);
+		// costs depending on both travel time and distance
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 6.0 / 3600, -0.001);
+		List<Node> origins = randomNodes(network, 30, 1);
+		List<Node> destinations = randomNodes(network, 40, 2);
+
+		TravelCostMatrixCalculator calculator = new TravelCostMatrixCalculator(network, travelTime, travelTime);
+		calculator.setNumberOfThreads(3);
+		TravelCostMatrix matrix = calculator.calculate(origins, destinations, 8 * 3600);
+
+		Dijkstra dijkstra = new Dijkstra(network, travelTime, travelTime);
+		for (int o = 0; o < origins.size(); o++) {
+			for (int d = 0; d < destinations.size(); d++) {
+				Path path = dijkstra.calcLeastCostPath(origins.get(o), destinations.get(d), 8 * 3600, null, null);
+				if (path == null) {
+					Assert.assertEquals(Double.POSITIVE_INFINITY, matrix.getTravelCost(o, d), 0.0);
+					continue;
+				}
+				double distance = 0;
+				for (Link link : path.links) {
+					distance += link.getLength();
+				}
+				Assert.assertEquals(path.travelCost, matrix.getTravelCost(o, d), 1e-3);
+				Assert.assertEquals(path.travelTime, matrix.getTravelTime(o, d), 1e-3);
+				Assert.assertEquals(distance, matrix.getDistance(o, d), 1e-3);
+			}
+		}
+	}
+
+	@Test
+	public void testCalculate_sameOriginAndDestination() {
+		Network network = ContractionHierarchiesTest.createRandomGrid(5);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		Node node = network.getNodes().get(Id.create("2_2", Node.class));
+		TravelCostMatrix matrix = new TravelCostMatrixCalculator(network, travelTime, travelTime)
+				.calculate(Collections.singletonList(node), Collections.singletonList(node), 0);
+		Assert.assertEquals(0.0, matrix.getTravelCost(0, 0), 0.0);
+		Assert.assertEquals(0.0, matrix.getTravelTime(0, 0), 0.0);
+		Assert.assertEquals(0.0, matrix.getDistance(0, 0), 0.0);
+	}
+
+	@Test
+	public void testWriteRead() {
+		Network network = ContractionHierarchiesTest.createRandomGrid(10);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		List<Node> origins = randomNodes(network, 5, 3);
+		List<Node> destinations = randomNodes(network, 7, 4);
+		TravelCostMatrix matrix = new TravelCostMatrixCalculator(network, travelTime, travelTime).calculate(origins, destinations, 0);
+
+		String filename = this.utils.getOutputDirectory() + "matrix.bin.gz";
+		new TravelCostMatrixWriter(matrix).write(filename);
+		TravelCostMatrix read = new TravelCostMatrixReader().read(filename);
+
+		Assert.assertEquals(matrix.getOrigins(), read.getOrigins());
+		Assert.assertEquals(matrix.getDestinations(), read.getDestinations());
+		for (int o = 0; o < origins.size(); o++) {
+			Assert.assertEquals(o, read.getOriginIndex(origins.get(o).getId()));
+			for (int d = 0; d < destinations.size(); d++) {
+				Assert.assertEquals(matrix.getTravelTime(o, d), read.getTravelTime(o, d), 0.0);
+				Assert.assertEquals(matrix.getDistance(o, d), read.getDistance(o, d), 0.0);
+				Assert.assertEquals(matrix.getTravelCost(o, d), read.getTravelCost(o, d), 0.0);
+			}
+		}
+	}
+
+	private static List<Node> randomNodes(final Network network, final int count, final long seed) {
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Collections.shuffle(nodes, new Random(seed));
+		return nodes.subList(0, count);
+	}
+
+}
@@ -22,8 +22,16 @@ package org.matsim.core.scoring;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -31,6 +39,7 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.population.PersonImpl;
 import org.matsim.core.population.PlanImpl;
@@ -155,6 +164,60 @@ public class EventsToScoreTest extends MatsimTestCase {
 		}
 	}
 
+	public void testParallelScoring_sameScoresAsSequential() {
+		Scenario sequential = createScenarioWithPersons(1);
+		Scenario parallel = createScenarioWithPersons(3);
+		scoreEvents(sequential);
+		scoreEvents(parallel);
+		for (Person person : sequential.getPopulation().getPersons().values()) {
+			Person other = parallel.getPopulation().getPersons().get(person.getId());
+			assertNotNull(person.getSelectedPlan().getScore());
+			assertEquals(person.getSelectedPlan().getScore(), other.getSelectedPlan().getScore());
+		}
+	}
+
+	private static Scenario createScenarioWithPersons(final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.planCalcScore().setNumberOfThreads(numberOfThreads);
+		config.planCalcScore().setMarginalUtilityOfMoney(1.);
+		ActivityParams home = new ActivityParams("home");
+		home.setTypicalDuration(16 * 3600);
+		config.planCalcScore().addActivityParams(home);
+		ActivityParams work = new ActivityParams("work");
+		work.setTypicalDuration(8 * 3600);
+		config.planCalcScore().addActivityParams(work);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		for (int i = 0; i < 1000; i++) {
+			Person person = PersonImpl.createPerson(Id.create(i, Person.class));
+			person.addPlan(new PlanImpl());
+			scenario.getPopulation().addPerson(person);
+		}
+		return scenario;
+	}
+
+	private static void scoreEvents(final Scenario scenario) {
+		EventsToScore e2s = new EventsToScore(scenario, new CharyparNagelScoringFunctionFactory(scenario), 1.0);
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(e2s);
+		events.resetHandlers(0);
+		Id<Link> link1 = Id.create(1, Link.class);
+		Id<Link> link2 = Id.create(2, Link.class);
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			int i = Integer.parseInt(person.getId().toString());
+			double departure = 6 * 3600 + i;
+			events.processEvent(new ActivityEndEvent(departure, person.getId(), link1, null, "home"));
+			events.processEvent(new PersonDepartureEvent(departure, person.getId(), link1, TransportMode.car));
+			events.processEvent(new LinkEnterEvent(departure + 60, person.getId(), link2, null));
+			events.processEvent(new PersonArrivalEvent(departure + 600 + i % 7, person.getId(), link2, TransportMode.car));
+			events.processEvent(new ActivityStartEvent(departure + 600 + i % 7, person.getId(), link2, null, "work"));
+			events.processEvent(new PersonMoneyEvent(departure + 700, person.getId(), -i / 100.0));
+			if (i % 10 == 0) {
+				events.processEvent(new PersonStuckEvent(departure + 800, person.getId(), link2, TransportMode.car));
+			}
+		}
+		e2s.finish();
+	}
+
 	private static class MockScoringFunctionFactory implements ScoringFunctionFactory {
 
 		protected final MockScoringFunction sf = new MockScoringFunction();
@@ -540,6 +540,53 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		Assert.assertEquals("Filtering analyzed transport modes is enabled, but no modes set. Therefore, use default (=car)", 100.0, 
 				ttc.getLinkTravelTimes().getLinkTravelTime(link2, 200, null, null), 1e-8);
 	}
+
+	/**
+	 * The travel time data and the enter times are stored in arrays indexed by the Ids. Use links and
+	 * vehicles whose Ids are created after the calculator, and vehicle Ids of a wrong type in some
+	 * events, which must be handled like the vehicle Ids with the same key.
+	 */
+	@SuppressWarnings("unchecked")
+	public void testGetLinkTravelTime_IdsCreatedLater() {
+		Network network = NetworkUtils.createNetwork();
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setTraveltimeBinSize(900);
+		config.setAnalyzedModes(TransportMode.car);
+		config.setFilterModes(true);
+		TravelTimeCalculator ttc = new TravelTimeCalculator(network, config);
+
+		Node n1 = network.getFactory().createNode(Id.create("idsCreatedLater1", Node.class), new Coord(0, 0));
+		Node n2 = network.getFactory().createNode(Id.create("idsCreatedLater2", Node.class), new Coord(1000, 0));
+		Node n3 = network.getFactory().createNode(Id.create("idsCreatedLater3", Node.class), new Coord(2000, 0));
+		network.addNode(n1);
+		network.addNode(n2);
+		network.addNode(n3);
+		Link link1 = network.getFactory().createLink(Id.create("idsCreatedLater1", Link.class), n1, n2);
+		Link link2 = network.getFactory().createLink(Id.create("idsCreatedLater2", Link.class), n2, n3);
+		network.addLink(link1);
+		network.addLink(link2);
+
+		Id<Person> agId = Id.create(1510, Person.class);
+		// create the ids of the wrong type in reverse order, so their indices differ from the ones of the vehicle ids
+		Id<Vehicle>[] wrongTypeIds = new Id[100];
+		for (int i = wrongTypeIds.length - 1; i >= 0; i--) {
+			wrongTypeIds[i] = (Id<Vehicle>) (Id<?>) Id.create("idsCreatedLater" + i, Person.class);
+		}
+		for (int i = 0; i < 100; i++) {
+			// the vehicles are created while the events are handled
+			Id<Vehicle> vehId = Id.create("idsCreatedLater" + i, Vehicle.class);
+			Id<Vehicle> wrongTypeId = wrongTypeIds[i];
+			boolean car = i % 2 == 0;
+			double time = i * 10;
+			ttc.handleEvent(new Wait2LinkEvent(time, agId, link1.getId(), car ? vehId : wrongTypeId, car ? TransportMode.car : TransportMode.walk, 1.0));
+			ttc.handleEvent(new LinkLeaveEvent(time + 1, agId, link1.getId(), vehId));
+			ttc.handleEvent(new LinkEnterEvent(time + 1, agId, link2.getId(), vehId));
+			ttc.handleEvent(new LinkLeaveEvent(time + (car ? 51 : 501), agId, link2.getId(), car ? wrongTypeId : vehId));
+		}
+
+		Assert.assertEquals("only the car vehicles must be counted, also for events with vehicle ids of a wrong type", 50.0,
+				ttc.getLinkTravelTimes().getLinkTravelTime(link2, 0, null, null), 1e-8);
+	}
 	
 	/**
 	 * Tests the example in the comment to TravelTimeCalculator.consolidateData()
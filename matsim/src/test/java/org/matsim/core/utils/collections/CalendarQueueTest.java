@@ -0,0 +1,190 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class CalendarQueueTest extends TestCase {
+
+	private static final Comparator<Integer> DESCENDING = new Comparator<Integer>() {
+		@Override
+		public int compare(final Integer o1, final Integer o2) {
+			return o2.compareTo(o1);
+		}
+	};
+
+	public void testPoll_order() {
+		CalendarQueue<Integer> queue = new CalendarQueue<>(DESCENDING);
+		queue.add(1, 10.0);
+		queue.add(2, 5.0);
+		queue.add(3, 10.0);
+		queue.add(4, 5.5);
+		queue.add(5, 0.0);
+		assertEquals(5, queue.size());
+
+		assertNull(queue.poll(-1.0));
+		assertEquals(Integer.valueOf(5), queue.poll(4.0));
+		assertNull(queue.poll(4.0));
+		assertEquals(Integer.valueOf(2), queue.poll(5.0));
+		assertNull(queue.poll(5.0));
+		assertEquals(Integer.valueOf(4), queue.poll(6.0));
+		// same time: the larger element first
+		assertEquals(Integer.valueOf(3), queue.poll(20.0));
+		assertEquals(Integer.valueOf(1), queue.poll(20.0));
+		assertNull(queue.poll(20.0));
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testAdd_whilePolling() {
+		CalendarQueue<Integer> queue = new CalendarQueue<>(DESCENDING);
+		queue.add(1, 10.0);
+		queue.add(2, 10.0);
+		assertEquals(Integer.valueOf(2), queue.poll(10.0));
+		queue.add(3, 10.0); // must come before the remaining element at the same time
+		queue.add(4, 3.0); // already in the past
+		queue.add(5, 10.5);
+		assertEquals(Integer.valueOf(4), queue.poll(10.0));
+		assertEquals(Integer.valueOf(3), queue.poll(10.0));
+		assertEquals(Integer.valueOf(1), queue.poll(10.0));
+		assertNull(queue.poll(10.0));
+		assertEquals(Integer.valueOf(5), queue.poll(11.0));
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testRemove() {
+		CalendarQueue<Integer> queue = new CalendarQueue<>(DESCENDING);
+		Integer a = 1;
+		Integer b = 2;
+		Integer c = 3;
+		Integer d = 4;
+		queue.add(a, 10.0);
+		queue.add(b, 10.0);
+		queue.add(c, 20.0);
+		queue.add(d, 1e9);
+		assertTrue(queue.remove(c, 20.0));
+		assertFalse(queue.remove(c, 20.0));
+		assertTrue(queue.remove(d, 1e9));
+		assertEquals(2, queue.size());
+		assertEquals(b, queue.poll(10.0));
+		// a is now in the batch which is polled
+		assertTrue(queue.remove(a, 10.0));
+		assertNull(queue.poll(1e10));
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testPeekTime() {
+		CalendarQueue<Integer> queue = new CalendarQueue<>(DESCENDING);
+		assertEquals(Double.POSITIVE_INFINITY, queue.peekTime(), 0.0);
+		Integer a = 1;
+		Integer b = 2;
+		Integer c = 3;
+		queue.add(a, 50000.5);
+		assertEquals(50000.5, queue.peekTime(), 0.0);
+		queue.add(b, 50000.25); // same bucket, earlier
+		assertEquals(50000.25, queue.peekTime(), 0.0);
+		queue.add(c, 100.0); // earlier bucket
+		assertEquals(100.0, queue.peekTime(), 0.0);
+		assertTrue(queue.remove(c, 100.0));
+		assertEquals(50000.25, queue.peekTime(), 0.0);
+		assertTrue(queue.remove(b, 50000.25));
+		assertEquals(50000.5, queue.peekTime(), 0.0);
+
+		// idle period
+		for (double now = 0; now < 50000; now++) {
+			assertNull(queue.poll(now));
+			assertEquals(50000.5, queue.peekTime(), 0.0);
+		}
+		queue.add(b, 60000.0);
+		assertEquals(a, queue.poll(50001.0));
+		assertEquals(60000.0, queue.peekTime(), 0.0);
+		queue.add(c, 50001.5); // bucket before the first one, which was already passed
+		assertEquals(50001.5, queue.peekTime(), 0.0);
+		queue.clear();
+		assertEquals(Double.POSITIVE_INFINITY, queue.peekTime(), 0.0);
+		queue.add(a, 50002.0);
+		assertEquals(50002.0, queue.peekTime(), 0.0);
+	}
+
+	public void testValues() {
+		CalendarQueue<Integer> queue = new CalendarQueue<>(DESCENDING);
+		queue.add(1, 3.0);
+		queue.add(2, Double.POSITIVE_INFINITY);
+		queue.add(3, 1.0);
+		queue.add(4, 3.0);
+		List<Integer> values = queue.values();
+		assertEquals(4, values.size());
+		assertEquals(Integer.valueOf(3), values.get(0));
+		assertEquals(Integer.valueOf(4), values.get(1));
+		assertEquals(Integer.valueOf(1), values.get(2));
+		assertEquals(Integer.valueOf(2), values.get(3));
+		queue.clear();
+		assertTrue(queue.isEmpty());
+		assertTrue(queue.values().isEmpty());
+	}
+
+	public void testPoll_sameOrderAsPriorityQueue() {
+		final double[] times = new double[5000];
+		CalendarQueue<Integer> queue = new CalendarQueue<>(DESCENDING);
+		PriorityQueue<Integer> expected = new PriorityQueue<>(16, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer o1, final Integer o2) {
+				int cmp = Double.compare(times[o1], times[o2]);
+				return cmp != 0 ? cmp : DESCENDING.compare(o1, o2);
+			}
+		});
+		Random random = new Random(4711);
+		List<Integer> removable = new ArrayList<>();
+		int next = 0;
+		for (double now = 0; now < 2000000; now += 1 + random.nextInt(1000)) {
+			while (next < times.length && random.nextDouble() < 0.7) {
+				double r = random.nextDouble();
+				// some in the past, some with fractions, most within the next hour and some far ahead
+				times[next] = r < 0.05 ? now - 10 : r < 0.2 ? now + 3600 * random.nextDouble() : r < 0.95 ? now + random.nextInt(3600) : now + 1e6 * random.nextDouble();
+				Integer element = next; // the queue removes by identity
+				queue.add(element, times[next]);
+				expected.add(element);
+				removable.add(element);
+				next++;
+			}
+			if (!removable.isEmpty() && random.nextDouble() < 0.1) {
+				Integer element = removable.remove(random.nextInt(removable.size()));
+				if (expected.remove(element)) {
+					assertTrue(queue.remove(element, times[element]));
+				}
+			}
+			Integer element;
+			while ((element = queue.poll(now)) != null) {
+				assertEquals(expected.poll(), element);
+			}
+			assertTrue(expected.isEmpty() || times[expected.peek()] > now);
+			assertEquals(expected.size(), queue.size());
+			assertEquals(expected.isEmpty() ? Double.POSITIVE_INFINITY : times[expected.peek()], queue.peekTime(), 0.0);
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * KdTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KdTreeTest {
+
+	@Test
+	public void testEmpty() {
+		KdTree<String> tree = new KdTree.Builder<String>().build();
+		Assert.assertEquals(0, tree.size());
+		Assert.assertNull(tree.getClosest(0, 0));
+		Assert.assertTrue(tree.getKNearest(0, 0, 3).isEmpty());
+		Assert.assertTrue(tree.getDisk(0, 0, 100).isEmpty());
+	}
+
+	@Test
+	public void testGetClosest_ties() {
+		KdTree.Builder<String> builder = new KdTree.Builder<>();
+		builder.put(10, 10, "a");
+		builder.put(20, 20, "b");
+		builder.put(10, 10, "c");
+		builder.put(0, 0, "d");
+		KdTree<String> tree = builder.build();
+		Assert.assertEquals("a", tree.getClosest(11, 11));
+		Assert.assertEquals("a", tree.getClosest(5, 5)); // same distance to a, c and d, a was added first
+		Assert.assertEquals("d", tree.getClosest(4, 4));
+	}
+
+	@Test
+	public void testQueries_sameAsExhaustiveSearch() {
+		Random random = new Random(4711);
+		int n = 2000;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		KdTree.Builder<Integer> builder = new KdTree.Builder<>();
+		for (int i = 0; i < n; i++) {
+			// some duplicates and points on a grid to test values with equal coordinates
+			x[i] = i % 10 == 0 ? 100 * random.nextInt(10) : random.nextDouble() * 1000;
+			y[i] = i % 10 == 0 ? 100 * random.nextInt(10) : random.nextDouble() * 1000;
+			builder.put(x[i], y[i], i);
+		}
+		KdTree<Integer> tree = builder.build();
+		Assert.assertEquals(n, tree.size());
+		Assert.assertEquals(n, new HashSet<>(tree.values()).size());
+
+		for (int q = 0; q < 500; q++) {
+			double qx = random.nextDouble() * 1200 - 100;
+			double qy = random.nextDouble() * 1200 - 100;
+			List<Integer> expected = sortByDistance(x, y, qx, qy);
+
+			Assert.assertEquals(expected.get(0), tree.getClosest(qx, qy));
+			Assert.assertEquals(expected.subList(0, 7), tree.getKNearest(qx, qy, 7));
+
+			double distance = random.nextDouble() * 200;
+			Collection<Integer> disk = tree.getDisk(qx, qy, distance);
+			List<Integer> expectedDisk = new ArrayList<>();
+			for (int i : expected) {
+				if (Math.sqrt((x[i] - qx) * (x[i] - qx) + (y[i] - qy) * (y[i] - qy)) <= distance) {
+					expectedDisk.add(i);
+				}
+			}
+			Assert.assertEquals(expectedDisk.size(), disk.size());
+			Assert.assertEquals(new HashSet<>(expectedDisk), new HashSet<>(disk));
+		}
+		Assert.assertEquals(n, tree.getKNearest(0, 0, n + 10).size());
+	}
+
+	private static List<Integer> sortByDistance(final double[] x, final double[] y, final double qx, final double qy) {
+		List<Integer> result = new ArrayList<>();
+		for (int i = 0; i < x.length; i++) {
+			result.add(i);
+		}
+		Collections.sort(result, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer a, final Integer b) {
+				double da = (x[a] - qx) * (x[a] - qx) + (y[a] - qy) * (y[a] - qy);
+				double db = (x[b] - qx) * (x[b] - qx) + (y[b] - qy) * (y[b] - qy);
+				int c = Double.compare(da, db);
+				return c != 0 ? c : Integer.compare(a, b);
+			}
+		});
+		return result;
+	}
+
+}
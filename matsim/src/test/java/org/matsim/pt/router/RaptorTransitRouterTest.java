@@ -0,0 +1,248 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestCase;
+
+/**
+ * Uses the same scenarios as {@link TransitRouterImplTest}.
+ */
+public class RaptorTransitRouterTest {
+
+	@Test
+	public void testSingleLine() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord fromCoord = new Coord((double) 3800, (double) 5100);
+		Coord toCoord = new Coord((double) 16100, (double) 5050);
+		List<Leg> legs = router.calcRoute(fromCoord, toCoord, 5.0*3600, null);
+		assertEquals(3, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		assertEquals(Id.create("blue A > I", TransitRoute.class), ptRoute.getRouteId());
+		double expectedTravelTime = 29.0 * 60 + // agent takes the *:06 course, arriving in D at *:29
+				CoordUtils.calcDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testFromToSameStop() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord fromCoord = new Coord((double) 3800, (double) 5100);
+		Coord toCoord = new Coord((double) 4100, (double) 5050);
+		List<Leg> legs = router.calcRoute(fromCoord, toCoord, 5.0*3600, null);
+		assertEquals(1, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(CoordUtils.calcDistance(fromCoord, toCoord) / config.getBeelineWalkSpeed(), getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testDirectWalkCheaper() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord fromCoord = new Coord((double) 4000, (double) 3000);
+		Coord toCoord = new Coord((double) 8000, (double) 3000);
+		List<Leg> legs = router.calcRoute(fromCoord, toCoord, 5.0*3600, null);
+		assertEquals(1, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(CoordUtils.calcDistance(fromCoord, toCoord) / config.getBeelineWalkSpeed(), getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testLineChange() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = new Coord((double) 16100, (double) 10050);
+		List<Leg> legs = router.calcRoute(new Coord((double) 3800, (double) 5100), toCoord, 6.0*3600, null);
+		assertEquals(5, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		assertEquals(TransportMode.pt, legs.get(3).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(4).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		ptRoute = (ExperimentalTransitRoute) legs.get(3).getRoute();
+		assertEquals(Id.create("18", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("19", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.greenLine.getId(), ptRoute.getLineId());
+		assertEquals(Id.create("green clockwise", TransitRoute.class), ptRoute.getRouteId());
+		double expectedTravelTime = 31.0 * 60 + // agent takes the *:06 course, arriving in C at *:18, departing at *:21, arriving in K at*:31
+				CoordUtils.calcDistance(f.schedule.getFacilities().get(Id.create("19", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testFasterAlternative() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = new Coord((double) 28100, (double) 4950);
+		List<Leg> legs = router.calcRoute(new Coord((double) 3800, (double) 5100), toCoord, 5.0*3600 + 40.0*60, null);
+		assertEquals(4, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.pt, legs.get(2).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(3).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		ptRoute = (ExperimentalTransitRoute) legs.get(2).getRoute();
+		assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("12", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.redLine.getId(), ptRoute.getLineId());
+		double expectedTravelTime = 29.0 * 60 + // agent takes the *:46 course, arriving in C at *:58, departing at *:00, arriving in G at*:09
+				CoordUtils.calcDistance(f.schedule.getFacilities().get(Id.create("12", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testTransferWeights() {
+		// see TransitRouterImplTest.testTransferWeights()
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setUtilityOfLineSwitch_utl(0);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		List<Leg> legs = router.calcRoute(new Coord((double) 11900, (double) 5100), new Coord((double) 24100, (double) 4950), 6.0*3600 - 5.0*60, null);
+		assertEquals(5, legs.size());
+		assertEquals(f.redLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(3).getRoute()).getLineId());
+
+		config.setUtilityOfLineSwitch_utl(300.0 * config.getMarginalUtilityOfTravelTimePt_utl_s()); // corresponds to 5 minutes transit travel time
+		legs = router.calcRoute(new Coord((double) 11900, (double) 5100), new Coord((double) 24100, (double) 4950), 6.0*3600 - 5.0*60, null);
+		assertEquals(3, legs.size());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+	}
+
+	@Test
+	public void testTransferTime() {
+		// see TransitRouterImplTest.testTransferTime()
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setUtilityOfLineSwitch_utl(0);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		List<Leg> legs = router.calcRoute(new Coord((double) 11900, (double) 5100), new Coord((double) 24100, (double) 4950), 6.0*3600 - 5.0*60, null);
+		assertEquals(5, legs.size());
+		assertEquals(f.redLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(3).getRoute()).getLineId());
+
+		config.setAdditionalTransferTime(3.0*60);
+		legs = router.calcRoute(new Coord((double) 11900, (double) 5100), new Coord((double) 24100, (double) 4950), 6.0*3600 - 5.0*60, null);
+		assertEquals(3, legs.size());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+	}
+
+	@Test
+	public void testAfterMidnight() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setBeelineWalkSpeed(0.1); // something very slow, so the agent does not walk over night
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = new Coord((double) 16100, (double) 5050);
+		List<Leg> legs = router.calcRoute(new Coord((double) 3800, (double) 5100), toCoord, 25.0*3600, null);
+		assertEquals(3, legs.size());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		double expectedTravelTime = 4*3600 + 29.0 * 60 + // arrival at 05:29 at D
+				CoordUtils.calcDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testCalcRoutes_departureRange() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord fromCoord = new Coord((double) 3800, (double) 5100);
+		Coord toCoord = new Coord((double) 16100, (double) 5050);
+		List<List<Leg>> routes = router.calcRoutes(fromCoord, toCoord, 5.0*3600, 6.0*3600, null);
+		// the blue line departs at *:06, *:26 and *:46
+		assertEquals(3, routes.size());
+		double previousDeparture = Double.NEGATIVE_INFINITY;
+		for (List<Leg> legs : routes) {
+			assertEquals(3, legs.size());
+			ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+			assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+			assertTrue(legs.get(0).getDepartureTime() > previousDeparture);
+			previousDeparture = legs.get(0).getDepartureTime();
+			double arrival = legs.get(1).getDepartureTime() + legs.get(1).getTravelTime();
+			assertEquals(29.0 * 60, arrival % 1200 + 1200, MatsimTestCase.EPSILON);
+		}
+
+		// the same labels must not leak into the next query
+		List<Leg> legs = router.calcRoute(fromCoord, toCoord, 5.0*3600, null);
+		assertEquals(3, legs.size());
+		assertEquals(5.0 * 3600 + 29.0 * 60 + legs.get(2).getTravelTime(), 5.0 * 3600 + getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	private static TransitRouterConfig createConfig(final Fixture f) {
+		return new TransitRouterConfig(f.scenario.getConfig().planCalcScore(),
+				f.scenario.getConfig().plansCalcRoute(), f.scenario.getConfig().transitRouter(),
+				f.scenario.getConfig().vspExperimental());
+	}
+
+	private static double getTravelTime(final List<Leg> legs) {
+		double travelTime = 0.0;
+		for (Leg leg : legs) {
+			travelTime += leg.getTravelTime();
+		}
+		return travelTime;
+	}
+
+}
@@ -0,0 +1,268 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * WithinDayEngineTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.withinday.mobsim;
+
+import java.util.Iterator;
+import java.util.Set;
+
+import javax.inject.Provider;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.ActivityEndRescheduler;
+import org.matsim.core.mobsim.qsim.agents.WithinDayAgentUtils;
+import org.matsim.core.router.TripRouter;
+import org.matsim.withinday.controller.WithinDayControlerListener;
+import org.matsim.withinday.controller.WithinDayModule;
+import org.matsim.withinday.events.ReplanningEvent;
+import org.matsim.withinday.events.handler.ReplanningEventHandler;
+import org.matsim.withinday.replanning.identifiers.ActivityEndIdentifierFactory;
+import org.matsim.withinday.replanning.identifiers.ActivityPerformingIdentifierFactory;
+import org.matsim.withinday.replanning.identifiers.interfaces.AgentFilter;
+import org.matsim.withinday.replanning.identifiers.interfaces.AgentFilterFactory;
+import org.matsim.withinday.replanning.replanners.NextLegReplannerFactory;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringActivityReplanner;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringActivityReplannerFactory;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class WithinDayEngineTest {
+
+	private static final double DELAY = 600.0;
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testAsynchronousDuringActivityReplanning_sameResults() {
+		EventsCounter synchronous = runEquil(false, false);
+		EventsCounter asynchronous = runEquil(true, false);
+
+		Assert.assertTrue(synchronous.replanningEvents > 0);
+		assertSameResults(synchronous, asynchronous);
+	}
+
+	/*
+	 * The agents whose activity ends in the current time step are replanned synchronously, so
+	 * the activity engine has to see their new activity end times in the same time step.
+	 */
+	@Test
+	public void testAsynchronousDuringActivityReplanning_activityEndingInTimeStep() {
+		EventsCounter synchronous = runEquil(false, true);
+		EventsCounter asynchronous = runEquil(true, true);
+
+		Assert.assertTrue(synchronous.replanningEvents > 0);
+		Assert.assertEquals(0, synchronous.delayedDepartures);
+		Assert.assertEquals(0, asynchronous.delayedDepartures);
+		assertSameResults(synchronous, asynchronous);
+	}
+
+	private static void assertSameResults(EventsCounter synchronous, EventsCounter asynchronous) {
+		Assert.assertEquals(synchronous.replanningEvents, asynchronous.replanningEvents);
+		Assert.assertEquals(synchronous.departureEvents, asynchronous.departureEvents);
+		Assert.assertEquals(synchronous.linkEnterEvents, asynchronous.linkEnterEvents);
+		Assert.assertEquals(synchronous.linkEnterChecksum, asynchronous.linkEnterChecksum, 0.0);
+	}
+
+	private EventsCounter runEquil(boolean asynchronous, boolean delayActivityEnds) {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config.xml");
+		config.controler().setLastIteration(0);
+		config.controler().setCreateGraphs(false);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setWritePlansInterval(0);
+		config.controler().setOutputDirectory(this.utils.getOutputDirectory() + (asynchronous ? "async" : "sync"));
+
+		final Controler controler = new Controler(config);
+		controler.setDumpDataAtEnd(false);
+		controler.addOverridingModule(new WithinDayModule());
+
+		WithinDayControlerListener withinDayControlerListener = new WithinDayControlerListener();
+		withinDayControlerListener.setWithinDayTripRouterFactory(new Provider<TripRouter>() {
+			@Override
+			public TripRouter get() {
+				return controler.getInjector().getInstance(TripRouter.class);
+			}
+		});
+		// added listeners are processed in reverse order
+		controler.addControlerListener(new ReplanningInitializer(withinDayControlerListener, asynchronous, delayActivityEnds));
+		controler.addControlerListener(withinDayControlerListener);
+
+		EventsCounter counter = new EventsCounter();
+		controler.getEvents().addHandler(counter);
+		controler.run();
+		return counter;
+	}
+
+	/*
+	 * Either replans the next leg of all agents performing an activity at 05:59, i.e.
+	 * long before they depart, or delays the end of all activities ending at 06:00.
+	 */
+	private static class ReplanningInitializer implements StartupListener {
+
+		private final WithinDayControlerListener withinDayControlerListener;
+		private final boolean asynchronous;
+		private final boolean delayActivityEnds;
+
+		public ReplanningInitializer(WithinDayControlerListener withinDayControlerListener, boolean asynchronous,
+				boolean delayActivityEnds) {
+			this.withinDayControlerListener = withinDayControlerListener;
+			this.asynchronous = asynchronous;
+			this.delayActivityEnds = delayActivityEnds;
+		}
+
+		@Override
+		public void notifyStartup(StartupEvent event) {
+			WithinDayEngine withinDayEngine = this.withinDayControlerListener.getWithinDayEngine();
+			withinDayEngine.doAsynchronousDuringActivityReplanning(this.asynchronous);
+
+			if (this.delayActivityEnds) {
+				ActivityEndIdentifierFactory identifierFactory = new ActivityEndIdentifierFactory(
+						this.withinDayControlerListener.getActivityReplanningMap());
+				identifierFactory.addAgentFilterFactory(new AgentFilterFactory() {
+					@Override
+					public AgentFilter createAgentFilter() {
+						return new TimeFilter(6 * 3600);
+					}
+				});
+				DelayActivityEndReplannerFactory replannerFactory = new DelayActivityEndReplannerFactory(
+						event.getControler().getScenario(), withinDayEngine);
+				replannerFactory.addIdentifier(identifierFactory.createIdentifier());
+				withinDayEngine.addDuringActivityReplannerFactory(replannerFactory);
+				return;
+			}
+
+			ActivityPerformingIdentifierFactory identifierFactory = new ActivityPerformingIdentifierFactory(
+					this.withinDayControlerListener.getActivityReplanningMap(), this.withinDayControlerListener.getMobsimDataProvider());
+			identifierFactory.addAgentFilterFactory(new AgentFilterFactory() {
+				@Override
+				public AgentFilter createAgentFilter() {
+					return new TimeFilter(5 * 3600 + 59 * 60);
+				}
+			});
+
+			NextLegReplannerFactory replannerFactory = new NextLegReplannerFactory(event.getControler().getScenario(),
+					withinDayEngine, this.withinDayControlerListener.getWithinDayTripRouterFactory());
+			replannerFactory.addIdentifier(identifierFactory.createIdentifier());
+			withinDayEngine.addDuringActivityReplannerFactory(replannerFactory);
+		}
+	}
+
+	private static class DelayActivityEndReplannerFactory extends WithinDayDuringActivityReplannerFactory {
+
+		private final Scenario scenario;
+
+		public DelayActivityEndReplannerFactory(Scenario scenario, WithinDayEngine withinDayEngine) {
+			super(withinDayEngine);
+			this.scenario = scenario;
+		}
+
+		@Override
+		public WithinDayDuringActivityReplanner createReplanner() {
+			return new DelayActivityEndReplanner(super.getId(), this.scenario, this.getWithinDayEngine().getActivityRescheduler());
+		}
+	}
+
+	/*
+	 * Ends the current activity of the agent 10 minutes later.
+	 */
+	private static class DelayActivityEndReplanner extends WithinDayDuringActivityReplanner {
+
+		public DelayActivityEndReplanner(Id<WithinDayReplanner> id, Scenario scenario, ActivityEndRescheduler activityEndRescheduler) {
+			super(id, scenario, activityEndRescheduler);
+		}
+
+		@Override
+		public boolean doReplanning(MobsimAgent withinDayAgent) {
+			WithinDayAgentUtils.getModifiablePlan(withinDayAgent);
+			Activity currentActivity = (Activity) WithinDayAgentUtils.getCurrentPlanElement(withinDayAgent);
+			currentActivity.setEndTime(this.time + DELAY);
+			WithinDayAgentUtils.resetCaches(withinDayAgent);
+			this.internalInterface.rescheduleActivityEnd(withinDayAgent);
+			return true;
+		}
+	}
+
+	private static class TimeFilter implements AgentFilter {
+
+		private final double time;
+
+		public TimeFilter(double time) {
+			this.time = time;
+		}
+
+		@Override
+		public void applyAgentFilter(Set<Id<Person>> set, double time) {
+			Iterator<Id<Person>> iter = set.iterator();
+			while (iter.hasNext()) {
+				if (!this.applyAgentFilter(iter.next(), time)) iter.remove();
+			}
+		}
+
+		@Override
+		public boolean applyAgentFilter(Id<Person> id, double time) {
+			return time == this.time;
+		}
+	}
+
+	private static class EventsCounter implements ReplanningEventHandler, LinkEnterEventHandler, PersonDepartureEventHandler {
+
+		int replanningEvents = 0;
+		int departureEvents = 0;
+		int delayedDepartures = 0; // departures between 06:00 and the end of the delay
+		int linkEnterEvents = 0;
+		double linkEnterChecksum = 0.0;
+
+		@Override
+		public void handleEvent(ReplanningEvent event) {
+			this.replanningEvents++;
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.linkEnterEvents++;
+			this.linkEnterChecksum += event.getTime() * (event.getLinkId().index() + 1);
+		}
+
+		@Override
+		public void handleEvent(PersonDepartureEvent event) {
+			this.departureEvents++;
+			if (event.getTime() >= 6 * 3600 && event.getTime() < 6 * 3600 + DELAY) this.delayedDepartures++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+
+}
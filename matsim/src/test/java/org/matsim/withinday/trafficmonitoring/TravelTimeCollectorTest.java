@@ -20,24 +20,40 @@
 
 package org.matsim.withinday.trafficmonitoring;
 
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.events.StartupEvent;
 import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.mobsim.framework.Mobsim;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.FixedOrderSimulationListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkChangeEvent.ChangeType;
+import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
+import org.matsim.core.network.NetworkFactoryImpl;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.network.TimeVariantLinkFactory;
 import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestCase;
+import org.matsim.vehicles.Vehicle;
 
 public class TravelTimeCollectorTest extends MatsimTestCase {
 
@@ -62,6 +78,139 @@ public class TravelTimeCollectorTest extends MatsimTestCase {
 		controler.run();
 	}
 	
+	public void testGetLinkTravelTime_tripsExpire() {
+		Scenario scenario = createScenario(false);
+		Link link = scenario.getNetwork().getLinks().get(LINK_ID);
+		TravelTimeCollector travelTime = new TravelTimeCollector(scenario, null);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<Mobsim>(null));
+		assertEquals(10.0, travelTime.getLinkTravelTime(link, 0.0, null, null));
+
+		// the time window is enlarged to 2 * 30 seconds
+		travel(travelTime, "1", 0.0, 30.0);
+		doSimStep(travelTime, 31.0);
+		assertEquals(30.0, travelTime.getLinkTravelTime(link, 31.0, null, null));
+		doSimStep(travelTime, 90.0);
+		assertEquals(30.0, travelTime.getLinkTravelTime(link, 90.0, null, null));
+
+		// the trip drops out of the time window, so the link is back at free speed
+		doSimStep(travelTime, 91.0);
+		assertEquals(10.0, travelTime.getLinkTravelTime(link, 91.0, null, null));
+
+		travelTime.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<Mobsim>(null));
+	}
+
+	public void testGetLinkTravelTime_timeWindowShrinks() {
+		Scenario scenario = createScenario(false);
+		Link link = scenario.getNetwork().getLinks().get(LINK_ID);
+		TravelTimeCollector travelTime = new TravelTimeCollector(scenario, null);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<Mobsim>(null));
+
+		travel(travelTime, "1", 0.0, 30.0);
+		doSimStep(travelTime, 31.0);
+		assertEquals(30.0, travelTime.getLinkTravelTime(link, 31.0, null, null));
+
+		// a fast trip shrinks the time window to 3 * 15 seconds, so the first trip expires at 75 instead of 90
+		travel(travelTime, "2", 40.0, 55.0);
+		doSimStep(travelTime, 56.0);
+		assertEquals(22.5, travelTime.getLinkTravelTime(link, 56.0, null, null));
+		doSimStep(travelTime, 75.0);
+		assertEquals(22.5, travelTime.getLinkTravelTime(link, 75.0, null, null));
+		doSimStep(travelTime, 76.0);
+		assertEquals(15.0, travelTime.getLinkTravelTime(link, 76.0, null, null));
+		doSimStep(travelTime, 100.0);
+		assertEquals(15.0, travelTime.getLinkTravelTime(link, 100.0, null, null));
+		doSimStep(travelTime, 101.0);
+		assertEquals(10.0, travelTime.getLinkTravelTime(link, 101.0, null, null));
+
+		travelTime.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<Mobsim>(null));
+	}
+
+	public void testGetLinkTravelTime_networkChange() {
+		Scenario scenario = createScenario(true);
+		Link link = scenario.getNetwork().getLinks().get(LINK_ID);
+		TravelTimeCollector travelTime = new TravelTimeCollector(scenario, null);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<Mobsim>(null));
+		assertEquals(10.0, travelTime.getLinkTravelTime(link, 0.0, null, null));
+
+		// the free speed is halved at 100, the travel time is updated before the next time step
+		doSimStep(travelTime, 100.0);
+		assertEquals(10.0, travelTime.getLinkTravelTime(link, 100.0, null, null));
+		doSimStep(travelTime, 101.0);
+		assertEquals(20.0, travelTime.getLinkTravelTime(link, 101.0, null, null));
+
+		// after the reset, the free speed travel time is initialized for the start of the day again
+		travelTime.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<Mobsim>(null));
+		travelTime.reset(1);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<Mobsim>(null));
+		assertEquals(10.0, travelTime.getLinkTravelTime(link, 0.0, null, null));
+		doSimStep(travelTime, 100.0);
+		doSimStep(travelTime, 101.0);
+		assertEquals(20.0, travelTime.getLinkTravelTime(link, 101.0, null, null));
+
+		travelTime.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<Mobsim>(null));
+	}
+
+	public void testCreateSnapshot() {
+		Scenario scenario = createScenario(false);
+		Link link = scenario.getNetwork().getLinks().get(LINK_ID);
+		TravelTimeCollector travelTime = new TravelTimeCollector(scenario, null);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<Mobsim>(null));
+
+		travel(travelTime, "1", 0.0, 30.0);
+		doSimStep(travelTime, 31.0);
+		TravelTime snapshot = travelTime.createSnapshot();
+		assertEquals(30.0, snapshot.getLinkTravelTime(link, 31.0, null, null));
+
+		// later updates of the collector do not change the snapshot
+		travel(travelTime, "2", 40.0, 55.0);
+		doSimStep(travelTime, 56.0);
+		assertEquals(22.5, travelTime.getLinkTravelTime(link, 56.0, null, null));
+		assertEquals(30.0, snapshot.getLinkTravelTime(link, 56.0, null, null));
+		doSimStep(travelTime, 101.0);
+		assertEquals(10.0, travelTime.getLinkTravelTime(link, 101.0, null, null));
+		assertEquals(30.0, snapshot.getLinkTravelTime(link, 101.0, null, null));
+
+		travelTime.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<Mobsim>(null));
+	}
+
+	private static final Id<Link> LINK_ID = Id.create("tt", Link.class);
+
+	/*
+	 * A single link with a free speed travel time of 10 seconds. If the network is time variant,
+	 * the free speed is halved at 100 seconds.
+	 */
+	private static Scenario createScenario(boolean timeVariant) {
+		Config config = ConfigUtils.createConfig();
+		config.network().setTimeVariantNetwork(timeVariant);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		NetworkImpl network = (NetworkImpl) scenario.getNetwork();
+		if (timeVariant) {
+			((NetworkFactoryImpl) network.getFactory()).setLinkFactory(new TimeVariantLinkFactory());
+		}
+		Node n1 = network.createAndAddNode(Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = network.createAndAddNode(Id.create("2", Node.class), new Coord(100, 0));
+		Link link = network.createAndAddLink(LINK_ID, n1, n2, 100, 10, 3600, 1);
+		if (timeVariant) {
+			NetworkChangeEvent change = network.getFactory().createNetworkChangeEvent(100.0);
+			change.addLink(link);
+			change.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE, 5));
+			network.addNetworkChangeEvent(change);
+		}
+		return scenario;
+	}
+
+	private static void travel(TravelTimeCollector travelTime, String personId, double enterTime, double leaveTime) {
+		Id<Person> driverId = Id.create(personId, Person.class);
+		Id<Vehicle> vehicleId = Id.create(personId, Vehicle.class);
+		travelTime.handleEvent(new LinkEnterEvent(enterTime, driverId, LINK_ID, vehicleId));
+		travelTime.handleEvent(new LinkLeaveEvent(leaveTime, driverId, LINK_ID, vehicleId));
+	}
+
+	private static void doSimStep(TravelTimeCollector travelTime, double time) {
+		travelTime.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<Mobsim>(null, time));
+		travelTime.notifyMobsimAfterSimStep(new MobsimAfterSimStepEvent<Mobsim>(null, time));
+	}
+
 	/**
 	 * A ControllerListener that creates and registers a TravelTimeCollector
 	 * and a MobsimListenerForTests which executes the test cases.